@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Microbenchmark of the two SRP modPow stages performed during sign-in:
+ * generating the ephemeral key pair (g^a mod N) and deriving the password
+ * authentication key. Timings are logged rather than asserted since they
+ * depend on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AuthenticationHelperBenchmarkTest {
+
+    private static final String TAG = AuthenticationHelperBenchmarkTest.class.getSimpleName();
+    private static final String POOL_NAME = "xxxxxxxxx";
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+    private static final int KEY_LENGTH = 16;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Test
+    public void benchmarkEphemeralKeyGeneration() {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            CognitoUser.AuthenticationHelper.generateEphemeralKey();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            CognitoUser.AuthenticationHelper.generateEphemeralKey();
+        }
+        log("g^a mod N", start);
+    }
+
+    @Test
+    public void benchmarkPasswordAuthenticationKey() {
+        final CognitoUser.AuthenticationHelper helper =
+                new CognitoUser.AuthenticationHelper(POOL_NAME);
+        final BigInteger B = new BigInteger(1024, random).add(BigInteger.ONE);
+        final BigInteger salt = new BigInteger(128, random);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            helper.getPasswordAuthenticationKey("user", "password", B, salt);
+        }
+        final long start = System.nanoTime();
+        byte[] key = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            key = helper.getPasswordAuthenticationKey("user", "password", B, salt);
+        }
+        log("password authentication key", start);
+        assertEquals(KEY_LENGTH, key.length);
+    }
+
+    @Test
+    public void benchmarkHelperFromPrecomputedKeys() throws InterruptedException {
+        CognitoUser.precomputeEphemeralKeys();
+        // Let the background thread fill the pool before measuring.
+        Thread.sleep(2000);
+        final long start = System.nanoTime();
+        final CognitoUser.AuthenticationHelper first =
+                new CognitoUser.AuthenticationHelper(POOL_NAME);
+        log("helper from warm pool", start, 1);
+        final CognitoUser.AuthenticationHelper second =
+                new CognitoUser.AuthenticationHelper(POOL_NAME);
+        assertFalse(first.getA().equals(second.getA()));
+    }
+
+    private void log(String stage, long start) {
+        log(stage, start, ITERATIONS);
+    }
+
+    private void log(String stage, long start, int iterations) {
+        final double millis = (System.nanoTime() - start) / 1e6 / iterations;
+        Log.d(TAG, String.format("%s: %.2f ms/op", stage, millis));
+    }
+}
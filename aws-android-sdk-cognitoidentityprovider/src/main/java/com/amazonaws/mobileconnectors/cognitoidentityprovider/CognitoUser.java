@@ -116,6 +116,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -3395,22 +3397,30 @@ public class CognitoUser {
     }
 
     /**
-     * Private class for SRP client side math.
+     * Starts computing the ephemeral keys of the next SRP authentications in
+     * the background, so that sign-in doesn't wait for them.
+     */
+    static void precomputeEphemeralKeys() {
+        AuthenticationHelper.EPHEMERAL_KEYS.refill();
+    }
+
+    /**
+     * Package-private class for SRP client side math, visible for the
+     * benchmarks.
      */
     @SuppressWarnings({
             "checkstyle:parametername", "checkstyle:localvariablename", "checkstyle:membername",
             "checkstyle:staticvariablename"
         })
-    private static class AuthenticationHelper {
+    static class AuthenticationHelper {
         private BigInteger a;
         private BigInteger A;
         private String poolName;
 
         public AuthenticationHelper(String userPoolName) {
-            do {
-                a = new BigInteger(EPHEMERAL_KEY_LENGTH, SECURE_RANDOM).mod(N);
-                A = GG.modPow(a, N);
-            } while (A.mod(N).equals(BigInteger.ZERO));
+            final BigInteger[] ephemeralKey = EPHEMERAL_KEYS.take();
+            a = ephemeralKey[0];
+            A = ephemeralKey[1];
 
             if (userPoolName.contains("_")) {
                 poolName = userPoolName.split("_", 2)[1];
@@ -3427,6 +3437,21 @@ public class CognitoUser {
             return A;
         }
 
+        /**
+         * Generates a random ephemeral key a and computes A = g^a mod N.
+         *
+         * @return the pair {a, A}.
+         */
+        static BigInteger[] generateEphemeralKey() {
+            BigInteger a;
+            BigInteger A;
+            do {
+                a = new BigInteger(EPHEMERAL_KEY_LENGTH, SECURE_RANDOM).mod(N);
+                A = GG.modPow(a, N);
+            } while (A.mod(N).equals(BigInteger.ZERO));
+            return new BigInteger[] {a, A};
+        }
+
         private static final String HEX_N = "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD1"
                 + "29024E088A67CC74020BBEA63B139B22514A08798E3404DD"
                 + "EF9519B3CD3A431B302B0A6DF25F14374FE1356D6D51C245"
@@ -3464,6 +3489,8 @@ public class CognitoUser {
 
         private static final SecureRandom SECURE_RANDOM;
 
+        private static final EphemeralKeyPool EPHEMERAL_KEYS = new EphemeralKeyPool();
+
         static {
             try {
                 SECURE_RANDOM = SecureRandom.getInstance("SHA1PRNG");
@@ -3515,5 +3542,69 @@ public class CognitoUser {
             final byte[] key = hkdf.deriveKey(DERIVED_KEY_INFO, DERIVED_KEY_SIZE);
             return key;
         }
+
+        /**
+         * A few ephemeral key pairs computed ahead of time on a background
+         * thread, as computing A takes hundreds of milliseconds on slow
+         * devices. Each pair is handed out once. When the pool is empty a
+         * pair is computed on the calling thread.
+         */
+        static final class EphemeralKeyPool {
+            /** Enough for a user sign-in followed by a device sign-in. */
+            private static final int POOL_SIZE = 2;
+
+            private final ConcurrentLinkedQueue<BigInteger[]> keys =
+                    new ConcurrentLinkedQueue<BigInteger[]>();
+            private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+            /**
+             * Takes a precomputed key pair, or computes one if there is none,
+             * and starts refilling the pool.
+             *
+             * @return the pair {a, A}.
+             */
+            BigInteger[] take() {
+                BigInteger[] key = keys.poll();
+                if (key == null) {
+                    key = generateEphemeralKey();
+                }
+                refill();
+                return key;
+            }
+
+            /**
+             * Starts a background thread filling the pool, unless it is full
+             * or already being filled.
+             */
+            void refill() {
+                if (keys.size() >= POOL_SIZE || !refilling.compareAndSet(false, true)) {
+                    return;
+                }
+                final Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            while (keys.size() < POOL_SIZE) {
+                                keys.add(generateEphemeralKey());
+                            }
+                        } catch (final RuntimeException e) {
+                            LOGGER.warn("Failed to precompute SRP ephemeral keys", e);
+                        } finally {
+                            refilling.set(false);
+                        }
+                    }
+                }, "CognitoSrpKeyPrecompute");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.start();
+            }
+
+            /**
+             * @return the number of precomputed key pairs.
+             */
+            int size() {
+                return keys.size();
+            }
+        }
     }
 }
@@ -315,6 +315,7 @@ public class CognitoUserPool {
                 DEFAULT_SHARED_PREFERENCES_NAME,
                 isPersistenceEnabled);
         CognitoDeviceHelper.setPersistenceEnabled(isPersistenceEnabled);
+        CognitoUser.precomputeEphemeralKeys();
     }
 
     /**
@@ -184,6 +184,11 @@ public class ClientConfiguration {
      */
     private boolean enableGzip = false;
 
+    /**
+     * Optional whether to send requests over pooled persistent connections.
+     */
+    private boolean enableConnectionPooling = false;
+
     /**
      * Constructor.
      */
@@ -217,6 +222,7 @@ public class ClientConfiguration {
         this.trustManager = other.trustManager;
         this.curlLogging = other.curlLogging;
         this.enableGzip = other.enableGzip;
+        this.enableConnectionPooling = other.enableConnectionPooling;
     }
 
     /**
@@ -1132,4 +1138,39 @@ public class ClientConfiguration {
         setEnableGzip(enableGzip);
         return this;
     }
+
+    /**
+     * @return if requests are sent over pooled persistent connections.
+     */
+    public boolean isEnableConnectionPooling() {
+        return enableConnectionPooling;
+    }
+
+    /**
+     * Sets whether requests should be sent by a
+     * {@link com.amazonaws.http.PooledHttpClient}, which reuses at most
+     * {@link #getMaxConnections()} persistent connections to each host instead
+     * of opening a connection for each request. It doesn't support proxies,
+     * so it isn't used if a proxy host is set.
+     *
+     * @param enableConnectionPooling true to use pooled connections.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setEnableConnectionPooling(boolean enableConnectionPooling) {
+        this.enableConnectionPooling = enableConnectionPooling;
+    }
+
+    /**
+     * Sets whether requests should be sent over pooled persistent
+     * connections.
+     *
+     * @param enableConnectionPooling true to use pooled connections.
+     * @return The updated ClientConfiguration object.
+     * @see #setEnableConnectionPooling(boolean)
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withEnableConnectionPooling(boolean enableConnectionPooling) {
+        setEnableConnectionPooling(enableConnectionPooling);
+        return this;
+    }
 }
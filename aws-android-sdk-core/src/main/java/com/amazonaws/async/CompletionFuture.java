@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018-2019 Amazon.com, Inc. or its affiliates.
+ * All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link Future} completed by whichever thread finishes the asynchronous
+ * operation, rather than by a task holding a thread for the whole operation.
+ * {@link Callback}s added to it are called once it completes.
+ *
+ * @param <R> the type of the result
+ */
+public class CompletionFuture<R> implements Future<R> {
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private int state = PENDING;
+    private R result;
+    private Exception exception;
+    private List<Callback<? super R>> callbacks = new ArrayList<Callback<? super R>>();
+
+    /**
+     * Completes this future with the result, unless it is already done.
+     *
+     * @param result the result
+     * @return true if this call completed the future
+     */
+    public boolean setResult(R result) {
+        final List<Callback<? super R>> toCall;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            this.result = result;
+            state = SUCCEEDED;
+            toCall = complete();
+        }
+        for (final Callback<? super R> callback : toCall) {
+            callback.onResult(result);
+        }
+        return true;
+    }
+
+    /**
+     * Completes this future with the exception, unless it is already done.
+     *
+     * @param e the error
+     * @return true if this call completed the future
+     */
+    public boolean setException(Exception e) {
+        final List<Callback<? super R>> toCall;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            exception = e;
+            state = FAILED;
+            toCall = complete();
+        }
+        for (final Callback<? super R> callback : toCall) {
+            callback.onError(e);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a callback, called on the thread that completes this future, or
+     * on the calling thread if this future is already done. A cancelled
+     * future calls {@link Callback#onError(Exception)} with a
+     * {@link CancellationException}.
+     *
+     * @param callback the callback
+     */
+    public void addCallback(Callback<? super R> callback) {
+        final int completedState;
+        synchronized (this) {
+            if (state == PENDING) {
+                callbacks.add(callback);
+                return;
+            }
+            completedState = state;
+        }
+        if (completedState == SUCCEEDED) {
+            callback.onResult(result);
+        } else if (completedState == FAILED) {
+            callback.onError(exception);
+        } else {
+            callback.onError(new CancellationException());
+        }
+    }
+
+    /**
+     * Cancels this future. The operation notices it the next time it checks
+     * {@link #isCancelled()}, so mayInterruptIfRunning has no effect.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        final List<Callback<? super R>> toCall;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            state = CANCELLED;
+            toCall = complete();
+        }
+        for (final Callback<? super R> callback : toCall) {
+            callback.onError(new CancellationException());
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    @Override
+    public synchronized R get() throws InterruptedException, ExecutionException {
+        while (state == PENDING) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized R get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return report();
+    }
+
+    private List<Callback<? super R>> complete() {
+        final List<Callback<? super R>> toCall = callbacks;
+        callbacks = null;
+        notifyAll();
+        return toCall;
+    }
+
+    private R report() throws ExecutionException {
+        if (state == SUCCEEDED) {
+            return result;
+        } else if (state == FAILED) {
+            throw new ExecutionException(exception);
+        }
+        throw new CancellationException();
+    }
+}
@@ -48,6 +48,14 @@ public class AWS4Signer extends AbstractAWSSigner
 
     /** Seconds in a week, which is the max expiration time Sig-v4 accepts */
     private static final long MAX_EXPIRATION_TIME_IN_SECONDS = 60 * 60 * 24 * 7;
+    /** Max number of derived signing keys kept by all signers. */
+    private static final int MAX_SIGNING_KEY_CACHE_SIZE = 300;
+    /**
+     * Signing keys shared by all signers, they only change daily per
+     * credentials, region and service.
+     */
+    private static final SigningKeyCache SIGNING_KEY_CACHE =
+            new SigningKeyCache(MAX_SIGNING_KEY_CACHE_SIZE);
     /**
      * Service name override for use when the endpoint can't be used to
      * determine the service name.
@@ -294,20 +302,38 @@ public class AWS4Signer extends AbstractAWSSigner
         final String stringToSign = getStringToSign(algorithm, timeStamp, scope,
                 getCanonicalRequest(request, contentSha256));
 
-        // AWS4 uses a series of derived keys, formed by hashing different
-        // pieces of data
-        final byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey())
-                .getBytes(StringUtils.UTF8);
-        final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
-        final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
-        final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
-        final byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+        final byte[] kSigning = getSigningKey(sanitizedCredentials, dateStamp, regionName,
+                serviceName);
 
         final byte[] signature = sign(stringToSign.getBytes(StringUtils.UTF8), kSigning,
                 SigningAlgorithm.HmacSHA256);
         return new HeaderSigningResult(timeStamp, scope, kSigning, signature);
     }
 
+    /**
+     * Returns the signing key of the given scope, deriving it only if it isn't
+     * cached yet.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    private byte[] getSigningKey(AWSCredentials sanitizedCredentials, String dateStamp,
+            String regionName, String serviceName) {
+        byte[] kSigning = SIGNING_KEY_CACHE.get(sanitizedCredentials, dateStamp, regionName,
+                serviceName);
+        if (kSigning == null) {
+            // AWS4 uses a series of derived keys, formed by hashing different
+            // pieces of data
+            final byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey())
+                    .getBytes(StringUtils.UTF8);
+            final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
+            final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
+            final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
+            kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+            SIGNING_KEY_CACHE.put(sanitizedCredentials, dateStamp, regionName, serviceName,
+                    kSigning);
+        }
+        return kSigning;
+    }
+
     protected final String getTimeStamp(long dateMilli) {
         return DateUtils.format(TIME_PATTERN, new Date(dateMilli));
     }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.auth;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Cache of AWS4 signing keys. A signing key is derived from the secret key,
+ * the date, the region and the service with four chained HMAC computations,
+ * and stays the same for a whole day, so it is cached by access key, date,
+ * region and service. The cache has a max size and evicts the least recently
+ * used key once the max size has been reached.
+ */
+class SigningKeyCache {
+    private final InternalCache internalCache;
+
+    /**
+     * Creates a new cache that will contain, at most the specified number of
+     * signing keys.
+     *
+     * @param maxEntries The maximum size of this cache.
+     */
+    SigningKeyCache(int maxEntries) {
+        internalCache = new InternalCache(maxEntries);
+    }
+
+    /**
+     * Returns the cached signing key for the given scope, or null if no key is
+     * cached or it was derived from a different secret key.
+     *
+     * @param credentials The credentials the key is derived from.
+     * @param dateStamp The date stamp of the scope.
+     * @param regionName The region name of the scope.
+     * @param serviceName The service name of the scope.
+     * @return The signing key, otherwise null.
+     */
+    synchronized byte[] get(AWSCredentials credentials, String dateStamp, String regionName,
+            String serviceName) {
+        final SigningKey key = internalCache.get(
+                cacheKey(credentials, dateStamp, regionName, serviceName));
+        if (key == null || !key.secretKey.equals(credentials.getAWSSecretKey())) {
+            return null;
+        }
+        return key.kSigning;
+    }
+
+    /**
+     * Adds a signing key to this cache, possibly evicting the least recently
+     * used key if the cache is at its size limit.
+     *
+     * @param credentials The credentials the key is derived from.
+     * @param dateStamp The date stamp of the scope.
+     * @param regionName The region name of the scope.
+     * @param serviceName The service name of the scope.
+     * @param kSigning The signing key.
+     */
+    synchronized void put(AWSCredentials credentials, String dateStamp, String regionName,
+            String serviceName, byte[] kSigning) {
+        internalCache.put(cacheKey(credentials, dateStamp, regionName, serviceName),
+                new SigningKey(credentials.getAWSSecretKey(), kSigning));
+    }
+
+    /**
+     * @return The number of cached signing keys.
+     */
+    synchronized int size() {
+        return internalCache.size();
+    }
+
+    private static String cacheKey(AWSCredentials credentials, String dateStamp,
+            String regionName, String serviceName) {
+        return credentials.getAWSAccessKeyId() + "/" + dateStamp + "/" + regionName + "/"
+                + serviceName;
+    }
+
+    private static final class SigningKey {
+        private final String secretKey;
+        private final byte[] kSigning;
+
+        SigningKey(String secretKey, byte[] kSigning) {
+            this.secretKey = secretKey;
+            this.kSigning = kSigning;
+        }
+    }
+
+    /**
+     * LinkedHashMap in access order that evicts the least recently used entry.
+     */
+    private static final class InternalCache extends LinkedHashMap<String, SigningKey> {
+        private static final long serialVersionUID = 1L;
+        private static final float LOAD_FACTOR = 0.75f;
+        private final int maxSize;
+
+        InternalCache(int maxSize) {
+            super(maxSize, LOAD_FACTOR, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Entry<String, SigningKey> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
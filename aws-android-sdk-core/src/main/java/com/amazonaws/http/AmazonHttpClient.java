@@ -27,6 +27,7 @@ import com.amazonaws.RequestClientOptions.Marker;
 import com.amazonaws.Response;
 import com.amazonaws.ResponseMetadata;
 import com.amazonaws.SDKGlobalConfiguration;
+import com.amazonaws.async.CompletionFuture;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.handlers.CredentialsRequestHandler;
@@ -34,7 +35,10 @@ import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.AdaptiveRateLimiter;
+import com.amazonaws.retry.RetryMode;
 import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryQuota;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
@@ -53,6 +57,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * The Amazon HTTP Client class.
@@ -101,6 +106,18 @@ public class AmazonHttpClient {
 
     private final HttpRequestFactory requestFactory = new HttpRequestFactory();
 
+    /**
+     * Retry quota shared by the requests of this client, used unless the
+     * retry policy is in {@link RetryMode#LEGACY} mode.
+     */
+    private final RetryQuota retryQuota = new RetryQuota();
+
+    /**
+     * Send rate limiter shared by the requests of this client, used if the
+     * retry policy is in {@link RetryMode#ADAPTIVE} mode.
+     */
+    private final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter();
+
     /**
      * Constructs a new AWS client using the specified client configuration
      * options (ex: max retry attempts, proxy settings, etc).
@@ -109,7 +126,7 @@ public class AmazonHttpClient {
      *            communicate with AWS (ex: proxy settings, retry count, etc.).
      */
     public AmazonHttpClient(ClientConfiguration config) {
-        this(config, new UrlHttpClient(config));
+        this(config, createHttpClient(config));
     }
 
     /**
@@ -126,7 +143,19 @@ public class AmazonHttpClient {
     @Deprecated
     public AmazonHttpClient(ClientConfiguration config,
             RequestMetricCollector requestMetricCollector) {
-        this(config, new UrlHttpClient(config), requestMetricCollector);
+        this(config, createHttpClient(config), requestMetricCollector);
+    }
+
+    /**
+     * Creates the HTTP client chosen by the configuration, a
+     * {@link PooledHttpClient} if connection pooling is enabled and no proxy
+     * is set, otherwise a {@link UrlHttpClient}.
+     */
+    private static HttpClient createHttpClient(ClientConfiguration config) {
+        if (config.isEnableConnectionPooling() && config.getProxyHost() == null) {
+            return new PooledHttpClient(config);
+        }
+        return new UrlHttpClient(config);
     }
 
     /**
@@ -265,53 +294,136 @@ public class AmazonHttpClient {
      * @see AmazonHttpClient#execute(Request, HttpResponseHandler,
      *      HttpResponseHandler, ExecutionContext)
      */
-    @SuppressWarnings("checkstyle:methodlength")
     <T> Response<T> executeHelper(Request<?> request,
             HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
             HttpResponseHandler<AmazonServiceException> errorResponseHandler,
             ExecutionContext executionContext) {
-        /*
-         * Depending on which response handler we end up choosing to handle the
-         * HTTP response, it might require us to leave the underlying HTTP
-         * connection open, depending on whether or not it reads the complete
-         * HTTP response stream from the HTTP connection, or if delays reading
-         * any of the content until after a response is returned to the caller.
-         */
-        boolean leaveHttpConnectionOpen = false;
-        final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
-        /*
-         * add the service endpoint to the logs. You can infer service name from
-         * service endpoint
+        final RequestExecution<T> execution = new RequestExecution<T>(request, responseHandler,
+                errorResponseHandler, executionContext);
+        while (true) {
+            execution.waitToSend();
+            final Response<T> response = execution.attempt();
+            if (response != null) {
+                return response;
+            }
+            execution.pauseBeforeNextRetry();
+        }
+    }
+
+    /**
+     * Executes the request like
+     * {@link #execute(Request, HttpResponseHandler, HttpResponseHandler, ExecutionContext)}
+     * but on the given executor, and without blocking any thread while the
+     * request backs off between retries. After a failed attempt the retry is
+     * scheduled on a scheduler thread shared by all clients, which hands it
+     * back to the executor once the backoff delay has passed.
+     *
+     * @param request The AmazonWebServices request to send to the remote server
+     * @param responseHandler A response handler to accept a successful response
+     *            from the remote server
+     * @param errorResponseHandler A response handler to accept an unsuccessful
+     *            response from the remote server
+     * @param executionContext Additional information about the context of this
+     *            web service call
+     * @param executor the executor that runs the attempts.
+     * @param <T> the response type.
+     * @return a future completed with the response, or with the exception the
+     *         request failed with. Cancelling it stops further retries.
+     */
+    public <T> CompletionFuture<Response<T>> executeAsync(Request<?> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext,
+            Executor executor) {
+        if (executionContext == null) {
+            throw new AmazonClientException(
+                    "Internal SDK Error: No execution context parameter specified.");
+        }
+        final CompletionFuture<Response<T>> future = new CompletionFuture<Response<T>>();
+        executor.execute(new AsyncExecution<T>(request, responseHandler, errorResponseHandler,
+                executionContext, executor, future));
+        return future;
+    }
+
+    /**
+     * The state of a request across its attempts: the original parameters,
+     * headers and content to restore before every retry, the attempt count and
+     * the exception that caused the retry.
+     */
+    private final class RequestExecution<T> {
+        private final Request<?> request;
+        private final HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final AWSRequestMetrics awsRequestMetrics;
+        private final Map<String, String> originalParameters;
+        private final Map<String, String> originalHeaders;
+        private final InputStream originalContent;
+        private final AWSCredentials credentials;
+        private final RetryMode retryMode;
+        private int requestCount = 0;
+        /** The retry quota tokens taken for the current attempt. */
+        private int lastRetryCost = 0;
+        private long lastBackoffDelay = 0;
+        private URI redirectedURI = null;
+        private AmazonClientException retriedException = null;
+        private Signer signer = null;
+
+        RequestExecution(Request<?> request,
+                HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+                HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                ExecutionContext executionContext) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            awsRequestMetrics = executionContext.getAwsRequestMetrics();
+            /*
+             * add the service endpoint to the logs. You can infer service name
+             * from service endpoint
+             */
+            awsRequestMetrics.addProperty(Field.ServiceName, request.getServiceName());
+            awsRequestMetrics.addProperty(Field.ServiceEndpoint, request.getEndpoint());
+
+            // Apply whatever request options we know how to handle, such as
+            // user-agent.
+            setUserAgent(request);
+            request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
+
+            // Make a copy of the original request params and headers so that
+            // we can permute it in every attempt and start over with the
+            // original every time.
+            originalParameters = new LinkedHashMap<String, String>(request.getParameters());
+            originalHeaders = new HashMap<String, String>(request.getHeaders());
+            // mark input stream if supported
+            originalContent = request.getContent();
+            if (originalContent != null && originalContent.markSupported()) {
+                originalContent.mark(-1);
+            }
+            credentials = executionContext.getCredentials();
+            retryMode = config.getRetryPolicy().getRetryMode();
+        }
+
+        /**
+         * Makes the next attempt to execute the request.
+         *
+         * @return the response, or null if the request should be retried
+         *         after {@link #nextRetryDelay()}.
          */
-        awsRequestMetrics.addProperty(Field.ServiceName, request.getServiceName());
-        awsRequestMetrics.addProperty(Field.ServiceEndpoint, request.getEndpoint());
-
-        // Apply whatever request options we know how to handle, such as
-        // user-agent.
-        setUserAgent(request);
-        request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
-        int requestCount = 0;
-        long lastBackoffDelay = 0;
-        URI redirectedURI = null;
-        AmazonClientException retriedException = null;
-
-        // Make a copy of the original request params and headers so that we can
-        // permute it in this loop and start over with the original every time.
-        final Map<String, String> originalParameters = new LinkedHashMap<String, String>(
-                request.getParameters());
-        final Map<String, String> originalHeaders = new HashMap<String, String>(request.getHeaders());
-        // mark input stream if supported
-        final InputStream originalContent = request.getContent();
-        if (originalContent != null && originalContent.markSupported()) {
-            originalContent.mark(-1);
-        }
-
-        final AWSCredentials credentials = executionContext.getCredentials();
-        Signer signer = null;
-        HttpResponse httpResponse = null;
-        HttpRequest httpRequest = null;
+        @SuppressWarnings("checkstyle:methodlength")
+        Response<T> attempt() {
+            /*
+             * Depending on which response handler we end up choosing to handle
+             * the HTTP response, it might require us to leave the underlying
+             * HTTP connection open, depending on whether or not it reads the
+             * complete HTTP response stream from the HTTP connection, or if
+             * delays reading any of the content until after a response is
+             * returned to the caller.
+             */
+            boolean leaveHttpConnectionOpen = false;
+            HttpResponse httpResponse = null;
+            HttpRequest httpRequest = null;
 
-        while (true) {
             ++requestCount;
             awsRequestMetrics.setCounter(Field.RequestCount, requestCount);
             if (requestCount > 1) { // retry
@@ -328,15 +440,6 @@ public class AmazonHttpClient {
 
             try {
                 if (requestCount > 1) { // retry
-                    awsRequestMetrics.startEvent(Field.RetryPauseTime);
-                    try {
-                        lastBackoffDelay = pauseBeforeNextRetry(request.getOriginalRequest(),
-                                retriedException,
-                                requestCount,
-                                config.getRetryPolicy());
-                    } finally {
-                        awsRequestMetrics.endEvent(Field.RetryPauseTime);
-                    }
                     final InputStream content = request.getContent();
                     if (content != null && content.markSupported()) {
                         content.reset();
@@ -383,13 +486,15 @@ public class AmazonHttpClient {
                     final T response = handleResponse(request, responseHandler,
                             httpResponse,
                             executionContext);
+                    onSuccessfulResponse();
                     return new Response<T>(response, httpResponse);
                 } else if (isTemporaryRedirect(httpResponse)) {
                     /*
                      * S3 sends 307 Temporary Redirects if you try to delete an
                      * EU bucket from the US endpoint. If we get a 307, we'll
-                     * point the HTTP method to the redirected location, and let
-                     * the next retry deliver the request to the right location.
+                     * point the HTTP method to the redirected location, and
+                     * let the next retry deliver the request to the right
+                     * location.
                      */
                     final String redirectedLocation = httpResponse.getHeaders().get("Location");
                     log.debug("Redirecting to: " + redirectedLocation);
@@ -402,25 +507,29 @@ public class AmazonHttpClient {
                     awsRequestMetrics.addProperty(Field.AWSRequestID, null);
                 } else {
                     leaveHttpConnectionOpen = errorResponseHandler.needsConnectionLeftOpen();
-                    final AmazonServiceException ase = handleErrorResponse(request, errorResponseHandler,
-                            httpResponse);
+                    final AmazonServiceException ase = handleErrorResponse(request,
+                            errorResponseHandler, httpResponse);
                     awsRequestMetrics.addProperty(Field.AWSRequestID, ase.getRequestId());
                     awsRequestMetrics.addProperty(Field.AWSErrorCode, ase.getErrorCode());
                     awsRequestMetrics.addProperty(Field.StatusCode, ase.getStatusCode());
+                    if (retryMode == RetryMode.ADAPTIVE) {
+                        rateLimiter.update(RetryUtils.isThrottlingException(ase));
+                    }
 
                     if (!shouldRetry(request.getOriginalRequest(),
                             httpRequest.getContent(),
                             ase,
                             requestCount,
-                            config.getRetryPolicy())) {
+                            config.getRetryPolicy())
+                            || !acquireRetryQuota(ase)) {
                         throw ase;
                     }
 
                     // Cache the retryable exception
                     retriedException = ase;
                     /*
-                     * Checking for clock skew error again because we don't want
-                     * to set the global time offset for every service
+                     * Checking for clock skew error again because we don't
+                     * want to set the global time offset for every service
                      * exception.
                      */
                     if (RetryUtils.isClockSkewError(ase)) {
@@ -443,7 +552,8 @@ public class AmazonHttpClient {
                         httpRequest.getContent(),
                         ace,
                         requestCount,
-                        config.getRetryPolicy())) {
+                        config.getRetryPolicy())
+                        || !acquireRetryQuota(ace)) {
                     throw ace;
                 }
 
@@ -457,8 +567,8 @@ public class AmazonHttpClient {
             } finally {
                 /*
                  * Some response handlers need to manually manage the HTTP
-                 * connection and will take care of releasing the connection on
-                 * their own, but if this response handler doesn't need the
+                 * connection and will take care of releasing the connection
+                 * on their own, but if this response handler doesn't need the
                  * connection left open, we go ahead and release the it to free
                  * up resources.
                  */
@@ -472,7 +582,215 @@ public class AmazonHttpClient {
                     }
                 }
             }
-        } /* end while (true) */
+            return null;
+        }
+
+        /**
+         * Takes the permit of the rate limiter to send the next attempt.
+         *
+         * @return the time in milliseconds to wait before sending it.
+         */
+        long sendDelay() {
+            return retryMode == RetryMode.ADAPTIVE ? rateLimiter.acquire() : 0;
+        }
+
+        /**
+         * Waits until the rate limiter permits sending the next attempt.
+         */
+        void waitToSend() {
+            final long delay = sendDelay();
+            if (delay <= 0) {
+                return;
+            }
+            awsRequestMetrics.startEvent(Field.RateLimiterPauseTime);
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw handleUnexpectedFailure(new AmazonClientException(e.getMessage(), e),
+                        awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RateLimiterPauseTime);
+            }
+        }
+
+        /**
+         * Takes the retry quota tokens for retrying after the exception.
+         *
+         * @return false if the quota is used up and the request must not be
+         *         retried.
+         */
+        private boolean acquireRetryQuota(AmazonClientException exception) {
+            if (retryMode == RetryMode.LEGACY) {
+                return true;
+            }
+            lastRetryCost = retryQuota.acquire(exception);
+            awsRequestMetrics.setCounter(Field.RetryQuotaAvailable,
+                    retryQuota.getAvailableCapacity());
+            if (lastRetryCost == 0) {
+                awsRequestMetrics.incrementCounter(Field.RetryQuotaExceeded);
+                if (log.isDebugEnabled()) {
+                    log.debug("Retry quota exceeded, not retrying the request");
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private void onSuccessfulResponse() {
+            if (retryMode == RetryMode.LEGACY) {
+                return;
+            }
+            retryQuota.release(lastRetryCost);
+            awsRequestMetrics.setCounter(Field.RetryQuotaAvailable,
+                    retryQuota.getAvailableCapacity());
+            if (retryMode == RetryMode.ADAPTIVE) {
+                rateLimiter.update(false);
+            }
+        }
+
+        /**
+         * Returns the time to wait before the next attempt, to avoid flooding
+         * a service with retries.
+         *
+         * @return the delay in milliseconds.
+         */
+        long nextRetryDelay() {
+            final int retries = requestCount - 1; // number of attempted retries,
+                                                  // including the next attempt
+            final long delay;
+            try {
+                delay = config.getRetryPolicy().getBackoffStrategy().delayBeforeNextRetry(
+                        request.getOriginalRequest(), retriedException, retries);
+            } catch (final RuntimeException e) {
+                throw handleUnexpectedFailure(e, awsRequestMetrics);
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Retriable error detected, " +
+                        "will retry in " + delay + "ms, attempt number: " + retries);
+            }
+            lastBackoffDelay = delay;
+            return delay;
+        }
+
+        /**
+         * Sleep for a period of time on failed request to avoid flooding a
+         * service with retries.
+         */
+        void pauseBeforeNextRetry() {
+            final long delay = nextRetryDelay();
+            awsRequestMetrics.startEvent(Field.RetryPauseTime);
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw handleUnexpectedFailure(new AmazonClientException(e.getMessage(), e),
+                        awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RetryPauseTime);
+            }
+        }
+    }
+
+    /**
+     * Runs the attempts of an asynchronous request on its executor, and
+     * schedules every retry instead of sleeping.
+     */
+    private final class AsyncExecution<T> implements Runnable {
+        private final Request<?> request;
+        private final HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final Executor executor;
+        private final CompletionFuture<Response<T>> future;
+        private List<RequestHandler2> requestHandler2s;
+        private RequestExecution<T> execution;
+        /** Whether the rate limiter permitted sending the next attempt. */
+        private boolean sendPermitted;
+        /** The event timing the current pause, or null. */
+        private Field pauseEvent;
+
+        AsyncExecution(Request<?> request,
+                HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+                HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                ExecutionContext executionContext,
+                Executor executor,
+                CompletionFuture<Response<T>> future) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.executor = executor;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            if (future.isCancelled()) {
+                return;
+            }
+            final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+            final Response<T> response;
+            try {
+                if (execution == null) {
+                    requestHandler2s = requestHandler2s(request, executionContext);
+                    execution = new RequestExecution<T>(request, responseHandler,
+                            errorResponseHandler, executionContext);
+                } else if (pauseEvent != null) {
+                    awsRequestMetrics.endEvent(pauseEvent);
+                    pauseEvent = null;
+                }
+                if (!sendPermitted) {
+                    sendPermitted = true;
+                    final long delay = execution.sendDelay();
+                    if (delay > 0) {
+                        pause(Field.RateLimiterPauseTime, delay);
+                        return;
+                    }
+                }
+                sendPermitted = false;
+                response = execution.attempt();
+                if (response == null) {
+                    pause(Field.RetryPauseTime, execution.nextRetryDelay());
+                    return;
+                }
+                final TimingInfo timingInfo = awsRequestMetrics.getTimingInfo().endTiming();
+                afterResponse(request, requestHandler2s, response, timingInfo);
+            } catch (final RuntimeException e) {
+                fail(e);
+                return;
+            } catch (final Error e) {
+                fail(new AmazonClientException(e.getMessage(), e));
+                throw e;
+            }
+            future.setResult(response);
+        }
+
+        /**
+         * Runs this task on the executor again after the delay.
+         */
+        private void pause(Field event, long delay) {
+            pauseEvent = event;
+            executionContext.getAwsRequestMetrics().startEvent(event);
+            RetryScheduler.schedule(this, delay, executor, new Runnable() {
+                @Override
+                public void run() {
+                    fail(new AmazonClientException(
+                            "Unable to retry the request, the executor rejected it"));
+                }
+            });
+        }
+
+        private void fail(RuntimeException e) {
+            try {
+                if (requestHandler2s != null && e instanceof AmazonClientException) {
+                    afterError(request, null, requestHandler2s, (AmazonClientException) e);
+                }
+            } finally {
+                future.setException(e);
+            }
+        }
     }
 
     /**
@@ -731,43 +1049,6 @@ public class AmazonHttpClient {
         return exception;
     }
 
-    /**
-     * Sleep for a period of time on failed request to avoid flooding a service
-     * with retries.
-     *
-     * @param originalRequest The original service request that is being
-     *            executed.
-     * @param previousException Exception information for the previous attempt,
-     *            if any.
-     * @param requestCount current request count (including the next attempt
-     *            after the delay)
-     * @param retryPolicy The retry policy configured in this http client.
-     */
-    private long pauseBeforeNextRetry(AmazonWebServiceRequest originalRequest,
-            AmazonClientException previousException,
-            int requestCount,
-            RetryPolicy retryPolicy) {
-        final int retries = requestCount // including next attempt
-                - 1 // number of attempted requests
-                - 1; // number of attempted retries
-
-        final long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(
-                originalRequest, previousException, retries);
-
-        if (log.isDebugEnabled()) {
-            log.debug("Retriable error detected, " +
-                    "will retry in " + delay + "ms, attempt number: " + retries);
-        }
-
-        try {
-            Thread.sleep(delay);
-            return delay;
-        } catch (final InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new AmazonClientException(e.getMessage(), e);
-        }
-    }
-
     /**
      * Returns date string from the exception message body in form of
      * yyyyMMdd'T'HHmmss'Z' We needed to extract date from the message body
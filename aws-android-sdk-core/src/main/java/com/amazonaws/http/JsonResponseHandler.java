@@ -32,10 +32,8 @@ import com.amazonaws.logging.LogFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Default implementation of HttpResponseHandler that handles a successful
@@ -112,11 +110,10 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         }
 
         if (isGzipEncoded) {
-            content = new GZIPInputStream(content);
+            content = new PooledGZIPInputStream(content);
         }
 
-        final AwsJsonReader jsonReader = JsonUtils.getJsonReader(new InputStreamReader(content,
-                StringUtils.UTF8));
+        final AwsJsonReader jsonReader = JsonUtils.getJsonReader(new Utf8StreamReader(content));
 
         try {
             final AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
@@ -126,6 +123,9 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             final T result = responseUnmarshaller.unmarshall(unmarshallerContext);
 
             if (checksumCalculatingInputStream != null) {
+                // The server computes the checksum over the whole body, which
+                // may end after the JSON value the unmarshaller stopped at.
+                drain(checksumCalculatingInputStream);
                 final long serverSideCRC = Long.parseLong(crc32Checksum);
                 final long clientSideCRC = checksumCalculatingInputStream.getCRC32Checksum();
                 if (clientSideCRC != serverSideCRC) {
@@ -154,6 +154,17 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         }
     }
 
+    private static void drain(InputStream in) throws IOException {
+        final byte[] buffer = ResponseBufferPool.takeBuffer();
+        try {
+            while (in.read(buffer, 0, buffer.length) != -1) {
+                // only the checksum of the remaining bytes is needed
+            }
+        } finally {
+            ResponseBufferPool.returnBuffer(buffer);
+        }
+    }
+
     /**
      * Hook for subclasses to override in order to collect additional metadata
      * from service responses.
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses a gzip stream like {@link java.util.zip.GZIPInputStream}, but
+ * takes its inflater and input buffer from the {@link ResponseBufferPool} of
+ * the current thread and returns them when closed. Concatenated gzip members
+ * are read as one stream, and the CRC32 and size in the trailer of every
+ * member are verified.
+ */
+final class PooledGZIPInputStream extends InputStream {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int DEFLATE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    /** Mask of the unsigned 32 bit values in the trailer. */
+    private static final long UINT_MASK = 0xffffffffL;
+
+    private final InputStream in;
+    private final CRC32 crc = new CRC32();
+    private Inflater inflater;
+    private byte[] buffer;
+    /** Position of the next compressed byte not yet given to the inflater. */
+    private int pos;
+    /** Number of compressed bytes in the buffer. */
+    private int count;
+    private boolean eos;
+    private boolean closed;
+
+    /**
+     * Creates a stream that decompresses the given stream, reading the header
+     * of the first member.
+     *
+     * @param in the compressed stream.
+     * @throws IOException if the header can't be read or isn't a gzip header.
+     */
+    PooledGZIPInputStream(InputStream in) throws IOException {
+        this.in = in;
+        inflater = ResponseBufferPool.takeInflater();
+        buffer = ResponseBufferPool.takeBuffer();
+        try {
+            readHeader();
+        } catch (final IOException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (eos) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            final int n;
+            try {
+                n = inflater.inflate(b, off, len);
+            } catch (final DataFormatException e) {
+                final String message = e.getMessage();
+                throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+            }
+            if (n > 0) {
+                crc.update(b, off, n);
+                return n;
+            }
+            if (inflater.finished()) {
+                pos = count - inflater.getRemaining();
+                readTrailer();
+                if (!readNextHeader()) {
+                    eos = true;
+                    return -1;
+                }
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("Unexpected preset dictionary in gzip member");
+            } else if (inflater.needsInput()) {
+                if (pos == count && !fill()) {
+                    throw new EOFException("Unexpected end of ZLIB input stream");
+                }
+                inflater.setInput(buffer, pos, count - pos);
+                pos = count;
+            }
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        return eos ? 0 : 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            eos = true;
+            release();
+            in.close();
+        }
+    }
+
+    private void release() {
+        if (inflater != null) {
+            ResponseBufferPool.returnInflater(inflater);
+            inflater = null;
+        }
+        if (buffer != null) {
+            ResponseBufferPool.returnBuffer(buffer);
+            buffer = null;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        if (readUShort() != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (readUByte() != DEFLATE) {
+            throw new ZipException("Unsupported compression method");
+        }
+        final int flags = readUByte();
+        // modification time, extra flags and operating system
+        skipBytes(6);
+        if ((flags & FEXTRA) == FEXTRA) {
+            skipBytes(readUShort());
+        }
+        if ((flags & FNAME) == FNAME) {
+            while (readUByte() != 0) {
+                // skip the file name
+            }
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            while (readUByte() != 0) {
+                // skip the comment
+            }
+        }
+        if ((flags & FHCRC) == FHCRC) {
+            skipBytes(2);
+        }
+        inflater.reset();
+        crc.reset();
+    }
+
+    private void readTrailer() throws IOException {
+        final long expectedCrc = readUInt();
+        final long expectedSize = readUInt();
+        if (expectedCrc != crc.getValue()
+                || expectedSize != (inflater.getBytesWritten() & UINT_MASK)) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+    }
+
+    /**
+     * Reads the header of the next member if there is more data, like
+     * {@link java.util.zip.GZIPInputStream} ignoring trailing data that isn't
+     * a gzip member.
+     *
+     * @return whether another member follows.
+     */
+    private boolean readNextHeader() throws IOException {
+        if (pos == count && !fill()) {
+            return false;
+        }
+        try {
+            readHeader();
+            return true;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Refills the buffer from the compressed stream.
+     *
+     * @return false at the end of the compressed stream.
+     */
+    private boolean fill() throws IOException {
+        final int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        count = n;
+        return true;
+    }
+
+    private int readUByte() throws IOException {
+        if (pos == count && !fill()) {
+            throw new EOFException("Unexpected end of GZIP stream");
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    private int readUShort() throws IOException {
+        final int low = readUByte();
+        return (readUByte() << 8) | low;
+    }
+
+    private long readUInt() throws IOException {
+        final long low = readUShort();
+        return ((long) readUShort() << 16) | low;
+    }
+
+    private void skipBytes(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readUByte();
+        }
+    }
+}
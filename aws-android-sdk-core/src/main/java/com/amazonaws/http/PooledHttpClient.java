@@ -0,0 +1,907 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+/**
+ * An implementation of {@link HttpClient} that keeps a pool of persistent
+ * HTTP/1.1 connections for every host. A burst of parallel requests to a host
+ * shares at most {@link ClientConfiguration#getMaxConnections()} connections,
+ * so only that many TLS handshakes are done, and later requests reuse the
+ * connections and TLS sessions instead of opening new ones. Requests beyond
+ * the limit wait for a connection to be released, up to the connection
+ * timeout. Connections can be opened ahead of the first request with
+ * {@link #warmUp(URI, int)}.
+ * <p>
+ * A connection is released when the response content has been read to the
+ * end or closed. Like {@link UrlHttpClient}, it doesn't send the 'Expect:
+ * 100-continue' header. It connects to the hosts directly and doesn't support
+ * proxies.
+ */
+public class PooledHttpClient implements HttpClient {
+
+    private static final Log log = LogFactory.getLog(PooledHttpClient.class);
+
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+    private static final byte[] CRLF = {
+            '\r', '\n'
+    };
+    /** Longest status or header line read from a response. */
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    /** Connections idle for longer than this are closed instead of reused. */
+    static final long MAX_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /** Connections idle for longer than this are checked before reuse. */
+    static final long STALE_CHECK_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    /** Most unread response bytes skipped to reuse a connection on close. */
+    static final int MAX_DRAIN_BYTES = 16 * 1024;
+
+    private final ClientConfiguration config;
+    private final int maxConnectionsPerHost;
+    private final Map<String, HostPool> pools = new HashMap<String, HostPool>();
+    private final AtomicInteger openedConnections = new AtomicInteger();
+    private final HostnameVerifier hostnameVerifier =
+            HttpsURLConnection.getDefaultHostnameVerifier();
+    private SSLSocketFactory sslSocketFactory;
+    private volatile boolean shutdown;
+
+    /**
+     * Constructor.
+     *
+     * @param config the client config.
+     */
+    public PooledHttpClient(ClientConfiguration config) {
+        this.config = config;
+        this.maxConnectionsPerHost = Math.max(1, config.getMaxConnections());
+        if (config.getProxyHost() != null) {
+            log.warn("PooledHttpClient doesn't support proxies, connecting directly");
+        }
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if (shutdown) {
+            throw new IllegalStateException("The HTTP client has been shut down");
+        }
+        final HostPool pool = getPool(request.getUri());
+        pool.acquirePermit();
+        boolean released = false;
+        try {
+            Connection connection = pool.pollIdle();
+            final boolean reused = connection != null;
+            if (!reused) {
+                connection = connect(pool);
+            }
+            HttpResponse response;
+            try {
+                response = exchange(pool, connection, request, reused);
+            } catch (final StaleConnectionException e) {
+                connection.close();
+                if (!canResend(request)) {
+                    throw e.getCause();
+                }
+                // the server closed the idle connection, send it on a new one
+                log.debug("Reused connection failed, retrying on a new connection", e.getCause());
+                connection = connect(pool);
+                try {
+                    response = exchange(pool, connection, request, false);
+                } catch (final IOException retryException) {
+                    connection.close();
+                    throw retryException;
+                }
+            } catch (final IOException e) {
+                connection.close();
+                throw e;
+            }
+            // the response content releases the connection from here on
+            released = true;
+            return response;
+        } finally {
+            if (!released) {
+                pool.permits.release();
+            }
+        }
+    }
+
+    /**
+     * Opens connections to the host of the endpoint ahead of the first
+     * request, so the TCP and TLS handshakes don't add to its latency. No
+     * more than {@link ClientConfiguration#getMaxConnections()} connections
+     * are kept for a host.
+     *
+     * @param endpoint the endpoint, such as https://dynamodb.us-east-1.amazonaws.com
+     * @param connections the number of connections to open.
+     * @return the number of connections opened.
+     * @throws IOException if a connection can't be opened.
+     */
+    public int warmUp(URI endpoint, int connections) throws IOException {
+        final HostPool pool = getPool(endpoint);
+        int opened = 0;
+        while (opened < connections && pool.permits.tryAcquire()) {
+            try {
+                final int inUse = maxConnectionsPerHost - pool.permits.availablePermits();
+                if (pool.idleCount() + inUse > maxConnectionsPerHost) {
+                    break;
+                }
+                pool.offer(connect(pool));
+                opened++;
+            } finally {
+                pool.permits.release();
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * @return the number of connections this client opened, each of them
+     *         costing a TLS handshake for HTTPS hosts.
+     */
+    public int getOpenedConnectionCount() {
+        return openedConnections.get();
+    }
+
+    /**
+     * Closes the idle connections. Connections in use are closed when they
+     * are released.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        final List<HostPool> toClose;
+        synchronized (pools) {
+            toClose = new ArrayList<HostPool>(pools.values());
+            pools.clear();
+        }
+        for (final HostPool pool : toClose) {
+            pool.closeIdle();
+        }
+    }
+
+    private HostPool getPool(URI uri) {
+        final String scheme = uri.getScheme() == null
+                ? "https" : uri.getScheme().toLowerCase(Locale.US);
+        int port = uri.getPort();
+        if (port == -1) {
+            port = "https".equals(scheme) ? HTTPS_PORT : HTTP_PORT;
+        }
+        final String key = scheme + "://" + uri.getHost() + ":" + port;
+        synchronized (pools) {
+            HostPool pool = pools.get(key);
+            if (pool == null) {
+                pool = new HostPool(scheme, uri.getHost(), port);
+                pools.put(key, pool);
+            }
+            return pool;
+        }
+    }
+
+    private Connection connect(HostPool pool) throws IOException {
+        Socket socket = new Socket();
+        try {
+            if (config.getLocalAddress() != null) {
+                socket.bind(new InetSocketAddress(config.getLocalAddress(), 0));
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(config.getSocketTimeout());
+            final int[] bufferSizeHints = config.getSocketBufferSizeHints();
+            if (bufferSizeHints[0] > 0) {
+                socket.setSendBufferSize(bufferSizeHints[0]);
+            }
+            if (bufferSizeHints[1] > 0) {
+                socket.setReceiveBufferSize(bufferSizeHints[1]);
+            }
+            socket.connect(new InetSocketAddress(pool.host, pool.port),
+                    config.getConnectionTimeout());
+            if ("https".equals(pool.scheme)) {
+                final SSLSocket sslSocket = (SSLSocket) getSSLSocketFactory().createSocket(
+                        socket, pool.host, pool.port, true);
+                socket = sslSocket;
+                sslSocket.startHandshake();
+                if (!hostnameVerifier.verify(pool.host, sslSocket.getSession())) {
+                    throw new SSLPeerUnverifiedException("Hostname " + pool.host
+                            + " not verified");
+                }
+            }
+            openedConnections.incrementAndGet();
+            return new Connection(socket);
+        } catch (final IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    private synchronized SSLSocketFactory getSSLSocketFactory() {
+        if (sslSocketFactory == null) {
+            if (config.getTrustManager() == null) {
+                sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+            } else {
+                try {
+                    final SSLContext sc = SSLContext.getInstance("TLS");
+                    sc.init(null, new TrustManager[] {
+                            config.getTrustManager()
+                    }, null);
+                    sslSocketFactory = sc.getSocketFactory();
+                } catch (final GeneralSecurityException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return sslSocketFactory;
+    }
+
+    /**
+     * Whether the request can be sent again after it failed on a stale
+     * connection, which is when its content can be reset.
+     */
+    private static boolean canResend(HttpRequest request) {
+        final InputStream content = request.getContent();
+        if (content == null) {
+            return true;
+        }
+        if (!content.markSupported()) {
+            return false;
+        }
+        try {
+            content.reset();
+            return true;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends the request and reads the response head. On a reused connection,
+     * a failure that shows the server had closed the connection before the
+     * request arrived is thrown as a {@link StaleConnectionException}.
+     */
+    private HttpResponse exchange(HostPool pool, Connection connection, HttpRequest request,
+            boolean reused) throws IOException {
+        try {
+            writeRequest(pool, connection, request);
+        } catch (final InterruptedIOException e) {
+            throw e;
+        } catch (final IOException e) {
+            throw reused ? new StaleConnectionException(e) : e;
+        }
+        if (reused) {
+            awaitResponse(connection);
+        }
+        return readResponse(pool, connection, request);
+    }
+
+    /**
+     * Waits for the first byte of the response. The end of the stream or a
+     * connection error at this point means the server closed the connection
+     * without reading the request. A read timeout doesn't: the server may be
+     * processing the request, so it's left to the retry policy of the caller.
+     */
+    private static void awaitResponse(Connection connection) throws IOException {
+        final BufferedInputStream in = connection.in;
+        final int b;
+        in.mark(1);
+        try {
+            b = in.read();
+        } catch (final InterruptedIOException e) {
+            throw e;
+        } catch (final IOException e) {
+            throw new StaleConnectionException(e);
+        }
+        if (b == -1) {
+            throw new StaleConnectionException(
+                    new EOFException("Connection closed before the response"));
+        }
+        in.reset();
+    }
+
+    private void writeRequest(HostPool pool, Connection connection, HttpRequest request)
+            throws IOException {
+        final URI uri = request.getUri();
+        final StringBuilder head = new StringBuilder(256);
+        final String path = uri.getRawPath();
+        head.append(request.getMethod()).append(' ')
+                .append(path == null || path.length() == 0 ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            head.append('?').append(uri.getRawQuery());
+        }
+        head.append(" HTTP/1.1\r\n");
+
+        String host = null;
+        final Map<String, String> headers = request.getHeaders();
+        if (headers != null) {
+            for (final Map.Entry<String, String> header : headers.entrySet()) {
+                final String key = header.getKey();
+                if (HttpHeader.HOST.equalsIgnoreCase(key)) {
+                    host = header.getValue();
+                    continue;
+                }
+                // framing is decided here, and 100-continue isn't supported
+                if (HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(key)
+                        || HttpHeader.EXPECT.equalsIgnoreCase(key)
+                        || "Transfer-Encoding".equalsIgnoreCase(key)
+                        || "Connection".equalsIgnoreCase(key)) {
+                    continue;
+                }
+                head.append(key).append(": ").append(header.getValue()).append("\r\n");
+            }
+        }
+        if (host == null) {
+            host = pool.port == pool.defaultPort() ? pool.host : pool.host + ":" + pool.port;
+        }
+        head.append("Host: ").append(host).append("\r\n");
+
+        final InputStream content = request.getContent();
+        final boolean hasContent = content != null && request.getContentLength() >= 0;
+        final boolean chunked = hasContent && request.isStreaming();
+        if (chunked) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else if (hasContent) {
+            head.append("Content-Length: ").append(request.getContentLength()).append("\r\n");
+        } else if ("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod())) {
+            head.append("Content-Length: 0\r\n");
+        }
+        head.append("\r\n");
+
+        final OutputStream out = connection.out;
+        out.write(head.toString().getBytes(StringUtils.UTF8));
+        if (hasContent) {
+            writeContent(content, request.getContentLength(), chunked, out);
+        }
+        out.flush();
+    }
+
+    private static void writeContent(InputStream content, long contentLength, boolean chunked,
+            OutputStream out) throws IOException {
+        final byte[] buffer = ResponseBufferPool.takeBuffer();
+        try {
+            long written = 0;
+            int n;
+            while ((n = content.read(buffer)) != -1) {
+                if (n == 0) {
+                    continue;
+                }
+                if (chunked) {
+                    out.write(Integer.toHexString(n).getBytes(StringUtils.UTF8));
+                    out.write(CRLF);
+                    out.write(buffer, 0, n);
+                    out.write(CRLF);
+                } else {
+                    if (written + n > contentLength) {
+                        throw new IOException("Request content is longer than its length of "
+                                + contentLength + " bytes");
+                    }
+                    out.write(buffer, 0, n);
+                }
+                written += n;
+            }
+            if (chunked) {
+                out.write('0');
+                out.write(CRLF);
+                out.write(CRLF);
+            } else if (written != contentLength) {
+                throw new IOException("Request content is shorter than its length of "
+                        + contentLength + " bytes");
+            }
+        } finally {
+            ResponseBufferPool.returnBuffer(buffer);
+        }
+    }
+
+    private HttpResponse readResponse(HostPool pool, Connection connection, HttpRequest request)
+            throws IOException {
+        final InputStream in = connection.in;
+        String version;
+        int statusCode;
+        String statusText;
+        Map<String, String> headers;
+        do {
+            final String statusLine = readLine(in);
+            if (statusLine == null) {
+                throw new EOFException("Connection closed before the response");
+            }
+            final int firstSpace = statusLine.indexOf(' ');
+            if (!statusLine.startsWith("HTTP/") || firstSpace == -1) {
+                throw new ProtocolException("Unexpected status line: " + statusLine);
+            }
+            version = statusLine.substring(0, firstSpace);
+            final int secondSpace = statusLine.indexOf(' ', firstSpace + 1);
+            final String code = secondSpace == -1 ? statusLine.substring(firstSpace + 1)
+                    : statusLine.substring(firstSpace + 1, secondSpace);
+            try {
+                statusCode = Integer.parseInt(code);
+            } catch (final NumberFormatException e) {
+                throw new ProtocolException("Unexpected status line: " + statusLine);
+            }
+            statusText = secondSpace == -1 ? "" : statusLine.substring(secondSpace + 1);
+            headers = readHeaders(in);
+            // skip interim responses such as 100 Continue
+        } while (statusCode >= 100 && statusCode < 200);
+
+        final HttpResponse.Builder builder = HttpResponse.builder()
+                .statusCode(statusCode)
+                .statusText(statusText);
+        String connectionHeader = null;
+        String transferEncoding = null;
+        String contentLength = null;
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            final String key = header.getKey();
+            if ("Connection".equalsIgnoreCase(key)) {
+                connectionHeader = header.getValue();
+            } else if ("Transfer-Encoding".equalsIgnoreCase(key)) {
+                transferEncoding = header.getValue();
+            } else if (HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(key)) {
+                contentLength = header.getValue();
+            }
+            builder.header(key, header.getValue());
+        }
+        boolean keepAlive = "HTTP/1.1".equals(version)
+                ? !"close".equalsIgnoreCase(connectionHeader)
+                : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+        final ResponseContent content;
+        if ("HEAD".equals(request.getMethod()) || statusCode == 204 || statusCode == 304) {
+            content = new ResponseContent(pool, connection, keepAlive, false, 0);
+        } else if (transferEncoding != null && !"identity".equalsIgnoreCase(transferEncoding)) {
+            content = new ResponseContent(pool, connection, keepAlive, true, 0);
+        } else if (contentLength != null) {
+            final long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (final NumberFormatException e) {
+                throw new ProtocolException("Invalid Content-Length: " + contentLength);
+            }
+            content = new ResponseContent(pool, connection, keepAlive, false, length);
+        } else {
+            // the content ends when the server closes the connection
+            keepAlive = false;
+            content = new ResponseContent(pool, connection, false, false, -1);
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            // like UrlHttpClient, a HEAD response has no content stream
+            return builder.build();
+        }
+        return builder.content(content).build();
+    }
+
+    /**
+     * Reads the header fields up to the empty line, keeping the first value
+     * of a repeated field like {@link UrlHttpClient}.
+     */
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        String line;
+        while ((line = readLine(in)) != null && line.length() > 0) {
+            final int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new ProtocolException("Unexpected header line: " + line);
+            }
+            final String name = line.substring(0, colon).trim();
+            if (!headers.containsKey(name)) {
+                headers.put(name, line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            throw new EOFException("Connection closed in the response headers");
+        }
+        return headers;
+    }
+
+    /**
+     * Reads a line ended by LF or CRLF.
+     *
+     * @return the line without its end, or null at the end of the stream.
+     */
+    static String readLine(InputStream in) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                if (line.size() == 0) {
+                    return null;
+                }
+                throw new EOFException("Unexpected end of line");
+            }
+            if (line.size() == MAX_LINE_LENGTH) {
+                throw new ProtocolException("Response line is too long");
+            }
+            line.write(b);
+        }
+        final byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StringUtils.UTF8);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (final IOException e) {
+            // ignored, the connection is discarded anyway
+        }
+    }
+
+    /**
+     * The connections of one scheme, host and port, and the permits to use
+     * them.
+     */
+    private final class HostPool {
+        private final String scheme;
+        private final String host;
+        private final int port;
+        private final Semaphore permits = new Semaphore(maxConnectionsPerHost, true);
+        /** Idle connections, the most recently used first. */
+        private final Deque<Connection> idle = new ArrayDeque<Connection>();
+
+        HostPool(String scheme, String host, int port) {
+            this.scheme = scheme;
+            this.host = host;
+            this.port = port;
+        }
+
+        int defaultPort() {
+            return "https".equals(scheme) ? HTTPS_PORT : HTTP_PORT;
+        }
+
+        /**
+         * Waits up to the connection timeout for a permit to send a request.
+         */
+        void acquirePermit() throws IOException {
+            final int timeout = config.getConnectionTimeout();
+            try {
+                if (timeout <= 0) {
+                    permits.acquire();
+                } else if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new SocketTimeoutException("Timed out waiting for a connection to "
+                            + host);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a connection");
+            }
+        }
+
+        /**
+         * @return an idle connection that can be reused, or null.
+         */
+        Connection pollIdle() {
+            while (true) {
+                final Connection connection;
+                synchronized (this) {
+                    connection = idle.pollFirst();
+                }
+                if (connection == null) {
+                    return null;
+                }
+                if (connection.isReusable()) {
+                    return connection;
+                }
+                connection.close();
+            }
+        }
+
+        void offer(Connection connection) {
+            connection.idleSince = System.currentTimeMillis();
+            synchronized (this) {
+                if (!shutdown) {
+                    idle.addFirst(connection);
+                    return;
+                }
+            }
+            connection.close();
+        }
+
+        synchronized int idleCount() {
+            return idle.size();
+        }
+
+        void closeIdle() {
+            final List<Connection> toClose;
+            synchronized (this) {
+                toClose = new ArrayList<Connection>(idle);
+                idle.clear();
+            }
+            for (final Connection connection : toClose) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Thrown when a reused connection turns out to have been closed by the
+     * server before it got the request, so the request can be sent again. The
+     * cause is the original failure.
+     */
+    private static final class StaleConnectionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StaleConnectionException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * A socket with its buffered streams.
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final BufferedInputStream in;
+        private final OutputStream out;
+        private long idleSince;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(),
+                    ResponseBufferPool.BUFFER_SIZE);
+            this.out = new BufferedOutputStream(socket.getOutputStream(),
+                    ResponseBufferPool.BUFFER_SIZE);
+        }
+
+        /**
+         * Whether the idle connection can be used for another request. A
+         * connection idle for more than a second is checked for having been
+         * closed by the server, which waits up to a millisecond.
+         */
+        boolean isReusable() {
+            if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+                return false;
+            }
+            final long idleMillis = System.currentTimeMillis() - idleSince;
+            if (idleMillis > MAX_IDLE_MILLIS) {
+                return false;
+            }
+            if (idleMillis < STALE_CHECK_IDLE_MILLIS) {
+                return true;
+            }
+            try {
+                final int soTimeout = socket.getSoTimeout();
+                socket.setSoTimeout(1);
+                try {
+                    // any result means the server closed the connection or
+                    // sent unexpected data
+                    in.read();
+                    return false;
+                } catch (final SocketTimeoutException e) {
+                    return true;
+                } finally {
+                    socket.setSoTimeout(soTimeout);
+                }
+            } catch (final IOException e) {
+                return false;
+            }
+        }
+
+        void close() {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * The content of a response, which returns its connection to the pool
+     * once read to the end or closed.
+     */
+    private static final class ResponseContent extends InputStream {
+        private final HostPool pool;
+        private final Connection connection;
+        private final boolean keepAlive;
+        private final boolean chunked;
+        /** The buffer of {@link #read()}. */
+        private final byte[] singleByte = new byte[1];
+        /**
+         * Bytes left in the content, or in the current chunk, or -1 if the
+         * content ends with the connection.
+         */
+        private long remaining;
+        private boolean firstChunk = true;
+        private boolean eof;
+        private boolean released;
+
+        ResponseContent(HostPool pool, Connection connection, boolean keepAlive,
+                boolean chunked, long length) {
+            this.pool = pool;
+            this.connection = connection;
+            this.keepAlive = keepAlive;
+            this.chunked = chunked;
+            this.remaining = length;
+            if (!chunked && length == 0) {
+                eof = true;
+                release(keepAlive);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n;
+            while ((n = read(singleByte, 0, 1)) == 0) {
+                // read at least one byte
+            }
+            return n == -1 ? -1 : singleByte[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+            if (released) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (chunked && remaining == 0 && !nextChunk()) {
+                return -1;
+            }
+            final int toRead = remaining < 0 ? len : (int) Math.min(len, remaining);
+            final int n;
+            try {
+                n = connection.in.read(b, off, toRead);
+            } catch (final IOException e) {
+                release(false);
+                throw e;
+            }
+            if (n == -1) {
+                if (remaining < 0) {
+                    eof = true;
+                    release(false);
+                    return -1;
+                }
+                release(false);
+                throw new EOFException("Unexpected end of response content");
+            }
+            if (remaining > 0) {
+                remaining -= n;
+                if (remaining == 0 && !chunked) {
+                    eof = true;
+                    release(keepAlive);
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (eof || released) {
+                return 0;
+            }
+            final int available = connection.in.available();
+            return remaining < 0 ? available : (int) Math.min(available, remaining);
+        }
+
+        /**
+         * Releases the connection, reusing it if the rest of the content is
+         * short enough to skip.
+         */
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            if (!keepAlive || remaining < 0 || (!chunked && remaining > MAX_DRAIN_BYTES)) {
+                release(false);
+                return;
+            }
+            final byte[] buffer = ResponseBufferPool.takeBuffer();
+            try {
+                int drained = 0;
+                int n;
+                while (drained <= MAX_DRAIN_BYTES && (n = read(buffer, 0, buffer.length)) != -1) {
+                    drained += n;
+                }
+            } catch (final IOException e) {
+                // the connection has been released as not reusable
+            } finally {
+                ResponseBufferPool.returnBuffer(buffer);
+            }
+            if (!released) {
+                release(false);
+            }
+        }
+
+        /**
+         * Reads the size of the next chunk, or the trailer after the last.
+         *
+         * @return false at the end of the content.
+         */
+        private boolean nextChunk() throws IOException {
+            try {
+                if (!firstChunk) {
+                    // the CRLF ending the previous chunk
+                    readLine(connection.in);
+                }
+                firstChunk = false;
+                final String line = readLine(connection.in);
+                if (line == null) {
+                    throw new EOFException("Unexpected end of response content");
+                }
+                final int extension = line.indexOf(';');
+                final String size = (extension == -1 ? line : line.substring(0, extension))
+                        .trim();
+                try {
+                    remaining = Long.parseLong(size, 16);
+                } catch (final NumberFormatException e) {
+                    throw new ProtocolException("Invalid chunk size: " + line);
+                }
+                if (remaining == 0) {
+                    readHeaders(connection.in);
+                    eof = true;
+                    release(keepAlive);
+                    return false;
+                }
+                return true;
+            } catch (final IOException e) {
+                release(false);
+                throw e;
+            }
+        }
+
+        private void release(boolean reuse) {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (reuse) {
+                pool.offer(connection);
+            } else {
+                connection.close();
+            }
+            pool.permits.release();
+        }
+    }
+}
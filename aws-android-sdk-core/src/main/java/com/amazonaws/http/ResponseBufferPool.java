@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import java.util.zip.Inflater;
+
+/**
+ * Per-thread pool of the byte buffers and inflaters used to send requests and
+ * read responses, so a thread that runs many requests reuses them instead of
+ * allocating them for every request. Every thread keeps a few buffers and one
+ * inflater; anything returned beyond that is dropped. Objects may be returned
+ * on a different thread than they were taken on.
+ */
+final class ResponseBufferPool {
+
+    /** Size of the pooled buffers. */
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    /** Max number of buffers kept per thread. */
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    private static final ThreadLocal<ResponseBufferPool> POOL =
+            new ThreadLocal<ResponseBufferPool>() {
+                @Override
+                protected ResponseBufferPool initialValue() {
+                    return new ResponseBufferPool();
+                }
+            };
+
+    private final byte[][] buffers = new byte[MAX_POOLED_BUFFERS][];
+    private int bufferCount;
+    private Inflater inflater;
+
+    private ResponseBufferPool() {
+    }
+
+    /**
+     * Takes a buffer of {@link #BUFFER_SIZE} bytes from the pool of the
+     * current thread, or allocates one if the pool is empty. The content of
+     * the buffer is undefined.
+     *
+     * @return a buffer.
+     */
+    static byte[] takeBuffer() {
+        final ResponseBufferPool pool = POOL.get();
+        if (pool.bufferCount == 0) {
+            return new byte[BUFFER_SIZE];
+        }
+        final byte[] buffer = pool.buffers[--pool.bufferCount];
+        pool.buffers[pool.bufferCount] = null;
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer taken with {@link #takeBuffer()} to the pool of the
+     * current thread. It must no longer be used.
+     *
+     * @param buffer the buffer.
+     */
+    static void returnBuffer(byte[] buffer) {
+        final ResponseBufferPool pool = POOL.get();
+        if (buffer.length == BUFFER_SIZE && pool.bufferCount < MAX_POOLED_BUFFERS) {
+            pool.buffers[pool.bufferCount++] = buffer;
+        }
+    }
+
+    /**
+     * Takes an inflater for raw deflate data, as found in gzip members, from
+     * the pool of the current thread, or creates one if the pool is empty.
+     *
+     * @return a reset inflater.
+     */
+    static Inflater takeInflater() {
+        final ResponseBufferPool pool = POOL.get();
+        final Inflater result = pool.inflater;
+        if (result == null) {
+            return new Inflater(true);
+        }
+        pool.inflater = null;
+        return result;
+    }
+
+    /**
+     * Returns an inflater taken with {@link #takeInflater()} to the pool of
+     * the current thread, or releases its native memory if the pool already
+     * has one. It must no longer be used.
+     *
+     * @param inflater the inflater.
+     */
+    static void returnInflater(Inflater inflater) {
+        final ResponseBufferPool pool = POOL.get();
+        if (pool.inflater == null) {
+            inflater.reset();
+            pool.inflater = inflater;
+        } else {
+            inflater.end();
+        }
+    }
+}
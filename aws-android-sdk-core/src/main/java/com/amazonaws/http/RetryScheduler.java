@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delays the retries of asynchronous requests. A single daemon thread shared
+ * by all clients waits out the backoff delays and then hands each retry to
+ * the executor of its request, so no thread of that executor is blocked
+ * while a request backs off.
+ */
+final class RetryScheduler {
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+    private RetryScheduler() {
+    }
+
+    /**
+     * Submits the task to the executor after the delay.
+     *
+     * @param task the task.
+     * @param delayMillis the delay in milliseconds.
+     * @param executor the executor to run the task on.
+     * @param onRejected run on the scheduler thread instead of the task if
+     *            the executor rejects the task.
+     */
+    static void schedule(final Runnable task, long delayMillis, final Executor executor,
+            final Runnable onRejected) {
+        final Runnable submit = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.execute(task);
+                } catch (final RejectedExecutionException e) {
+                    onRejected.run();
+                }
+            }
+        };
+        if (delayMillis <= 0) {
+            submit.run();
+        } else {
+            SCHEDULER.schedule(submit, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r, "aws-sdk-retry-scheduler");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        return scheduler;
+    }
+}
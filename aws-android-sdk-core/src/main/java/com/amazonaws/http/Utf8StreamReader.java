@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Decodes a UTF-8 stream straight into the chars asked for by the JSON
+ * reader, with a fast path for ASCII and without the intermediate buffers of
+ * {@link java.io.InputStreamReader}. The byte buffer is taken from the
+ * {@link ResponseBufferPool} of the current thread and returned when closed.
+ * Malformed input is decoded as U+FFFD, one per invalid byte.
+ */
+final class Utf8StreamReader extends Reader {
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final InputStream in;
+    private byte[] buffer;
+    /** Position of the next byte to decode. */
+    private int pos;
+    /** Number of bytes in the buffer. */
+    private int count;
+    private boolean endOfInput;
+    /** The low surrogate of a decoded supplementary char not yet read, or 0. */
+    private char pendingLowSurrogate;
+
+    /**
+     * @param in the UTF-8 stream.
+     */
+    Utf8StreamReader(InputStream in) {
+        this.in = in;
+        buffer = ResponseBufferPool.takeBuffer();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (buffer == null) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        final int end = off + len;
+        int out = off;
+        if (pendingLowSurrogate != 0) {
+            cbuf[out++] = pendingLowSurrogate;
+            pendingLowSurrogate = 0;
+        }
+        while (out < end) {
+            if (pos == count) {
+                // only block for more input when nothing was decoded yet
+                if (out > off || !fill()) {
+                    break;
+                }
+            }
+            final byte[] buf = buffer;
+            int p = pos;
+            final int limit = Math.min(count, p + (end - out));
+            while (p < limit && buf[p] >= 0) {
+                cbuf[out++] = (char) buf[p++];
+            }
+            pos = p;
+            if (out < end && pos < count) {
+                final int decoded = decodeMultiByte(cbuf, out, end, out > off);
+                if (decoded == out) {
+                    // the rest of the sequence is not buffered yet
+                    break;
+                }
+                out = decoded;
+            }
+        }
+        return out == off ? -1 : out - off;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return pendingLowSurrogate != 0 || pos < count || in.available() > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            ResponseBufferPool.returnBuffer(buffer);
+            buffer = null;
+            in.close();
+        }
+    }
+
+    /**
+     * Decodes the non ASCII sequence at {@link #pos} into cbuf. If the
+     * sequence isn't fully buffered and chars were already decoded by this
+     * read, nothing is decoded rather than blocking for more input.
+     *
+     * @return the new output position.
+     */
+    private int decodeMultiByte(char[] cbuf, int out, int end, boolean hasOutput)
+            throws IOException {
+        final int b0 = buffer[pos] & 0xff;
+        final int length;
+        int codePoint;
+        if (b0 >= 0xC2 && b0 <= 0xDF) {
+            length = 2;
+            codePoint = b0 & 0x1F;
+        } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+            length = 3;
+            codePoint = b0 & 0x0F;
+        } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+            length = 4;
+            codePoint = b0 & 0x07;
+        } else {
+            pos++;
+            cbuf[out++] = REPLACEMENT;
+            return out;
+        }
+
+        if (count - pos < length && !endOfInput) {
+            // the sequence straddles the end of the buffer
+            if (hasOutput) {
+                return out;
+            }
+            compactAndFill(length);
+        }
+        final int available = Math.min(length, count - pos);
+        for (int i = 1; i < available; i++) {
+            final int b = buffer[pos + i] & 0xff;
+            if ((b & 0xC0) != 0x80) {
+                pos++;
+                cbuf[out++] = REPLACEMENT;
+                return out;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        if (available < length
+                || (length == 3 && (codePoint < 0x800
+                        || (codePoint >= Character.MIN_SURROGATE
+                                && codePoint <= Character.MAX_SURROGATE)))
+                || (length == 4 && (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT
+                        || codePoint > Character.MAX_CODE_POINT))) {
+            pos++;
+            cbuf[out++] = REPLACEMENT;
+            return out;
+        }
+
+        pos += length;
+        if (length < 4) {
+            cbuf[out++] = (char) codePoint;
+        } else {
+            cbuf[out++] = Character.highSurrogate(codePoint);
+            if (out < end) {
+                cbuf[out++] = Character.lowSurrogate(codePoint);
+            } else {
+                pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Moves the undecoded bytes to the start of the buffer and reads until
+     * there are at least the given number of bytes or the input ends.
+     */
+    private void compactAndFill(int minBytes) throws IOException {
+        final int remaining = count - pos;
+        System.arraycopy(buffer, pos, buffer, 0, remaining);
+        pos = 0;
+        count = remaining;
+        while (count < minBytes) {
+            final int n = in.read(buffer, count, buffer.length - count);
+            if (n == -1) {
+                endOfInput = true;
+                return;
+            }
+            count += n;
+        }
+    }
+
+    /**
+     * Refills the empty buffer.
+     *
+     * @return false at the end of the input.
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n == -1) {
+            endOfInput = true;
+            return false;
+        }
+        pos = 0;
+        count = n;
+        return true;
+    }
+}
@@ -769,6 +769,9 @@ public enum AwsSdkMetrics {
             metricTypes.add(Field.HttpClientPoolAvailableCount);
             metricTypes.add(Field.HttpClientPoolLeasedCount);
             metricTypes.add(Field.HttpClientPoolPendingCount);
+            metricTypes.add(Field.RetryQuotaAvailable);
+            metricTypes.add(Field.RetryQuotaExceeded);
+            metricTypes.add(Field.RateLimiterPauseTime);
             metricTypes.add(AWSServiceMetrics.HttpClientGetConnectionTime);
             syncReadOnly();
         }
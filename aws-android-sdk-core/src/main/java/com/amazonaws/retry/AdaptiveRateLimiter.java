@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which one client sends requests once the service starts
+ * throttling them. Every throttling response cuts the allowed rate to a
+ * fraction of the rate measured when it arrived, and successful responses
+ * raise it again along a cubic curve that grows slowly near the rate at which
+ * throttling started and quickly away from it. Until the first throttling
+ * response requests are not limited at all. This class is thread safe.
+ *
+ * @see RetryMode#ADAPTIVE
+ */
+public final class AdaptiveRateLimiter {
+
+    /** Fraction of the measured rate the allowed rate is cut to. */
+    private static final double BETA = 0.7;
+    /** Scale of the cubic growth of the allowed rate. */
+    private static final double SCALE_CONSTANT = 0.4;
+    /** Weight of the newest measurement in the smoothed send rate. */
+    private static final double SMOOTH = 0.8;
+    /** Length of the intervals the send rate is measured over, in seconds. */
+    private static final double MEASUREMENT_INTERVAL = 0.5;
+    /** Lowest allowed rate, in requests per second. */
+    private static final double MIN_FILL_RATE = 0.5;
+    /** Lowest number of requests that may be sent in a burst. */
+    private static final double MIN_CAPACITY = 1;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long startNanos;
+    private boolean enabled;
+    private double fillRate;
+    private double maxCapacity;
+    private double currentCapacity;
+    private double lastRefill;
+    private double lastMaxRate;
+    private double lastThrottleTime;
+    private double timeWindow;
+    private double measuredTxRate;
+    private double lastTxRateBucket;
+    private long requestCount;
+
+    /**
+     * Creates a limiter that doesn't limit requests until the first
+     * throttling response.
+     */
+    public AdaptiveRateLimiter() {
+        this(System.nanoTime());
+    }
+
+    AdaptiveRateLimiter(long nowNanos) {
+        startNanos = nowNanos;
+        lastTxRateBucket = seconds(nowNanos);
+    }
+
+    /**
+     * Takes the permit to send a request. If the allowed rate has been used
+     * up, the permit is taken from the future and the request has to wait
+     * until then.
+     *
+     * @return the time in milliseconds to wait before sending the request.
+     */
+    public long acquire() {
+        return acquire(System.nanoTime());
+    }
+
+    synchronized long acquire(long nowNanos) {
+        if (!enabled) {
+            return 0;
+        }
+        refill(seconds(nowNanos));
+        currentCapacity -= 1;
+        if (currentCapacity >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-currentCapacity / fillRate * TimeUnit.SECONDS.toMillis(1));
+    }
+
+    /**
+     * Adjusts the allowed rate to a response.
+     *
+     * @param throttled whether the service throttled the request.
+     */
+    public void update(boolean throttled) {
+        update(throttled, System.nanoTime());
+    }
+
+    synchronized void update(boolean throttled, long nowNanos) {
+        final double now = seconds(nowNanos);
+        updateMeasuredRate(now);
+        final double calculatedRate;
+        if (throttled) {
+            final double rateToUse = enabled ? Math.min(measuredTxRate, fillRate) : measuredTxRate;
+            lastMaxRate = rateToUse;
+            timeWindow = Math.cbrt(lastMaxRate * (1 - BETA) / SCALE_CONSTANT);
+            lastThrottleTime = now;
+            calculatedRate = rateToUse * BETA;
+            enabled = true;
+        } else {
+            final double dt = now - lastThrottleTime - timeWindow;
+            calculatedRate = SCALE_CONSTANT * dt * dt * dt + lastMaxRate;
+        }
+        setFillRate(Math.min(calculatedRate, 2 * measuredTxRate), now);
+    }
+
+    /**
+     * @return whether requests are limited, which they are from the first
+     *         throttling response on.
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the allowed rate in requests per second, or 0 if requests
+     *         aren't limited yet.
+     */
+    public synchronized double getFillRate() {
+        return enabled ? fillRate : 0;
+    }
+
+    private void refill(double now) {
+        if (lastRefill == 0) {
+            lastRefill = now;
+            currentCapacity = Math.max(currentCapacity, 0);
+            return;
+        }
+        currentCapacity = Math.min(maxCapacity,
+                currentCapacity + (now - lastRefill) * fillRate);
+        lastRefill = now;
+    }
+
+    private void setFillRate(double rate, double now) {
+        refill(now);
+        fillRate = Math.max(rate, MIN_FILL_RATE);
+        maxCapacity = Math.max(rate, MIN_CAPACITY);
+        currentCapacity = Math.min(currentCapacity, maxCapacity);
+    }
+
+    private void updateMeasuredRate(double now) {
+        final double bucket = Math.floor(now / MEASUREMENT_INTERVAL) * MEASUREMENT_INTERVAL;
+        requestCount++;
+        if (bucket > lastTxRateBucket) {
+            final double currentRate = requestCount / (bucket - lastTxRateBucket);
+            measuredTxRate = currentRate * SMOOTH + measuredTxRate * (1 - SMOOTH);
+            requestCount = 0;
+            lastTxRateBucket = bucket;
+        }
+    }
+
+    private double seconds(long nowNanos) {
+        // offset by one measurement interval so that 0 means "never"
+        return (nowNanos - startNanos) / NANOS_PER_SECOND + MEASUREMENT_INTERVAL;
+    }
+}
@@ -115,6 +115,37 @@ public class PredefinedRetryPolicies {
                 true);
     }
 
+    /**
+     * Returns the SDK default retry policy with a retry quota shared by all
+     * requests of a client.
+     *
+     * @return the retry policy.
+     * @see RetryMode#STANDARD
+     */
+    public static RetryPolicy getStandardRetryPolicy() {
+        return new RetryPolicy(DEFAULT_RETRY_CONDITION,
+                DEFAULT_BACKOFF_STRATEGY,
+                DEFAULT_MAX_ERROR_RETRY,
+                true,
+                RetryMode.STANDARD);
+    }
+
+    /**
+     * Returns the SDK default retry policy with a retry quota shared by all
+     * requests of a client, and a client side rate limit that adapts to
+     * throttling responses.
+     *
+     * @return the retry policy.
+     * @see RetryMode#ADAPTIVE
+     */
+    public static RetryPolicy getAdaptiveRetryPolicy() {
+        return new RetryPolicy(DEFAULT_RETRY_CONDITION,
+                DEFAULT_BACKOFF_STRATEGY,
+                DEFAULT_MAX_ERROR_RETRY,
+                true,
+                RetryMode.ADAPTIVE);
+    }
+
     /**
      * @param maxErrorRetry the max error retry count.
      * @return the SDK default retry policy with the specified max retry count.
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+/**
+ * How the retries of the requests sent by one client are limited beyond the
+ * per request checks of a {@link RetryPolicy}.
+ *
+ * @see RetryPolicy#getRetryMode()
+ */
+public enum RetryMode {
+
+    /**
+     * Every request decides on its retries on its own. This is the default.
+     */
+    LEGACY,
+
+    /**
+     * Retries draw from a {@link RetryQuota} shared by all requests of a
+     * client. When a service keeps failing the quota runs out and failed
+     * requests are no longer retried until successful responses refill it.
+     */
+    STANDARD,
+
+    /**
+     * Like {@link #STANDARD}, and in addition an {@link AdaptiveRateLimiter}
+     * slows down the requests sent by a client once the service starts
+     * throttling them.
+     */
+    ADAPTIVE;
+}
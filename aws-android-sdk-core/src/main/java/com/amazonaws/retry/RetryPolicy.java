@@ -54,6 +54,11 @@ public final class RetryPolicy {
      */
     private final boolean honorMaxErrorRetryInClientConfig;
 
+    /**
+     * How the retries of all requests of a client are limited.
+     */
+    private final RetryMode retryMode;
+
     /**
      * Constructs a new retry policy. See {@link PredefinedRetryPolicies} for
      * some pre-defined policy components, and also the default policies used by
@@ -77,6 +82,37 @@ public final class RetryPolicy {
             BackoffStrategy backoffStrategy,
             int maxErrorRetry,
             boolean honorMaxErrorRetryInClientConfig) {
+        this(retryCondition, backoffStrategy, maxErrorRetry, honorMaxErrorRetryInClientConfig,
+                RetryMode.LEGACY);
+    }
+
+    /**
+     * Constructs a new retry policy. See {@link PredefinedRetryPolicies} for
+     * some pre-defined policy components, and also the default policies used by
+     * SDK.
+     *
+     * @param retryCondition Retry condition on whether a specific request and
+     *            exception should be retried. If null value is specified, the
+     *            SDK' default retry condition is used.
+     * @param backoffStrategy Back-off strategy for controlling how long the
+     *            next retry should wait. If null value is specified, the SDK'
+     *            default exponential back-off strategy is used.
+     * @param maxErrorRetry Maximum number of retry attempts for failed
+     *            requests.
+     * @param honorMaxErrorRetryInClientConfig Whether this retry policy should
+     *            honor the max error retry set by
+     *            {@link ClientConfiguration#setMaxErrorRetry(int)}
+     * @param retryMode How the retries of all requests of a client are
+     *            limited. If null value is specified, {@link RetryMode#LEGACY}
+     *            is used.
+     * @see ClientConfiguration
+     * @see PredefinedRetryPolicies
+     */
+    public RetryPolicy(RetryCondition retryCondition,
+            BackoffStrategy backoffStrategy,
+            int maxErrorRetry,
+            boolean honorMaxErrorRetryInClientConfig,
+            RetryMode retryMode) {
         if (retryCondition == null) {
             retryCondition = PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION;
         }
@@ -92,6 +128,7 @@ public final class RetryPolicy {
         this.backoffStrategy = backoffStrategy;
         this.maxErrorRetry = maxErrorRetry;
         this.honorMaxErrorRetryInClientConfig = honorMaxErrorRetryInClientConfig;
+        this.retryMode = retryMode == null ? RetryMode.LEGACY : retryMode;
     };
 
     /**
@@ -133,6 +170,17 @@ public final class RetryPolicy {
         return honorMaxErrorRetryInClientConfig;
     }
 
+    /**
+     * Returns how the retries of all requests of a client are limited. Each
+     * client using this policy keeps its own {@link RetryQuota} and
+     * {@link AdaptiveRateLimiter}.
+     *
+     * @return the retry mode.
+     */
+    public RetryMode getRetryMode() {
+        return retryMode;
+    }
+
     /**
      * The hook for providing custom condition on whether a failed request
      * should be retried.
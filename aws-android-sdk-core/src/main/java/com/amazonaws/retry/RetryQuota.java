@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+import java.io.InterruptedIOException;
+
+/**
+ * A token bucket shared by the requests of one client that every retry has
+ * to take tokens from. Retries after a timeout cost more than other retries.
+ * A request that succeeds returns the tokens of its last retry, or adds one
+ * token if it succeeded without retrying. When a service browns out the
+ * bucket empties and the client stops retrying, which works like a circuit
+ * breaker that closes again as requests succeed. This class is thread safe.
+ *
+ * @see RetryMode#STANDARD
+ */
+public final class RetryQuota {
+
+    /** Default number of tokens of a quota. */
+    public static final int DEFAULT_CAPACITY = 500;
+
+    /** Tokens taken by a retry. */
+    static final int RETRY_COST = 5;
+
+    /** Tokens taken by a retry after a timeout. */
+    static final int TIMEOUT_RETRY_COST = 10;
+
+    /** Tokens added by a request that succeeds without retrying. */
+    static final int NO_RETRY_INCREMENT = 1;
+
+    private final int capacity;
+    private int availableCapacity;
+
+    /**
+     * Creates a full quota of {@link #DEFAULT_CAPACITY} tokens.
+     */
+    public RetryQuota() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a full quota.
+     *
+     * @param capacity the number of tokens.
+     */
+    public RetryQuota(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        this.availableCapacity = capacity;
+    }
+
+    /**
+     * Takes the tokens for retrying after the exception.
+     *
+     * @param exception the exception of the failed attempt.
+     * @return the number of tokens taken, to be given to
+     *         {@link #release(int)} if the retry succeeds, or 0 if there
+     *         aren't enough tokens and the request must not be retried.
+     */
+    public synchronized int acquire(AmazonClientException exception) {
+        final int cost = isTimeout(exception) ? TIMEOUT_RETRY_COST : RETRY_COST;
+        if (availableCapacity < cost) {
+            return 0;
+        }
+        availableCapacity -= cost;
+        return cost;
+    }
+
+    /**
+     * Refills the quota after a request succeeded.
+     *
+     * @param lastRetryCost the tokens taken for the retry that succeeded, or
+     *            0 if the request succeeded without retrying.
+     */
+    public synchronized void release(int lastRetryCost) {
+        final int tokens = lastRetryCost > 0 ? lastRetryCost : NO_RETRY_INCREMENT;
+        availableCapacity = Math.min(capacity, availableCapacity + tokens);
+    }
+
+    /**
+     * @return the number of tokens left.
+     */
+    public synchronized int getAvailableCapacity() {
+        return availableCapacity;
+    }
+
+    /**
+     * @return the number of tokens of a full quota.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static boolean isTimeout(AmazonClientException exception) {
+        return !(exception instanceof AmazonServiceException)
+                && exception.getCause() instanceof InterruptedIOException;
+    }
+}
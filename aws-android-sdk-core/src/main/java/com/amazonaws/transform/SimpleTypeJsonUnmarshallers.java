@@ -17,14 +17,12 @@ package com.amazonaws.transform;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.util.Base64;
+import com.amazonaws.util.DateUtils;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
-import java.text.NumberFormat;
-import java.text.ParseException;
 import java.util.Date;
-import java.util.Locale;
 
 /**
  * SimpleTypeJsonUnmarshallers class.
@@ -248,7 +246,6 @@ public class SimpleTypeJsonUnmarshallers {
      */
     public static class DateJsonUnmarshaller implements Unmarshaller<Date, JsonUnmarshallerContext> {
 
-        private static final int DATE_MULTIPLIER = 1000;
         @Override
         public Date unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
             String dateString = unmarshallerContext.getReader().nextString();
@@ -256,12 +253,12 @@ public class SimpleTypeJsonUnmarshallers {
                 return null;
 
             try {
-                Number number = NumberFormat.getInstance(new Locale("en")).parse(dateString);
-                return new Date(number.longValue() * DATE_MULTIPLIER);
-            } catch (ParseException e) {
+                return DateUtils.parseEpochSeconds(dateString);
+            } catch (IllegalArgumentException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
                 String errorMessage = "Unable to parse date '" + dateString + "':  "
-                        + e.getMessage();
-                throw new AmazonClientException(errorMessage, e);
+                        + cause.getMessage();
+                throw new AmazonClientException(errorMessage, cause);
             }
         }
 
@@ -141,6 +141,25 @@ public class AWSRequestMetrics {
 
         /** RetryPauseTime. */
         RetryPauseTime,
+        /**
+         * Number of tokens left in the retry quota of the client after a
+         * request took or returned tokens.
+         *
+         * @see com.amazonaws.retry.RetryQuota
+         */
+        RetryQuotaAvailable,
+        /**
+         * Number of retries not made because the retry quota of the client
+         * was used up.
+         */
+        RetryQuotaExceeded,
+        /**
+         * Number of milliseconds a request waited for the adaptive rate
+         * limiter of the client before it was sent.
+         *
+         * @see com.amazonaws.retry.AdaptiveRateLimiter
+         */
+        RateLimiterPauseTime,
         // S3DownloadThroughput, // migrated to S3RequestMetric in the S3 clint
         // library
         // S3UploadThroughput, // migrated to S3RequestMetric in the S3 clint
@@ -18,17 +18,20 @@
 
 package com.amazonaws.util;
 
+import java.text.NumberFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Utilities for parsing and formatting dates.
+ * Utilities for parsing and formatting dates. The patterns defined here are
+ * parsed and formatted without a SimpleDateFormat when the date is between
+ * the years 1583 and 9999.
  */
 public class DateUtils {
     /**
@@ -49,11 +52,13 @@ public class DateUtils {
     public static final String COMPRESSED_DATE_PATTERN = "yyyyMMdd'T'HHmmss'Z'";
 
     private static final TimeZone GMT_TIMEZONE = TimeZone.getTimeZone("GMT");
+    private static final long SECONDS_TO_MILLIS = 1000L;
 
     /**
      * A map to cache date pattern string to SimpleDateFormat object
      */
-    private static final Map<String, ThreadLocal<SimpleDateFormat>> SDF_MAP = new HashMap<String, ThreadLocal<SimpleDateFormat>>();
+    private static final ConcurrentMap<String, ThreadLocal<SimpleDateFormat>> SDF_MAP =
+            new ConcurrentHashMap<String, ThreadLocal<SimpleDateFormat>>();
 
     /**
      * A helper function to retrieve a SimpleDateFormat object for the given
@@ -65,20 +70,18 @@ public class DateUtils {
     private static ThreadLocal<SimpleDateFormat> getSimpleDateFormat(final String pattern) {
         ThreadLocal<SimpleDateFormat> sdf = SDF_MAP.get(pattern);
         if (sdf == null) {
-            synchronized (SDF_MAP) {
-                sdf = SDF_MAP.get(pattern);
-                if (sdf == null) {
-                    sdf = new ThreadLocal<SimpleDateFormat>() {
-                        @Override
-                        protected SimpleDateFormat initialValue() {
-                            final SimpleDateFormat sdf = new SimpleDateFormat(pattern, Locale.US);
-                            sdf.setTimeZone(GMT_TIMEZONE);
-                            sdf.setLenient(false);
-                            return sdf;
-                        }
-                    };
-                    SDF_MAP.put(pattern, sdf);
+            sdf = new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    final SimpleDateFormat sdf = new SimpleDateFormat(pattern, Locale.US);
+                    sdf.setTimeZone(GMT_TIMEZONE);
+                    sdf.setLenient(false);
+                    return sdf;
                 }
+            };
+            final ThreadLocal<SimpleDateFormat> existing = SDF_MAP.putIfAbsent(pattern, sdf);
+            if (existing != null) {
+                sdf = existing;
             }
         }
         return sdf;
@@ -93,6 +96,10 @@ public class DateUtils {
      * @return The parsed Date object.
      */
     public static Date parse(String pattern, String dateString) {
+        final long millis = TimestampCodec.parse(pattern, dateString);
+        if (millis != TimestampCodec.INVALID) {
+            return new Date(millis);
+        }
         try {
             return getSimpleDateFormat(pattern).get().parse(dateString);
         } catch (final ParseException pe) {
@@ -108,6 +115,10 @@ public class DateUtils {
      * @return formated string representing the give date
      */
     public static String format(String pattern, Date date) {
+        final String formatted = TimestampCodec.format(pattern, date.getTime());
+        if (formatted != null) {
+            return formatted;
+        }
         return getSimpleDateFormat(pattern).get().format(date);
     }
 
@@ -119,6 +130,13 @@ public class DateUtils {
      * @return The parsed Date object.
      */
     public static Date parseISO8601Date(String dateString) {
+        long millis = TimestampCodec.parse(ISO8601_DATE_PATTERN, dateString);
+        if (millis == TimestampCodec.INVALID) {
+            millis = TimestampCodec.parse(ALTERNATE_ISO8601_DATE_PATTERN, dateString);
+        }
+        if (millis != TimestampCodec.INVALID) {
+            return new Date(millis);
+        }
         try {
             return parse(ISO8601_DATE_PATTERN, dateString);
         } catch (final IllegalArgumentException e) {
@@ -170,6 +188,27 @@ public class DateUtils {
         return parse(COMPRESSED_DATE_PATTERN, dateString);
     }
 
+    /**
+     * Parses the specified string as a number of seconds since epoch, such as
+     * the dates of JSON responses, and returns the Date object. Fractional
+     * seconds are truncated.
+     *
+     * @param dateString The string to parse.
+     * @return The parsed Date object.
+     */
+    public static Date parseEpochSeconds(String dateString) {
+        long millis = TimestampCodec.parseEpochSeconds(dateString);
+        if (millis == TimestampCodec.INVALID) {
+            try {
+                final Number number = NumberFormat.getInstance(Locale.ENGLISH).parse(dateString);
+                millis = number.longValue() * SECONDS_TO_MILLIS;
+            } catch (final ParseException pe) {
+                throw new IllegalArgumentException(pe);
+            }
+        }
+        return new Date(millis);
+    }
+
     /**
      * Clone date.
      *
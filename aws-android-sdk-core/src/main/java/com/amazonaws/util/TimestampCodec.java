@@ -0,0 +1,389 @@
+/*
+ * Copyright 2019-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+/**
+ * Parser and formatter for the fixed layout timestamps of {@link DateUtils},
+ * in GMT, without a SimpleDateFormat or a Calendar.
+ * <p>
+ * Only dates from 1583 to 9999 in the exact layout of a pattern are handled,
+ * where the proleptic Gregorian calendar used here matches SimpleDateFormat.
+ * For anything else {@link #INVALID} or null is returned and the caller falls
+ * back to SimpleDateFormat, so that the results never differ.
+ */
+final class TimestampCodec {
+
+    /** Returned by the parse methods when the string is not handled. */
+    static final long INVALID = Long.MIN_VALUE;
+
+    /** The AWS signature version 4 date stamp. */
+    static final String DATE_STAMP_PATTERN = "yyyyMMdd";
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * MILLIS_PER_SECOND;
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+    private static final long MIN_MILLIS = daysFromCivil(MIN_YEAR, 1, 1) * MILLIS_PER_DAY;
+    private static final long MAX_MILLIS = daysFromCivil(MAX_YEAR + 1, 1, 1) * MILLIS_PER_DAY - 1;
+    /** Epoch seconds with more digits may not fit in a long once in millis. */
+    private static final int MAX_EPOCH_SECONDS_DIGITS = 15;
+
+    private static final int ISO8601_LENGTH = 24;
+    private static final int ALTERNATE_ISO8601_LENGTH = 20;
+    private static final int COMPRESSED_LENGTH = 16;
+    private static final int DATE_STAMP_LENGTH = 8;
+    private static final int RFC822_LENGTH = 29;
+
+    private static final String[] DAY_NAMES = {
+            "Thu", "Fri", "Sat", "Sun", "Mon", "Tue", "Wed"
+    };
+    private static final String[] MONTH_NAMES = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    private TimestampCodec() {
+    }
+
+    /**
+     * Formats a date with one of the patterns of {@link DateUtils}.
+     *
+     * @param pattern the date pattern.
+     * @param millis the milliseconds since epoch.
+     * @return the formatted date, or null if the pattern or the date is not
+     *         handled.
+     */
+    static String format(String pattern, long millis) {
+        if (millis < MIN_MILLIS || millis > MAX_MILLIS) {
+            return null;
+        }
+        if (DateUtils.ISO8601_DATE_PATTERN.equals(pattern)) {
+            return formatIso8601(millis, true);
+        } else if (DateUtils.ALTERNATE_ISO8601_DATE_PATTERN.equals(pattern)) {
+            return formatIso8601(millis, false);
+        } else if (DateUtils.COMPRESSED_DATE_PATTERN.equals(pattern)) {
+            return formatCompressed(millis, true);
+        } else if (DATE_STAMP_PATTERN.equals(pattern)) {
+            return formatCompressed(millis, false);
+        } else if (DateUtils.RFC822_DATE_PATTERN.equals(pattern)) {
+            return formatRfc822(millis);
+        }
+        return null;
+    }
+
+    /**
+     * Parses a date in one of the patterns of {@link DateUtils}.
+     *
+     * @param pattern the date pattern.
+     * @param dateString the string to parse.
+     * @return the milliseconds since epoch, or {@link #INVALID} if the pattern
+     *         or the string is not handled.
+     */
+    static long parse(String pattern, String dateString) {
+        if (dateString == null) {
+            return INVALID;
+        }
+        if (DateUtils.ISO8601_DATE_PATTERN.equals(pattern)) {
+            return parseIso8601(dateString, true);
+        } else if (DateUtils.ALTERNATE_ISO8601_DATE_PATTERN.equals(pattern)) {
+            return parseIso8601(dateString, false);
+        } else if (DateUtils.COMPRESSED_DATE_PATTERN.equals(pattern)) {
+            return parseCompressed(dateString, true);
+        } else if (DATE_STAMP_PATTERN.equals(pattern)) {
+            return parseCompressed(dateString, false);
+        } else if (DateUtils.RFC822_DATE_PATTERN.equals(pattern)) {
+            return parseRfc822(dateString);
+        }
+        return INVALID;
+    }
+
+    /**
+     * Parses a number of seconds since epoch, with an optional sign and
+     * fraction. The fraction is truncated.
+     *
+     * @param value the string to parse.
+     * @return the milliseconds since epoch, or {@link #INVALID} if the string
+     *         is not handled.
+     */
+    static long parseEpochSeconds(String value) {
+        if (value == null) {
+            return INVALID;
+        }
+        final int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && value.charAt(i) == '-') {
+            negative = true;
+            i++;
+        }
+        final int start = i;
+        long seconds = 0;
+        while (i < length && isDigit(value.charAt(i))) {
+            seconds = seconds * 10 + (value.charAt(i) - '0');
+            i++;
+        }
+        if (i == start || i - start > MAX_EPOCH_SECONDS_DIGITS) {
+            return INVALID;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+            }
+        }
+        if (i != length) {
+            return INVALID;
+        }
+        return (negative ? -seconds : seconds) * MILLIS_PER_SECOND;
+    }
+
+    private static String formatIso8601(long millis, boolean withMillis) {
+        final char[] buffer = new char[withMillis ? ISO8601_LENGTH : ALTERNATE_ISO8601_LENGTH];
+        final long days = floorDiv(millis, MILLIS_PER_DAY);
+        final int millisOfDay = (int) (millis - days * MILLIS_PER_DAY);
+        final int pos = writeDate(buffer, 0, days, true);
+        buffer[pos] = 'T';
+        int end = writeTime(buffer, pos + 1, millisOfDay, true);
+        if (withMillis) {
+            buffer[end] = '.';
+            writeDigits(buffer, end + 1, millisOfDay % (int) MILLIS_PER_SECOND, 3);
+            end += 4;
+        }
+        buffer[end] = 'Z';
+        return new String(buffer);
+    }
+
+    private static String formatCompressed(long millis, boolean withTime) {
+        final char[] buffer = new char[withTime ? COMPRESSED_LENGTH : DATE_STAMP_LENGTH];
+        final long days = floorDiv(millis, MILLIS_PER_DAY);
+        final int pos = writeDate(buffer, 0, days, false);
+        if (withTime) {
+            buffer[pos] = 'T';
+            final int end = writeTime(buffer, pos + 1, (int) (millis - days * MILLIS_PER_DAY), false);
+            buffer[end] = 'Z';
+        }
+        return new String(buffer);
+    }
+
+    private static String formatRfc822(long millis) {
+        final char[] buffer = new char[RFC822_LENGTH];
+        final long days = floorDiv(millis, MILLIS_PER_DAY);
+        final long civil = civilFromDays(days);
+        writeName(buffer, 0, DAY_NAMES[(int) floorMod(days, DAY_NAMES.length)]);
+        buffer[3] = ',';
+        buffer[4] = ' ';
+        writeDigits(buffer, 5, (int) (civil & 0xFF), 2);
+        buffer[7] = ' ';
+        writeName(buffer, 8, MONTH_NAMES[(int) ((civil >> 8) & 0xFF) - 1]);
+        buffer[11] = ' ';
+        writeDigits(buffer, 12, (int) (civil >> 16), 4);
+        buffer[16] = ' ';
+        writeTime(buffer, 17, (int) (millis - days * MILLIS_PER_DAY), true);
+        writeName(buffer, 25, " GMT");
+        return new String(buffer);
+    }
+
+    private static long parseIso8601(String s, boolean withMillis) {
+        if (s.length() != (withMillis ? ISO8601_LENGTH : ALTERNATE_ISO8601_LENGTH)
+                || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T'
+                || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            return INVALID;
+        }
+        int millis = 0;
+        if (withMillis) {
+            if (s.charAt(19) != '.') {
+                return INVALID;
+            }
+            millis = readDigits(s, 20, 3);
+            if (millis < 0) {
+                return INVALID;
+            }
+        }
+        if (s.charAt(s.length() - 1) != 'Z') {
+            return INVALID;
+        }
+        return toMillis(readDigits(s, 0, 4), readDigits(s, 5, 2), readDigits(s, 8, 2),
+                readDigits(s, 11, 2), readDigits(s, 14, 2), readDigits(s, 17, 2), millis);
+    }
+
+    private static long parseCompressed(String s, boolean withTime) {
+        if (s.length() != (withTime ? COMPRESSED_LENGTH : DATE_STAMP_LENGTH)) {
+            return INVALID;
+        }
+        if (!withTime) {
+            return toMillis(readDigits(s, 0, 4), readDigits(s, 4, 2), readDigits(s, 6, 2), 0, 0, 0, 0);
+        }
+        if (s.charAt(8) != 'T' || s.charAt(15) != 'Z') {
+            return INVALID;
+        }
+        return toMillis(readDigits(s, 0, 4), readDigits(s, 4, 2), readDigits(s, 6, 2),
+                readDigits(s, 9, 2), readDigits(s, 11, 2), readDigits(s, 13, 2), 0);
+    }
+
+    private static long parseRfc822(String s) {
+        if (s.length() != RFC822_LENGTH || s.charAt(3) != ',' || s.charAt(4) != ' '
+                || s.charAt(7) != ' ' || s.charAt(11) != ' ' || s.charAt(16) != ' '
+                || s.charAt(19) != ':' || s.charAt(22) != ':' || !s.startsWith(" GMT", 25)) {
+            return INVALID;
+        }
+        int month = -1;
+        for (int i = 0; i < MONTH_NAMES.length; i++) {
+            if (s.startsWith(MONTH_NAMES[i], 8)) {
+                month = i + 1;
+                break;
+            }
+        }
+        if (month < 0) {
+            return INVALID;
+        }
+        final long millis = toMillis(readDigits(s, 12, 4), month, readDigits(s, 5, 2),
+                readDigits(s, 17, 2), readDigits(s, 20, 2), readDigits(s, 23, 2), 0);
+        // SimpleDateFormat rejects a day name that does not match the date.
+        if (millis == INVALID
+                || !s.startsWith(DAY_NAMES[(int) floorMod(floorDiv(millis, MILLIS_PER_DAY),
+                        DAY_NAMES.length)], 0)) {
+            return INVALID;
+        }
+        return millis;
+    }
+
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second,
+            int millis) {
+        if (year < MIN_YEAR || month < 1 || month > 12 || day < 1
+                || day > lengthOfMonth(year, month) || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60L + second) * MILLIS_PER_SECOND + millis;
+    }
+
+    private static int writeDate(char[] buffer, int pos, long days, boolean separated) {
+        final long civil = civilFromDays(days);
+        writeDigits(buffer, pos, (int) (civil >> 16), 4);
+        pos += 4;
+        if (separated) {
+            buffer[pos++] = '-';
+        }
+        writeDigits(buffer, pos, (int) ((civil >> 8) & 0xFF), 2);
+        pos += 2;
+        if (separated) {
+            buffer[pos++] = '-';
+        }
+        writeDigits(buffer, pos, (int) (civil & 0xFF), 2);
+        return pos + 2;
+    }
+
+    private static int writeTime(char[] buffer, int pos, int millisOfDay, boolean separated) {
+        final int secondOfDay = millisOfDay / (int) MILLIS_PER_SECOND;
+        writeDigits(buffer, pos, secondOfDay / 3600, 2);
+        pos += 2;
+        if (separated) {
+            buffer[pos++] = ':';
+        }
+        writeDigits(buffer, pos, secondOfDay / 60 % 60, 2);
+        pos += 2;
+        if (separated) {
+            buffer[pos++] = ':';
+        }
+        writeDigits(buffer, pos, secondOfDay % 60, 2);
+        return pos + 2;
+    }
+
+    private static void writeDigits(char[] buffer, int pos, int value, int count) {
+        for (int i = pos + count - 1; i >= pos; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void writeName(char[] buffer, int pos, String name) {
+        name.getChars(0, name.length(), buffer, pos);
+    }
+
+    /**
+     * @return the value of the digits, or a negative number if one of the
+     *         characters is not a digit.
+     */
+    private static int readDigits(String s, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            final char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                final boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return the number of days from 1970-01-01 to the given date of the
+     *         proleptic Gregorian calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * @return the date of the proleptic Gregorian calendar the given number of
+     *         days after 1970-01-01, packed as year &lt;&lt; 16 | month &lt;&lt; 8 | day.
+     */
+    private static long civilFromDays(long days) {
+        final long z = days + 719468;
+        final long era = (z >= 0 ? z : z - 146096) / 146097;
+        final int dayOfEra = (int) (z - era * 146097);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int mp = (5 * dayOfYear + 2) / 153;
+        final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        final int month = mp < 10 ? mp + 3 : mp - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year << 16 | month << 8 | day;
+    }
+
+    private static long floorDiv(long x, long y) {
+        final long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+}
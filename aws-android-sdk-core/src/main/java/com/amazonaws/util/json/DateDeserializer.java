@@ -13,7 +13,7 @@ import java.lang.reflect.Type;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -22,8 +22,7 @@ import java.util.List;
  */
 public class DateDeserializer implements JsonDeserializer<Date>, JsonSerializer<Date> {
 
-    private SimpleDateFormat mSimpleDateFormat;
-    private final List<String> dateFormats;
+    private final List<SimpleDateFormat> dateFormats;
     private final SimpleDateFormat mIso8601DateFormat;
 
     /**
@@ -31,7 +30,12 @@ public class DateDeserializer implements JsonDeserializer<Date>, JsonSerializer<
      * @param dateFormats the array of date formats.
      */
     public DateDeserializer(String[] dateFormats) {
-        this.dateFormats = Arrays.asList(dateFormats);
+        // The formats are created once and shared, as creating a
+        // SimpleDateFormat for every date is expensive.
+        this.dateFormats = new ArrayList<SimpleDateFormat>(dateFormats.length);
+        for (final String df : dateFormats) {
+            this.dateFormats.add(new SimpleDateFormat(df));
+        }
         this.mIso8601DateFormat = new SimpleDateFormat(DateUtils.ISO8601_DATE_PATTERN);
     }
 
@@ -39,13 +43,11 @@ public class DateDeserializer implements JsonDeserializer<Date>, JsonSerializer<
     @SuppressWarnings("checkstyle:emptyblock")
     public Date deserialize(JsonElement element, Type arg1, JsonDeserializationContext context) {
         final String dateString = element.getAsString();
-        Date date = null;
-        for (final String df : dateFormats) {
+        for (final SimpleDateFormat df : dateFormats) {
             try {
-                date = new Date();
-                mSimpleDateFormat = new SimpleDateFormat(df);
-                date.setTime(mSimpleDateFormat.parse(dateString).getTime());
-                return date;
+                synchronized (df) {
+                    return df.parse(dateString);
+                }
             } catch (final ParseException e) {
                 // swallow , will try next type of date format
             }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A {@link Writer} that encodes what is written to it as UTF-8 into a growable
+ * byte array. JSON marshallers write request bodies through an
+ * {@link AwsJsonWriter} into a sink and use its bytes as the request content,
+ * so a body is encoded once and never held as a String.
+ * <p>
+ * Unpaired surrogates are encoded as '?', like
+ * {@link String#getBytes(java.nio.charset.Charset)} does. Not thread safe.
+ */
+public final class JsonByteSink extends Writer {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final byte REPLACEMENT = (byte) '?';
+
+    private byte[] buffer;
+    private int count;
+
+    /**
+     * A high surrogate written as the last char, waiting for its low
+     * surrogate, or 0.
+     */
+    private char pendingHighSurrogate;
+
+    /**
+     * Creates an empty sink.
+     */
+    public JsonByteSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty sink.
+     *
+     * @param initialCapacity initial capacity in bytes.
+     */
+    public JsonByteSink(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Negative initial capacity: " + initialCapacity);
+        }
+        buffer = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int c) {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        ensureCapacity(count + len);
+        final int end = off + len;
+        int i = off;
+        if (pendingHighSurrogate == 0) {
+            // fast path for the ASCII that makes up most of JSON
+            final byte[] buf = buffer;
+            int pos = count;
+            while (i < end && cbuf[i] < 0x80) {
+                buf[pos++] = (byte) cbuf[i++];
+            }
+            count = pos;
+        }
+        for (; i < end; i++) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        ensureCapacity(count + len);
+        final int end = off + len;
+        int i = off;
+        if (pendingHighSurrogate == 0) {
+            // fast path for the ASCII that makes up most of JSON
+            final byte[] buf = buffer;
+            int pos = count;
+            char c;
+            while (i < end && (c = str.charAt(i)) < 0x80) {
+                buf[pos++] = (byte) c;
+                i++;
+            }
+            count = pos;
+        }
+        for (; i < end; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() {
+        // nothing is buffered
+    }
+
+    /**
+     * Ends the content. A high surrogate written last is encoded as '?'. The
+     * bytes stay available.
+     */
+    @Override
+    public void close() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            put(REPLACEMENT);
+        }
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the backing array, which holds {@link #size()} bytes of content
+     * and may be longer than that. It is not copied, so it must not be
+     * modified.
+     *
+     * @return the backing array.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return a copy of the written bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Returns a stream of the written bytes, reading from the backing array
+     * without copying it. The stream supports mark and reset, so it can be
+     * used as the content of a request that is signed and retried. Nothing
+     * should be written to the sink afterwards.
+     *
+     * @return a stream of the written bytes.
+     */
+    public InputStream toInputStream() {
+        close();
+        return new ByteArrayInputStream(buffer, 0, count);
+    }
+
+    private void writeChar(char c) {
+        if (pendingHighSurrogate != 0) {
+            final char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int codePoint = Character.toCodePoint(high, c);
+                put((byte) (0xF0 | (codePoint >> 18)));
+                put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                put((byte) (0x80 | (codePoint & 0x3F)));
+                return;
+            }
+            put(REPLACEMENT);
+        }
+
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            put(REPLACEMENT);
+        } else {
+            put((byte) (0xE0 | (c >> 12)));
+            put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void put(byte b) {
+        if (count == buffer.length) {
+            ensureCapacity(count + 1);
+        }
+        buffer[count++] = b;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buffer.length) {
+            int newCapacity = Math.max(buffer.length << 1, DEFAULT_CAPACITY);
+            if (newCapacity < minCapacity) {
+                newCapacity = minCapacity;
+            }
+            buffer = Arrays.copyOf(buffer, newCapacity);
+        }
+    }
+}
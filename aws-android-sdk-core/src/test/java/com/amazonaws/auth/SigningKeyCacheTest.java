@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class SigningKeyCacheTest {
+
+    private final AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+
+    @Test
+    public void testGetReturnsKeyOfSameScope() {
+        SigningKeyCache cache = new SigningKeyCache(10);
+        byte[] key = new byte[] {
+                1, 2, 3
+        };
+        cache.put(credentials, "20190101", "us-east-1", "s3", key);
+
+        assertArrayEquals(key, cache.get(credentials, "20190101", "us-east-1", "s3"));
+        assertNull(cache.get(credentials, "20190102", "us-east-1", "s3"));
+        assertNull(cache.get(credentials, "20190101", "us-west-2", "s3"));
+        assertNull(cache.get(credentials, "20190101", "us-east-1", "sqs"));
+        assertNull(cache.get(new BasicAWSCredentials("other", "secret"), "20190101",
+                "us-east-1", "s3"));
+    }
+
+    @Test
+    public void testChangedSecretKeyMisses() {
+        SigningKeyCache cache = new SigningKeyCache(10);
+        cache.put(credentials, "20190101", "us-east-1", "s3", new byte[1]);
+
+        assertNull(cache.get(new BasicAWSCredentials("access", "rotated"), "20190101",
+                "us-east-1", "s3"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedKey() {
+        SigningKeyCache cache = new SigningKeyCache(2);
+        cache.put(credentials, "20190101", "us-east-1", "s3", new byte[1]);
+        cache.put(credentials, "20190102", "us-east-1", "s3", new byte[1]);
+        cache.get(credentials, "20190101", "us-east-1", "s3");
+        cache.put(credentials, "20190103", "us-east-1", "s3", new byte[1]);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(credentials, "20190101", "us-east-1", "s3"));
+        assertNull(cache.get(credentials, "20190102", "us-east-1", "s3"));
+        assertNotNull(cache.get(credentials, "20190103", "us-east-1", "s3"));
+    }
+}
@@ -16,6 +16,7 @@
 package com.amazonaws.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -36,7 +37,12 @@ import com.amazonaws.handlers.CredentialsRequestHandler;
 import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryMode;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryQuota;
 import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
 
 import org.easymock.Capture;
 import org.easymock.EasyMock;
@@ -51,6 +57,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class AmazonHttpClientTest {
     private HttpClient httpClient;
@@ -167,6 +178,134 @@ public class AmazonHttpClientTest {
         EasyMock.verify(httpClient);
     }
 
+    @Test
+    public void testExecuteAsyncDoesNotBlockExecutorWhileBackingOff() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setRetryPolicy(new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                new RetryPolicy.BackoffStrategy() {
+                    @Override
+                    public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+                            AmazonClientException exception, int retriesAttempted) {
+                        return 500;
+                    }
+                }, 3, true));
+        client = new AmazonHttpClient(config, httpClient);
+
+        HttpResponseHandler<AmazonWebServiceResponse<String>> handler =
+                EasyMock.createMock(HttpResponseHandler.class);
+        EasyMock.expect(handler.needsConnectionLeftOpen()).andReturn(false).anyTimes();
+        AmazonWebServiceResponse<String> awsResponse = new AmazonWebServiceResponse<String>();
+        awsResponse.setResult("result");
+        EasyMock.expect(handler.handle(EasyMock.<HttpResponse> anyObject()))
+                .andReturn(awsResponse);
+
+        HttpResponse response = HttpResponse.builder()
+                .content(new ByteArrayInputStream(new byte[0]))
+                .statusCode(200)
+                .statusText("OK")
+                .build();
+        EasyMock.expect(httpClient.execute(EasyMock.<HttpRequest> anyObject()))
+                .andThrow(new IOException("BOOM"))
+                .andReturn(response);
+        EasyMock.replay(handler, httpClient);
+
+        Request<?> request = new DefaultRequest<Object>("testsvc");
+        request.setEndpoint(java.net.URI.create(
+                "http://testsvc.region.amazonaws.com"));
+        request.addHeader(HttpHeader.CONTENT_LENGTH, "0");
+        request.setContent(new ByteArrayInputStream(new byte[0]));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response<String>> future = client.executeAsync(request, handler, null,
+                    new ExecutionContext(), executor);
+            // the only thread of the executor is free while the request backs off
+            Future<?> other = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            other.get(200, TimeUnit.MILLISECONDS);
+            assertFalse(future.isDone());
+
+            assertEquals("result", future.get(5, TimeUnit.SECONDS).getAwsResponse());
+            assertEquals("1/500", request.getHeaders().get("aws-sdk-retry"));
+        } finally {
+            executor.shutdown();
+        }
+        EasyMock.verify(httpClient);
+    }
+
+    @Test
+    public void testExecuteAsyncFailsAfterRetries() throws Exception {
+        IOException exception = new IOException("BOOM");
+        EasyMock.expect(httpClient.execute(EasyMock.<HttpRequest> anyObject()))
+                .andThrow(exception)
+                .times(4);
+        EasyMock.replay(httpClient);
+
+        Request<?> request = new DefaultRequest<Object>("testsvc");
+        request.setEndpoint(java.net.URI.create(
+                "http://testsvc.region.amazonaws.com"));
+        request.addHeader(HttpHeader.CONTENT_LENGTH, "0");
+        request.setContent(new ByteArrayInputStream(new byte[0]));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            client.<Object> executeAsync(request, null, null, new ExecutionContext(), executor)
+                    .get(30, TimeUnit.SECONDS);
+            Assert.fail("No exception when request repeatedly fails!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AmazonClientException);
+            Assert.assertSame(exception, e.getCause().getCause());
+        } finally {
+            executor.shutdown();
+        }
+        EasyMock.verify(httpClient);
+    }
+
+    @Test
+    public void testStandardRetryModeStopsRetryingWhenQuotaIsUsedUp() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setRetryPolicy(new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                new RetryPolicy.BackoffStrategy() {
+                    @Override
+                    public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+                            AmazonClientException exception, int retriesAttempted) {
+                        return 0;
+                    }
+                }, 1000, false, RetryMode.STANDARD));
+        client = new AmazonHttpClient(config, httpClient);
+
+        // the default quota pays for 100 retries of an IOException
+        int attempts = RetryQuota.DEFAULT_CAPACITY / 5 + 1;
+        IOException exception = new IOException("BOOM");
+        EasyMock.expect(httpClient.execute(EasyMock.<HttpRequest> anyObject()))
+                .andThrow(exception)
+                .times(attempts);
+        EasyMock.replay(httpClient);
+
+        Request<?> request = new DefaultRequest<Object>("testsvc");
+        request.setEndpoint(java.net.URI.create(
+                "http://testsvc.region.amazonaws.com"));
+        request.addHeader(HttpHeader.CONTENT_LENGTH, "0");
+        request.setContent(new ByteArrayInputStream(new byte[0]));
+
+        ExecutionContext context = new ExecutionContext(true);
+        try {
+            client.execute(request, null, null, context);
+            Assert.fail("No exception when request repeatedly fails!");
+        } catch (AmazonClientException e) {
+            Assert.assertSame(exception, e.getCause());
+        }
+        EasyMock.verify(httpClient);
+        AWSRequestMetrics metrics = context.getAwsRequestMetrics();
+        Assert.assertEquals(0, metrics.getTimingInfo()
+                .getCounter(Field.RetryQuotaAvailable.name()).intValue());
+        Assert.assertEquals(1, metrics.getTimingInfo()
+                .getCounter(Field.RetryQuotaExceeded.name()).intValue());
+    }
+
     @Test
     public void testRetryIOExceptionFromHandler() throws Exception {
         final IOException exception = new IOException("BOOM");
@@ -19,8 +19,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.transform.JsonUnmarshallerContext;
 import com.amazonaws.transform.Unmarshaller;
 import com.amazonaws.util.StringUtils;
@@ -28,10 +30,12 @@ import com.amazonaws.util.StringUtils;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
 
 public class JsonResponseHandlerTest {
 
@@ -66,6 +70,48 @@ public class JsonResponseHandlerTest {
         assertEquals(awsResponse.getResult(), "Content");
     }
 
+    @Test
+    public void testHandleGzipWithCRC32() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(baos);
+        gzip.write("{\"key\" :\"Content\"}".getBytes(StringUtils.UTF8));
+        gzip.close();
+        byte[] compressed = baos.toByteArray();
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(compressed);
+
+        Unmarshaller<String, JsonUnmarshallerContext> unmarshaller = new Unmarshaller<String, JsonUnmarshallerContext>() {
+
+            @Override
+            public String unmarshall(JsonUnmarshallerContext in) throws Exception {
+                in.getReader().beginObject();
+                in.getReader().nextName();
+                return in.getReader().nextString();
+            }
+
+        };
+
+        JsonResponseHandler<String> toTest = new JsonResponseHandler<String>(unmarshaller);
+        HttpResponse response = new HttpResponse.Builder().statusText("testResponse")
+                .statusCode(200).header("Content-Encoding", "gzip")
+                .header("x-amz-crc32", String.valueOf(crc32.getValue()))
+                .content(new ByteArrayInputStream(compressed)).build();
+        AmazonWebServiceResponse<String> awsResponse = toTest.handle(response);
+        assertEquals(awsResponse.getResult(), "Content");
+
+        response = new HttpResponse.Builder().statusText("testResponse")
+                .statusCode(200).header("Content-Encoding", "gzip")
+                .header("x-amz-crc32", String.valueOf(crc32.getValue() + 1))
+                .content(new ByteArrayInputStream(compressed)).build();
+        try {
+            toTest.handle(response);
+            fail("Expected a CRC32 mismatch");
+        } catch (CRC32MismatchException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testHandleWithNoCRC32() throws Exception {
         ByteArrayInputStream bais = new ByteArrayInputStream(
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.util.IOUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public class PooledGZIPInputStreamTest {
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(data);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] randomText(int length) {
+        Random random = new Random(length);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    @Test
+    public void testDecompressesLikeGZIPInputStream() throws Exception {
+        for (int length : new int[] {
+                0, 1, 8191, 8192, 100000
+        }) {
+            byte[] data = randomText(length);
+            PooledGZIPInputStream in = new PooledGZIPInputStream(
+                    new ByteArrayInputStream(gzip(data)));
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+            in.close();
+        }
+    }
+
+    @Test
+    public void testConcatenatedMembers() throws Exception {
+        byte[] first = randomText(20000);
+        byte[] second = randomText(300);
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip(first));
+        members.write(gzip(second));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+
+        PooledGZIPInputStream in = new PooledGZIPInputStream(
+                new ByteArrayInputStream(members.toByteArray()));
+        assertArrayEquals(expected.toByteArray(), IOUtils.toByteArray(in));
+        in.close();
+    }
+
+    @Test
+    public void testCorruptTrailer() throws Exception {
+        byte[] compressed = gzip(randomText(5000));
+        // flip a bit of the CRC32 in the trailer
+        compressed[compressed.length - 8] ^= 1;
+        PooledGZIPInputStream in = new PooledGZIPInputStream(
+                new ByteArrayInputStream(compressed));
+        try {
+            IOUtils.toByteArray(in);
+            fail("Expected a corrupt trailer");
+        } catch (ZipException e) {
+            // expected
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void testNotGzip() throws Exception {
+        new PooledGZIPInputStream(new ByteArrayInputStream("{}".getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PooledHttpClientTest {
+
+    private StubServer server;
+    private ClientConfiguration config;
+    private PooledHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubServer();
+        config = new ClientConfiguration().withMaxConnections(8);
+        client = new PooledHttpClient(config);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareConnections() throws Exception {
+        server.responseDelayMillis = 20;
+        final int calls = 64;
+        final ExecutorService executor = Executors.newFixedThreadPool(calls);
+        final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+        try {
+            for (int i = 0; i < calls; i++) {
+                final String body = "request " + i;
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        final long start = System.nanoTime();
+                        final HttpResponse response = client.execute(post(body, false));
+                        assertEquals(200, response.getStatusCode());
+                        assertEquals(body, read(response));
+                        return System.nanoTime() - start;
+                    }
+                }));
+            }
+            final List<Long> latencies = new ArrayList<Long>();
+            for (final Future<Long> future : futures) {
+                latencies.add(future.get(30, TimeUnit.SECONDS));
+            }
+            Collections.sort(latencies);
+            final long p99Millis = TimeUnit.NANOSECONDS.toMillis(
+                    latencies.get(latencies.size() * 99 / 100));
+
+            // Every connection costs a handshake, at most 8 for 64 calls. The stub
+            // server speaks plain HTTP, so this measures TCP connects, not TLS
+            // handshakes. With 8 connections each serves about 8 calls of 20 ms,
+            // while a single shared connection would take over 1280 ms.
+            final String stats = "connections " + server.connections.get() + ", p99 "
+                    + p99Millis + " ms";
+            assertTrue(stats, server.connections.get() <= 8);
+            assertEquals(stats, server.connections.get(), client.getOpenedConnectionCount());
+            assertTrue(stats, p99Millis < 1000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReusesConnection() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final HttpResponse response = client.execute(post("body " + i, false));
+            assertEquals("body " + i, read(response));
+        }
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    public void testStreamingRequestAndChunkedResponse() throws Exception {
+        server.chunked = true;
+        final HttpResponse response = client.execute(post("streamed body", true));
+        assertEquals(200, response.getStatusCode());
+        assertEquals("chunked", response.getHeaders().get("Transfer-Encoding"));
+        assertEquals("streamed body", read(response));
+
+        assertEquals("again", read(client.execute(post("again", false))));
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    public void testConnectionCloseIsNotReused() throws Exception {
+        server.closeConnections = true;
+        assertEquals("first", read(client.execute(post("first", false))));
+        assertEquals("second", read(client.execute(post("second", false))));
+        assertEquals(2, server.connections.get());
+    }
+
+    @Test
+    public void testUnreadContentIsDrainedOnClose() throws Exception {
+        client.execute(post("not read", false)).getContent().close();
+        assertEquals("read", read(client.execute(post("read", false))));
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    public void testHeadResponseHasNoContent() throws Exception {
+        final HttpResponse response = client.execute(
+                new HttpRequest("HEAD", server.uri(), new HashMap<String, String>(), null));
+        assertEquals(200, response.getStatusCode());
+        assertNull(response.getContent());
+        assertEquals("after head", read(client.execute(post("after head", false))));
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    public void testRequestIsResentWhenServerClosedIdleConnection() throws Exception {
+        server.dropConnections = true;
+        assertEquals("first", read(client.execute(post("first", false))));
+        assertEquals("second", read(client.execute(post("second", false))));
+        assertEquals(2, server.connections.get());
+        assertEquals(2, server.requests.get());
+    }
+
+    @Test
+    public void testReadTimeoutOnReusedConnectionIsNotResent() throws Exception {
+        client = new PooledHttpClient(config.withSocketTimeout(200));
+        assertEquals("first", read(client.execute(post("first", false))));
+        server.responseDelayMillis = 1000;
+        try {
+            client.execute(post("second", false));
+            fail("Should time out");
+        } catch (final SocketTimeoutException e) {
+            // the server may still apply the request, so it's not sent again
+        }
+        assertEquals(1, server.connections.get());
+        assertEquals(2, server.requests.get());
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        assertEquals(3, client.warmUp(server.uri(), 3));
+        server.awaitConnections(3);
+        assertEquals("warm", read(client.execute(post("warm", false))));
+        assertEquals(3, server.connections.get());
+        assertEquals(3, client.getOpenedConnectionCount());
+        // no more than the max connections are opened
+        assertEquals(5, client.warmUp(server.uri(), 10));
+    }
+
+    private HttpRequest post(String body, boolean streaming) {
+        final byte[] bytes = body.getBytes(StringUtils.UTF8);
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put(HttpHeader.CONTENT_LENGTH, String.valueOf(bytes.length));
+        headers.put(HttpHeader.CONTENT_TYPE, "text/plain");
+        final HttpRequest request = new HttpRequest("POST", server.uri(), headers,
+                new ByteArrayInputStream(bytes));
+        request.setStreaming(streaming);
+        return request;
+    }
+
+    private static String read(HttpResponse response) throws IOException {
+        final InputStream content = response.getContent();
+        try {
+            return IOUtils.toString(content);
+        } finally {
+            content.close();
+        }
+    }
+
+    /**
+     * A keep-alive HTTP/1.1 server that echoes the body of each request.
+     */
+    private static final class StubServer implements Runnable {
+        private final ServerSocket serverSocket;
+        private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<Socket>());
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        volatile long responseDelayMillis;
+        volatile boolean chunked;
+        volatile boolean closeConnections;
+        /** Closes each connection after a response without telling the client. */
+        volatile boolean dropConnections;
+
+        StubServer() throws IOException {
+            serverSocket = new ServerSocket(0, 128, InetAddress.getByName("127.0.0.1"));
+            final Thread thread = new Thread(this, "stub-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        URI uri() {
+            return URI.create("http://127.0.0.1:" + serverSocket.getLocalPort() + "/echo");
+        }
+
+        void awaitConnections(int count) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (connections.get() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    sockets.add(socket);
+                    final Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(socket);
+                        }
+                    });
+                    thread.setDaemon(true);
+                    thread.start();
+                } catch (final IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                final InputStream in = new BufferedInputStream(socket.getInputStream());
+                final OutputStream out = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = PooledHttpClient.readLine(in)) != null) {
+                    final Map<String, String> headers = new HashMap<String, String>();
+                    String line;
+                    while ((line = PooledHttpClient.readLine(in)).length() > 0) {
+                        final int colon = line.indexOf(':');
+                        headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US),
+                                line.substring(colon + 1).trim());
+                    }
+                    final byte[] body = readBody(in, headers);
+                    requests.incrementAndGet();
+                    if (responseDelayMillis > 0) {
+                        Thread.sleep(responseDelayMillis);
+                    }
+                    final boolean isHead = requestLine.startsWith("HEAD ");
+                    final ByteArrayOutputStream response = new ByteArrayOutputStream();
+                    final StringBuilder head = new StringBuilder("HTTP/1.1 200 OK\r\n");
+                    if (closeConnections) {
+                        head.append("Connection: close\r\n");
+                    }
+                    if (chunked && !isHead) {
+                        head.append("Transfer-Encoding: chunked\r\n\r\n");
+                        response.write(head.toString().getBytes(StringUtils.UTF8));
+                        final int half = body.length / 2;
+                        writeChunk(response, body, 0, half);
+                        writeChunk(response, body, half, body.length - half);
+                        response.write("0\r\n\r\n".getBytes(StringUtils.UTF8));
+                    } else {
+                        head.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+                        response.write(head.toString().getBytes(StringUtils.UTF8));
+                        if (!isHead) {
+                            response.write(body);
+                        }
+                    }
+                    out.write(response.toByteArray());
+                    out.flush();
+                    if (closeConnections || dropConnections) {
+                        break;
+                    }
+                }
+                socket.close();
+            } catch (final Exception e) {
+                // the client closed the connection
+            }
+        }
+
+        private static byte[] readBody(InputStream in, Map<String, String> headers)
+                throws IOException {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if ("chunked".equals(headers.get("transfer-encoding"))) {
+                int size;
+                while ((size = Integer.parseInt(PooledHttpClient.readLine(in), 16)) > 0) {
+                    copy(in, body, size);
+                    PooledHttpClient.readLine(in);
+                }
+                PooledHttpClient.readLine(in);
+            } else if (headers.containsKey("content-length")) {
+                copy(in, body, Integer.parseInt(headers.get("content-length")));
+            }
+            return body.toByteArray();
+        }
+
+        private static void copy(InputStream in, OutputStream out, int length)
+                throws IOException {
+            for (int i = 0; i < length; i++) {
+                out.write(in.read());
+            }
+        }
+
+        private static void writeChunk(OutputStream out, byte[] body, int off, int len)
+                throws IOException {
+            out.write((Integer.toHexString(len) + "\r\n").getBytes(StringUtils.UTF8));
+            out.write(body, off, len);
+            out.write("\r\n".getBytes(StringUtils.UTF8));
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+            synchronized (sockets) {
+                for (final Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+}
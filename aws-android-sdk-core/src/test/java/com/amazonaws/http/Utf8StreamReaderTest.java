@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+public class Utf8StreamReaderTest {
+
+    private static String readAll(Reader reader, int chunk) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] cbuf = new char[chunk];
+        int n;
+        while ((n = reader.read(cbuf, 0, chunk)) != -1) {
+            sb.append(cbuf, 0, n);
+        }
+        reader.close();
+        return sb.toString();
+    }
+
+    @Test
+    public void testDecodesLikeString() throws Exception {
+        String[] samples = new String[] {
+                "",
+                "{\"key\":\"plain ascii\"}",
+                "Chloë € 中文",
+                "emoji 😀 pair 😀😀"
+        };
+        for (String sample : samples) {
+            for (int chunk : new int[] {
+                    1, 2, 3, 1024
+            }) {
+                Reader reader = new Utf8StreamReader(
+                        new ByteArrayInputStream(sample.getBytes(UTF8)));
+                assertEquals(sample, readAll(reader, chunk));
+            }
+        }
+    }
+
+    @Test
+    public void testSequencesAcrossBufferBoundary() throws Exception {
+        // shift the multi byte chars across the end of the 8 KB buffer
+        for (int pad = 0; pad < 4; pad++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < ResponseBufferPool.BUFFER_SIZE - 4 + pad; i++) {
+                sb.append('a');
+            }
+            sb.append("€😀ë中");
+            String expected = sb.toString();
+            Reader reader = new Utf8StreamReader(
+                    new ByteArrayInputStream(expected.getBytes(UTF8)));
+            assertEquals(expected, readAll(reader, 4096));
+        }
+    }
+
+    @Test
+    public void testTrickleInput() throws Exception {
+        final String expected = "a€😀b";
+        final byte[] bytes = expected.getBytes(UTF8);
+        // returns one byte per read like a slow connection
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        assertEquals(expected, readAll(new Utf8StreamReader(trickle), 16));
+    }
+
+    @Test
+    public void testMalformedInput() throws Exception {
+        byte[] bytes = new byte[] {
+                'a', (byte) 0xFF, 'b', (byte) 0xE2, (byte) 0x82, 'c', (byte) 0xC3
+        };
+        Reader reader = new Utf8StreamReader(new ByteArrayInputStream(bytes));
+        assertEquals("a\uFFFDb\uFFFD\uFFFDc\uFFFD", readAll(reader, 16));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testNotLimitedBeforeThrottling() {
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.acquire(0));
+            limiter.update(false, 0);
+        }
+        assertFalse(limiter.isEnabled());
+        assertEquals(0, limiter.getFillRate(), 0);
+    }
+
+    @Test
+    public void testThrottlingCutsRate() {
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0);
+        // send 10 requests per second for 5 seconds
+        long now = 0;
+        for (int i = 0; i < 50; i++) {
+            now += SECOND / 10;
+            limiter.update(false, now);
+        }
+        limiter.update(true, now);
+        assertTrue(limiter.isEnabled());
+        final double throttledRate = limiter.getFillRate();
+        assertTrue("rate " + throttledRate, throttledRate > 5 && throttledRate < 8);
+
+        // once the burst capacity is used up the next requests have to wait
+        long waited = 0;
+        for (int i = 0; i < 20; i++) {
+            waited = limiter.acquire(now);
+        }
+        assertTrue("waited " + waited, waited > 1000);
+        assertTrue("waited " + waited, waited <= Math.ceil(20 / throttledRate * 1000));
+    }
+
+    @Test
+    public void testRateRecoversAfterThrottling() {
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0);
+        long now = 0;
+        for (int i = 0; i < 50; i++) {
+            now += SECOND / 10;
+            limiter.update(false, now);
+        }
+        limiter.update(true, now);
+        final double throttledRate = limiter.getFillRate();
+        for (int i = 0; i < 50; i++) {
+            now += SECOND / 10;
+            limiter.update(false, now);
+        }
+        assertTrue(limiter.getFillRate() > throttledRate);
+    }
+}
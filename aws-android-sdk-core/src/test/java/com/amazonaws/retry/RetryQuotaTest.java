@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+
+public class RetryQuotaTest {
+
+    private static final AmazonClientException SERVICE_ERROR =
+            new AmazonServiceException("Service unavailable");
+    private static final AmazonClientException TIMEOUT =
+            new AmazonClientException("Timeout", new SocketTimeoutException());
+
+    @Test
+    public void testAcquireTakesRetryCost() {
+        final RetryQuota quota = new RetryQuota(20);
+        assertEquals(RetryQuota.RETRY_COST, quota.acquire(SERVICE_ERROR));
+        assertEquals(20 - RetryQuota.RETRY_COST, quota.getAvailableCapacity());
+        assertEquals(RetryQuota.TIMEOUT_RETRY_COST, quota.acquire(TIMEOUT));
+        assertEquals(20 - RetryQuota.RETRY_COST - RetryQuota.TIMEOUT_RETRY_COST,
+                quota.getAvailableCapacity());
+    }
+
+    @Test
+    public void testAcquireFailsWhenQuotaIsUsedUp() {
+        final RetryQuota quota = new RetryQuota(12);
+        assertEquals(RetryQuota.TIMEOUT_RETRY_COST, quota.acquire(TIMEOUT));
+        assertEquals(0, quota.acquire(SERVICE_ERROR));
+        assertEquals(2, quota.getAvailableCapacity());
+    }
+
+    @Test
+    public void testReleaseRefillsUpToCapacity() {
+        final RetryQuota quota = new RetryQuota(10);
+        final int cost = quota.acquire(SERVICE_ERROR);
+        quota.release(0);
+        assertEquals(10 - cost + RetryQuota.NO_RETRY_INCREMENT, quota.getAvailableCapacity());
+        quota.release(cost);
+        assertEquals(10, quota.getAvailableCapacity());
+        quota.release(0);
+        assertEquals(10, quota.getAvailableCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new RetryQuota(-1);
+    }
+}
@@ -31,6 +31,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Random;
 import java.util.SimpleTimeZone;
 
 public class DateUtilsTest {
@@ -161,4 +162,74 @@ public class DateUtilsTest {
             }
         }
     }
+
+    @Test
+    public void testFixedPatternsMatchSimpleDateFormat() throws ParseException {
+        final String[] patterns = {
+                DateUtils.ISO8601_DATE_PATTERN,
+                DateUtils.ALTERNATE_ISO8601_DATE_PATTERN,
+                DateUtils.COMPRESSED_DATE_PATTERN,
+                DateUtils.RFC822_DATE_PATTERN,
+                "yyyyMMdd"
+        };
+        final Random random = new Random(42);
+        // Years 1000 to 10000, which includes the dates SimpleDateFormat
+        // still handles with the Julian calendar.
+        final long min = -30610224000000L;
+        final long max = 253402300800000L + 24L * 60 * 60 * 1000;
+        for (final String pattern : patterns) {
+            final SimpleDateFormat sdf = new SimpleDateFormat(pattern, Locale.US);
+            sdf.setTimeZone(new SimpleTimeZone(0, "GMT"));
+            sdf.setLenient(false);
+            for (int i = 0; i < 10000; i++) {
+                final Date date = new Date(min + (long) (random.nextDouble() * (max - min)));
+                final String expected = sdf.format(date);
+                final String formatted = DateUtils.format(pattern, date);
+                assertEquals(expected, formatted);
+                assertEquals(sdf.parse(expected), DateUtils.parse(pattern, formatted));
+            }
+        }
+    }
+
+    @Test
+    public void testFixedPatternsRejectInvalidDates() {
+        final String[] cases = {
+                "2014-02-29T00:00:00.000Z",
+                "2014-13-01T00:00:00.000Z",
+                "2014-03-06T24:00:00.000Z",
+                "2014-03-06T14:28:60.000Z",
+                "2014-0a-06T14:28:58.000Z",
+        };
+        for (final String input : cases) {
+            try {
+                final Date parsed = DateUtils.parseISO8601Date(input);
+                fail("Unexpected success: " + parsed);
+            } catch (final IllegalArgumentException ex) {
+                assertTrue(ex.getCause() instanceof ParseException);
+            }
+        }
+        try {
+            // The day of the week does not match the date.
+            final Date parsed = DateUtils.parseRFC822Date("Thu, 16 May 2014 23:56:46 GMT");
+            fail("Unexpected success: " + parsed);
+        } catch (final IllegalArgumentException ex) {
+            assertTrue(ex.getCause() instanceof ParseException);
+        }
+        assertEquals(DateUtils.parseISO8601Date("2016-02-29T00:00:00.000Z"),
+                DateUtils.parseCompressedISO8601Date("20160229T000000Z"));
+    }
+
+    @Test
+    public void testParseEpochSeconds() {
+        assertEquals(1000L, DateUtils.parseEpochSeconds("1").getTime());
+        assertEquals(1427404800000L, DateUtils.parseEpochSeconds("1427404800.123").getTime());
+        assertEquals(-1000L, DateUtils.parseEpochSeconds("-1.5").getTime());
+        assertEquals(1000000L, DateUtils.parseEpochSeconds("1,000").getTime());
+        try {
+            final Date parsed = DateUtils.parseEpochSeconds("abc");
+            fail("Unexpected success: " + parsed);
+        } catch (final IllegalArgumentException ex) {
+            assertTrue(ex.getCause() instanceof ParseException);
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.IOUtils;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+
+public class JsonByteSinkTest {
+
+    @Test
+    public void testEncodesLikeStringGetBytes() throws Exception {
+        String[] samples = new String[] {
+                "",
+                "plain ascii",
+                "Chloë",
+                "€ and 中文",
+                "emoji 😀 pair",
+                "lone high \ud83d end",
+                "lone low \ude00 end",
+                "trailing high \ud83d"
+        };
+        for (String sample : samples) {
+            JsonByteSink sink = new JsonByteSink(1);
+            sink.write(sample);
+            sink.close();
+            assertArrayEquals(sample, sample.getBytes(UTF8), sink.toByteArray());
+        }
+    }
+
+    @Test
+    public void testSurrogatePairSplitAcrossWrites() throws Exception {
+        JsonByteSink sink = new JsonByteSink();
+        sink.write('\ud83d');
+        sink.write(new char[] {
+                '\ude00'
+        }, 0, 1);
+        assertArrayEquals("😀".getBytes(UTF8), sink.toByteArray());
+    }
+
+    @Test
+    public void testJsonWriterContent() throws Exception {
+        JsonByteSink sink = new JsonByteSink();
+        AwsJsonWriter writer = JsonUtils.getJsonWriter(sink);
+        writer.beginObject();
+        writer.name("TableName").value("table");
+        writer.name("Value").value("Chloë");
+        writer.endObject();
+        writer.close();
+
+        byte[] expected = "{\"TableName\":\"table\",\"Value\":\"Chloë\"}".getBytes(UTF8);
+        assertEquals(expected.length, sink.size());
+        InputStream in = sink.toInputStream();
+        assertTrue(in.markSupported());
+        assertArrayEquals(expected, IOUtils.toByteArray(in));
+        in.reset();
+        assertArrayEquals(expected, IOUtils.toByteArray(in));
+    }
+}
@@ -0,0 +1,146 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import java.util.List;
+
+/**
+ * Configuration for the Table.BatchGetItem and Table.BatchWriteItem
+ * operations, and for {@link DocumentBatch}.
+ */
+public class BatchOperationConfig {
+
+    /** The default number of batch requests sent at the same time. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    /** The default number of times unprocessed items are sent again. */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+
+    private List<String> attributesToGet;
+    private boolean consistentRead;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /**
+     * List of attributes to retrieve. Only used by batch gets.
+     *
+     * @return List of attributes to retrieve.
+     */
+    public List<String> getAttributesToGet() {
+        return attributesToGet;
+    }
+
+    /**
+     * set List of attributes to retrieve. Only used by batch gets.
+     *
+     * @param attributesToGet List of attributes to retrieve.
+     */
+    public void setAttributesToGet(List<String> attributesToGet) {
+        this.attributesToGet = attributesToGet;
+    }
+
+    /**
+     * set List of attributes to retrieve. Only used by batch gets.
+     *
+     * @param attributesToGet List of attributes to retrieve.
+     * @return the current instance of {@link BatchOperationConfig}.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public BatchOperationConfig withAttributesToGet(List<String> attributesToGet) {
+        setAttributesToGet(attributesToGet);
+        return this;
+    }
+
+    /**
+     * If set to true, this flag ensures that the most recently written data is
+     * returned. Only used by batch gets.
+     *
+     * @return if the batch get is consistent read.
+     */
+    public boolean isConsistentRead() {
+        return consistentRead;
+    }
+
+    /**
+     * @param consistentRead If set to true, this flag ensures that the most
+     *            recently written data is returned.
+     */
+    public void setConsistentRead(boolean consistentRead) {
+        this.consistentRead = consistentRead;
+    }
+
+    /**
+     * @param consistentRead If set to true, this flag ensures that the most
+     *            recently written data is returned.
+     * @return the current instance of {@link BatchOperationConfig}.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public BatchOperationConfig withConsistentRead(boolean consistentRead) {
+        setConsistentRead(consistentRead);
+        return this;
+    }
+
+    /**
+     * The max number of BatchGetItem or BatchWriteItem requests sent at the
+     * same time. Items are split into requests of up to 100 keys for gets and
+     * 25 items for writes.
+     *
+     * @return the max number of requests in flight.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @param maxConcurrency the max number of requests in flight. 1 sends the
+     *            requests one after another.
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @param maxConcurrency the max number of requests in flight. 1 sends the
+     *            requests one after another.
+     * @return the current instance of {@link BatchOperationConfig}.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public BatchOperationConfig withMaxConcurrency(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+        return this;
+    }
+
+    /**
+     * The max number of times the unprocessed keys or items of a request are
+     * sent again, with jittered exponential backoff, before giving up.
+     *
+     * @return the max number of retries.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param maxRetries the max number of retries of unprocessed keys or
+     *            items.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @param maxRetries the max number of retries of unprocessed keys or
+     *            items.
+     * @return the current instance of {@link BatchOperationConfig}.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public BatchOperationConfig withMaxRetries(int maxRetries) {
+        setMaxRetries(maxRetries);
+        return this;
+    }
+
+}
@@ -0,0 +1,450 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Document;
+import com.amazonaws.mobileconnectors.dynamodbv2.document.internal.Key;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gets or writes documents of one or more tables with as few BatchGetItem and
+ * BatchWriteItem requests as possible. Keys and documents are added to the
+ * batch first, then {@link #get()} or {@link #write()} splits them into
+ * requests of the size allowed by the service, sends up to
+ * {@link BatchOperationConfig#getMaxConcurrency()} of them at the same time
+ * and sends unprocessed keys and items again until they are done. The calling
+ * thread sends requests too, helped by daemon threads shared by all batches.
+ * <p>
+ * A DocumentBatch is not thread safe.
+ */
+public class DocumentBatch {
+
+    /** The max number of keys in a BatchGetItem request. */
+    static final int MAX_KEYS_PER_GET = 100;
+
+    /** The max number of items in a BatchWriteItem request. */
+    static final int MAX_ITEMS_PER_WRITE = 25;
+
+    /** The max back off time between retries of unprocessed items. */
+    private static final long MAX_BACKOFF_IN_MILLISECONDS = 1000 * 3;
+    private static final int EXPONENTIAL_BACKOFF_OFFSET = 500;
+    private static final int EXPONENTIAL_BACKOFF_RANDOMIZATION_OFFSET = 100;
+
+    /** Threads idle for this long are stopped. */
+    private static final long SHARED_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private static final ExecutorService SHARED_EXECUTOR = createSharedExecutor();
+
+    private final AmazonDynamoDB client;
+    private final BatchOperationConfig config;
+
+    private final Map<String, Set<Key>> keysToGet = new LinkedHashMap<String, Set<Key>>();
+    private final Map<String, List<WriteRequest>> itemsToWrite =
+            new LinkedHashMap<String, List<WriteRequest>>();
+
+    /**
+     * Constructor.
+     *
+     * @param client the dynamodb client.
+     */
+    public DocumentBatch(AmazonDynamoDB client) {
+        this(client, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param client the dynamodb client.
+     * @param config the {@link BatchOperationConfig}, or null for the
+     *            defaults.
+     */
+    public DocumentBatch(AmazonDynamoDB client, BatchOperationConfig config) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must be specified");
+        }
+        this.client = client;
+        this.config = config == null ? new BatchOperationConfig() : config;
+    }
+
+    /**
+     * Adds a document to get. A key added more than once is only fetched
+     * once.
+     *
+     * @param table the table of the document.
+     * @param key a document with the primary key attributes of the document
+     *            to get.
+     * @return the current instance of {@link DocumentBatch}.
+     */
+    public DocumentBatch addKeyToGet(Table table, Document key) {
+        Set<Key> keys = keysToGet.get(table.getTableName());
+        if (keys == null) {
+            keys = new LinkedHashSet<Key>();
+            keysToGet.put(table.getTableName(), keys);
+        }
+        keys.add(table.makeKey(key));
+        return this;
+    }
+
+    /**
+     * Adds a document to put. A document must not be put or deleted more than
+     * once in the same batch.
+     *
+     * @param table the table to put the document in.
+     * @param document the {@link Document}.
+     * @return the current instance of {@link DocumentBatch}.
+     */
+    public DocumentBatch addDocumentToPut(Table table, Document document) {
+        getWriteRequests(table).add(new WriteRequest()
+                .withPutRequest(new PutRequest().withItem(document.toAttributeMap())));
+        return this;
+    }
+
+    /**
+     * Adds a document to delete. A document must not be put or deleted more
+     * than once in the same batch.
+     *
+     * @param table the table to delete the document from.
+     * @param key a document with the primary key attributes of the document
+     *            to delete.
+     * @return the current instance of {@link DocumentBatch}.
+     */
+    public DocumentBatch addKeyToDelete(Table table, Document key) {
+        getWriteRequests(table).add(new WriteRequest()
+                .withDeleteRequest(new DeleteRequest().withKey(table.makeKey(key))));
+        return this;
+    }
+
+    private List<WriteRequest> getWriteRequests(Table table) {
+        List<WriteRequest> writeRequests = itemsToWrite.get(table.getTableName());
+        if (writeRequests == null) {
+            writeRequests = new ArrayList<WriteRequest>();
+            itemsToWrite.put(table.getTableName(), writeRequests);
+        }
+        return writeRequests;
+    }
+
+    /**
+     * Gets the documents of all keys added with
+     * {@link #addKeyToGet(Table, Document)}, and removes the keys from the
+     * batch.
+     *
+     * @return the documents found, by table name. The documents of a table
+     *         are in no particular order and keys that have no document are
+     *         left out.
+     * @throws AmazonClientException if keys are still unprocessed after
+     *             {@link BatchOperationConfig#getMaxRetries()} retries.
+     */
+    public Map<String, List<Document>> get() {
+        final List<Map<String, KeysAndAttributes>> requests =
+                new ArrayList<Map<String, KeysAndAttributes>>();
+        Map<String, KeysAndAttributes> request = new LinkedHashMap<String, KeysAndAttributes>();
+        int count = 0;
+        for (final Entry<String, Set<Key>> entry : keysToGet.entrySet()) {
+            KeysAndAttributes keysAndAttributes = null;
+            for (final Key key : entry.getValue()) {
+                if (count == MAX_KEYS_PER_GET) {
+                    requests.add(request);
+                    request = new LinkedHashMap<String, KeysAndAttributes>();
+                    keysAndAttributes = null;
+                    count = 0;
+                }
+                if (keysAndAttributes == null) {
+                    keysAndAttributes = newKeysAndAttributes();
+                    request.put(entry.getKey(), keysAndAttributes);
+                }
+                keysAndAttributes.getKeys().add(key);
+                count++;
+            }
+        }
+        if (count > 0) {
+            requests.add(request);
+        }
+        keysToGet.clear();
+
+        final List<Callable<Map<String, List<Document>>>> tasks =
+                new ArrayList<Callable<Map<String, List<Document>>>>(requests.size());
+        for (final Map<String, KeysAndAttributes> requestItems : requests) {
+            tasks.add(new Callable<Map<String, List<Document>>>() {
+                @Override
+                public Map<String, List<Document>> call() {
+                    return getOneBatch(requestItems);
+                }
+            });
+        }
+
+        final Map<String, List<Document>> documents = new LinkedHashMap<String, List<Document>>();
+        for (final Map<String, List<Document>> batchDocuments : invokeAll(tasks)) {
+            for (final Entry<String, List<Document>> entry : batchDocuments.entrySet()) {
+                final List<Document> tableDocuments = documents.get(entry.getKey());
+                if (tableDocuments == null) {
+                    documents.put(entry.getKey(), entry.getValue());
+                } else {
+                    tableDocuments.addAll(entry.getValue());
+                }
+            }
+        }
+        return documents;
+    }
+
+    private KeysAndAttributes newKeysAndAttributes() {
+        final KeysAndAttributes keysAndAttributes = new KeysAndAttributes()
+                .withKeys(new ArrayList<Map<String, AttributeValue>>());
+        if (config.isConsistentRead()) {
+            keysAndAttributes.setConsistentRead(true);
+        }
+        if (config.getAttributesToGet() != null && config.getAttributesToGet().size() > 0) {
+            keysAndAttributes.setAttributesToGet(config.getAttributesToGet());
+        }
+        return keysAndAttributes;
+    }
+
+    private Map<String, List<Document>> getOneBatch(Map<String, KeysAndAttributes> requestItems) {
+        final Map<String, List<Document>> documents = new LinkedHashMap<String, List<Document>>();
+        Map<String, KeysAndAttributes> pending = requestItems;
+        int retries = 0;
+        while (true) {
+            final BatchGetItemRequest request = new BatchGetItemRequest()
+                    .withRequestItems(pending);
+            Table.appendDynamoDBDocumentUserAgentString(request);
+            final BatchGetItemResult result = client.batchGetItem(request);
+
+            for (final Entry<String, List<Map<String, AttributeValue>>> entry : result
+                    .getResponses().entrySet()) {
+                List<Document> tableDocuments = documents.get(entry.getKey());
+                if (tableDocuments == null) {
+                    tableDocuments = new ArrayList<Document>(entry.getValue().size());
+                    documents.put(entry.getKey(), tableDocuments);
+                }
+                for (final Map<String, AttributeValue> item : entry.getValue()) {
+                    final Document document = Document.fromAttributeMap(item);
+                    document.commit();
+                    tableDocuments.add(document);
+                }
+            }
+
+            pending = result.getUnprocessedKeys();
+            if (pending == null || pending.isEmpty()) {
+                return documents;
+            }
+            if (++retries > config.getMaxRetries()) {
+                throw new AmazonClientException("Batch get has unprocessed keys after "
+                        + config.getMaxRetries() + " retries. Please try again later.");
+            }
+            pauseExponentially(retries);
+        }
+    }
+
+    /**
+     * Sends the puts and deletes added with
+     * {@link #addDocumentToPut(Table, Document)} and
+     * {@link #addKeyToDelete(Table, Document)}, and removes them from the
+     * batch. Each BatchWriteItem request is applied separately, so when an
+     * exception is thrown some of the items may already have been written.
+     *
+     * @return the items that are still unprocessed after
+     *         {@link BatchOperationConfig#getMaxRetries()} retries, by table
+     *         name. Empty when all items were written.
+     */
+    public Map<String, List<WriteRequest>> write() {
+        final List<Map<String, List<WriteRequest>>> requests =
+                new ArrayList<Map<String, List<WriteRequest>>>();
+        Map<String, List<WriteRequest>> request = new LinkedHashMap<String, List<WriteRequest>>();
+        int count = 0;
+        for (final Entry<String, List<WriteRequest>> entry : itemsToWrite.entrySet()) {
+            List<WriteRequest> tableRequests = null;
+            for (final WriteRequest writeRequest : entry.getValue()) {
+                if (count == MAX_ITEMS_PER_WRITE) {
+                    requests.add(request);
+                    request = new LinkedHashMap<String, List<WriteRequest>>();
+                    tableRequests = null;
+                    count = 0;
+                }
+                if (tableRequests == null) {
+                    tableRequests = new ArrayList<WriteRequest>();
+                    request.put(entry.getKey(), tableRequests);
+                }
+                tableRequests.add(writeRequest);
+                count++;
+            }
+        }
+        if (count > 0) {
+            requests.add(request);
+        }
+        itemsToWrite.clear();
+
+        final List<Callable<Map<String, List<WriteRequest>>>> tasks =
+                new ArrayList<Callable<Map<String, List<WriteRequest>>>>(requests.size());
+        for (final Map<String, List<WriteRequest>> requestItems : requests) {
+            tasks.add(new Callable<Map<String, List<WriteRequest>>>() {
+                @Override
+                public Map<String, List<WriteRequest>> call() {
+                    return writeOneBatch(requestItems);
+                }
+            });
+        }
+
+        final Map<String, List<WriteRequest>> unprocessed =
+                new LinkedHashMap<String, List<WriteRequest>>();
+        for (final Map<String, List<WriteRequest>> batchUnprocessed : invokeAll(tasks)) {
+            for (final Entry<String, List<WriteRequest>> entry : batchUnprocessed.entrySet()) {
+                final List<WriteRequest> tableRequests = unprocessed.get(entry.getKey());
+                if (tableRequests == null) {
+                    unprocessed.put(entry.getKey(),
+                            new ArrayList<WriteRequest>(entry.getValue()));
+                } else {
+                    tableRequests.addAll(entry.getValue());
+                }
+            }
+        }
+        return unprocessed;
+    }
+
+    private Map<String, List<WriteRequest>> writeOneBatch(
+            Map<String, List<WriteRequest>> requestItems) {
+        Map<String, List<WriteRequest>> pending = requestItems;
+        int retries = 0;
+        while (true) {
+            final BatchWriteItemRequest request = new BatchWriteItemRequest()
+                    .withRequestItems(pending);
+            Table.appendDynamoDBDocumentUserAgentString(request);
+            final BatchWriteItemResult result = client.batchWriteItem(request);
+
+            pending = result.getUnprocessedItems();
+            if (pending == null || pending.isEmpty()) {
+                return new LinkedHashMap<String, List<WriteRequest>>();
+            }
+            if (++retries > config.getMaxRetries()) {
+                return pending;
+            }
+            pauseExponentially(retries);
+        }
+    }
+
+    /**
+     * Runs the tasks on up to {@link BatchOperationConfig#getMaxConcurrency()}
+     * threads, the calling thread and threads of the shared executor, and
+     * returns their results in order. An exception thrown by a task is thrown
+     * once all tasks have finished.
+     */
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks) {
+        final List<T> results = new ArrayList<T>(tasks.size());
+        final int threads = Math.min(config.getMaxConcurrency(), tasks.size());
+        if (threads <= 1) {
+            for (final Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (final RuntimeException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw new AmazonClientException(e.getMessage(), e);
+                }
+            }
+            return results;
+        }
+
+        final List<T> slots = new ArrayList<T>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            slots.add(null);
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int index;
+                while ((index = next.getAndIncrement()) < tasks.size()) {
+                    try {
+                        slots.set(index, tasks.get(index).call());
+                    } catch (final Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        };
+        final List<Future<?>> helpers = new ArrayList<Future<?>>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            helpers.add(SHARED_EXECUTOR.submit(worker));
+        }
+        worker.run();
+        try {
+            for (final Future<?> helper : helpers) {
+                helper.get();
+            }
+        } catch (final InterruptedException e) {
+            for (final Future<?> helper : helpers) {
+                helper.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } catch (final ExecutionException e) {
+            throw new AmazonClientException(e.getCause().getMessage(), e.getCause());
+        }
+
+        final Exception e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e != null) {
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+        // Future.get made the results of the helpers visible
+        results.addAll(slots);
+        return results;
+    }
+
+    private static ExecutorService createSharedExecutor() {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                SHARED_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r,
+                                "DocumentBatch-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    private static void pauseExponentially(int retries) {
+        final Random random = new Random();
+        final long scaleFactor = EXPONENTIAL_BACKOFF_OFFSET
+                + random.nextInt(EXPONENTIAL_BACKOFF_RANDOMIZATION_OFFSET);
+        final long delay = Math.min((long) (Math.pow(2, retries) * scaleFactor),
+                MAX_BACKOFF_IN_MILLISECONDS);
+        try {
+            Thread.sleep(delay);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.amazonaws.services.dynamodbv2.model.ReturnValue;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.amazonaws.util.VersionInfoUtils;
 
 import java.util.ArrayList;
@@ -97,7 +98,9 @@ public class Table {
     }
 
     /**
-     * Load table configuration.
+     * Load table configuration. The table description is taken from the
+     * {@link TableDescriptionCache} when it has one, so only the first call
+     * for a table makes a DescribeTable request.
      *
      * @param client the dynamodb client.
      * @param tableName the tablename.
@@ -105,25 +108,29 @@ public class Table {
      */
     public static Table loadTable(AmazonDynamoDB client, String tableName) {
         final Table table = new Table(client, tableName);
-        // TODO: we need to be able to cache table information so that we can
-        // avoid making too many describe table calls.
-        table.loadTableDescription();
+        table.applyTableDescription(TableDescriptionCache.getInstance().get(client, tableName));
         return table;
     }
 
     /**
-     * Load table description.
+     * Load table description with a DescribeTable request, and store it in
+     * the {@link TableDescriptionCache}.
      */
     public void loadTableDescription() {
-        clear();
-
         final DescribeTableRequest request = Table
                 .appendDynamoDBDocumentUserAgentString(new DescribeTableRequest(this.tableName));
 
         final DescribeTableResult result = client
                 .describeTable(request);
 
-        this.tableDescription = result.getTable();
+        applyTableDescription(result.getTable());
+        TableDescriptionCache.getInstance().put(client, result.getTable());
+    }
+
+    private void applyTableDescription(TableDescription tableDescription) {
+        clear();
+
+        this.tableDescription = tableDescription;
 
         for (final KeySchemaElement element : this.tableDescription.getKeySchema()) {
             final String keyName = element.getAttributeName();
@@ -452,6 +459,83 @@ public class Table {
         return updateItem(doc, makeKey(hashKey, rangeKey), config);
     }
 
+    /**
+     * Gets documents from DynamoDB by primary key with BatchGetItem requests
+     * of up to 100 keys, sent at the same time.
+     *
+     * @param keys documents with the primary key attributes of the documents
+     *            to get.
+     * @return the documents found, in no particular order. Keys that have no
+     *         document are left out.
+     */
+    public List<Document> batchGetItem(List<Document> keys) {
+        return batchGetItem(keys, null);
+    }
+
+    /**
+     * Gets documents from DynamoDB by primary key with BatchGetItem requests
+     * of up to 100 keys, using specified configs.
+     *
+     * @param keys documents with the primary key attributes of the documents
+     *            to get.
+     * @param config the {@link BatchOperationConfig}.
+     * @return the documents found, in no particular order. Keys that have no
+     *         document are left out.
+     */
+    public List<Document> batchGetItem(List<Document> keys, BatchOperationConfig config) {
+        final DocumentBatch batch = new DocumentBatch(client, config);
+        for (final Document key : keys) {
+            batch.addKeyToGet(this, key);
+        }
+        final List<Document> documents = batch.get().get(tableName);
+        return documents == null ? new ArrayList<Document>() : documents;
+    }
+
+    /**
+     * Puts and deletes documents in DynamoDB with BatchWriteItem requests of
+     * up to 25 items, sent at the same time. A document must not appear more
+     * than once.
+     *
+     * @param documentsToPut the documents to put, may be null.
+     * @param keysToDelete documents with the primary key attributes of the
+     *            documents to delete, may be null.
+     * @return the items still unprocessed after retrying, empty when all
+     *         items were written.
+     */
+    public List<WriteRequest> batchWriteItem(List<Document> documentsToPut,
+            List<Document> keysToDelete) {
+        return batchWriteItem(documentsToPut, keysToDelete, null);
+    }
+
+    /**
+     * Puts and deletes documents in DynamoDB with BatchWriteItem requests of
+     * up to 25 items, using specified configs. A document must not appear
+     * more than once.
+     *
+     * @param documentsToPut the documents to put, may be null.
+     * @param keysToDelete documents with the primary key attributes of the
+     *            documents to delete, may be null.
+     * @param config the {@link BatchOperationConfig}.
+     * @return the items still unprocessed after retrying, empty when all
+     *         items were written.
+     */
+    public List<WriteRequest> batchWriteItem(List<Document> documentsToPut,
+            List<Document> keysToDelete, BatchOperationConfig config) {
+        final DocumentBatch batch = new DocumentBatch(client, config);
+        if (documentsToPut != null) {
+            for (final Document document : documentsToPut) {
+                batch.addDocumentToPut(this, document);
+            }
+        }
+        if (keysToDelete != null) {
+            for (final Document key : keysToDelete) {
+                batch.addKeyToDelete(this, key);
+            }
+        }
+        final List<WriteRequest> unprocessed = batch.write().get(tableName);
+        return unprocessed == null ? new ArrayList<WriteRequest>() : unprocessed;
+    }
+
     /**
      * Initiates a Search object to Query a DynamoDB table, with the specified
      * hash primary key and filter. No calls are made until the Search object is
@@ -683,7 +767,7 @@ public class Table {
         this.attributes = new ArrayList<AttributeDefinition>();
     }
 
-    private Key makeKey(Document doc) {
+    Key makeKey(Document doc) {
         final Key key = new Key();
         for (final Entry<String, KeyDescription> kvp : this.keys.entrySet()) {
             final String keyName = kvp.getKey();
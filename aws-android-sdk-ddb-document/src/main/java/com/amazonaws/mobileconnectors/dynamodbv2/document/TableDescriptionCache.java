@@ -0,0 +1,379 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.RestoreSummary;
+import com.amazonaws.services.dynamodbv2.model.SSEDescription;
+import com.amazonaws.services.dynamodbv2.model.StreamSpecification;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process wide cache of the table descriptions used by
+ * {@link Table#loadTable(AmazonDynamoDB, String)}, keyed by the endpoint of
+ * the client and the table name. A description is kept for
+ * {@link #getTimeToLive(TimeUnit)}. Once it is half that age it is still
+ * returned, and a DescribeTable request refreshes it in the background on a
+ * daemon thread shared by all tables. The cache keeps its own copies of the
+ * descriptions and returns copies, so callers may modify the descriptions
+ * they get.
+ */
+public final class TableDescriptionCache {
+
+    private static final Log LOGGER = LogFactory.getLog(TableDescriptionCache.class);
+
+    /** The default time a table description is kept. */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final TableDescriptionCache INSTANCE = new TableDescriptionCache();
+
+    private static final ExecutorService REFRESH_EXECUTOR = createRefreshExecutor();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private volatile long timeToLiveNanos = TimeUnit.MILLISECONDS
+            .toNanos(DEFAULT_TIME_TO_LIVE_MILLIS);
+
+    TableDescriptionCache() {
+    }
+
+    /**
+     * @return the cache shared by all tables of the process.
+     */
+    public static TableDescriptionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param unit the unit of the returned time.
+     * @return the time a table description is kept.
+     */
+    public long getTimeToLive(TimeUnit unit) {
+        return unit.convert(timeToLiveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time a table description is kept. 0 turns the cache off.
+     *
+     * @param timeToLive the time to live.
+     * @param unit the unit of timeToLive.
+     */
+    public void setTimeToLive(long timeToLive, TimeUnit unit) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("timeToLive must not be negative");
+        }
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * Returns the description of a table, from the cache if it has one that
+     * has not expired, or else with a DescribeTable request. Concurrent
+     * callers wait for the same request.
+     *
+     * @param client the dynamodb client.
+     * @param tableName the table name.
+     * @return the table description.
+     */
+    public TableDescription get(AmazonDynamoDB client, String tableName) {
+        final Entry entry = getEntry(client, tableName);
+        final long ttl = timeToLiveNanos;
+        TableDescription description = entry.getIfFresh(ttl);
+        if (description != null) {
+            if (entry.getAge() >= ttl / 2) {
+                refreshAsync(client, tableName, entry);
+            }
+            return copy(description);
+        }
+        synchronized (entry) {
+            description = entry.getIfFresh(ttl);
+            if (description == null) {
+                description = describeTable(client, tableName);
+                entry.set(description);
+            }
+        }
+        return copy(description);
+    }
+
+    /**
+     * Stores a description of a table, for example one that was just loaded
+     * by {@link Table#loadTableDescription()}.
+     *
+     * @param client the dynamodb client.
+     * @param description the table description.
+     */
+    public void put(AmazonDynamoDB client, TableDescription description) {
+        getEntry(client, description.getTableName()).set(copy(description));
+    }
+
+    /**
+     * Refreshes the description of a table in the background. Nothing is done
+     * if a refresh of the table is already running.
+     *
+     * @param client the dynamodb client.
+     * @param tableName the table name.
+     */
+    public void refreshAsync(AmazonDynamoDB client, String tableName) {
+        refreshAsync(client, tableName, getEntry(client, tableName));
+    }
+
+    /**
+     * Removes the description of a table, so that the next
+     * {@link Table#loadTable(AmazonDynamoDB, String)} describes the table
+     * again. Call this after changing the indexes of a table.
+     *
+     * @param client the dynamodb client.
+     * @param tableName the table name.
+     */
+    public void invalidate(AmazonDynamoDB client, String tableName) {
+        entries.remove(cacheKey(client, tableName));
+    }
+
+    /**
+     * Removes all table descriptions.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void refreshAsync(final AmazonDynamoDB client, final String tableName,
+            final Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        REFRESH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    entry.set(describeTable(client, tableName));
+                } catch (final RuntimeException e) {
+                    LOGGER.warn("Failed to refresh the description of table " + tableName, e);
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * A single daemon thread runs the refreshes of all tables, and stops when
+     * it has been idle for a minute.
+     */
+    private static ExecutorService createRefreshExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r, "TableDescriptionRefresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private Entry getEntry(AmazonDynamoDB client, String tableName) {
+        final String key = cacheKey(client, tableName);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            final Entry existing = entries.putIfAbsent(key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Clients without a known endpoint, such as mocks, only share
+     * descriptions with themselves.
+     */
+    private static String cacheKey(AmazonDynamoDB client, String tableName) {
+        final String endpoint = client instanceof AmazonWebServiceClient
+                ? ((AmazonWebServiceClient) client).getEndpoint()
+                : null;
+        final String prefix = endpoint != null
+                ? endpoint
+                : client.getClass().getName() + "@" + System.identityHashCode(client);
+        return prefix + "/" + tableName;
+    }
+
+    private static TableDescription describeTable(AmazonDynamoDB client, String tableName) {
+        final DescribeTableRequest request = Table
+                .appendDynamoDBDocumentUserAgentString(new DescribeTableRequest(tableName));
+        return client.describeTable(request).getTable();
+    }
+
+    private static TableDescription copy(TableDescription description) {
+        if (description == null) {
+            return null;
+        }
+        final TableDescription copy = new TableDescription()
+                .withTableName(description.getTableName())
+                .withTableStatus(description.getTableStatus())
+                .withCreationDateTime(copy(description.getCreationDateTime()))
+                .withProvisionedThroughput(copy(description.getProvisionedThroughput()))
+                .withTableSizeBytes(description.getTableSizeBytes())
+                .withItemCount(description.getItemCount())
+                .withTableArn(description.getTableArn())
+                .withTableId(description.getTableId())
+                .withLatestStreamLabel(description.getLatestStreamLabel())
+                .withLatestStreamArn(description.getLatestStreamArn());
+        if (description.getAttributeDefinitions() != null) {
+            final List<AttributeDefinition> definitions = new ArrayList<AttributeDefinition>();
+            for (final AttributeDefinition definition : description.getAttributeDefinitions()) {
+                definitions.add(new AttributeDefinition(definition.getAttributeName(),
+                        definition.getAttributeType()));
+            }
+            copy.setAttributeDefinitions(definitions);
+        }
+        copy.setKeySchema(copy(description.getKeySchema()));
+        if (description.getLocalSecondaryIndexes() != null) {
+            final List<LocalSecondaryIndexDescription> indexes =
+                    new ArrayList<LocalSecondaryIndexDescription>();
+            for (final LocalSecondaryIndexDescription index : description
+                    .getLocalSecondaryIndexes()) {
+                indexes.add(new LocalSecondaryIndexDescription()
+                        .withIndexName(index.getIndexName())
+                        .withKeySchema(copy(index.getKeySchema()))
+                        .withProjection(copy(index.getProjection()))
+                        .withIndexSizeBytes(index.getIndexSizeBytes())
+                        .withItemCount(index.getItemCount())
+                        .withIndexArn(index.getIndexArn()));
+            }
+            copy.setLocalSecondaryIndexes(indexes);
+        }
+        if (description.getGlobalSecondaryIndexes() != null) {
+            final List<GlobalSecondaryIndexDescription> indexes =
+                    new ArrayList<GlobalSecondaryIndexDescription>();
+            for (final GlobalSecondaryIndexDescription index : description
+                    .getGlobalSecondaryIndexes()) {
+                indexes.add(new GlobalSecondaryIndexDescription()
+                        .withIndexName(index.getIndexName())
+                        .withKeySchema(copy(index.getKeySchema()))
+                        .withProjection(copy(index.getProjection()))
+                        .withIndexStatus(index.getIndexStatus())
+                        .withBackfilling(index.getBackfilling())
+                        .withProvisionedThroughput(copy(index.getProvisionedThroughput()))
+                        .withIndexSizeBytes(index.getIndexSizeBytes())
+                        .withItemCount(index.getItemCount())
+                        .withIndexArn(index.getIndexArn()));
+            }
+            copy.setGlobalSecondaryIndexes(indexes);
+        }
+        final StreamSpecification stream = description.getStreamSpecification();
+        if (stream != null) {
+            copy.setStreamSpecification(new StreamSpecification()
+                    .withStreamEnabled(stream.getStreamEnabled())
+                    .withStreamViewType(stream.getStreamViewType()));
+        }
+        final RestoreSummary restore = description.getRestoreSummary();
+        if (restore != null) {
+            copy.setRestoreSummary(new RestoreSummary()
+                    .withSourceBackupArn(restore.getSourceBackupArn())
+                    .withSourceTableArn(restore.getSourceTableArn())
+                    .withRestoreDateTime(copy(restore.getRestoreDateTime()))
+                    .withRestoreInProgress(restore.getRestoreInProgress()));
+        }
+        final SSEDescription sse = description.getSSEDescription();
+        if (sse != null) {
+            copy.setSSEDescription(new SSEDescription()
+                    .withStatus(sse.getStatus())
+                    .withSSEType(sse.getSSEType())
+                    .withKMSMasterKeyArn(sse.getKMSMasterKeyArn()));
+        }
+        return copy;
+    }
+
+    private static List<KeySchemaElement> copy(List<KeySchemaElement> keySchema) {
+        if (keySchema == null) {
+            return null;
+        }
+        final List<KeySchemaElement> copy = new ArrayList<KeySchemaElement>(keySchema.size());
+        for (final KeySchemaElement element : keySchema) {
+            copy.add(new KeySchemaElement(element.getAttributeName(), element.getKeyType()));
+        }
+        return copy;
+    }
+
+    private static Projection copy(Projection projection) {
+        if (projection == null) {
+            return null;
+        }
+        final Projection copy = new Projection().withProjectionType(projection.getProjectionType());
+        if (projection.getNonKeyAttributes() != null) {
+            copy.setNonKeyAttributes(new ArrayList<String>(projection.getNonKeyAttributes()));
+        }
+        return copy;
+    }
+
+    private static ProvisionedThroughputDescription copy(
+            ProvisionedThroughputDescription throughput) {
+        if (throughput == null) {
+            return null;
+        }
+        return new ProvisionedThroughputDescription()
+                .withLastIncreaseDateTime(copy(throughput.getLastIncreaseDateTime()))
+                .withLastDecreaseDateTime(copy(throughput.getLastDecreaseDateTime()))
+                .withNumberOfDecreasesToday(throughput.getNumberOfDecreasesToday())
+                .withReadCapacityUnits(throughput.getReadCapacityUnits())
+                .withWriteCapacityUnits(throughput.getWriteCapacityUnits());
+    }
+
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    private static final class Entry {
+        private volatile Loaded loaded;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        TableDescription getIfFresh(long ttl) {
+            final Loaded current = loaded;
+            return current != null && current.getAge() < ttl ? current.description : null;
+        }
+
+        long getAge() {
+            final Loaded current = loaded;
+            return current == null ? Long.MAX_VALUE : current.getAge();
+        }
+
+        void set(TableDescription description) {
+            this.loaded = new Loaded(description, System.nanoTime());
+        }
+    }
+
+    private static final class Loaded {
+        private final TableDescription description;
+        private final long loadedAt;
+
+        Loaded(TableDescription description, long loadedAt) {
+            this.description = description;
+            this.loadedAt = loadedAt;
+        }
+
+        long getAge() {
+            return System.nanoTime() - loadedAt;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Document;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DocumentBatchTest {
+
+    private AmazonDynamoDB client;
+    private Table tableA;
+    private Table tableB;
+
+    /** The number of keys or items of each table in each request, in order. */
+    private List<Map<String, Integer>> requestSizes;
+
+    @Before
+    public void setUp() {
+        client = mock(AmazonDynamoDB.class);
+        when(client.describeTable(any(DescribeTableRequest.class))).thenAnswer(
+                new Answer<DescribeTableResult>() {
+                    @Override
+                    public DescribeTableResult answer(InvocationOnMock invocation) {
+                        final DescribeTableRequest request = (DescribeTableRequest) invocation
+                                .getArguments()[0];
+                        return new DescribeTableResult().withTable(
+                                newDescription(request.getTableName()));
+                    }
+                });
+        tableA = Table.loadTable(client, "tableA");
+        tableB = Table.loadTable(client, "tableB");
+        requestSizes = Collections.synchronizedList(new ArrayList<Map<String, Integer>>());
+    }
+
+    @Test
+    public void testGetSplitsKeysIntoRequestsOf100() {
+        getAnswers(0);
+        final DocumentBatch batch = new DocumentBatch(client,
+                new BatchOperationConfig().withMaxConcurrency(1));
+        addKeysToGet(batch, tableA, 0, 150);
+        addKeysToGet(batch, tableB, 0, 60);
+
+        final Map<String, List<Document>> documents = batch.get();
+
+        assertEquals(3, requestSizes.size());
+        assertEquals(sizes("tableA", 100), requestSizes.get(0));
+        assertEquals(sizes("tableA", 50, "tableB", 50), requestSizes.get(1));
+        assertEquals(sizes("tableB", 10), requestSizes.get(2));
+        assertEquals(150, documents.get("tableA").size());
+        assertEquals(60, documents.get("tableB").size());
+    }
+
+    @Test
+    public void testGetMergesConcurrentResultsAcrossTables() {
+        getAnswers(0);
+        final DocumentBatch batch = new DocumentBatch(client,
+                new BatchOperationConfig().withMaxConcurrency(4));
+        addKeysToGet(batch, tableA, 0, 330);
+        addKeysToGet(batch, tableB, 0, 120);
+
+        final Map<String, List<Document>> documents = batch.get();
+
+        assertEquals(5, requestSizes.size());
+        assertEquals(330, ids(documents.get("tableA")).size());
+        assertEquals(120, ids(documents.get("tableB")).size());
+        assertTrue(ids(documents.get("tableA")).contains("key329"));
+        assertTrue(ids(documents.get("tableB")).contains("key0"));
+    }
+
+    @Test
+    public void testGetRetriesUnprocessedKeys() {
+        getAnswers(1);
+        final DocumentBatch batch = new DocumentBatch(client);
+        addKeysToGet(batch, tableA, 0, 10);
+        addKeysToGet(batch, tableB, 0, 10);
+
+        final Map<String, List<Document>> documents = batch.get();
+
+        assertEquals(2, requestSizes.size());
+        assertEquals(sizes("tableA", 10, "tableB", 10), requestSizes.get(0));
+        assertEquals(sizes("tableA", 5, "tableB", 5), requestSizes.get(1));
+        assertEquals(10, ids(documents.get("tableA")).size());
+        assertEquals(10, ids(documents.get("tableB")).size());
+    }
+
+    @Test
+    public void testGetThrowsWhenKeysStayUnprocessed() {
+        getAnswers(Integer.MAX_VALUE);
+        final DocumentBatch batch = new DocumentBatch(client,
+                new BatchOperationConfig().withMaxRetries(0));
+        addKeysToGet(batch, tableA, 0, 10);
+
+        try {
+            batch.get();
+            fail("expected unprocessed keys to fail the batch");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage().contains("unprocessed keys"));
+        }
+        assertEquals(1, requestSizes.size());
+    }
+
+    @Test
+    public void testGetThrowsAfterAllBatchesFinish() {
+        final AtomicInteger calls = new AtomicInteger();
+        when(client.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(
+                new Answer<BatchGetItemResult>() {
+                    @Override
+                    public BatchGetItemResult answer(InvocationOnMock invocation) {
+                        if (calls.incrementAndGet() == 1) {
+                            throw new AmazonServiceException("throttled");
+                        }
+                        return new BatchGetItemResult().withResponses(
+                                new LinkedHashMap<String, List<Map<String, AttributeValue>>>());
+                    }
+                });
+        final DocumentBatch batch = new DocumentBatch(client,
+                new BatchOperationConfig().withMaxConcurrency(2));
+        addKeysToGet(batch, tableA, 0, 500);
+
+        try {
+            batch.get();
+            fail("expected the failed batch to be thrown");
+        } catch (final AmazonServiceException e) {
+            assertEquals("throttled", e.getErrorMessage());
+        }
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    public void testWriteSplitsItemsIntoRequestsOf25() {
+        writeAnswers(0);
+        final DocumentBatch batch = new DocumentBatch(client,
+                new BatchOperationConfig().withMaxConcurrency(1));
+        addDocumentsToPut(batch, tableA, 0, 40);
+        addKeysToDelete(batch, tableA, 40, 50);
+        addDocumentsToPut(batch, tableB, 0, 20);
+
+        assertTrue(batch.write().isEmpty());
+
+        assertEquals(3, requestSizes.size());
+        assertEquals(sizes("tableA", 25), requestSizes.get(0));
+        assertEquals(sizes("tableA", 25), requestSizes.get(1));
+        assertEquals(sizes("tableB", 20), requestSizes.get(2));
+    }
+
+    @Test
+    public void testWriteRetriesUnprocessedItems() {
+        writeAnswers(1);
+        final DocumentBatch batch = new DocumentBatch(client);
+        addDocumentsToPut(batch, tableA, 0, 10);
+        addKeysToDelete(batch, tableB, 0, 10);
+
+        assertTrue(batch.write().isEmpty());
+
+        assertEquals(2, requestSizes.size());
+        assertEquals(sizes("tableA", 10, "tableB", 10), requestSizes.get(0));
+        assertEquals(sizes("tableA", 5, "tableB", 5), requestSizes.get(1));
+    }
+
+    @Test
+    public void testWriteMergesItemsStillUnprocessedAcrossTables() {
+        writeAnswers(Integer.MAX_VALUE);
+        final DocumentBatch batch = new DocumentBatch(client,
+                new BatchOperationConfig().withMaxRetries(0).withMaxConcurrency(4));
+        addDocumentsToPut(batch, tableA, 0, 60);
+        addDocumentsToPut(batch, tableB, 0, 40);
+
+        final Map<String, List<WriteRequest>> unprocessed = batch.write();
+
+        assertEquals(4, requestSizes.size());
+        assertEquals(13 + 13 + 5, unprocessed.get("tableA").size());
+        assertEquals(8 + 13, unprocessed.get("tableB").size());
+    }
+
+    @Test
+    public void testTableBatchOperations() {
+        getAnswers(0);
+        writeAnswers(0);
+        final List<Document> keys = new ArrayList<Document>();
+        for (int i = 0; i < 120; i++) {
+            keys.add(newDocument(i));
+        }
+
+        assertEquals(120, tableA.batchGetItem(keys).size());
+        assertTrue(tableA.batchWriteItem(keys, null).isEmpty());
+        assertEquals(2 + 5, requestSizes.size());
+    }
+
+    /**
+     * Answers with the keys as items. Until a request has been retried
+     * {@code unprocessedRetries} times, half of the keys of each table are
+     * returned as unprocessed.
+     */
+    private void getAnswers(final int unprocessedRetries) {
+        final AtomicInteger attempts = new AtomicInteger();
+        when(client.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(
+                new Answer<BatchGetItemResult>() {
+                    @Override
+                    public BatchGetItemResult answer(InvocationOnMock invocation) {
+                        final Map<String, KeysAndAttributes> requestItems =
+                                ((BatchGetItemRequest) invocation.getArguments()[0])
+                                        .getRequestItems();
+                        final boolean partial = attempts.getAndIncrement() < unprocessedRetries;
+                        final Map<String, Integer> sizes = new LinkedHashMap<String, Integer>();
+                        final Map<String, List<Map<String, AttributeValue>>> responses =
+                                new LinkedHashMap<String, List<Map<String, AttributeValue>>>();
+                        final Map<String, KeysAndAttributes> unprocessed =
+                                new LinkedHashMap<String, KeysAndAttributes>();
+                        for (final Entry<String, KeysAndAttributes> entry : requestItems
+                                .entrySet()) {
+                            final List<Map<String, AttributeValue>> keys =
+                                    entry.getValue().getKeys();
+                            sizes.put(entry.getKey(), keys.size());
+                            final int processed = partial ? keys.size() / 2 : keys.size();
+                            responses.put(entry.getKey(),
+                                    new ArrayList<Map<String, AttributeValue>>(
+                                            keys.subList(0, processed)));
+                            if (processed < keys.size()) {
+                                unprocessed.put(entry.getKey(), new KeysAndAttributes()
+                                        .withKeys(new ArrayList<Map<String, AttributeValue>>(
+                                                keys.subList(processed, keys.size()))));
+                            }
+                        }
+                        requestSizes.add(sizes);
+                        return new BatchGetItemResult().withResponses(responses)
+                                .withUnprocessedKeys(unprocessed);
+                    }
+                });
+    }
+
+    /**
+     * Until a request has been retried {@code unprocessedRetries} times, half
+     * of the items of each table are returned as unprocessed.
+     */
+    private void writeAnswers(final int unprocessedRetries) {
+        final AtomicInteger attempts = new AtomicInteger();
+        when(client.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(
+                new Answer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer(InvocationOnMock invocation) {
+                        final Map<String, List<WriteRequest>> requestItems =
+                                ((BatchWriteItemRequest) invocation.getArguments()[0])
+                                        .getRequestItems();
+                        final boolean partial = attempts.getAndIncrement() < unprocessedRetries;
+                        final Map<String, Integer> sizes = new LinkedHashMap<String, Integer>();
+                        final Map<String, List<WriteRequest>> unprocessed =
+                                new LinkedHashMap<String, List<WriteRequest>>();
+                        for (final Entry<String, List<WriteRequest>> entry : requestItems
+                                .entrySet()) {
+                            final List<WriteRequest> items = entry.getValue();
+                            sizes.put(entry.getKey(), items.size());
+                            if (partial) {
+                                unprocessed.put(entry.getKey(), new ArrayList<WriteRequest>(
+                                        items.subList(items.size() / 2, items.size())));
+                            }
+                        }
+                        requestSizes.add(sizes);
+                        return new BatchWriteItemResult().withUnprocessedItems(unprocessed);
+                    }
+                });
+    }
+
+    private static void addKeysToGet(DocumentBatch batch, Table table, int from, int to) {
+        for (int i = from; i < to; i++) {
+            batch.addKeyToGet(table, newDocument(i));
+        }
+    }
+
+    private static void addDocumentsToPut(DocumentBatch batch, Table table, int from, int to) {
+        for (int i = from; i < to; i++) {
+            batch.addDocumentToPut(table, newDocument(i));
+        }
+    }
+
+    private static void addKeysToDelete(DocumentBatch batch, Table table, int from, int to) {
+        for (int i = from; i < to; i++) {
+            batch.addKeyToDelete(table, newDocument(i));
+        }
+    }
+
+    private static Document newDocument(int i) {
+        final Document document = new Document();
+        document.put("id", "key" + i);
+        return document;
+    }
+
+    private static Set<String> ids(List<Document> documents) {
+        final Set<String> ids = new HashSet<String>();
+        for (final Document document : documents) {
+            ids.add(document.get("id").asString());
+        }
+        return ids;
+    }
+
+    private static Map<String, Integer> sizes(Object... tableSizes) {
+        final Map<String, Integer> sizes = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < tableSizes.length; i += 2) {
+            sizes.put((String) tableSizes[i], (Integer) tableSizes[i + 1]);
+        }
+        return sizes;
+    }
+
+    private static TableDescription newDescription(String tableName) {
+        return new TableDescription()
+                .withTableName(tableName)
+                .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+                .withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S));
+    }
+}
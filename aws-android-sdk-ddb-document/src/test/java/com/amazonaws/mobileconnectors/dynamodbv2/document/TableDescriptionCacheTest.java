@@ -0,0 +1,226 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TableDescriptionCacheTest {
+
+    private static final String TABLE_NAME = "table";
+
+    private AmazonDynamoDB client;
+    private TableDescriptionCache cache;
+
+    @Before
+    public void setUp() {
+        client = mock(AmazonDynamoDB.class);
+        cache = new TableDescriptionCache();
+    }
+
+    @Test
+    public void testDescriptionKeptForTimeToLive() throws Exception {
+        describeReturns(TableStatus.ACTIVE);
+        cache.setTimeToLive(300, TimeUnit.MILLISECONDS);
+
+        cache.get(client, TABLE_NAME);
+        cache.get(client, TABLE_NAME);
+        verify(client, times(1)).describeTable(any(DescribeTableRequest.class));
+
+        Thread.sleep(350);
+        cache.get(client, TABLE_NAME);
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testZeroTimeToLiveDescribesEveryTime() {
+        describeReturns(TableStatus.ACTIVE);
+        cache.setTimeToLive(0, TimeUnit.MILLISECONDS);
+
+        cache.get(client, TABLE_NAME);
+        cache.get(client, TABLE_NAME);
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testConcurrentColdLoadsShareOneDescribeTable() throws Exception {
+        final CountDownLatch describing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(client.describeTable(any(DescribeTableRequest.class))).thenAnswer(
+                new Answer<DescribeTableResult>() {
+                    @Override
+                    public DescribeTableResult answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        describing.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                        return new DescribeTableResult().withTable(
+                                newDescription(TableStatus.ACTIVE));
+                    }
+                });
+
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<TableDescription>> futures = new ArrayList<Future<TableDescription>>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<TableDescription>() {
+                    @Override
+                    public TableDescription call() {
+                        return cache.get(client, TABLE_NAME);
+                    }
+                }));
+            }
+            assertTrue(describing.await(5, TimeUnit.SECONDS));
+            // give the other threads time to reach the cache
+            Thread.sleep(100);
+            release.countDown();
+            for (final Future<TableDescription> future : futures) {
+                assertEquals(TABLE_NAME, future.get(5, TimeUnit.SECONDS).getTableName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(client, times(1)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testAgingDescriptionRefreshedInBackground() throws Exception {
+        describeReturns(TableStatus.CREATING, TableStatus.ACTIVE);
+        cache.setTimeToLive(1, TimeUnit.SECONDS);
+
+        assertEquals("CREATING", cache.get(client, TABLE_NAME).getTableStatus());
+        Thread.sleep(600);
+        // past half the time to live the cached description is still returned
+        assertEquals("CREATING", cache.get(client, TABLE_NAME).getTableStatus());
+
+        verify(client, timeout(2000).times(2)).describeTable(any(DescribeTableRequest.class));
+        awaitStatus("ACTIVE");
+    }
+
+    @Test
+    public void testRefreshAsync() throws Exception {
+        describeReturns(TableStatus.CREATING, TableStatus.ACTIVE);
+
+        assertEquals("CREATING", cache.get(client, TABLE_NAME).getTableStatus());
+        cache.refreshAsync(client, TABLE_NAME);
+
+        verify(client, timeout(2000).times(2)).describeTable(any(DescribeTableRequest.class));
+        awaitStatus("ACTIVE");
+    }
+
+    @Test
+    public void testFailedRefreshKeepsDescription() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        when(client.describeTable(any(DescribeTableRequest.class))).thenAnswer(
+                new Answer<DescribeTableResult>() {
+                    @Override
+                    public DescribeTableResult answer(InvocationOnMock invocation) {
+                        if (calls.incrementAndGet() > 1) {
+                            throw new IllegalStateException("refresh failed");
+                        }
+                        return new DescribeTableResult().withTable(
+                                newDescription(TableStatus.ACTIVE));
+                    }
+                });
+
+        cache.get(client, TABLE_NAME);
+        cache.refreshAsync(client, TABLE_NAME);
+        verify(client, timeout(2000).times(2)).describeTable(any(DescribeTableRequest.class));
+
+        assertEquals("ACTIVE", cache.get(client, TABLE_NAME).getTableStatus());
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testInvalidate() {
+        describeReturns(TableStatus.CREATING, TableStatus.ACTIVE);
+
+        assertEquals("CREATING", cache.get(client, TABLE_NAME).getTableStatus());
+        cache.invalidate(client, TABLE_NAME);
+        assertEquals("ACTIVE", cache.get(client, TABLE_NAME).getTableStatus());
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testPutIsUsedByGet() {
+        cache.put(client, newDescription(TableStatus.ACTIVE));
+
+        assertEquals("ACTIVE", cache.get(client, TABLE_NAME).getTableStatus());
+        verify(client, times(0)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testDescriptionsAreCopied() {
+        final TableDescription stored = newDescription(TableStatus.ACTIVE);
+        cache.put(client, stored);
+        stored.setTableStatus(TableStatus.DELETING);
+        stored.getKeySchema().get(0).setAttributeName("changed");
+
+        final TableDescription first = cache.get(client, TABLE_NAME);
+        first.setTableStatus(TableStatus.UPDATING);
+        first.getKeySchema().get(0).setAttributeName("changed");
+        first.getKeySchema().add(new KeySchemaElement("range", KeyType.RANGE));
+
+        final TableDescription second = cache.get(client, TABLE_NAME);
+        assertNotSame(first, second);
+        assertEquals("ACTIVE", second.getTableStatus());
+        assertEquals(1, second.getKeySchema().size());
+        assertEquals("id", second.getKeySchema().get(0).getAttributeName());
+    }
+
+    private void describeReturns(TableStatus first, TableStatus... rest) {
+        final DescribeTableResult[] results = new DescribeTableResult[rest.length];
+        for (int i = 0; i < rest.length; i++) {
+            results[i] = new DescribeTableResult().withTable(newDescription(rest[i]));
+        }
+        when(client.describeTable(any(DescribeTableRequest.class))).thenReturn(
+                new DescribeTableResult().withTable(newDescription(first)), results);
+    }
+
+    /**
+     * The refresh stores its result just after the request returns.
+     */
+    private void awaitStatus(String status) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (!status.equals(cache.get(client, TABLE_NAME).getTableStatus())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, cache.get(client, TABLE_NAME).getTableStatus());
+    }
+
+    private static TableDescription newDescription(TableStatus status) {
+        return new TableDescription()
+                .withTableName(TABLE_NAME)
+                .withTableStatus(status)
+                .withKeySchema(new KeySchemaElement("id", KeyType.HASH));
+    }
+}
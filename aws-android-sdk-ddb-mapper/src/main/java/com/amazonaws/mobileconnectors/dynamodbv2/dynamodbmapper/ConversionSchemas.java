@@ -99,6 +99,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Pre-defined strategies for mapping between Java types and DynamoDB types.
@@ -203,6 +205,15 @@ public final class ConversionSchemas {
         private final DynamoDBReflector reflector;
         private final S3ClientCache s3cc;
 
+        /*
+         * Marshallers and unmarshallers of mapped properties, resolved and
+         * augmented with their member (un)marshallers once per getter.
+         */
+        private final ConcurrentMap<Method, ArgumentMarshaller> marshallerCache =
+                new ConcurrentHashMap<Method, ArgumentMarshaller>();
+        private final ConcurrentMap<Method, ArgumentUnmarshaller> unmarshallerCache =
+                new ConcurrentHashMap<Method, ArgumentUnmarshaller>();
+
         public StandardItemConverter(
                 MarshallerSet marshallerSet,
                 UnmarshallerSet unmarshallerSet,
@@ -268,15 +279,14 @@ public final class ConversionSchemas {
             final Map<String, AttributeValue> result =
                     new HashMap<String, AttributeValue>();
 
-            for (final Method getter : reflector.getRelevantGetters(clazz)) {
-                final Object getterResult =
-                        ReflectionUtils.safeInvoke(getter, object);
+            for (final DynamoDBMappingPlan.Property property
+                    : reflector.getMappingPlan(clazz).getProperties()) {
+                final Object getterResult = property.get(object);
 
                 if (getterResult != null) {
-                    final AttributeValue value = convert(getter, getterResult);
+                    final AttributeValue value = convert(property.getGetter(), getterResult);
                     if (value != null) {
-                        final String name = reflector.getAttributeName(getter);
-                        result.put(name, value);
+                        result.put(property.getAttributeName(), value);
                     }
                 }
             }
@@ -285,11 +295,14 @@ public final class ConversionSchemas {
         }
 
         private ArgumentMarshaller getMarshaller(Method getter) {
-            ArgumentMarshaller marshaller =
-                    marshallerSet.getMarshaller(getter);
+            ArgumentMarshaller marshaller = marshallerCache.get(getter);
+            if (marshaller == null) {
+                marshaller = marshallerSet.getMarshaller(getter);
 
-            marshaller = augment(getter.getGenericReturnType(), marshaller);
+                marshaller = augment(getter.getGenericReturnType(), marshaller);
 
+                marshallerCache.put(getter, marshaller);
+            }
             return marshaller;
         }
 
@@ -413,11 +426,11 @@ public final class ConversionSchemas {
                 return result;
             }
 
-            for (final Method m : reflector.getRelevantGetters(clazz)) {
-                final String attributeName = reflector.getAttributeName(m);
-                final AttributeValue av = value.get(attributeName);
+            for (final DynamoDBMappingPlan.Property property
+                    : reflector.getMappingPlan(clazz).getProperties()) {
+                final AttributeValue av = value.get(property.getAttributeName());
                 if (av != null) {
-                    setValue(result, m, av);
+                    setValue(result, property, av);
                 }
             }
 
@@ -426,12 +439,12 @@ public final class ConversionSchemas {
 
         private void setValue(
                 Object target,
-                Method getter,
+                DynamoDBMappingPlan.Property property,
                 AttributeValue value) {
 
-            final Method setter = reflector.getSetter(getter);
+            final Method setter = property.getSetter();
             final ArgumentUnmarshaller unmarshaller =
-                    getUnmarshaller(getter, setter);
+                    getUnmarshaller(property.getGetter(), setter);
 
             final Object unmarshalled = unmarshall(unmarshaller, setter, value);
             ReflectionUtils.safeInvoke(setter, target, unmarshalled);
@@ -441,13 +454,16 @@ public final class ConversionSchemas {
                 Method getter,
                 Method setter) {
 
-            ArgumentUnmarshaller unmarshaller =
-                    unmarshallerSet.getUnmarshaller(getter, setter);
+            ArgumentUnmarshaller unmarshaller = unmarshallerCache.get(getter);
+            if (unmarshaller == null) {
+                unmarshaller = unmarshallerSet.getUnmarshaller(getter, setter);
 
-            unmarshaller = augment(
-                    setter.getGenericParameterTypes()[0], unmarshaller);
+                unmarshaller = new NullableUnmarshaller(augment(
+                        setter.getGenericParameterTypes()[0], unmarshaller));
 
-            return new NullableUnmarshaller(unmarshaller);
+                unmarshallerCache.put(getter, unmarshaller);
+            }
+            return unmarshaller;
         }
 
         private ArgumentUnmarshaller getMemberUnmarshaller(Type type) {
@@ -1263,11 +1279,11 @@ public final class ConversionSchemas {
 
     static class CachingMarshallerSet implements MarshallerSet {
 
-        private final Map<Method, ArgumentMarshaller> cache =
-                new HashMap<Method, ArgumentMarshaller>();
+        private final ConcurrentMap<Method, ArgumentMarshaller> cache =
+                new ConcurrentHashMap<Method, ArgumentMarshaller>();
 
-        private final Map<Type, ArgumentMarshaller> memberCache =
-                new HashMap<Type, ArgumentMarshaller>();
+        private final ConcurrentMap<Type, ArgumentMarshaller> memberCache =
+                new ConcurrentHashMap<Type, ArgumentMarshaller>();
 
         private final MarshallerSet wrapped;
 
@@ -1277,40 +1293,40 @@ public final class ConversionSchemas {
 
         @Override
         public ArgumentMarshaller getMarshaller(Method getter) {
-            synchronized (cache) {
-                ArgumentMarshaller marshaler = cache.get(getter);
-                if (marshaler != null) {
-                    return marshaler;
-                }
+            ArgumentMarshaller marshaler = cache.get(getter);
+            if (marshaler != null) {
+                return marshaler;
+            }
 
-                marshaler = wrapped.getMarshaller(getter);
+            marshaler = wrapped.getMarshaller(getter);
+            if (marshaler != null) {
                 cache.put(getter, marshaler);
-                return marshaler;
             }
+            return marshaler;
         }
 
         @Override
         public ArgumentMarshaller getMemberMarshaller(Type memberType) {
-            synchronized (memberCache) {
-                ArgumentMarshaller marshaller = memberCache.get(memberType);
-                if (marshaller != null) {
-                    return marshaller;
-                }
+            ArgumentMarshaller marshaller = memberCache.get(memberType);
+            if (marshaller != null) {
+                return marshaller;
+            }
 
-                marshaller = wrapped.getMemberMarshaller(memberType);
+            marshaller = wrapped.getMemberMarshaller(memberType);
+            if (marshaller != null) {
                 memberCache.put(memberType, marshaller);
-                return marshaller;
             }
+            return marshaller;
         }
     }
 
     static class CachingUnmarshallerSet implements UnmarshallerSet {
 
-        private final Map<Method, ArgumentUnmarshaller> cache =
-                new HashMap<Method, ArgumentUnmarshaller>();
+        private final ConcurrentMap<Method, ArgumentUnmarshaller> cache =
+                new ConcurrentHashMap<Method, ArgumentUnmarshaller>();
 
-        private final Map<Type, ArgumentUnmarshaller> memberCache =
-                new HashMap<Type, ArgumentUnmarshaller>();
+        private final ConcurrentMap<Type, ArgumentUnmarshaller> memberCache =
+                new ConcurrentHashMap<Type, ArgumentUnmarshaller>();
 
         private final UnmarshallerSet wrapped;
 
@@ -1323,30 +1339,30 @@ public final class ConversionSchemas {
                 Method getter,
                 Method setter) {
 
-            synchronized (cache) {
-                ArgumentUnmarshaller unmarshaler = cache.get(getter);
-                if (unmarshaler != null) {
-                    return unmarshaler;
-                }
+            ArgumentUnmarshaller unmarshaler = cache.get(getter);
+            if (unmarshaler != null) {
+                return unmarshaler;
+            }
 
-                unmarshaler = wrapped.getUnmarshaller(getter, setter);
+            unmarshaler = wrapped.getUnmarshaller(getter, setter);
+            if (unmarshaler != null) {
                 cache.put(getter, unmarshaler);
-                return unmarshaler;
             }
+            return unmarshaler;
         }
 
         @Override
         public ArgumentUnmarshaller getMemberUnmarshaller(Type memberType) {
-            synchronized (memberCache) {
-                ArgumentUnmarshaller unmarshaller = memberCache.get(memberType);
-                if (unmarshaller != null) {
-                    return unmarshaller;
-                }
+            ArgumentUnmarshaller unmarshaller = memberCache.get(memberType);
+            if (unmarshaller != null) {
+                return unmarshaller;
+            }
 
-                unmarshaller = wrapped.getMemberUnmarshaller(memberType);
+            unmarshaller = wrapped.getMemberUnmarshaller(memberType);
+            if (unmarshaller != null) {
                 memberCache.put(memberType, unmarshaller);
-                return unmarshaller;
             }
+            return unmarshaller;
         }
     }
 
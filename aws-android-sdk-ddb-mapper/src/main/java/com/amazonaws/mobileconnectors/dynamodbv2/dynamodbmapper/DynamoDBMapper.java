@@ -78,6 +78,13 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Object mapper for domain-object interaction with DynamoDB.
@@ -179,6 +186,8 @@ public class DynamoDBMapper {
     private final AmazonDynamoDB db;
     private final DynamoDBMapperConfig config;
     private final DynamoDBReflector reflector = new DynamoDBReflector();
+    private final ConcurrentMap<ConversionSchema, ItemConverter> converterCache =
+            new ConcurrentHashMap<ConversionSchema, ItemConverter>();
     private final DynamoDBTableSchemaParser schemaParser = new DynamoDBTableSchemaParser();
     private final VersionIncrementor incrementor = new VersionIncrementor();
 
@@ -632,19 +641,19 @@ public class DynamoDBMapper {
             Class<T> clazz) {
 
         final Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
-        for (final Method keyGetter : reflector.getPrimaryKeyGetters(clazz)) {
-            final Object getterResult =
-                    ReflectionUtils.safeInvoke(keyGetter, keyObject);
+        for (final DynamoDBMappingPlan.Property keyProperty
+                : reflector.getMappingPlan(clazz).getKeyProperties()) {
+            final Object getterResult = keyProperty.get(keyObject);
 
             final AttributeValue keyAttributeValue =
-                    converter.convert(keyGetter, getterResult);
+                    converter.convert(keyProperty.getGetter(), getterResult);
 
             if (keyAttributeValue == null) {
                 throw new DynamoDBMappingException(
-                        "Null key found for " + keyGetter);
+                        "Null key found for " + keyProperty.getGetter());
             }
 
-            key.put(reflector.getAttributeName(keyGetter), keyAttributeValue);
+            key.put(keyProperty.getAttributeName(), keyAttributeValue);
         }
 
         if (key.isEmpty()) {
@@ -924,23 +933,18 @@ public class DynamoDBMapper {
     }
 
     boolean needAutoGenerateAssignableKey(Class<?> clazz, Object object) {
-        final Collection<Method> keyGetters = reflector.getPrimaryKeyGetters(clazz);
+        final DynamoDBMappingPlan plan = reflector.getMappingPlan(clazz);
         boolean forcePut = false;
         /*
          * Determine if there are any auto-assigned keys to assign. If so, force
          * a put and assign the keys.
          */
-        boolean hashKeyGetterFound = false;
-        for (final Method method : keyGetters) {
-            final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-            if (getterResult == null && reflector.isAssignableKey(method)) {
+        for (final DynamoDBMappingPlan.Property property : plan.getKeyProperties()) {
+            if (property.isAssignableKey() && property.get(object) == null) {
                 forcePut = true;
             }
-            if (ReflectionUtils.getterOrFieldHasAnnotation(method, DynamoDBHashKey.class)) {
-                hashKeyGetterFound = true;
-            }
         }
-        if (!hashKeyGetterFound) {
+        if (plan.getHashKeyGetter() == null) {
             throw new DynamoDBMappingException("No " + DynamoDBHashKey.class
                     + " annotation found in class " + clazz);
         }
@@ -1212,16 +1216,17 @@ public class DynamoDBMapper {
          * The general workflow of a save operation.
          */
         public void execute() {
-            final Collection<Method> keyGetters = reflector.getPrimaryKeyGetters(clazz);
+            final DynamoDBMappingPlan plan = reflector.getMappingPlan(clazz);
 
             /*
              * First handle keys
              */
-            for (final Method method : keyGetters) {
-                final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-                final String attributeName = reflector.getAttributeName(method);
+            for (final DynamoDBMappingPlan.Property property : plan.getKeyProperties()) {
+                final Method method = property.getGetter();
+                final Object getterResult = property.get(object);
+                final String attributeName = property.getAttributeName();
 
-                if (getterResult == null && reflector.isAssignableKey(method)) {
+                if (getterResult == null && property.isAssignableKey()) {
                     onAutoGenerateAssignableKey(method, attributeName);
                 }
 
@@ -1249,20 +1254,21 @@ public class DynamoDBMapper {
             /*
              * Next construct an update for every non-key property
              */
-            for (final Method method : reflector.getRelevantGetters(clazz)) {
+            for (final DynamoDBMappingPlan.Property property : plan.getProperties()) {
 
                 // Skip any key methods, since they are handled separately
-                if (keyGetters.contains(method)) {
+                if (property.isKey()) {
                     continue;
                 }
 
-                final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-                final String attributeName = reflector.getAttributeName(method);
+                final Method method = property.getGetter();
+                final Object getterResult = property.get(object);
+                final String attributeName = property.getAttributeName();
 
                 /*
                  * If this is a versioned field, update it
                  */
-                if (reflector.isVersionAttributeGetter(method)) {
+                if (property.isVersionAttribute()) {
                     onVersionAttribute(method, getterResult, attributeName);
                 }
 
@@ -1540,14 +1546,16 @@ public class DynamoDBMapper {
          */
         final Map<String, ExpectedAttributeValue> internalAssertions = new HashMap<String, ExpectedAttributeValue>();
         if (config.getSaveBehavior() != SaveBehavior.CLOBBER) {
-            for (final Method method : reflector.getRelevantGetters(clazz)) {
+            for (final DynamoDBMappingPlan.Property property
+                    : reflector.getMappingPlan(clazz).getProperties()) {
 
-                if (reflector.isVersionAttributeGetter(method)) {
-                    final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-                    final String attributeName = reflector.getAttributeName(method);
+                if (property.isVersionAttribute()) {
+                    final Object getterResult = property.get(object);
+                    final String attributeName = property.getAttributeName();
 
                     final ExpectedAttributeValue expected = new ExpectedAttributeValue();
-                    final AttributeValue currentValue = converter.convert(method, getterResult);
+                    final AttributeValue currentValue =
+                            converter.convert(property.getGetter(), getterResult);
                     expected.setExists(currentValue != null);
                     if (currentValue != null) {
                         expected.setValue(currentValue);
@@ -1708,7 +1716,8 @@ public class DynamoDBMapper {
      *            version checks are performed</b>, as required by the
      *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
      *            API.
-     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()} is
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()}
+     *            and {@link DynamoDBMapperConfig#getBatchConcurrency()} are
      *            considered; if specified, all objects in the two parameter
      *            lists will be considered to belong to the given table
      *            override. In particular, this method <b>always acts as if
@@ -1735,14 +1744,15 @@ public class DynamoDBMapper {
             final Map<String, AttributeValue> attributeValues = new HashMap<String, AttributeValue>();
 
             // Look at every getter and construct a value object for it
-            for (final Method method : reflector.getRelevantGetters(clazz)) {
-                final Object getterResult =
-                        ReflectionUtils.safeInvoke(method, toWrite);
+            for (final DynamoDBMappingPlan.Property property
+                    : reflector.getMappingPlan(clazz).getProperties()) {
+                final Method method = property.getGetter();
+                final Object getterResult = property.get(toWrite);
 
-                final String attributeName = reflector.getAttributeName(method);
+                final String attributeName = property.getAttributeName();
 
                 AttributeValue currentValue = null;
-                if (getterResult == null && reflector.isAssignableKey(method)) {
+                if (getterResult == null && property.isAssignableKey()) {
                     currentValue = getAutoGeneratedKeyAttributeValue(converter, method);
                     inMemoryUpdates.add(new ValueUpdate(method, currentValue, toWrite, converter));
                 } else {
@@ -1782,7 +1792,11 @@ public class DynamoDBMapper {
                     new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
         }
 
+        final int batchConcurrency = getBatchConcurrency(config);
+
         // Break into chunks of 25 items and make service requests to DynamoDB
+        final List<Map<String, List<WriteRequest>>> batches =
+                new ArrayList<Map<String, List<WriteRequest>>>();
         while (!requestItems.isEmpty()) {
 
             final HashMap<String, List<WriteRequest>> batch =
@@ -1812,6 +1826,11 @@ public class DynamoDBMapper {
                 }
             }
 
+            if (batchConcurrency > 1) {
+                batches.add(batch);
+                continue;
+            }
+
             final List<FailedBatch> failedBatches = writeOneBatch(batch);
             if (failedBatches != null) {
                 totalFailedBatches.addAll(failedBatches);
@@ -1828,6 +1847,10 @@ public class DynamoDBMapper {
             }
         }
 
+        if (!batches.isEmpty()) {
+            totalFailedBatches.addAll(writeBatchesInParallel(batches, batchConcurrency));
+        }
+
         // Once the entire batch is processed, update assigned keys in memory
         for (final ValueUpdate update : inMemoryUpdates) {
             update.apply();
@@ -1836,6 +1859,74 @@ public class DynamoDBMapper {
         return totalFailedBatches;
     }
 
+    /**
+     * Process batches of requests on up to the given number of threads. A
+     * thread that receives a throttling exception backs off with jitter before
+     * it takes the next batch, while the other threads carry on.
+     *
+     * @return the failed batches, in the order of the batches given.
+     */
+    private List<FailedBatch> writeBatchesInParallel(
+            List<Map<String, List<WriteRequest>>> batches, int batchConcurrency) {
+        final List<Callable<List<FailedBatch>>> tasks =
+                new ArrayList<Callable<List<FailedBatch>>>(batches.size());
+        for (final Map<String, List<WriteRequest>> batch : batches) {
+            tasks.add(new Callable<List<FailedBatch>>() {
+                @Override
+                public List<FailedBatch> call() {
+                    final List<FailedBatch> failedBatches = writeOneBatch(batch);
+                    if (containsThrottlingException(failedBatches)) {
+                        pauseExponentially(1);
+                    }
+                    return failedBatches;
+                }
+            });
+        }
+
+        final List<FailedBatch> totalFailedBatches = new LinkedList<FailedBatch>();
+        for (final List<FailedBatch> failedBatches : invokeAll(tasks, batchConcurrency)) {
+            totalFailedBatches.addAll(failedBatches);
+        }
+        return totalFailedBatches;
+    }
+
+    /**
+     * Runs the tasks on a pool of up to the given number of threads and
+     * returns their results in order. An exception thrown by a task is thrown
+     * once all tasks have finished.
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks, int threads) {
+        final ExecutorService executorService =
+                Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+        try {
+            final List<Future<T>> futures = executorService.invokeAll(tasks);
+            final List<T> results = new ArrayList<T>(futures.size());
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AmazonClientException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @param config never null
+     * @return the max number of batch requests to send at the same time.
+     */
+    private int getBatchConcurrency(DynamoDBMapperConfig config) {
+        final Integer batchConcurrency = config.getBatchConcurrency();
+        return batchConcurrency == null ? 1 : batchConcurrency;
+    }
+
     /**
      * Process one batch of requests(max 25). It will divide the batch if
      * receives request too large exception(the total size of the request is
@@ -1978,8 +2069,9 @@ public class DynamoDBMapper {
      *
      * @param itemsToGet Key objects, corresponding to the class to fetch, with
      *            their primary key values set.
-     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()}
-     *            and {@link DynamoDBMapperConfig#getConsistentReads()} are
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()},
+     *            {@link DynamoDBMapperConfig#getConsistentReads()} and
+     *            {@link DynamoDBMapperConfig#getBatchConcurrency()} are
      *            considered.
      * @return A map of the loaded objects. Each key in the map is the name of a
      *         DynamoDB table. Each value in the map is a list of objects that
@@ -2001,6 +2093,9 @@ public class DynamoDBMapper {
         int count = 0;
 
         final ItemConverter converter = getConverter(config);
+        final int batchConcurrency = getBatchConcurrency(config);
+        final List<Map<String, KeysAndAttributes>> batches =
+                new ArrayList<Map<String, KeysAndAttributes>>();
 
         for (final Object keyObject : itemsToGet) {
             final Class<?> clazz = keyObject.getClass();
@@ -2022,20 +2117,73 @@ public class DynamoDBMapper {
             // Reach the maximum number which can be handled in a single
             // batchGet
             if (++count == MAX_BATCH_GET_COUNT) {
-                processBatchGetRequest(classesByTableName, requestItems, resultSet, config,
-                        converter);
+                if (batchConcurrency > 1) {
+                    batches.add(new HashMap<String, KeysAndAttributes>(requestItems));
+                } else {
+                    processBatchGetRequest(classesByTableName, requestItems, resultSet, config,
+                            converter);
+                }
                 requestItems.clear();
                 count = 0;
             }
         }
 
         if (count > 0) {
-            processBatchGetRequest(classesByTableName, requestItems, resultSet, config, converter);
+            if (batchConcurrency > 1) {
+                batches.add(requestItems);
+            } else {
+                processBatchGetRequest(classesByTableName, requestItems, resultSet, config,
+                        converter);
+            }
+        }
+
+        if (!batches.isEmpty()) {
+            loadBatchesInParallel(batches, classesByTableName, resultSet, config, converter,
+                    batchConcurrency);
         }
 
         return resultSet;
     }
 
+    /**
+     * Process batches of keys on up to the given number of threads. Each
+     * batch retries its own unprocessed keys.
+     */
+    private void loadBatchesInParallel(
+            final List<Map<String, KeysAndAttributes>> batches,
+            final Map<String, Class<?>> classesByTableName,
+            final Map<String, List<Object>> resultSet,
+            final DynamoDBMapperConfig config,
+            final ItemConverter converter,
+            final int batchConcurrency) {
+        final List<Callable<Map<String, List<Object>>>> tasks =
+                new ArrayList<Callable<Map<String, List<Object>>>>(batches.size());
+        for (final Map<String, KeysAndAttributes> batch : batches) {
+            tasks.add(new Callable<Map<String, List<Object>>>() {
+                @Override
+                public Map<String, List<Object>> call() {
+                    final Map<String, List<Object>> batchResultSet =
+                            new HashMap<String, List<Object>>();
+                    processBatchGetRequest(classesByTableName, batch, batchResultSet, config,
+                            converter);
+                    return batchResultSet;
+                }
+            });
+        }
+
+        for (final Map<String, List<Object>> batchResultSet : invokeAll(tasks,
+                batchConcurrency)) {
+            for (final Entry<String, List<Object>> entry : batchResultSet.entrySet()) {
+                final List<Object> objects = resultSet.get(entry.getKey());
+                if (objects == null) {
+                    resultSet.put(entry.getKey(), entry.getValue());
+                } else {
+                    objects.addAll(entry.getValue());
+                }
+            }
+        }
+    }
+
     /**
      * Retrieves the attributes for multiple items from multiple tables using
      * their primary keys.
@@ -2062,8 +2210,9 @@ public class DynamoDBMapper {
      *
      * @param itemsToGet Map from class to load to list of primary key
      *            attributes.
-     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()}
-     *            and {@link DynamoDBMapperConfig#getConsistentReads()} are
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()},
+     *            {@link DynamoDBMapperConfig#getConsistentReads()} and
+     *            {@link DynamoDBMapperConfig#getBatchConcurrency()} are
      *            considered.
      * @return A map of the loaded objects. Each key in the map is the name of a
      *         DynamoDB table. Each value in the map is a list of objects that
@@ -2304,6 +2453,14 @@ public class DynamoDBMapper {
      * <p>
      * You can specify the pagination loading strategy for this parallel scan
      * operation. By default, the list returned is lazily loaded when possible.
+     * With {@link PaginationLoadingStrategy#ITERATION_ONLY}, items are returned
+     * as soon as any segment's page is scanned instead of once every segment
+     * has scanned its current page.
+     * <p>
+     * The segment scans run on
+     * {@link DynamoDBMapperConfig#getParallelScanExecutor()} if specified, and
+     * at most {@link DynamoDBMapperConfig#getMaxParallelScanPages()} segment
+     * pages are outstanding at a time.
      *
      * @param <T> The type of the objects being returned.
      * @param clazz The class annotated with DynamoDB annotations describing how
@@ -2327,7 +2484,8 @@ public class DynamoDBMapper {
         // segment number.
         final List<ScanRequest> parallelScanRequests = createParallelScanRequestsFromExpression(clazz,
                 scanExpression, totalSegments, config);
-        final ParallelScanTask parallelScanTask = new ParallelScanTask(this, db, parallelScanRequests);
+        final ParallelScanTask parallelScanTask = new ParallelScanTask(db, parallelScanRequests,
+                config.getParallelScanExecutor(), config.getMaxParallelScanPages());
 
         return new PaginatedParallelScanList<T>(this, clazz, db, parallelScanTask,
                 config.getPaginationLoadingStrategy(), config);
@@ -3181,14 +3339,27 @@ public class DynamoDBMapper {
         return updateValues;
     }
 
+    /**
+     * Returns the converter of the config's conversion schema. Converters
+     * cache the marshallers they resolve per getter, so one converter is kept
+     * per schema and reused for all calls of this mapper.
+     */
     ItemConverter getConverter(DynamoDBMapperConfig config) {
         final ConversionSchema schema = config.getConversionSchema();
 
-        final ConversionSchema.Dependencies params = new ConversionSchema.Dependencies()
-                .with(DynamoDBReflector.class, reflector)
-                .with(S3ClientCache.class, s3cc);
+        ItemConverter converter = converterCache.get(schema);
+        if (converter == null) {
+            final ConversionSchema.Dependencies params = new ConversionSchema.Dependencies()
+                    .with(DynamoDBReflector.class, reflector)
+                    .with(S3ClientCache.class, s3cc);
 
-        return schema.getConverter(params);
+            converter = schema.getConverter(params);
+            final ItemConverter existing = converterCache.putIfAbsent(schema, converter);
+            if (existing != null) {
+                converter = existing;
+            }
+        }
+        return converter;
     }
 
     private void pauseExponentially(int retries) {
@@ -17,6 +17,8 @@ package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import com.amazonaws.metrics.RequestMetricCollector;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * Immutable configuration object for service call behavior. An instance of this
  * configuration is supplied to every {@link DynamoDBMapper} at construction; if
@@ -52,6 +54,9 @@ public class DynamoDBMapperConfig {
         private PaginationLoadingStrategy paginationLoadingStrategy;
         private RequestMetricCollector requestMetricCollector;
         private ConversionSchema conversionSchema;
+        private Integer batchConcurrency;
+        private ExecutorService parallelScanExecutor;
+        private Integer maxParallelScanPages;
 
         /**
          * Creates a new builder initialized with the {@link #DEFAULT} values.
@@ -65,6 +70,9 @@ public class DynamoDBMapperConfig {
             paginationLoadingStrategy = DEFAULT.getPaginationLoadingStrategy();
             requestMetricCollector = DEFAULT.getRequestMetricCollector();
             conversionSchema = DEFAULT.getConversionSchema();
+            batchConcurrency = DEFAULT.getBatchConcurrency();
+            parallelScanExecutor = DEFAULT.getParallelScanExecutor();
+            maxParallelScanPages = DEFAULT.getMaxParallelScanPages();
         }
 
         /**
@@ -255,6 +263,88 @@ public class DynamoDBMapperConfig {
             return this;
         }
 
+        /**
+         * @return the currently-configured batch concurrency
+         */
+        public Integer getBatchConcurrency() {
+            return batchConcurrency;
+        }
+
+        /**
+         * @param value the new batch concurrency, the max number of batch
+         *            requests sent at the same time by batch operations
+         */
+        public void setBatchConcurrency(Integer value) {
+            if (value != null && value < 1) {
+                throw new IllegalArgumentException("Batch concurrency must be at least 1");
+            }
+            batchConcurrency = value;
+        }
+
+        /**
+         * @param value the new batch concurrency, the max number of batch
+         *            requests sent at the same time by batch operations
+         * @return this builder
+         */
+        public Builder withBatchConcurrency(Integer value) {
+            setBatchConcurrency(value);
+            return this;
+        }
+
+        /**
+         * @return the currently-configured parallel scan executor
+         */
+        public ExecutorService getParallelScanExecutor() {
+            return parallelScanExecutor;
+        }
+
+        /**
+         * @param value the new parallel scan executor, which runs the segment
+         *            scans of parallel scans. The mapper never shuts it down.
+         */
+        public void setParallelScanExecutor(ExecutorService value) {
+            parallelScanExecutor = value;
+        }
+
+        /**
+         * @param value the new parallel scan executor, which runs the segment
+         *            scans of parallel scans. The mapper never shuts it down.
+         * @return this builder
+         */
+        public Builder withParallelScanExecutor(ExecutorService value) {
+            setParallelScanExecutor(value);
+            return this;
+        }
+
+        /**
+         * @return the currently-configured max number of parallel scan pages
+         */
+        public Integer getMaxParallelScanPages() {
+            return maxParallelScanPages;
+        }
+
+        /**
+         * @param value the new max number of segment pages a parallel scan
+         *            has outstanding, scanning or loaded but not yet consumed
+         */
+        public void setMaxParallelScanPages(Integer value) {
+            if (value != null && value < 1) {
+                throw new IllegalArgumentException(
+                        "Max parallel scan pages must be at least 1");
+            }
+            maxParallelScanPages = value;
+        }
+
+        /**
+         * @param value the new max number of segment pages a parallel scan
+         *            has outstanding, scanning or loaded but not yet consumed
+         * @return this builder
+         */
+        public Builder withMaxParallelScanPages(Integer value) {
+            setMaxParallelScanPages(value);
+            return this;
+        }
+
         /**
          * Builds a new {@code DynamoDBMapperConfig} object.
          *
@@ -269,7 +359,10 @@ public class DynamoDBMapperConfig {
                     objectTableNameResolver,
                     paginationLoadingStrategy,
                     requestMetricCollector,
-                    conversionSchema);
+                    conversionSchema,
+                    batchConcurrency,
+                    parallelScanExecutor,
+                    maxParallelScanPages);
         }
     }
 
@@ -528,6 +621,9 @@ public class DynamoDBMapperConfig {
     private final PaginationLoadingStrategy paginationLoadingStrategy;
     private final RequestMetricCollector requestMetricCollector;
     private final ConversionSchema conversionSchema;
+    private final Integer batchConcurrency;
+    private final ExecutorService parallelScanExecutor;
+    private final Integer maxParallelScanPages;
 
     /**
      * Legacy constructor, using default PaginationLoadingStrategy
@@ -598,7 +694,10 @@ public class DynamoDBMapperConfig {
                 null,
                 paginationLoadingStrategy,
                 requestMetricCollector,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT,
+                null,
+                null,
+                null);
     }
 
     private DynamoDBMapperConfig(
@@ -609,7 +708,10 @@ public class DynamoDBMapperConfig {
             ObjectTableNameResolver objectTableNameResolver,
             PaginationLoadingStrategy paginationLoadingStrategy,
             RequestMetricCollector requestMetricCollector,
-            ConversionSchema conversionSchema) {
+            ConversionSchema conversionSchema,
+            Integer batchConcurrency,
+            ExecutorService parallelScanExecutor,
+            Integer maxParallelScanPages) {
 
         this.saveBehavior = saveBehavior;
         this.consistentReads = consistentReads;
@@ -619,6 +721,9 @@ public class DynamoDBMapperConfig {
         this.paginationLoadingStrategy = paginationLoadingStrategy;
         this.requestMetricCollector = requestMetricCollector;
         this.conversionSchema = conversionSchema;
+        this.batchConcurrency = batchConcurrency;
+        this.parallelScanExecutor = parallelScanExecutor;
+        this.maxParallelScanPages = maxParallelScanPages;
     }
 
     /**
@@ -628,7 +733,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(SaveBehavior saveBehavior) {
         this(saveBehavior, null, null, null, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null);
     }
 
     /**
@@ -639,7 +744,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(ConsistentReads consistentReads) {
         this(null, consistentReads, null, null, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null);
     }
 
     /**
@@ -649,7 +754,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameOverride tableNameOverride) {
         this(null, null, tableNameOverride, null, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null);
     }
 
     /**
@@ -660,7 +765,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameResolver tableNameResolver) {
         this(null, null, null, tableNameResolver, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null);
     }
 
     /**
@@ -671,7 +776,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(ObjectTableNameResolver objectTableNameResolver) {
         this(null, null, null, null, objectTableNameResolver, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null);
     }
 
     /**
@@ -684,7 +789,7 @@ public class DynamoDBMapperConfig {
     public DynamoDBMapperConfig(TableNameResolver tableNameResolver,
             ObjectTableNameResolver objectTableNameResolver) {
         this(null, null, null, tableNameResolver, objectTableNameResolver, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null);
     }
 
     /**
@@ -697,7 +802,7 @@ public class DynamoDBMapperConfig {
             PaginationLoadingStrategy paginationLoadingStrategy) {
 
         this(null, null, null, null, null, paginationLoadingStrategy, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null);
     }
 
     /**
@@ -706,7 +811,7 @@ public class DynamoDBMapperConfig {
      * @param conversionSchema the dynamodb {@link ConversionSchema}
      */
     public DynamoDBMapperConfig(ConversionSchema conversionSchema) {
-        this(null, null, null, null, null, null, null, conversionSchema);
+        this(null, null, null, null, null, null, null, conversionSchema, null, null, null);
     }
 
     /**
@@ -736,6 +841,9 @@ public class DynamoDBMapperConfig {
                     defaults.getPaginationLoadingStrategy();
             this.requestMetricCollector = defaults.getRequestMetricCollector();
             this.conversionSchema = defaults.getConversionSchema();
+            this.batchConcurrency = defaults.getBatchConcurrency();
+            this.parallelScanExecutor = defaults.getParallelScanExecutor();
+            this.maxParallelScanPages = defaults.getMaxParallelScanPages();
 
         } else {
 
@@ -773,6 +881,18 @@ public class DynamoDBMapperConfig {
                     ? defaults.getConversionSchema()
                     : overrides.getConversionSchema();
 
+            this.batchConcurrency = (overrides.getBatchConcurrency() == null)
+                    ? defaults.getBatchConcurrency()
+                    : overrides.getBatchConcurrency();
+
+            this.parallelScanExecutor = (overrides.getParallelScanExecutor() == null)
+                    ? defaults.getParallelScanExecutor()
+                    : overrides.getParallelScanExecutor();
+
+            this.maxParallelScanPages = (overrides.getMaxParallelScanPages() == null)
+                    ? defaults.getMaxParallelScanPages()
+                    : overrides.getMaxParallelScanPages();
+
         }
     }
 
@@ -860,6 +980,40 @@ public class DynamoDBMapperConfig {
         return conversionSchema;
     }
 
+    /**
+     * Returns the max number of batch requests the batch operations of the
+     * mapper send at the same time. With a value of 1 the batches are sent one
+     * after another.
+     *
+     * @return the batch concurrency, or null if not specified
+     */
+    public Integer getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    /**
+     * Returns the executor that runs the segment scans of parallel scans. It is
+     * owned by the caller and can be shared by several scans and mappers. If
+     * not specified, each parallel scan starts its own threads.
+     *
+     * @return the parallel scan executor, or null if not specified
+     */
+    public ExecutorService getParallelScanExecutor() {
+        return parallelScanExecutor;
+    }
+
+    /**
+     * Returns the max number of segment pages a parallel scan has outstanding,
+     * either being scanned or loaded but not yet consumed. Further segment
+     * scans wait until earlier pages have been consumed. If not specified, a
+     * scan can have one page of every segment outstanding.
+     *
+     * @return the max number of parallel scan pages, or null if not specified
+     */
+    public Integer getMaxParallelScanPages() {
+        return maxParallelScanPages;
+    }
+
     /**
      * Default configuration uses UPDATE behavior for saves and EVENTUALly
      * consistent reads, with no table name override and lazy-loading strategy.
@@ -872,5 +1026,8 @@ public class DynamoDBMapperConfig {
             null, // ObjectTableNameResolver
             PaginationLoadingStrategy.LAZY_LOADING,
             null, // RequestMetricCollector
-            ConversionSchemas.DEFAULT);
+            ConversionSchemas.DEFAULT,
+            1, // batch concurrency
+            null, // parallel scan executor
+            null); // max parallel scan pages
 }
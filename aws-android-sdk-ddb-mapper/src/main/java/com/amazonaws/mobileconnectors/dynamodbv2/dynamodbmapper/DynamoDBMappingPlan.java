@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The mapping of a class, resolved once by {@link DynamoDBReflector}: its
+ * mapped properties with their attribute names and key and version flags, and
+ * its primary key getters. Instances are immutable, apart from the setter of
+ * each property, which is looked up on first use because only unmarshalling
+ * requires it, so they can be shared between threads without locking.
+ */
+final class DynamoDBMappingPlan {
+
+    private final List<Property> properties;
+    private final List<Property> keyProperties;
+    private final Method hashKeyGetter;
+    private final Method rangeKeyGetter;
+
+    DynamoDBMappingPlan(DynamoDBReflector reflector, Class<?> clazz) {
+        final List<Property> all = new ArrayList<Property>();
+        final List<Property> keys = new ArrayList<Property>();
+        Method hashKey = null;
+        Method rangeKey = null;
+        for (final Method getter : reflector.getRelevantGetters(clazz)) {
+            final boolean isHashKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBHashKey.class);
+            final boolean isRangeKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBRangeKey.class);
+            final Property property = new Property(reflector, getter, isHashKey || isRangeKey);
+            all.add(property);
+            if (property.isKey()) {
+                keys.add(property);
+            }
+            if (isHashKey && hashKey == null) {
+                hashKey = getter;
+            }
+            if (isRangeKey && rangeKey == null) {
+                rangeKey = getter;
+            }
+        }
+        this.properties = Collections.unmodifiableList(all);
+        this.keyProperties = Collections.unmodifiableList(keys);
+        this.hashKeyGetter = hashKey;
+        this.rangeKeyGetter = rangeKey;
+    }
+
+    /**
+     * @return all mapped properties, in the order of the class's getters.
+     */
+    List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the hash and range key properties.
+     */
+    List<Property> getKeyProperties() {
+        return keyProperties;
+    }
+
+    /**
+     * @return the {@link DynamoDBHashKey} getter, or null if there is none.
+     */
+    Method getHashKeyGetter() {
+        return hashKeyGetter;
+    }
+
+    /**
+     * @return the {@link DynamoDBRangeKey} getter, or null if there is none.
+     */
+    Method getRangeKeyGetter() {
+        return rangeKeyGetter;
+    }
+
+    /**
+     * A mapped property of a class.
+     */
+    static final class Property {
+        private final DynamoDBReflector reflector;
+        private final Method getter;
+        private final String attributeName;
+        private final boolean key;
+        private final boolean versionAttribute;
+        private final boolean assignableKey;
+        private volatile Method setter;
+
+        Property(DynamoDBReflector reflector, Method getter, boolean key) {
+            this.reflector = reflector;
+            this.getter = getter;
+            this.attributeName = reflector.getAttributeName(getter);
+            this.key = key;
+            this.versionAttribute = reflector.isVersionAttributeGetter(getter);
+            this.assignableKey = reflector.isAssignableKey(getter);
+        }
+
+        Method getGetter() {
+            return getter;
+        }
+
+        /**
+         * @return the setter of the property.
+         * @throws DynamoDBMappingException if the class has no setter for the
+         *             property.
+         */
+        Method getSetter() {
+            Method result = setter;
+            if (result == null) {
+                result = reflector.getSetter(getter);
+                setter = result;
+            }
+            return result;
+        }
+
+        String getAttributeName() {
+            return attributeName;
+        }
+
+        boolean isKey() {
+            return key;
+        }
+
+        boolean isVersionAttribute() {
+            return versionAttribute;
+        }
+
+        boolean isAssignableKey() {
+            return assignableKey;
+        }
+
+        /**
+         * @param object an instance of the class.
+         * @return the value of the property.
+         */
+        Object get(Object object) {
+            return ReflectionUtils.safeInvoke(getter, object);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperCo
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -46,6 +47,12 @@ public class PaginatedParallelScanList<T> extends PaginatedList<T> {
 
     private final DynamoDBMapperConfig config;
 
+    /**
+     * Whether pages are returned as soon as any segment's page is scanned,
+     * rather than in rounds of one page per segment.
+     */
+    private final boolean streaming;
+
     /**
      * Constructor.
      *
@@ -67,10 +74,10 @@ public class PaginatedParallelScanList<T> extends PaginatedList<T> {
 
         this.parallelScanTask = parallelScanTask;
         this.config = config;
+        this.streaming = paginationLoadingStrategy == PaginationLoadingStrategy.ITERATION_ONLY;
 
         // Marshal the first batch of results in allResults
-        allResults.addAll(marshalParallelScanResultsIntoObjects(parallelScanTask
-                .getNextBatchOfScanResults()));
+        allResults.addAll(marshalParallelScanResultsIntoObjects(getNextScanResults()));
 
         // If the results should be eagerly loaded at once
         if (paginationLoadingStrategy == PaginationLoadingStrategy.EAGER_LOADING) {
@@ -85,7 +92,19 @@ public class PaginatedParallelScanList<T> extends PaginatedList<T> {
 
     @Override
     protected List<T> fetchNextPage() {
-        return marshalParallelScanResultsIntoObjects(parallelScanTask.getNextBatchOfScanResults());
+        return marshalParallelScanResultsIntoObjects(getNextScanResults());
+    }
+
+    /**
+     * In ITERATION_ONLY mode only one page is kept in memory, so pages are
+     * streamed in the order their segments finish. Otherwise a whole round of
+     * pages is fetched at once.
+     */
+    private List<ScanResult> getNextScanResults() {
+        if (streaming) {
+            return Collections.singletonList(parallelScanTask.getNextScanResult());
+        }
+        return parallelScanTask.getNextBatchOfScanResults();
     }
 
     private List<T> marshalParallelScanResultsIntoObjects(List<ScanResult> scanResults) {
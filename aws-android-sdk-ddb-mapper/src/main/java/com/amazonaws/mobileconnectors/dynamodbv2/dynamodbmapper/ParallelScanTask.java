@@ -24,14 +24,26 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * A task thats runs DynamoDB scan operations in parallel.
+ * <p>
+ * Results are either fetched in rounds with
+ * {@link #getNextBatchOfScanResults()}, one page of every unfinished segment
+ * per round, or streamed with {@link #getNextScanResult()}, which returns the
+ * page of whichever segment finishes first and immediately starts the next
+ * page of that segment. In both modes the number of segment pages outstanding
+ * at a time can be bounded; a page is outstanding from the time its scan is
+ * submitted until it has been scanned (rounds) or returned (streaming).
  */
 public class ParallelScanTask {
 
@@ -61,6 +73,29 @@ public class ParallelScanTask {
 
     private final ExecutorService executorService;
 
+    /**
+     * Whether the executor was created by this task and is shut down once the
+     * scan is finished.
+     */
+    private final boolean ownsExecutorService;
+
+    /**
+     * One permit per segment page that may be outstanding at a time.
+     */
+    private final Semaphore pagePermits;
+
+    /**
+     * Segments whose page has been scanned, or has failed, but not yet been
+     * returned by {@link #getNextScanResult()}, in the order they finished.
+     */
+    private final BlockingQueue<Integer> finishedSegments = new LinkedBlockingQueue<Integer>();
+
+    /**
+     * Whether a page of each segment is outstanding in streaming mode. Guarded
+     * by segmentScanStates.
+     */
+    private final boolean[] segmentPageOutstanding;
+
     private final AmazonDynamoDB dynamo;
 
     @Deprecated
@@ -71,10 +106,33 @@ public class ParallelScanTask {
     }
 
     ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
+        this(dynamo, parallelScanRequests, null, null);
+    }
+
+    /**
+     * @param dynamo the DynamoDB client.
+     * @param parallelScanRequests one scan request per segment.
+     * @param executorService the executor running the segment scans, or null
+     *            to run them on threads owned by this task.
+     * @param maxOutstandingPages the max number of segment pages outstanding
+     *            at a time, or null for one page per segment.
+     */
+    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests,
+            ExecutorService executorService, Integer maxOutstandingPages) {
         this.dynamo = dynamo;
         this.parallelScanRequests = parallelScanRequests;
         this.totalSegments = parallelScanRequests.size();
-        executorService = Executors.newCachedThreadPool();
+        if (executorService == null) {
+            this.executorService = Executors.newCachedThreadPool();
+            this.ownsExecutorService = true;
+        } else {
+            this.executorService = executorService;
+            this.ownsExecutorService = false;
+        }
+        this.pagePermits = new Semaphore(maxOutstandingPages == null
+                ? Math.max(totalSegments, 1)
+                : maxOutstandingPages);
+        this.segmentPageOutstanding = new boolean[totalSegments];
 
         // Create synchronized views of the list to guarantee any changes are
         // visible across all threads.
@@ -99,12 +157,15 @@ public class ParallelScanTask {
     public boolean isAllSegmentScanFinished() {
         synchronized (segmentScanStates) {
             for (int segment = 0; segment < totalSegments; segment++) {
-                if (segmentScanStates.get(segment) != SegmentScanState.SegmentScanCompleted) {
+                if (segmentScanStates.get(segment) != SegmentScanState.SegmentScanCompleted
+                        || segmentPageOutstanding[segment]) {
                     return false;
                 }
             }
             // Shut down if all data have been scanned and loaded.
-            executorService.shutdown();
+            if (ownsExecutorService) {
+                executorService.shutdown();
+            }
             return true;
         }
     }
@@ -167,38 +228,133 @@ public class ParallelScanTask {
              * segmentScanFutureTasks.
              */
             else {
+                // Wait until fewer pages than the max are being scanned.
+                acquirePagePermit();
                 // Update the state to "Scanning" and notify any waiting thread.
                 synchronized (segmentScanStates) {
                     segmentScanStates.set(currentSegment, SegmentScanState.Scanning);
                     segmentScanStates.notifyAll();
                 }
-                final Future<ScanResult> futureTask = executorService.submit(new Callable<ScanResult>() {
-                    @Override
-                    public ScanResult call() throws Exception {
-                        try {
-                            if (currentSegmentState == SegmentScanState.HasNextPage) {
-                                return scanNextPageOfSegment(currentSegment, true);
-                            }
-                            else if (currentSegmentState == SegmentScanState.Waiting) {
-                                return scanNextPageOfSegment(currentSegment, false);
-                            }
-                            else {
-                                throw new AmazonClientException(
-                                        "Should not start a new future task");
-                            }
-                        } catch (final Exception e) {
-                            synchronized (segmentScanStates) {
-                                segmentScanStates.set(currentSegment, SegmentScanState.Failed);
-                                segmentScanStates.notifyAll();
-                            }
-                            throw e;
+                submitSegmentScan(currentSegment, currentSegmentState, false);
+            }
+        }
+    }
+
+    /**
+     * Gets the next page of scan results of any segment, waiting for the first
+     * segment whose page finishes. Pages of the other segments are scanned in
+     * the meantime, up to the max number of outstanding pages.
+     *
+     * @return the next {@link ScanResult}, or null if all segments have been
+     *         scanned.
+     */
+    ScanResult getNextScanResult() {
+        synchronized (segmentScanStates) {
+            if (isAllSegmentScanFinished()) {
+                return null;
+            }
+            for (int segment = 0; segment < totalSegments; segment++) {
+                final SegmentScanState currentSegmentState = segmentScanStates.get(segment);
+                if (currentSegmentState == SegmentScanState.Failed
+                        && !segmentPageOutstanding[segment]) {
+                    rethrowSegmentScanFailure(segment);
+                }
+                if (segmentPageOutstanding[segment]
+                        || (currentSegmentState != SegmentScanState.Waiting
+                        && currentSegmentState != SegmentScanState.HasNextPage)) {
+                    continue;
+                }
+                /*
+                 * Never wait for a permit here: the permits are only released
+                 * by this thread, and a segment can be submitted whenever no
+                 * page is outstanding.
+                 */
+                if (!pagePermits.tryAcquire()) {
+                    break;
+                }
+                segmentPageOutstanding[segment] = true;
+                segmentScanStates.set(segment, SegmentScanState.Scanning);
+                submitSegmentScan(segment, currentSegmentState, true);
+            }
+        }
+
+        final int segment;
+        try {
+            segment = finishedSegments.take();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Parallel scan interrupted by other thread.", ie);
+        }
+        pagePermits.release();
+        synchronized (segmentScanStates) {
+            segmentPageOutstanding[segment] = false;
+            if (segmentScanStates.get(segment) == SegmentScanState.Failed) {
+                rethrowSegmentScanFailure(segment);
+            }
+            return segmentScanResults.get(segment);
+        }
+    }
+
+    /**
+     * Submits the scan of the next page of a segment. Its page permit is
+     * released once the page is scanned, or in streaming mode once the page
+     * is returned.
+     */
+    private void submitSegmentScan(final int currentSegment,
+            final SegmentScanState currentSegmentState, final boolean streaming) {
+        final Future<ScanResult> futureTask;
+        try {
+            futureTask = executorService.submit(new Callable<ScanResult>() {
+                @Override
+                public ScanResult call() throws Exception {
+                    try {
+                        if (currentSegmentState == SegmentScanState.HasNextPage) {
+                            return scanNextPageOfSegment(currentSegment, true);
+                        }
+                        else if (currentSegmentState == SegmentScanState.Waiting) {
+                            return scanNextPageOfSegment(currentSegment, false);
+                        }
+                        else {
+                            throw new AmazonClientException(
+                                    "Should not start a new future task");
+                        }
+                    } catch (final Exception e) {
+                        synchronized (segmentScanStates) {
+                            segmentScanStates.set(currentSegment, SegmentScanState.Failed);
+                            segmentScanStates.notifyAll();
+                        }
+                        throw e;
+                    } finally {
+                        if (streaming) {
+                            finishedSegments.add(currentSegment);
+                        } else {
+                            pagePermits.release();
                         }
                     }
-                });
-                // Cache the future task (for getting the Exceptions in the
-                // working thread).
-                segmentScanFutureTasks.set(currentSegment, futureTask);
+                }
+            });
+        } catch (final RejectedExecutionException ree) {
+            pagePermits.release();
+            synchronized (segmentScanStates) {
+                segmentPageOutstanding[currentSegment] = false;
+                segmentScanStates.set(currentSegment, currentSegmentState);
+                segmentScanStates.notifyAll();
             }
+            throw new AmazonClientException(
+                    "Parallel scan executor rejected the scan on segment #" + currentSegment + ".",
+                    ree);
+        }
+        // Cache the future task (for getting the Exceptions in the
+        // working thread).
+        segmentScanFutureTasks.set(currentSegment, futureTask);
+    }
+
+    private void acquirePagePermit() {
+        try {
+            pagePermits.acquire();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Parallel scan interrupted by other thread.", ie);
         }
     }
 
@@ -210,21 +366,7 @@ public class ParallelScanTask {
              * Rethrow the exception from any failed segment scan.
              */
             if (currentSegmentState == SegmentScanState.Failed) {
-                try {
-                    segmentScanFutureTasks.get(segment).get();
-                    throw new AmazonClientException("No Exception found in the failed scan task.");
-                } catch (final ExecutionException ee) {
-                    if (ee.getCause() instanceof AmazonClientException) {
-                        throw (AmazonClientException) (ee.getCause());
-                    } else {
-                        throw new AmazonClientException(
-                                "Internal error during the scan on segment #" + segment + ".",
-                                ee.getCause());
-                    }
-                } catch (final Exception e) {
-                    throw new AmazonClientException("Error during the scan on segment #" + segment
-                            + ".", e);
-                }
+                rethrowSegmentScanFailure(segment);
             }
             /**
              * Get the ScanResult from cache if the segment scan has finished.
@@ -243,6 +385,24 @@ public class ParallelScanTask {
         return scanResults;
     }
 
+    private void rethrowSegmentScanFailure(int segment) {
+        try {
+            segmentScanFutureTasks.get(segment).get();
+            throw new AmazonClientException("No Exception found in the failed scan task.");
+        } catch (final ExecutionException ee) {
+            if (ee.getCause() instanceof AmazonClientException) {
+                throw (AmazonClientException) (ee.getCause());
+            } else {
+                throw new AmazonClientException(
+                        "Internal error during the scan on segment #" + segment + ".",
+                        ee.getCause());
+            }
+        } catch (final Exception e) {
+            throw new AmazonClientException("Error during the scan on segment #" + segment
+                    + ".", e);
+        }
+    }
+
     ScanResult scanNextPageOfSegment(int currentSegment, boolean checkLastEvaluatedKey) {
         final ScanRequest segmentScanRequest = parallelScanRequests.get(currentSegment);
         if (checkLastEvaluatedKey) {
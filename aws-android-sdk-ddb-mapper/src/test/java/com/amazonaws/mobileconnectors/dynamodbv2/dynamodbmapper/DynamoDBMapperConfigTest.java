@@ -17,6 +17,7 @@ package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 import com.amazonaws.Request;
@@ -31,6 +32,9 @@ import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperCo
 
 import org.junit.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class DynamoDBMapperConfigTest {
 
     @Test
@@ -66,7 +70,11 @@ public class DynamoDBMapperConfigTest {
         assertNotNull(b.withTableNameResolver(tnr));
         assertSame(b.getTableNameResolver(), tnr);
 
+        assertNotNull(b.withBatchConcurrency(4));
+        assertEquals(b.getBatchConcurrency(), Integer.valueOf(4));
+
         DynamoDBMapperConfig conf = b.build();
+        assertEquals(conf.getBatchConcurrency(), Integer.valueOf(4));
         assertEquals(conf.getConsistentReads(), ConsistentReads.CONSISTENT);
         assertSame(conf.getConversionSchema(), cs);
         assertSame(conf.getObjectTableNameResolver(), otnr);
@@ -137,6 +145,52 @@ public class DynamoDBMapperConfigTest {
         assertEquals(conf.getTableNameResolver(), copy.getTableNameResolver());
     }
 
+    @Test
+    public void testBatchConcurrency() {
+        assertEquals(DynamoDBMapperConfig.DEFAULT.getBatchConcurrency(), Integer.valueOf(1));
+
+        DynamoDBMapperConfig overrides = new DynamoDBMapperConfig.Builder()
+                .withBatchConcurrency(8).build();
+        DynamoDBMapperConfig merged = new DynamoDBMapperConfig(DynamoDBMapperConfig.DEFAULT,
+                overrides);
+        assertEquals(merged.getBatchConcurrency(), Integer.valueOf(8));
+
+        merged = new DynamoDBMapperConfig(overrides,
+                new DynamoDBMapperConfig(SaveBehavior.CLOBBER));
+        assertEquals(merged.getBatchConcurrency(), Integer.valueOf(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchConcurrencyMustBePositive() {
+        new DynamoDBMapperConfig.Builder().withBatchConcurrency(0);
+    }
+
+    @Test
+    public void testParallelScanSettings() {
+        assertNull(DynamoDBMapperConfig.DEFAULT.getParallelScanExecutor());
+        assertNull(DynamoDBMapperConfig.DEFAULT.getMaxParallelScanPages());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DynamoDBMapperConfig overrides = new DynamoDBMapperConfig.Builder()
+                .withParallelScanExecutor(executor)
+                .withMaxParallelScanPages(3).build();
+        DynamoDBMapperConfig merged = new DynamoDBMapperConfig(DynamoDBMapperConfig.DEFAULT,
+                overrides);
+        assertSame(merged.getParallelScanExecutor(), executor);
+        assertEquals(merged.getMaxParallelScanPages(), Integer.valueOf(3));
+
+        merged = new DynamoDBMapperConfig(overrides,
+                new DynamoDBMapperConfig(SaveBehavior.CLOBBER));
+        assertSame(merged.getParallelScanExecutor(), executor);
+        assertEquals(merged.getMaxParallelScanPages(), Integer.valueOf(3));
+        executor.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxParallelScanPagesMustBePositive() {
+        new DynamoDBMapperConfig.Builder().withMaxParallelScanPages(0);
+    }
+
     @Test
     public void testConstructorWithNonNullOverrides() {
         DynamoDBMapperConfig.Builder b = new DynamoDBMapperConfig.Builder();
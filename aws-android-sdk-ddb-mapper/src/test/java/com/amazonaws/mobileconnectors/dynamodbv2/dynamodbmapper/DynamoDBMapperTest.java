@@ -161,6 +161,60 @@ public class DynamoDBMapperTest {
         EasyMock.verify(mockClient);
     }
 
+    @Test
+    public void testParallelBatchWriteReturnsFailedBatches() {
+        List<Object> objectsToWrite = new ArrayList<Object>();
+        for (int i = 0; i < 3 * DynamoDBMapper.MAX_ITEMS_PER_BATCH; i++) {
+            objectsToWrite.add(new MockDifferentTableName("id" + i, "value" + i));
+        }
+        EasyMock.reset(mockClient);
+        EasyMock.makeThreadSafe(mockClient, true);
+        EasyMock.expect(mockClient.batchWriteItem(anyObject(BatchWriteItemRequest.class)))
+                .andReturn(new BatchWriteItemResult().withUnprocessedItems(
+                        new HashMap<String, List<WriteRequest>>())).times(2);
+        EasyMock.expect(mockClient.batchWriteItem(anyObject(BatchWriteItemRequest.class)))
+                .andThrow(new AmazonServiceException("TestException"));
+        EasyMock.replay(mockClient);
+
+        DynamoDBMapperConfig parallelConfig = new DynamoDBMapperConfig.Builder()
+                .withBatchConcurrency(3).build();
+        List<FailedBatch> result = mapper.batchWrite(objectsToWrite, new ArrayList<Object>(),
+                parallelConfig);
+
+        EasyMock.verify(mockClient);
+        assertEquals(1, result.size());
+        assertEquals(DynamoDBMapper.MAX_ITEMS_PER_BATCH, result.get(0).getUnprocessedItems()
+                .get("aws-android-sdk-dynamodbmapper-test-different-table").size());
+    }
+
+    @Test
+    public void testParallelBatchLoadMergesResults() {
+        List<Object> itemsToGet = new ArrayList<Object>();
+        for (int i = 0; i < 150; i++) {
+            itemsToGet.add(new MockDifferentTableName("id" + i, null));
+        }
+        EasyMock.reset(mockClient);
+        EasyMock.makeThreadSafe(mockClient, true);
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("id", new AttributeValue().withS("id"));
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        items.add(item);
+        Map<String, List<Map<String, AttributeValue>>> responses =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+        responses.put("aws-android-sdk-dynamodbmapper-test-different-table", items);
+        EasyMock.expect(mockClient.batchGetItem(anyObject(BatchGetItemRequest.class)))
+                .andReturn(new BatchGetItemResult().withResponses(responses)).times(2);
+        EasyMock.replay(mockClient);
+
+        DynamoDBMapperConfig parallelConfig = new DynamoDBMapperConfig.Builder()
+                .withBatchConcurrency(2).build();
+        Map<String, List<Object>> loadResults = mapper.batchLoad(itemsToGet, parallelConfig);
+
+        EasyMock.verify(mockClient);
+        assertEquals(2, loadResults.get("aws-android-sdk-dynamodbmapper-test-different-table")
+                .size());
+    }
+
     @Test
     public void testBatchLoadRetiresForUnprocessedItems() {
         List<Object> itemsToGet = new ArrayList<Object>();
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMappingPlan.Property;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class DynamoDBMappingPlanTest {
+
+    private final DynamoDBReflector reflector = new DynamoDBReflector();
+
+    @Test
+    public void testPlanIsCachedPerClass() {
+        assertSame(reflector.getMappingPlan(RangeKeyClass.class),
+                reflector.getMappingPlan(RangeKeyClass.class));
+    }
+
+    @Test
+    public void testKeyAndVersionProperties() throws Exception {
+        DynamoDBMappingPlan plan = reflector.getMappingPlan(RangeKeyClass.class);
+
+        assertEquals(RangeKeyClass.class.getMethod("getKey"), plan.getHashKeyGetter());
+        assertEquals(RangeKeyClass.class.getMethod("getRangeKey"), plan.getRangeKeyGetter());
+        assertEquals(2, plan.getKeyProperties().size());
+
+        Map<String, Property> byName = new HashMap<String, Property>();
+        for (Property property : plan.getProperties()) {
+            byName.put(property.getAttributeName(), property);
+        }
+        assertEquals(7, byName.size());
+        assertTrue(byName.get("key").isKey());
+        assertTrue(byName.get("rangeKey").isKey());
+        assertFalse(byName.get("integerSetAttribute").isKey());
+        assertTrue(byName.get("version").isVersionAttribute());
+        assertFalse(byName.get("stringAttribute").isVersionAttribute());
+        assertEquals(RangeKeyClass.class.getMethod("setStringAttribute", String.class),
+                byName.get("stringAttribute").getSetter());
+
+        RangeKeyClass obj = new RangeKeyClass();
+        obj.setStringAttribute("value");
+        assertEquals("value", byName.get("stringAttribute").get(obj));
+    }
+
+    @Test
+    public void testAssignableKey() {
+        DynamoDBMappingPlan plan = reflector.getMappingPlan(HashKeyAutoGenerated.class);
+
+        assertEquals(2, plan.getKeyProperties().size());
+        for (Property property : plan.getKeyProperties()) {
+            assertEquals(property.getGetter().equals(plan.getHashKeyGetter()),
+                    property.isAssignableKey());
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -26,6 +27,7 @@ import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
 import org.easymock.Capture;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -33,6 +35,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ParallelScanTaskTest {
 
@@ -192,4 +197,84 @@ public class ParallelScanTaskTest {
 
         assertTrue(testTask.isAllSegmentScanFinished());
     }
+
+    @Test
+    public void testGetNextScanResultStreamsPagesWithinBound() {
+        final List<ScanRequest> list = new ArrayList<ScanRequest>();
+        for (int segment = 0; segment < 3; segment++) {
+            list.add(new ScanRequest().withTableName(TABLE).withSegment(segment)
+                    .withTotalSegments(3));
+        }
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        EasyMock.makeThreadSafe(mockClient, true);
+        EasyMock.expect(mockClient.scan(EasyMock.anyObject(ScanRequest.class)))
+                .andAnswer(new IAnswer<ScanResult>() {
+                    @Override
+                    public ScanResult answer() throws Throwable {
+                        int current = inFlight.incrementAndGet();
+                        maxInFlight.set(Math.max(maxInFlight.get(), current));
+                        Thread.sleep(5);
+                        inFlight.decrementAndGet();
+                        ScanRequest request = (ScanRequest) EasyMock.getCurrentArguments()[0];
+                        // each segment has two pages
+                        if (request.getExclusiveStartKey() == null) {
+                            Map<String, AttributeValue> lastEvaluatedKey =
+                                    new HashMap<String, AttributeValue>();
+                            lastEvaluatedKey.put("TestPrimaryKey", new AttributeValue().withS("1"));
+                            return new ScanResult().withCount(request.getSegment())
+                                    .withLastEvaluatedKey(lastEvaluatedKey);
+                        }
+                        return new ScanResult().withCount(request.getSegment());
+                    }
+                }).times(6);
+        EasyMock.replay(mockClient);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ParallelScanTask testTask = new ParallelScanTask(mockClient, list, executor, 2);
+        int[] pagesPerSegment = new int[3];
+        ScanResult result;
+        while ((result = testTask.getNextScanResult()) != null) {
+            pagesPerSegment[result.getCount()]++;
+        }
+
+        EasyMock.verify(mockClient);
+        assertTrue(testTask.isAllSegmentScanFinished());
+        assertEquals(2, pagesPerSegment[0]);
+        assertEquals(2, pagesPerSegment[1]);
+        assertEquals(2, pagesPerSegment[2]);
+        assertTrue(maxInFlight.get() <= 2);
+        assertFalse("a shared executor is not shut down", executor.isShutdown());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testGetNextBatchOfScanResultsWithinBound() {
+        final List<ScanRequest> list = new ArrayList<ScanRequest>();
+        for (int segment = 0; segment < 4; segment++) {
+            list.add(new ScanRequest().withTableName(TABLE).withSegment(segment));
+        }
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        EasyMock.makeThreadSafe(mockClient, true);
+        EasyMock.expect(mockClient.scan(EasyMock.anyObject(ScanRequest.class)))
+                .andAnswer(new IAnswer<ScanResult>() {
+                    @Override
+                    public ScanResult answer() throws Throwable {
+                        int current = inFlight.incrementAndGet();
+                        maxInFlight.set(Math.max(maxInFlight.get(), current));
+                        Thread.sleep(5);
+                        inFlight.decrementAndGet();
+                        return new ScanResult();
+                    }
+                }).times(4);
+        EasyMock.replay(mockClient);
+
+        ParallelScanTask testTask = new ParallelScanTask(mockClient, list, null, 1);
+        assertEquals(4, testTask.getNextBatchOfScanResults().size());
+
+        EasyMock.verify(mockClient);
+        assertTrue(testTask.isAllSegmentScanFinished());
+        assertEquals(1, maxInFlight.get());
+    }
 }
@@ -16,8 +16,11 @@
 package com.amazonaws.services.dynamodbv2;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.amazonaws.*;
+import com.amazonaws.async.*;
 import com.amazonaws.auth.*;
 import com.amazonaws.handlers.*;
 import com.amazonaws.http.*;
@@ -5234,6 +5237,116 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
     private <X, Y extends AmazonWebServiceRequest> Response<X> invoke(Request<Y> request,
             HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
             ExecutionContext executionContext) {
+        prepareToInvoke(request, executionContext);
+        JsonErrorResponseHandler errorResponseHandler = new JsonErrorResponseHandler(
+                jsonErrorUnmarshallers);
+        Response<X> result = client.execute(request, responseHandler,
+                errorResponseHandler, executionContext);
+        return result;
+    }
+
+    /**
+     * Runs the request on the executor like the synchronous operations do,
+     * but schedules its retries instead of sleeping between them, so no thread
+     * of the executor is blocked while the request backs off.
+     */
+    <X, Y extends AmazonWebServiceRequest> Future<X> invokeAsync(final Y originalRequest,
+            final Marshaller<Request<Y>, Y> marshaller,
+            final Unmarshaller<X, JsonUnmarshallerContext> unmarshaller,
+            final ExecutorService executorService,
+            final AsyncHandler<Y, X> asyncHandler) {
+        final CompletionFuture<X> future = new CompletionFuture<X>();
+        executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isCancelled()) {
+                    return;
+                }
+                final ExecutionContext executionContext = createExecutionContext(originalRequest);
+                final AWSRequestMetrics awsRequestMetrics = executionContext
+                        .getAwsRequestMetrics();
+                awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+                Request<Y> request = null;
+                final CompletionFuture<Response<X>> execution;
+                try {
+                    awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+                    try {
+                        request = marshaller.marshall(originalRequest);
+                        // Binds the request metrics to the current request.
+                        request.setAWSRequestMetrics(awsRequestMetrics);
+                    } finally {
+                        awsRequestMetrics.endEvent(Field.RequestMarshallTime);
+                    }
+                    prepareToInvoke(request, executionContext);
+                    execution = client.executeAsync(request,
+                            new JsonResponseHandler<X>(unmarshaller),
+                            new JsonErrorResponseHandler(jsonErrorUnmarshallers),
+                            executionContext, executorService);
+                } catch (Exception e) {
+                    awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                    endClientExecution(awsRequestMetrics, request, null,
+                            LOGGING_AWS_REQUEST_METRIC);
+                    failAsync(future, asyncHandler, e);
+                    return;
+                }
+
+                final Request<Y> marshalledRequest = request;
+                execution.addCallback(new Callback<Response<X>>() {
+                    @Override
+                    public void onResult(Response<X> response) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, marshalledRequest, response,
+                                LOGGING_AWS_REQUEST_METRIC);
+                        X result = response.getAwsResponse();
+                        if (asyncHandler != null) {
+                            try {
+                                asyncHandler.onSuccess(originalRequest, result);
+                            } catch (RuntimeException e) {
+                                future.setException(e);
+                                return;
+                            }
+                        }
+                        future.setResult(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, marshalledRequest, null,
+                                LOGGING_AWS_REQUEST_METRIC);
+                        failAsync(future, asyncHandler, e);
+                    }
+                });
+                // stop retrying once the caller cancels
+                future.addCallback(new Callback<X>() {
+                    @Override
+                    public void onResult(X result) {
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (future.isCancelled()) {
+                            execution.cancel(false);
+                        }
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    private static <X, Y extends AmazonWebServiceRequest> void failAsync(
+            CompletionFuture<X> future, AsyncHandler<Y, X> asyncHandler, Exception e) {
+        try {
+            if (asyncHandler != null && !future.isCancelled()) {
+                asyncHandler.onError(e);
+            }
+        } finally {
+            future.setException(e);
+        }
+    }
+
+    private void prepareToInvoke(Request<?> request, ExecutionContext executionContext) {
         request.setEndpoint(endpoint);
         request.setTimeOffset(timeOffset);
 
@@ -5252,10 +5365,5 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
         }
 
         executionContext.setCredentials(credentials);
-        JsonErrorResponseHandler errorResponseHandler = new JsonErrorResponseHandler(
-                jsonErrorUnmarshallers);
-        Response<X> result = client.execute(request, responseHandler,
-                errorResponseHandler, executionContext);
-        return result;
     }
 }
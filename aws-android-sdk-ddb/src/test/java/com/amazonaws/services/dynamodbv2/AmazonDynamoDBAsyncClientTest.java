@@ -0,0 +1,227 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.dynamodbv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AmazonDynamoDBAsyncClientTest {
+
+    private static final long BACKOFF_MILLIS = 500;
+
+    private StubHttpClient httpClient;
+    private ExecutorService executor;
+    private AmazonDynamoDBAsyncClient client;
+
+    @Before
+    public void setUp() {
+        httpClient = new StubHttpClient();
+        executor = Executors.newSingleThreadExecutor();
+        client = new AmazonDynamoDBAsyncClient(newCredentialsProvider(), newConfiguration(),
+                httpClient, executor);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void testPutItemAsyncCompletesFutureAndHandler() throws Exception {
+        httpClient.respond(200, "{\"ConsumedCapacity\":{\"TableName\":\"table\"}}");
+        RecordingHandler handler = new RecordingHandler();
+
+        Future<PutItemResult> future = client.putItemAsync(newPutItemRequest(), handler);
+        PutItemResult result = future.get(5, TimeUnit.SECONDS);
+
+        assertEquals("table", result.getConsumedCapacity().getTableName());
+        assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+        assertSame(result, handler.result.get());
+        assertEquals(1, httpClient.calls.get());
+    }
+
+    @Test
+    public void testPutItemAsyncDoesNotCallPutItem() throws Exception {
+        client.shutdown();
+        executor = Executors.newSingleThreadExecutor();
+        client = new AmazonDynamoDBAsyncClient(newCredentialsProvider(), newConfiguration(),
+                httpClient, executor) {
+            @Override
+            public PutItemResult putItem(PutItemRequest putItemRequest) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        httpClient.respond(200, "{}");
+
+        assertNotNull(client.putItemAsync(newPutItemRequest()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testServiceErrorFailsFutureAndHandler() throws Exception {
+        httpClient.respond(400, "{\"__type\":\"com.amazon.coral.validate#ValidationException\","
+                + "\"message\":\"bad item\"}");
+        RecordingHandler handler = new RecordingHandler();
+
+        Future<PutItemResult> future = client.putItemAsync(newPutItemRequest(), handler);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected the request to fail");
+        } catch (ExecutionException e) {
+            AmazonServiceException ase = (AmazonServiceException) e.getCause();
+            assertEquals("ValidationException", ase.getErrorCode());
+            assertEquals(400, ase.getStatusCode());
+        }
+        assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+        assertTrue(handler.error.get() instanceof AmazonServiceException);
+        assertEquals(1, httpClient.calls.get());
+    }
+
+    @Test
+    public void testRetryBackoffDoesNotHoldExecutor() throws Exception {
+        httpClient.respond(500, "{\"__type\":\"com.amazonaws.dynamodb.v20120810#"
+                + "InternalServerError\",\"message\":\"try again\"}");
+        httpClient.respond(200, "{}");
+
+        Future<PutItemResult> future = client.putItemAsync(newPutItemRequest());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (httpClient.calls.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, httpClient.calls.get());
+
+        // the only executor thread must be free while the retry backs off
+        Future<Boolean> other = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return Boolean.TRUE;
+            }
+        });
+        assertTrue(other.get(BACKOFF_MILLIS / 2, TimeUnit.MILLISECONDS));
+        assertFalse(future.isDone());
+
+        assertNotNull(future.get(5, TimeUnit.SECONDS));
+        assertEquals(2, httpClient.calls.get());
+    }
+
+    private static StaticCredentialsProvider newCredentialsProvider() {
+        return new StaticCredentialsProvider(new BasicAWSCredentials("access", "secret"));
+    }
+
+    private static ClientConfiguration newConfiguration() {
+        RetryPolicy.BackoffStrategy fixedBackoff = new RetryPolicy.BackoffStrategy() {
+            @Override
+            public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+                    AmazonClientException exception, int retriesAttempted) {
+                return BACKOFF_MILLIS;
+            }
+        };
+        return new ClientConfiguration().withRetryPolicy(new RetryPolicy(
+                PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION, fixedBackoff, 3, false));
+    }
+
+    private static PutItemRequest newPutItemRequest() {
+        return new PutItemRequest().withTableName("table")
+                .addItemEntry("id", new AttributeValue().withS("1"));
+    }
+
+    private static final class RecordingHandler
+            implements AsyncHandler<PutItemRequest, PutItemResult> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicReference<PutItemResult> result = new AtomicReference<PutItemResult>();
+        private final AtomicReference<Exception> error = new AtomicReference<Exception>();
+
+        @Override
+        public void onSuccess(PutItemRequest request, PutItemResult putItemResult) {
+            result.set(putItemResult);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            error.set(exception);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Answers requests with canned responses, in order.
+     */
+    private static final class StubHttpClient implements HttpClient {
+        private final ConcurrentLinkedQueue<HttpResponse> responses =
+                new ConcurrentLinkedQueue<HttpResponse>();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        void respond(int statusCode, String body) {
+            responses.add(HttpResponse.builder()
+                    .statusCode(statusCode)
+                    .statusText(statusCode == 200 ? "OK" : "Error")
+                    .content(new ByteArrayInputStream(body.getBytes(StringUtils.UTF8)))
+                    .build());
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            HttpResponse response = responses.poll();
+            if (response == null) {
+                throw new IOException("no response left");
+            }
+            calls.incrementAndGet();
+            return response;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -40,16 +40,22 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.UnrecoverableKeyException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Map;
 
 import javax.net.SocketFactory;
@@ -120,11 +126,22 @@ public class AWSIotMqttManager {
      * to proved per-topic message arrived callbacks.
      */
     private final Map<String, AWSIotMqttTopic> topicListeners;
+    /**
+     * Index of the MQTT subscriptions by topic level, used to dispatch
+     * arrived messages.
+     */
+    private final TopicFilterTrie topicTrie = new TopicFilterTrie();
     /**
      * Queue for messages attempted to publish while MQTT client was offline.
      * Republished upon reconnect.
      */
-    private final ConcurrentLinkedQueue<AWSIotMqttQueueMessage> mqttMessageQueue;
+    private Queue<AWSIotMqttQueueMessage> mqttMessageQueue;
+    /** File backed offline queue, null while queueing in memory. */
+    private AWSIotMqttPersistentQueue persistentMessageQueue;
+    /** Guards removals from the offline queue while it is drained adaptively. */
+    private final Object drainLock = new Object();
+    /** Is a fallback drain of the offline queue scheduled? */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
     /** KeepAlive interval specified by the user. */
     private int userKeepAlive;
     /** MQTT Will parameters. */
@@ -150,10 +167,14 @@ public class AWSIotMqttManager {
     private boolean offlinePublishQueueEnabled;
     /** Offline publish queue bound. */
     private Integer offlinePublishQueueBound;
+    /** Offline publish queue bound in bytes, null if unbounded. */
+    private Long offlinePublishQueueByteBound;
     /** Full queue behavior (keep oldest or keep newest)? */
     private boolean fullQueueKeepsOldest;
     /** Milliseconds between publishes when publishing queued messages (draining interval). */
     private long drainingInterval;
+    /** Is the offline queue drained as fast as the in-flight window allows? */
+    private boolean adaptiveDrainingEnabled;
     /** Was this disconnect requested by the user? */
     private boolean userDisconnect;
     /** Do we need to resubscribe upon reconnecting? */
@@ -482,6 +503,119 @@ public class AWSIotMqttManager {
         offlinePublishQueueBound = bound;
     }
 
+    /**
+     * Get the current value of the offline message queue byte bound.
+     *
+     * @return max total size in bytes of the topics and payloads stored in the
+     *         message queue, or null if unbounded.
+     */
+    public Long getOfflinePublishQueueByteBound() {
+        return offlinePublishQueueByteBound;
+    }
+
+    /**
+     * Set the bound for the total size of the messages queued while offline.
+     * The size of a message is the length of its topic plus its payload. The
+     * byte bound applies on top of the message count bound and is only
+     * enforced for a persistent queue, see
+     * {@link #setOfflinePublishQueueDirectory(File)}.
+     *
+     * @param bound max total size in bytes, or null for no byte bound.
+     */
+    public void setOfflinePublishQueueByteBound(Long bound) {
+        if (bound != null && bound <= 0) {
+            throw new IllegalArgumentException("Offline queue byte bound must be > 0");
+        }
+        offlinePublishQueueByteBound = bound;
+    }
+
+    /**
+     * Keep the offline publish queue in files in the given directory instead
+     * of in memory, so messages queued while offline survive a restart of the
+     * application and are published after the next connect. Delivery callbacks
+     * are not persisted; messages restored from a previous process are
+     * published without one. Must be called before connect.
+     * <p>
+     * Messages already queued are moved to the new queue within its bounds
+     * and removed from the previous one. Setting the current directory again
+     * has no effect.
+     *
+     * @param directory directory of the queue files, or null to queue in
+     *            memory.
+     */
+    public void setOfflinePublishQueueDirectory(File directory) {
+        synchronized (drainLock) {
+            final File currentDirectory = persistentMessageQueue == null ? null
+                    : persistentMessageQueue.getDirectory();
+            if (directory == null ? currentDirectory == null
+                    : currentDirectory != null && directory.getAbsoluteFile().equals(currentDirectory)) {
+                return;
+            }
+
+            final Queue<AWSIotMqttQueueMessage> queue;
+            AWSIotMqttPersistentQueue persistentQueue = null;
+            if (directory != null) {
+                try {
+                    persistentQueue = new AWSIotMqttPersistentQueue(directory);
+                } catch (final IOException e) {
+                    throw new AmazonClientException("Failed to open offline publish queue.", e);
+                }
+                queue = persistentQueue;
+            } else {
+                queue = new ConcurrentLinkedQueue<AWSIotMqttQueueMessage>();
+            }
+
+            final List<AWSIotMqttQueueMessage> messages =
+                    new ArrayList<AWSIotMqttQueueMessage>(mqttMessageQueue);
+            mqttMessageQueue.clear();
+            if (persistentMessageQueue != null) {
+                persistentMessageQueue.close();
+            }
+            persistentMessageQueue = persistentQueue;
+            mqttMessageQueue = queue;
+            moveQueuedMessages(messages);
+        }
+    }
+
+    /**
+     * Queues the given messages in the current queue, enforcing its bounds.
+     */
+    private void moveQueuedMessages(List<AWSIotMqttQueueMessage> messages) {
+        for (final AWSIotMqttQueueMessage message : messages) {
+            try {
+                queueMessage(message);
+            } catch (final AmazonClientException e) {
+                // the message has no callback to notify, it is dropped
+                LOGGER.warn("Dropped an offline message while moving the queue: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Is the offline queue drained adaptively?
+     *
+     * @return true if queued messages are published as soon as the client has
+     *         room for more in-flight messages, false if they are published
+     *         one per draining interval.
+     */
+    public boolean isAdaptiveDrainingEnabled() {
+        return adaptiveDrainingEnabled;
+    }
+
+    /**
+     * Drain the offline queue adaptively. When enabled, queued messages are
+     * published as long as the MQTT client has fewer than the maximum number
+     * of in-flight messages outstanding, and draining continues whenever a
+     * delivery completes. The draining interval is then only used to retry
+     * when no delivery completes. Default is disabled.
+     *
+     * @param enabled true to drain adaptively, false to publish one queued
+     *            message per draining interval.
+     */
+    public void setAdaptiveDrainingEnabled(boolean enabled) {
+        adaptiveDrainingEnabled = enabled;
+    }
+
     /**
      * Get the "draining interval" (the time between publish messages are sent from the offline queue when reconnected).
      * @return long containing the number of milliseconds between publishes.
@@ -584,7 +718,7 @@ public class AWSIotMqttManager {
      *
      * @return offline message queue.
      */
-    ConcurrentLinkedQueue<AWSIotMqttQueueMessage> getMqttMessageQueue() {
+    Queue<AWSIotMqttQueueMessage> getMqttMessageQueue() {
         return mqttMessageQueue;
     }
 
@@ -1034,7 +1168,10 @@ public class AWSIotMqttManager {
             ", username: " + options.getUserName());
 
         topicListeners.clear();
-        mqttMessageQueue.clear();
+        topicTrie.clear();
+        if (persistentMessageQueue == null) {
+            mqttMessageQueue.clear();
+        }
 
         resetReconnect();
         userDisconnect = false;
@@ -1125,6 +1262,7 @@ public class AWSIotMqttManager {
         userDisconnect = true;
         reset();
         topicListeners.clear();
+        topicTrie.clear();
         connectionState = MqttManagerConnectionState.Disconnected;
         userConnectionCallback();
         return true;
@@ -1358,6 +1496,7 @@ public class AWSIotMqttManager {
             }
             final AWSIotMqttTopic topicModel = new AWSIotMqttTopic(topic, qos, callback);
             topicListeners.put(topic, topicModel);
+            topicTrie.put(topic, topicModel);
         }
     }
 
@@ -1379,6 +1518,7 @@ public class AWSIotMqttManager {
                 throw new AmazonClientException("Client error while unsubscribing.", e);
             }
             topicListeners.remove(topic);
+            topicTrie.remove(topic);
         }
     }
 
@@ -1531,13 +1671,19 @@ public class AWSIotMqttManager {
      */
     void putMessageInQueueAndNotify(byte[] data, String topic, AWSIotMqttQos qos,
                                     PublishMessageUserData publishMessageUserData) {
-        final AWSIotMqttQueueMessage message = new AWSIotMqttQueueMessage(topic, data, qos, publishMessageUserData);
+        queueMessage(new AWSIotMqttQueueMessage(topic, data, qos, publishMessageUserData));
+    }
+
+    private void queueMessage(AWSIotMqttQueueMessage message) {
+        if (persistentMessageQueue != null) {
+            putMessageInPersistentQueueAndNotify(message);
+            return;
+        }
 
         if (mqttMessageQueue.size() >= offlinePublishQueueBound) {
             if (fullQueueKeepsOldest) {
-                notifyPublishResult(publishMessageUserData.getUserCallback(), AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
-                        publishMessageUserData.getUserData(),
-                        new AmazonClientException("Failed to publish the message. Queue is full and set to hold onto the oldest messages."));
+                notifyQueueingFailure(message,
+                        "Failed to publish the message. Queue is full and set to hold onto the oldest messages.");
                 return;
             } else {
                 mqttMessageQueue.remove(0);
@@ -1547,28 +1693,61 @@ public class AWSIotMqttManager {
         mqttMessageQueue.add(message);
     }
 
+    /**
+     * Add a message to the persistent publishing queue, enforcing both the
+     * message count and the byte bound.
+     *
+     * @param message the message to queue.
+     */
+    private void putMessageInPersistentQueueAndNotify(AWSIotMqttQueueMessage message) {
+        final long messageSize = AWSIotMqttPersistentQueue.messageSize(message);
+        if (offlinePublishQueueByteBound != null && messageSize > offlinePublishQueueByteBound) {
+            notifyQueueingFailure(message,
+                    "Failed to publish the message. Message exceeds the queue byte bound.");
+            return;
+        }
+
+        synchronized (drainLock) {
+            while (isPersistentQueueFull(messageSize)) {
+                if (fullQueueKeepsOldest) {
+                    notifyQueueingFailure(message,
+                            "Failed to publish the message. Queue is full and set to hold onto the oldest messages.");
+                    return;
+                }
+                persistentMessageQueue.poll();
+            }
+            if (!persistentMessageQueue.offer(message)) {
+                notifyQueueingFailure(message,
+                        "Failed to publish the message. Message could not be queued.");
+            }
+        }
+    }
+
+    private boolean isPersistentQueueFull(long messageSize) {
+        if (persistentMessageQueue.isEmpty()) {
+            return false;
+        }
+        return persistentMessageQueue.size() >= offlinePublishQueueBound
+                || (offlinePublishQueueByteBound != null
+                        && persistentMessageQueue.getSizeInBytes() + messageSize > offlinePublishQueueByteBound);
+    }
+
     /**
      * Publish messages from the message queue.
      * Called to handle publishing messages accumulated in the message queue when the client was unable to publish.
      */
     void publishMessagesFromQueue() {
+        if (adaptiveDrainingEnabled) {
+            drainMessagesFromQueue();
+            return;
+        }
         if (connectionState == MqttManagerConnectionState.Connected &&
             mqttMessageQueue != null &&
             !mqttMessageQueue.isEmpty()) {
             final AWSIotMqttQueueMessage message = mqttMessageQueue.poll();
             if (message != null) {
                 try {
-                    if (message.getUserData() != null && message.getUserData().getUserCallback() != null) {
-                        // this queued message has a callback, publish passing the user data
-                        mqttClient
-                                .publish(message.getTopic(), message.getMessage(), message.getQos()
-                                        .asInt(), false, message.getUserData(), null);
-                    } else {
-                        // this queued message does not have a callback
-                        mqttClient
-                                .publish(message.getTopic(), message.getMessage(), message.getQos()
-                                        .asInt(), false);
-                    }
+                    publishQueuedMessage(message);
                 } catch (final MqttException e) {
                     // Call this message a failure.  It is possible that this is due to a
                     // connection issue (we are in this path because the connection dropped),
@@ -1576,10 +1755,7 @@ public class AWSIotMqttManager {
                     // such that publishing this message would never succeed.  It is safer to
                     // remove the message from the queue and notify failure than to block
                     // the queue indefinitely.
-                    notifyPublishResult(message.getUserData().getUserCallback(),
-                            AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
-                            message.getUserData().getUserData(),
-                            new AmazonClientException("Client error while publishing.", e));
+                    notifyQueuedMessageFailure(message, e);
                 }
             }
 
@@ -1596,6 +1772,88 @@ public class AWSIotMqttManager {
         }
     }
 
+    /**
+     * Publish queued messages while the MQTT client has room for more in-flight
+     * messages. Draining resumes from deliveryComplete as in-flight messages
+     * are acknowledged; a drain after the draining interval covers the case
+     * where no delivery completes, e.g. with only QoS 0 messages queued.
+     */
+    void drainMessagesFromQueue() {
+        synchronized (drainLock) {
+            while (connectionState == MqttManagerConnectionState.Connected
+                    && mqttClient.getPendingDeliveryTokens().length < MqttConnectOptions.MAX_INFLIGHT_DEFAULT) {
+                // peek, as the message stays queued if the client has no room for it;
+                // the persistent queue keeps the peeked record for the poll below
+                final AWSIotMqttQueueMessage message = mqttMessageQueue.peek();
+                if (message == null) {
+                    break;
+                }
+                try {
+                    publishQueuedMessage(message);
+                } catch (final MqttException e) {
+                    if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT) {
+                        // keep the message queued until a delivery completes
+                        break;
+                    }
+                    notifyQueuedMessageFailure(message, e);
+                }
+                mqttMessageQueue.poll();
+            }
+        }
+
+        if (!mqttMessageQueue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            (new Handler(Looper.getMainLooper())).postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    drainScheduled.set(false);
+                    if (!mqttMessageQueue.isEmpty()) {
+                        if (connectionState == MqttManagerConnectionState.Connected) {
+                            drainMessagesFromQueue();
+                        }
+                    }
+                }
+            }, drainingInterval);
+        }
+    }
+
+    private void publishQueuedMessage(AWSIotMqttQueueMessage message) throws MqttException {
+        if (message.getUserData() != null && message.getUserData().getUserCallback() != null) {
+            // this queued message has a callback, publish passing the user data
+            mqttClient
+                    .publish(message.getTopic(), message.getMessage(), message.getQos()
+                            .asInt(), false, message.getUserData(), null);
+        } else {
+            // this queued message does not have a callback
+            mqttClient
+                    .publish(message.getTopic(), message.getMessage(), message.getQos()
+                            .asInt(), false);
+        }
+    }
+
+    /**
+     * Notifies the callback of a message that could not be queued, or throws
+     * if the message has no callback.
+     */
+    private void notifyQueueingFailure(AWSIotMqttQueueMessage message, String reason) {
+        final PublishMessageUserData userData = message.getUserData();
+        notifyPublishResult(userData == null ? null : userData.getUserCallback(),
+                AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                userData == null ? null : userData.getUserData(),
+                new AmazonClientException(reason));
+    }
+
+    private void notifyQueuedMessageFailure(AWSIotMqttQueueMessage message, MqttException e) {
+        if (message.getUserData() != null) {
+            notifyPublishResult(message.getUserData().getUserCallback(),
+                    AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                    message.getUserData().getUserData(),
+                    new AmazonClientException("Client error while publishing.", e));
+        } else {
+            // restored from a persistent queue, there is no callback to notify
+            LOGGER.error("Client error while publishing queued message.", e);
+        }
+    }
+
     /**
      * Setup the MQTT client calbacks. The Paho MQTT client exposes callbacks
      * for connection status, publish status and incoming messages. The Android
@@ -1626,14 +1884,9 @@ public class AWSIotMqttManager {
                 LOGGER.info("message arrived on topic: " + topic);
                 final byte[] data = mqttMessage.getPayload();
 
-                for (final String topicKey : topicListeners.keySet()) {
-                    if (isTopicMatch(topicKey, topic)) {
-                        final AWSIotMqttTopic topicModel = topicListeners.get(topicKey);
-                        if (topicModel != null) {
-                            if (topicModel.getCallback() != null) {
-                                topicModel.getCallback().onMessageArrived(topic, data);
-                            }
-                        }
+                for (final AWSIotMqttTopic topicModel : topicTrie.match(topic)) {
+                    if (topicModel.getCallback() != null) {
+                        topicModel.getCallback().onMessageArrived(topic, data);
                     }
                 }
             }
@@ -1650,6 +1903,9 @@ public class AWSIotMqttManager {
                                 pmud.getUserData(), null);
                     }
                 }
+                if (adaptiveDrainingEnabled && !mqttMessageQueue.isEmpty()) {
+                    drainMessagesFromQueue();
+                }
             }
         });
     }
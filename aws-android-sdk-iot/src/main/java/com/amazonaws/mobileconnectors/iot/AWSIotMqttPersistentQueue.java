@@ -0,0 +1,361 @@
+/**
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A file backed queue for messages published while the client is offline, so
+ * queued messages survive a process restart. Messages are appended to a queue
+ * file as length-prefixed, CRC-checked records and the offset of the oldest
+ * message is kept in a separate head file, so removing a message doesn't
+ * rewrite the queue file. The consumed part of the queue file is reclaimed
+ * once it makes up most of the file.
+ * <p>
+ * Delivery callbacks can't be persisted. They are kept in memory for the
+ * messages queued by this process only; messages restored from disk are
+ * published without a callback.
+ */
+class AWSIotMqttPersistentQueue extends AbstractQueue<AWSIotMqttQueueMessage> {
+    private static final Log LOGGER = LogFactory.getLog(AWSIotMqttPersistentQueue.class);
+
+    private static final String QUEUE_FILE_NAME = "awsiot_offline_publish_queue";
+    private static final String HEAD_FILE_SUFFIX = ".head";
+    /** Record length and CRC32 precede every record. */
+    private static final int RECORD_HEADER_SIZE = 8;
+    /** Sequence number, QoS and topic length precede the topic and payload. */
+    private static final int RECORD_FIXED_SIZE = 8 + 1 + 2;
+    /** Consumed bytes of the queue file that are reclaimed at the earliest. */
+    private static final long COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+
+    private final File directory;
+    private final File queueFile;
+    private final File headFile;
+    private final RandomAccessFile queue;
+    private final RandomAccessFile head;
+
+    /** Offset of the oldest message in the queue file. */
+    private long headOffset;
+    /** The record at the head offset once read, so poll after peek doesn't read it again. */
+    private Record headRecord;
+    private int count;
+    /** Sum of the topic and payload sizes of the queued messages. */
+    private long sizeInBytes;
+    private long nextSequence;
+    /** Delivery user data of the messages queued by this process. */
+    private final Map<Long, PublishMessageUserData> userData = new HashMap<Long, PublishMessageUserData>();
+
+    /**
+     * Opens the queue in the given directory and restores the messages left
+     * by a previous process.
+     *
+     * @param directory directory of the queue files.
+     * @throws IOException if the queue files can't be opened.
+     */
+    AWSIotMqttPersistentQueue(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory " + directory);
+        }
+        this.directory = directory.getAbsoluteFile();
+        queueFile = new File(directory, QUEUE_FILE_NAME);
+        headFile = new File(directory, QUEUE_FILE_NAME + HEAD_FILE_SUFFIX);
+        queue = new RandomAccessFile(queueFile, "rw");
+        head = new RandomAccessFile(headFile, "rw");
+        restore();
+    }
+
+    @Override
+    public synchronized boolean offer(AWSIotMqttQueueMessage message) {
+        final long sequence = nextSequence++;
+        final byte[] record = encode(sequence, message);
+        try {
+            queue.seek(queue.length());
+            queue.write(record);
+        } catch (final IOException e) {
+            LOGGER.error("Failed to persist offline message.", e);
+            return false;
+        }
+        if (message.getUserData() != null) {
+            userData.put(sequence, message.getUserData());
+        }
+        count++;
+        sizeInBytes += messageSize(message);
+        return true;
+    }
+
+    @Override
+    public synchronized AWSIotMqttQueueMessage poll() {
+        final Record record = readHead();
+        if (record == null) {
+            return null;
+        }
+        headRecord = null;
+        count--;
+        sizeInBytes -= record.size;
+        userData.remove(record.sequence);
+        try {
+            if (count == 0) {
+                // nothing left to keep, start over with an empty file
+                queue.setLength(0);
+                writeHead(0);
+            } else if (record.nextOffset >= COMPACTION_THRESHOLD_BYTES
+                    && record.nextOffset > queue.length() / 2) {
+                compact(record.nextOffset);
+            } else {
+                writeHead(record.nextOffset);
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Failed to persist offline queue head.", e);
+            headOffset = record.nextOffset;
+        }
+        return record.message;
+    }
+
+    @Override
+    public synchronized AWSIotMqttQueueMessage peek() {
+        final Record record = readHead();
+        return record == null ? null : record.message;
+    }
+
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    @Override
+    public synchronized void clear() {
+        try {
+            queue.setLength(0);
+            writeHead(0);
+        } catch (final IOException e) {
+            LOGGER.error("Failed to clear offline queue.", e);
+        }
+        headRecord = null;
+        count = 0;
+        sizeInBytes = 0;
+        userData.clear();
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the queued messages.
+     *
+     * @return an iterator that doesn't support removal.
+     */
+    @Override
+    public synchronized Iterator<AWSIotMqttQueueMessage> iterator() {
+        final List<AWSIotMqttQueueMessage> messages = new ArrayList<AWSIotMqttQueueMessage>(count);
+        long offset = headOffset;
+        Record record;
+        while ((record = read(offset)) != null) {
+            messages.add(record.message);
+            offset = record.nextOffset;
+        }
+        return Collections.unmodifiableList(messages).iterator();
+    }
+
+    /**
+     * @return the absolute directory of the queue files.
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the total size of the queued messages.
+     *
+     * @return sum of the topic and payload sizes in bytes.
+     */
+    synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Closes the queue files. Queued messages stay on disk.
+     */
+    synchronized void close() {
+        try {
+            queue.close();
+            head.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to close offline queue.", e);
+        }
+    }
+
+    /**
+     * Size of a message counted against the byte bound of the queue.
+     *
+     * @param message a queued message.
+     * @return size of the topic and payload in bytes.
+     */
+    static long messageSize(AWSIotMqttQueueMessage message) {
+        return message.getTopic().getBytes(StringUtils.UTF8).length
+                + message.getMessage().length;
+    }
+
+    private void restore() throws IOException {
+        if (head.length() >= 8) {
+            head.seek(0);
+            headOffset = head.readLong();
+        }
+        if (headOffset < 0 || headOffset > queue.length()) {
+            // the queue file was truncated or compacted before the head was
+            // reset, its content starts at the beginning
+            writeHead(0);
+        }
+
+        long offset = headOffset;
+        Record record;
+        while ((record = read(offset)) != null) {
+            count++;
+            sizeInBytes += record.size;
+            nextSequence = Math.max(nextSequence, record.sequence + 1);
+            offset = record.nextOffset;
+        }
+        if (offset < queue.length()) {
+            // drop a record torn by a crash and anything behind it
+            LOGGER.warn("Truncating corrupted offline queue at " + offset);
+            queue.setLength(offset);
+        }
+    }
+
+    private void writeHead(long offset) throws IOException {
+        headRecord = null;
+        headOffset = offset;
+        head.seek(0);
+        head.writeLong(offset);
+    }
+
+    /**
+     * Moves the messages after the given offset to the start of the queue
+     * file. The moved messages are shorter than the consumed part, so they
+     * never overwrite themselves, and the head keeps pointing at them until
+     * the file is truncated.
+     */
+    private void compact(long offset) throws IOException {
+        final byte[] remaining = new byte[(int) (queue.length() - offset)];
+        queue.seek(offset);
+        queue.readFully(remaining);
+        writeHead(offset);
+        queue.seek(0);
+        queue.write(remaining);
+        queue.setLength(remaining.length);
+        writeHead(0);
+    }
+
+    private Record readHead() {
+        if (headRecord == null) {
+            headRecord = read(headOffset);
+        }
+        return headRecord;
+    }
+
+    /**
+     * Reads the record at the given offset.
+     *
+     * @return the record, or null at the end of the queue or if the record is
+     *         corrupted.
+     */
+    private Record read(long offset) {
+        try {
+            final long length = queue.length();
+            if (offset + RECORD_HEADER_SIZE > length) {
+                return null;
+            }
+            queue.seek(offset);
+            final int recordLength = queue.readInt();
+            final int checksum = queue.readInt();
+            if (recordLength < RECORD_FIXED_SIZE
+                    || offset + RECORD_HEADER_SIZE + recordLength > length) {
+                return null;
+            }
+            final byte[] body = new byte[recordLength];
+            queue.readFully(body);
+            final CRC32 crc = new CRC32();
+            crc.update(body, 0, body.length);
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(body);
+            final long sequence = buffer.getLong();
+            final AWSIotMqttQos qos = buffer.get() == 0 ? AWSIotMqttQos.QOS0
+                    : AWSIotMqttQos.QOS1;
+            final int topicLength = buffer.getShort() & 0xFFFF;
+            if (topicLength > buffer.remaining()) {
+                return null;
+            }
+            final String topic = new String(body, RECORD_FIXED_SIZE, topicLength,
+                    StringUtils.UTF8);
+            final byte[] payload = new byte[buffer.remaining() - topicLength];
+            System.arraycopy(body, RECORD_FIXED_SIZE + topicLength, payload, 0, payload.length);
+            final AWSIotMqttQueueMessage message = new AWSIotMqttQueueMessage(topic, payload, qos,
+                    userData.get(sequence));
+            return new Record(sequence, message, topicLength + payload.length,
+                    offset + RECORD_HEADER_SIZE + recordLength);
+        } catch (final IOException e) {
+            LOGGER.error("Failed to read offline queue.", e);
+            return null;
+        }
+    }
+
+    private static byte[] encode(long sequence, AWSIotMqttQueueMessage message) {
+        final byte[] topic = message.getTopic().getBytes(StringUtils.UTF8);
+        final byte[] payload = message.getMessage();
+        final int recordLength = RECORD_FIXED_SIZE + topic.length + payload.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + recordLength);
+        buffer.putInt(recordLength);
+        buffer.putInt(0);
+        buffer.putLong(sequence);
+        buffer.put((byte) message.getQos().asInt());
+        buffer.putShort((short) topic.length);
+        buffer.put(topic);
+        buffer.put(payload);
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, recordLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static class Record {
+        private final long sequence;
+        private final AWSIotMqttQueueMessage message;
+        /** Size of the topic and payload in bytes. */
+        private final long size;
+        private final long nextOffset;
+
+        Record(long sequence, AWSIotMqttQueueMessage message, long size, long nextOffset) {
+            this.sequence = sequence;
+            this.message = message;
+            this.size = size;
+            this.nextOffset = nextOffset;
+        }
+    }
+}
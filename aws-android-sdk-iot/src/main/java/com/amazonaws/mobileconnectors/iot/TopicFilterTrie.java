@@ -0,0 +1,145 @@
+/**
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Trie of MQTT topic filters keyed by topic level. Used to find the
+ * subscriptions matching the topic of an inbound message without testing every
+ * topic filter. Levels are split the same way as
+ * {@link AWSIotMqttManager#isTopicMatch(String, String)} does, and a topic
+ * matches exactly the filters that method accepts. Lookups don't lock and may
+ * run concurrently with changes.
+ */
+class TopicFilterTrie {
+    private static final String LEVEL_SEPARATOR = "/";
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    private final Node root = new Node(null, null);
+
+    /**
+     * Adds a subscription, replacing any subscription with the same topic
+     * filter.
+     *
+     * @param topicFilter MQTT topic filter, may include wildcards.
+     * @param subscription subscription of the topic filter.
+     */
+    synchronized void put(String topicFilter, AWSIotMqttTopic subscription) {
+        Node node = root;
+        for (final String level : topicFilter.split(LEVEL_SEPARATOR)) {
+            Node child = node.children.get(level);
+            if (child == null) {
+                child = new Node(node, level);
+                node.children.put(level, child);
+            }
+            node = child;
+        }
+        node.subscription = subscription;
+    }
+
+    /**
+     * Removes the subscription of a topic filter.
+     *
+     * @param topicFilter MQTT topic filter.
+     */
+    synchronized void remove(String topicFilter) {
+        Node node = root;
+        for (final String level : topicFilter.split(LEVEL_SEPARATOR)) {
+            node = node.children.get(level);
+            if (node == null) {
+                return;
+            }
+        }
+        node.subscription = null;
+        // prune the branch that no longer leads to any subscription
+        while (node.parent != null && node.subscription == null && node.children.isEmpty()) {
+            node.parent.children.remove(node.level);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Removes all subscriptions.
+     */
+    synchronized void clear() {
+        root.children.clear();
+        root.subscription = null;
+    }
+
+    /**
+     * Finds the subscriptions whose topic filter matches a topic.
+     *
+     * @param topic the absolute topic (no wildcards) on which a message was
+     *            published.
+     * @return the matching subscriptions.
+     */
+    List<AWSIotMqttTopic> match(String topic) {
+        final List<AWSIotMqttTopic> matches = new ArrayList<AWSIotMqttTopic>();
+        collect(root, topic.split(LEVEL_SEPARATOR), 0, matches);
+        return matches;
+    }
+
+    private static void collect(Node node, String[] levels, int depth,
+            List<AWSIotMqttTopic> matches) {
+        if (depth == levels.length) {
+            addIfSubscribed(node, matches);
+            return;
+        }
+        // '#' matches all levels that are left
+        addIfSubscribed(node.children.get(MULTI_LEVEL_WILDCARD), matches);
+
+        // a literal '#' in the topic is only matched by the wildcard above
+        final Node exact = MULTI_LEVEL_WILDCARD.equals(levels[depth])
+                ? null : node.children.get(levels[depth]);
+        if (exact != null) {
+            collect(exact, levels, depth + 1, matches);
+        }
+        final Node single = node.children.get(SINGLE_LEVEL_WILDCARD);
+        if (single != null && single != exact) {
+            collect(single, levels, depth + 1, matches);
+        }
+    }
+
+    private static void addIfSubscribed(Node node, List<AWSIotMqttTopic> matches) {
+        if (node != null) {
+            final AWSIotMqttTopic subscription = node.subscription;
+            if (subscription != null) {
+                matches.add(subscription);
+            }
+        }
+    }
+
+    /**
+     * A topic level. Holds the subscription of the topic filter ending at
+     * this level, if any.
+     */
+    private static class Node {
+        private final Node parent;
+        private final String level;
+        private final ConcurrentMap<String, Node> children = new ConcurrentHashMap<String, Node>();
+        private volatile AWSIotMqttTopic subscription;
+
+        Node(Node parent, String level) {
+            this.parent = parent;
+            this.level = level;
+        }
+    }
+}
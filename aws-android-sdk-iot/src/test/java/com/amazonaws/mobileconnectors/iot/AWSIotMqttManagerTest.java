@@ -69,6 +69,8 @@ public class AWSIotMqttManagerTest {
     private static final String KEYSTORE_PASSWORD = "test";
     private static final String TEST_ENDPOINT = "ABCDEFG.iot.us-east-1.amazonaws.com";
     private static final String TEST_ENDPOINT_PREFIX = "ABCDEFG";
+    private static final File QUEUE_DIRECTORY_A = new File("AWSIotMqttManagerTestQueueA");
+    private static final File QUEUE_DIRECTORY_B = new File("AWSIotMqttManagerTestQueueB");
 
     @Before
     public void setUp() throws Exception {
@@ -3049,6 +3051,111 @@ public class AWSIotMqttManagerTest {
         String s;
     }
 
+    @Test
+    public void testOfflinePublishQueueDirectorySetTwice() throws Exception {
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        try {
+            testClient.setOfflinePublishQueueDirectory(QUEUE_DIRECTORY_A);
+            queueTestMessages(testClient, 3);
+
+            testClient.setOfflinePublishQueueDirectory(QUEUE_DIRECTORY_A);
+            assertEquals(3, testClient.getMqttMessageQueue().size());
+            checkOfflinePublishingQueue(testClient);
+
+            // the queue file holds each message once
+            testClient.setOfflinePublishQueueDirectory(null);
+            assertEquals(0, storedMessageCount(QUEUE_DIRECTORY_A));
+        } finally {
+            testClient.setOfflinePublishQueueDirectory(null);
+            deleteDirectory(QUEUE_DIRECTORY_A);
+        }
+    }
+
+    @Test
+    public void testOfflinePublishQueueDirectorySwitch() throws Exception {
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        try {
+            testClient.setOfflinePublishQueueDirectory(QUEUE_DIRECTORY_A);
+            queueTestMessages(testClient, 3);
+
+            testClient.setOfflinePublishQueueDirectory(QUEUE_DIRECTORY_B);
+            assertEquals(3, testClient.getMqttMessageQueue().size());
+            checkOfflinePublishingQueue(testClient);
+            assertEquals(0, storedMessageCount(QUEUE_DIRECTORY_A));
+            assertEquals(3, storedMessageCount(QUEUE_DIRECTORY_B));
+        } finally {
+            testClient.setOfflinePublishQueueDirectory(null);
+            deleteDirectory(QUEUE_DIRECTORY_A);
+            deleteDirectory(QUEUE_DIRECTORY_B);
+        }
+    }
+
+    @Test
+    public void testOfflinePublishQueueDirectoryBackToMemory() throws Exception {
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        try {
+            testClient.setOfflinePublishQueueDirectory(QUEUE_DIRECTORY_A);
+            queueTestMessages(testClient, 3);
+
+            testClient.setOfflinePublishQueueDirectory(null);
+            assertFalse(testClient.getMqttMessageQueue() instanceof AWSIotMqttPersistentQueue);
+            assertEquals(3, testClient.getMqttMessageQueue().size());
+            checkOfflinePublishingQueue(testClient);
+            assertEquals(0, storedMessageCount(QUEUE_DIRECTORY_A));
+        } finally {
+            testClient.setOfflinePublishQueueDirectory(null);
+            deleteDirectory(QUEUE_DIRECTORY_A);
+        }
+    }
+
+    @Test
+    public void testOfflinePublishQueueDirectoryMoveKeepsBound() throws Exception {
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        try {
+            queueTestMessages(testClient, 3);
+            testClient.setOfflinePublishQueueBound(2);
+            testClient.setFullQueueToKeepNewestMessages();
+
+            testClient.setOfflinePublishQueueDirectory(QUEUE_DIRECTORY_A);
+            assertEquals(2, testClient.getMqttMessageQueue().size());
+            assertEquals("test payload 1",
+                    new String(testClient.getMqttMessageQueue().peek().getMessage()));
+        } finally {
+            testClient.setOfflinePublishQueueDirectory(null);
+            deleteDirectory(QUEUE_DIRECTORY_A);
+        }
+    }
+
+    private void queueTestMessages(AWSIotMqttManager testClient, int count) {
+        for (int i = 0; i < count; i++) {
+            testClient.putMessageInQueueAndNotify(("test payload " + i).getBytes(StringUtils.UTF8),
+                    "test/topic", AWSIotMqttQos.QOS0, new PublishMessageUserData(null, null));
+        }
+    }
+
+    private int storedMessageCount(File directory) throws Exception {
+        AWSIotMqttPersistentQueue queue = new AWSIotMqttPersistentQueue(directory);
+        try {
+            return queue.size();
+        } finally {
+            queue.close();
+        }
+    }
+
+    private void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
     private class TestAwsCredentialsProvider implements AWSCredentialsProvider {
         @Override
         public AWSCredentials getCredentials() {
@@ -0,0 +1,151 @@
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+
+public class AWSIotMqttPersistentQueueTest {
+
+    private static final File TEST_DIRECTORY = new File("AWSIotMqttPersistentQueueTest");
+
+    AWSIotMqttPersistentQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        queue = new AWSIotMqttPersistentQueue(TEST_DIRECTORY);
+    }
+
+    @After
+    public void tearDown() {
+        queue.close();
+        for (File f : TEST_DIRECTORY.listFiles()) {
+            f.delete();
+        }
+        TEST_DIRECTORY.delete();
+    }
+
+    @Test
+    public void testOfferAndPollInOrder() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(message(i)));
+        }
+        assertEquals(10, queue.size());
+        assertEquals(10 * AWSIotMqttPersistentQueue.messageSize(message(0)), queue.getSizeInBytes());
+
+        assertEquals("topic/0", queue.peek().getTopic());
+        for (int i = 0; i < 10; i++) {
+            AWSIotMqttQueueMessage m = queue.poll();
+            assertEquals("topic/" + i, m.getTopic());
+            assertArrayEquals(("payload " + i).getBytes("UTF-8"), m.getMessage());
+            assertEquals(AWSIotMqttQos.QOS1, m.getQos());
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+        assertEquals(0, queue.getSizeInBytes());
+    }
+
+    @Test
+    public void testMessagesSurviveReopen() throws Exception {
+        PublishMessageUserData userData = new PublishMessageUserData(null, "context");
+        queue.offer(new AWSIotMqttQueueMessage("topic/a", new byte[3], AWSIotMqttQos.QOS0, userData));
+        queue.offer(message(1));
+        queue.offer(message(2));
+        assertSame(userData, queue.peek().getUserData());
+        queue.poll();
+        queue.close();
+
+        queue = new AWSIotMqttPersistentQueue(TEST_DIRECTORY);
+        assertEquals(2, queue.size());
+        AWSIotMqttQueueMessage m = queue.poll();
+        assertEquals("topic/1", m.getTopic());
+        assertNull("callbacks are not persisted", m.getUserData());
+
+        queue.offer(message(3));
+        Iterator<AWSIotMqttQueueMessage> it = queue.iterator();
+        assertEquals("topic/2", it.next().getTopic());
+        assertEquals("topic/3", it.next().getTopic());
+    }
+
+    @Test
+    public void testSizeCountsTopicBytes() throws Exception {
+        AWSIotMqttQueueMessage m = new AWSIotMqttQueueMessage("t\u00f6pic/\u6e29\u5ea6",
+                new byte[10], AWSIotMqttQos.QOS0, null);
+        assertEquals(7 + 6 + 10, AWSIotMqttPersistentQueue.messageSize(m));
+        queue.offer(m);
+        assertEquals(23, queue.getSizeInBytes());
+        queue.close();
+
+        queue = new AWSIotMqttPersistentQueue(TEST_DIRECTORY);
+        assertEquals(23, queue.getSizeInBytes());
+        queue.poll();
+        assertEquals(0, queue.getSizeInBytes());
+    }
+
+    @Test
+    public void testPollReturnsPeekedMessage() throws Exception {
+        queue.offer(message(0));
+        queue.offer(message(1));
+        AWSIotMqttQueueMessage peeked = queue.peek();
+        assertSame(peeked, queue.peek());
+        assertSame(peeked, queue.poll());
+        assertEquals("topic/1", queue.peek().getTopic());
+        queue.clear();
+        assertNull(queue.peek());
+        queue.offer(message(2));
+        assertEquals("topic/2", queue.poll().getTopic());
+    }
+
+    @Test
+    public void testConsumedRecordsAreReclaimed() throws Exception {
+        AWSIotMqttQueueMessage big = new AWSIotMqttQueueMessage("topic/big", new byte[64 * 1024],
+                AWSIotMqttQos.QOS0, null);
+        for (int i = 0; i < 40; i++) {
+            queue.offer(big);
+        }
+        File file = new File(TEST_DIRECTORY, "awsiot_offline_publish_queue");
+        long fullLength = file.length();
+        for (int i = 0; i < 30; i++) {
+            queue.poll();
+        }
+        assertTrue("file compacted", file.length() < fullLength);
+        assertEquals(10, queue.size());
+        queue.close();
+
+        queue = new AWSIotMqttPersistentQueue(TEST_DIRECTORY);
+        assertEquals(10, queue.size());
+        assertEquals("topic/big", queue.peek().getTopic());
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        queue.offer(message(1));
+        queue.offer(message(2));
+        queue.close();
+
+        File file = new File(TEST_DIRECTORY, "awsiot_offline_publish_queue");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        queue = new AWSIotMqttPersistentQueue(TEST_DIRECTORY);
+        assertEquals(1, queue.size());
+        queue.offer(message(3));
+        assertEquals("topic/1", queue.poll().getTopic());
+        assertEquals("topic/3", queue.poll().getTopic());
+    }
+
+    private static AWSIotMqttQueueMessage message(int i) throws Exception {
+        return new AWSIotMqttQueueMessage("topic/" + i, ("payload " + i).getBytes("UTF-8"),
+                AWSIotMqttQos.QOS1, null);
+    }
+}
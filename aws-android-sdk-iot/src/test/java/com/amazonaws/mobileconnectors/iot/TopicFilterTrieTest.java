@@ -0,0 +1,135 @@
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class TopicFilterTrieTest {
+
+    private static final String[] LEVELS = {
+            "a", "b", "c", "+", "#"
+    };
+
+    TopicFilterTrie trie;
+
+    @Before
+    public void setUp() throws Exception {
+        trie = new TopicFilterTrie();
+    }
+
+    @Test
+    public void testMatchesSameTopicsAsIsTopicMatch() throws Exception {
+        Random random = new Random(42);
+        List<String> filters = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            String filter = randomFilter(random);
+            filters.add(filter);
+            trie.put(filter, new AWSIotMqttTopic(filter, AWSIotMqttQos.QOS0, null));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            String topic = randomTopic(random);
+            Set<String> expected = new HashSet<String>();
+            for (String filter : filters) {
+                if (AWSIotMqttManager.isTopicMatch(filter, topic)) {
+                    expected.add(filter);
+                }
+            }
+            Set<String> actual = new HashSet<String>();
+            for (AWSIotMqttTopic subscription : trie.match(topic)) {
+                assertTrue("no duplicate match", actual.add(subscription.getTopic()));
+            }
+            assertEquals(topic, expected, actual);
+        }
+    }
+
+    @Test
+    public void testWildcards() throws Exception {
+        AWSIotMqttTopic exact = put("test/1");
+        AWSIotMqttTopic single = put("test/+");
+        AWSIotMqttTopic multi = put("test/#");
+        AWSIotMqttTopic all = put("#");
+
+        assertEquals(4, trie.match("test/1").size());
+        assertEquals(3, trie.match("test/2").size());
+        List<AWSIotMqttTopic> matches = trie.match("test/1/2");
+        assertEquals(2, matches.size());
+        assertTrue(matches.contains(multi));
+        assertTrue(matches.contains(all));
+        matches = trie.match("test");
+        assertEquals(1, matches.size());
+        assertSame(all, matches.get(0));
+        assertTrue(trie.match("test/1").contains(exact));
+        assertTrue(trie.match("test/1").contains(single));
+    }
+
+    @Test
+    public void testPutReplacesSubscription() throws Exception {
+        put("test/1");
+        AWSIotMqttTopic replacement = put("test/1");
+
+        List<AWSIotMqttTopic> matches = trie.match("test/1");
+        assertEquals(1, matches.size());
+        assertSame(replacement, matches.get(0));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        put("test/1");
+        AWSIotMqttTopic deeper = put("test/1/2");
+
+        trie.remove("test/1");
+        assertEquals(0, trie.match("test/1").size());
+        assertSame(deeper, trie.match("test/1/2").get(0));
+
+        trie.remove("test/1/2");
+        trie.remove("not/subscribed");
+        assertEquals(0, trie.match("test/1/2").size());
+
+        put("test/+");
+        trie.clear();
+        assertEquals(0, trie.match("test/1").size());
+    }
+
+    private AWSIotMqttTopic put(String topicFilter) {
+        AWSIotMqttTopic subscription = new AWSIotMqttTopic(topicFilter, AWSIotMqttQos.QOS0, null);
+        trie.put(topicFilter, subscription);
+        return subscription;
+    }
+
+    private static String randomFilter(Random random) {
+        int length = 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            // '#' is only valid as the last level
+            String level = LEVELS[random.nextInt(i == length - 1 ? LEVELS.length
+                    : LEVELS.length - 1)];
+            sb.append(level);
+        }
+        return sb.toString();
+    }
+
+    private static String randomTopic(Random random) {
+        int length = 1 + random.nextInt(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            sb.append(LEVELS[random.nextInt(3)]);
+        }
+        return sb.toString();
+    }
+}
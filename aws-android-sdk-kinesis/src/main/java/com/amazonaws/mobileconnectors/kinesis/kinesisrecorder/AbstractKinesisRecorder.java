@@ -17,7 +17,8 @@ package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
 
 
 import com.amazonaws.AmazonClientException;
-import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.SegmentedRecordStore.Record;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.SegmentedRecordStore.RecordIterator;
 import com.amazonaws.util.StringUtils;
 
 import com.amazonaws.logging.Log;
@@ -25,7 +26,15 @@ import com.amazonaws.logging.LogFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An abstract class for Amazon Kinesis recorders. It manages local file store
@@ -46,12 +55,31 @@ public abstract class AbstractKinesisRecorder {
      */
     private static final int MAX_BATCH_RECORDS_SIZE_BYTES = 512 * 1024;
 
+    /**
+     * Maximum number of records in a PutRecords or PutRecordBatch request,
+     * used when several batches are kept in flight.
+     */
+    private static final int SERVICE_MAX_RECORDS_PER_BATCH = 500;
+    /**
+     * Maximum size in bytes of records in a request, including their
+     * partition keys, used when several batches are kept in flight. It's the
+     * lower of the Kinesis Stream (5 MiB) and Kinesis Firehose (4 MiB) limits.
+     */
+    private static final int SERVICE_MAX_BATCH_SIZE_BYTES = 4 * 1024 * 1024;
+    /**
+     * Time in seconds idle submission threads are kept alive.
+     */
+    private static final long SUBMIT_THREAD_KEEP_ALIVE_SECONDS = 30;
+    private static final String UNMARSHALL_ERROR = "Unable to unmarshall error response";
+
     /**
      * The configurable options for Kinesis Recorder, includes the
      * ClientConfiguration of the low level client.
      */
     protected KinesisRecorderConfig config;
-    protected FileRecordStore recordStore;
+    protected SegmentedRecordStore recordStore;
+
+    private ThreadPoolExecutor submitExecutor;
 
     /**
      * Gets the sender to send saved records.
@@ -66,7 +94,7 @@ public abstract class AbstractKinesisRecorder {
      * @param recordStore local file store that keeps Kinesis records
      * @param config configuration
      */
-    protected AbstractKinesisRecorder(FileRecordStore recordStore, KinesisRecorderConfig config) {
+    protected AbstractKinesisRecorder(SegmentedRecordStore recordStore, KinesisRecorderConfig config) {
         if (recordStore == null) {
             throw new IllegalArgumentException("Record store can't be null");
         }
@@ -97,7 +125,7 @@ public abstract class AbstractKinesisRecorder {
      */
     public void saveRecord(byte[] data, String streamName) {
         try {
-            recordStore.put(FileRecordParser.asString(streamName, data));
+            recordStore.put(streamName, data);
         } catch (final IOException e) {
             throw new AmazonClientException("Error saving record", e);
         }
@@ -118,6 +146,11 @@ public abstract class AbstractKinesisRecorder {
      *             to be valid, it will be kept.
      */
     public synchronized void submitAllRecords() {
+        if (config.getMaxBatchesInFlight() > 1) {
+            submitAllRecordsConcurrently(config.getMaxBatchesInFlight());
+            return;
+        }
+
         final RecordSender sender = getRecordSender();
         final RecordIterator iterator = recordStore.iterator();
         final List<byte[]> data = new ArrayList<byte[]>(MAX_RECORDS_PER_BATCH);
@@ -140,7 +173,7 @@ public abstract class AbstractKinesisRecorder {
                     } catch (AmazonClientException ace) {
                         if (!unknownErrorRetried
                                 && ace.getMessage() != null
-                                && ace.getMessage().contains("Unable to unmarshall error response")) {
+                                && ace.getMessage().contains(UNMARSHALL_ERROR)) {
                             // Retry once for unforeseen error, possible kinesis error without shape
                             unknownErrorRetried = true;
                             failures = data;
@@ -151,6 +184,8 @@ public abstract class AbstractKinesisRecorder {
 
                     final int successCount = data.size() - failures.size();
                     count += successCount;
+                    config.getStreamThroughputCounters().recordBatch(streamName, successCount,
+                            sizeOf(data) - sizeOf(failures), failures.size());
 
                     /**
                      * We hold off on removing records until we are sure that we
@@ -216,6 +251,288 @@ public abstract class AbstractKinesisRecorder {
         }
     }
 
+    /**
+     * Submits all saved records with up to maxBatchesInFlight requests in
+     * flight. Records are read in windows. Within a window they are grouped by
+     * stream into batches filled up to the service limits, and the batches are
+     * sent concurrently. Once all of its batches are done, the window is
+     * removed from the record store and, like in the serial path, only the
+     * records that still have to be sent are saved again. Records that were
+     * sent or handed to the dead letter listener are not read again.
+     *
+     * @param maxBatchesInFlight maximum number of concurrent requests
+     */
+    private void submitAllRecordsConcurrently(int maxBatchesInFlight) {
+        final RecordSender sender = getRecordSender();
+        final RecordIterator iterator = recordStore.iterator();
+        final ThreadPoolExecutor executor = getSubmitExecutor(maxBatchesInFlight);
+        int retry = 0;
+        int count = 0;
+        try {
+            while (iterator.hasNext() && retry < MAX_RETRY_COUNT) {
+                final List<SubmitBatch> window = nextWindow(iterator, maxBatchesInFlight);
+                if (window.isEmpty()) {
+                    break;
+                }
+
+                final List<Future<?>> futures = new ArrayList<Future<?>>(window.size());
+                for (final SubmitBatch batch : window) {
+                    futures.add(executor.submit(new SubmitBatchTask(sender, batch)));
+                }
+                for (final Future<?> future : futures) {
+                    awaitQuietly(future);
+                }
+
+                int successCount = 0;
+                AmazonClientException firstException = null;
+                final List<SubmitBatch> retained = new ArrayList<SubmitBatch>();
+                for (final SubmitBatch batch : window) {
+                    successCount += batch.successCount;
+                    if (batch.exception == null) {
+                        if (!batch.data.isEmpty()) {
+                            retained.add(batch);
+                        }
+                        continue;
+                    }
+                    if (firstException == null) {
+                        firstException = batch.exception;
+                    }
+                    if (sender.isRecoverable(batch.exception)) {
+                        LOGGER.error(
+                                "ServiceException in submit all, the values of the data inside the requests appears valid.  The request will be kept",
+                                batch.exception);
+                        retained.add(batch);
+                    } else {
+                        // Data is dead and should be added to dead letter queue
+                        notifyRecordsDropped(batch.streamName, batch.data);
+                        LOGGER.error(
+                                "ServiceException in submit all, the last request is presumed to be the cause and will be dropped",
+                                batch.exception);
+                    }
+                }
+                count += successCount;
+
+                // The window is removed before the records to keep are saved
+                // again, so the space they take is free for them.
+                try {
+                    iterator.removeReadRecords();
+                    for (final SubmitBatch batch : retained) {
+                        saveFailedRecords(batch);
+                    }
+                } catch (final IOException e) {
+                    throw new AmazonClientException("Failed to remove read records", e);
+                }
+
+                if (firstException != null) {
+                    throw firstException;
+                }
+                if (successCount == 0) {
+                    // no record went through, increase retry count.
+                    retry++;
+                }
+            }
+        } finally {
+            LOGGER.debug(String.format("submitAllRecords sent %d records", count));
+            try {
+                iterator.close();
+            } catch (final IOException e) {
+                throw new AmazonClientException("Failed to close record file", e);
+            }
+        }
+    }
+
+    /**
+     * Saves the records of a batch that are not sent yet. Records that no
+     * longer fit because other records were saved in the meantime are handed
+     * to the dead letter listener.
+     *
+     * @param batch the batch holding the records to keep
+     * @throws IOException if a record can't be written
+     */
+    private void saveFailedRecords(SubmitBatch batch) throws IOException {
+        List<byte[]> dropped = null;
+        for (final byte[] bytes : batch.data) {
+            if (!recordStore.put(batch.streamName, bytes)) {
+                if (dropped == null) {
+                    dropped = new ArrayList<byte[]>();
+                }
+                dropped.add(bytes);
+            }
+        }
+        if (dropped != null) {
+            LOGGER.error("Record store is full, dropping " + dropped.size() + " failed records");
+            notifyRecordsDropped(batch.streamName, dropped);
+        }
+    }
+
+    private void notifyRecordsDropped(String streamName, List<byte[]> data) {
+        try {
+            this.config.getDeadLetterListener().onRecordsDropped(streamName, data);
+        } catch (Exception e) {
+            LOGGER.error("DeadLetterListener onRecordsDropped has thrown an exception (user code)", e);
+        }
+    }
+
+    /**
+     * Reads the next window of records and groups them by stream into at most
+     * maxBatches batches.
+     *
+     * @param iterator record iterator
+     * @param maxBatches maximum number of batches in the window
+     * @return the batches of the window
+     */
+    List<SubmitBatch> nextWindow(RecordIterator iterator, int maxBatches) {
+        final List<SubmitBatch> window = new ArrayList<SubmitBatch>(maxBatches);
+        final Map<String, SubmitBatch> openBatches = new HashMap<String, SubmitBatch>();
+        final int partitionKeySize = getPartitionKeySize();
+        while (iterator.hasNext()) {
+            final Record record = iterator.peek();
+            SubmitBatch batch = openBatches.get(record.streamName);
+            if (batch == null || batch.isFull(record.data.length + partitionKeySize)) {
+                if (window.size() >= maxBatches) {
+                    break;
+                }
+                batch = new SubmitBatch(record.streamName);
+                window.add(batch);
+                openBatches.put(record.streamName, batch);
+            }
+            batch.add(record.data, partitionKeySize);
+            iterator.next();
+        }
+        return window;
+    }
+
+    /**
+     * Returns the number of partition key bytes sent along with each record.
+     * They count towards the size limit of a request.
+     *
+     * @return the partition key size in bytes
+     */
+    int getPartitionKeySize() {
+        return 0;
+    }
+
+    private synchronized ThreadPoolExecutor getSubmitExecutor(int maxBatchesInFlight) {
+        if (submitExecutor == null) {
+            submitExecutor = new ThreadPoolExecutor(maxBatchesInFlight, maxBatchesInFlight,
+                    SUBMIT_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "KinesisRecorderSubmit");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            submitExecutor.allowCoreThreadTimeOut(true);
+        } else if (submitExecutor.getMaximumPoolSize() != maxBatchesInFlight) {
+            if (maxBatchesInFlight > submitExecutor.getMaximumPoolSize()) {
+                submitExecutor.setMaximumPoolSize(maxBatchesInFlight);
+                submitExecutor.setCorePoolSize(maxBatchesInFlight);
+            } else {
+                submitExecutor.setCorePoolSize(maxBatchesInFlight);
+                submitExecutor.setMaximumPoolSize(maxBatchesInFlight);
+            }
+        }
+        return submitExecutor;
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            } catch (final ExecutionException e) {
+                // SubmitBatchTask keeps its failures in the batch
+                LOGGER.error("Unexpected error submitting a batch", e.getCause());
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long sizeOf(List<byte[]> data) {
+        long size = 0;
+        for (final byte[] bytes : data) {
+            size += bytes.length;
+        }
+        return size;
+    }
+
+    /**
+     * Records of a single stream sent in one request. After the request,
+     * {@link #data} holds the records that are not sent yet.
+     */
+    static class SubmitBatch {
+        final String streamName;
+        List<byte[]> data = new ArrayList<byte[]>();
+        /** Request size of the records, including their partition keys. **/
+        int size;
+        int successCount;
+        AmazonClientException exception;
+
+        SubmitBatch(String streamName) {
+            this.streamName = streamName;
+        }
+
+        boolean isFull(int recordSize) {
+            return data.size() >= SERVICE_MAX_RECORDS_PER_BATCH
+                    || size + recordSize > SERVICE_MAX_BATCH_SIZE_BYTES;
+        }
+
+        void add(byte[] bytes, int partitionKeySize) {
+            data.add(bytes);
+            size += bytes.length + partitionKeySize;
+        }
+    }
+
+    /**
+     * Sends a {@link SubmitBatch}, retrying only the records the service
+     * reports as failed.
+     */
+    private class SubmitBatchTask implements Runnable {
+        private final RecordSender sender;
+        private final SubmitBatch batch;
+
+        SubmitBatchTask(RecordSender sender, SubmitBatch batch) {
+            this.sender = sender;
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            final StreamThroughputCounters counters = config.getStreamThroughputCounters();
+            boolean unknownErrorRetried = false;
+            int attempt = 0;
+            while (!batch.data.isEmpty() && attempt < MAX_RETRY_COUNT) {
+                attempt++;
+                List<byte[]> failures;
+                try {
+                    failures = sender.sendBatch(batch.streamName, batch.data);
+                } catch (final AmazonClientException ace) {
+                    if (!unknownErrorRetried && ace.getMessage() != null
+                            && ace.getMessage().contains(UNMARSHALL_ERROR)) {
+                        // Retry once for unforeseen error, possible kinesis error without shape
+                        unknownErrorRetried = true;
+                        continue;
+                    }
+                    batch.exception = ace;
+                    return;
+                }
+                final int successCount = batch.data.size() - failures.size();
+                counters.recordBatch(batch.streamName, successCount,
+                        sizeOf(batch.data) - sizeOf(failures), failures.size());
+                batch.successCount += successCount;
+                batch.data = failures;
+            }
+        }
+    }
+
     /**
      * Reads a batch of records belong to the same stream into a list. If data
      * is read successfully, the stream name is returned.
@@ -234,29 +551,15 @@ public abstract class AbstractKinesisRecorder {
         String lastStreamName = null;
         int size = 0;
         int count = 0;
-        final FileRecordParser frp = new FileRecordParser();
         while (iterator.hasNext() && count < maxCount && size < maxSize) {
-            final String line = iterator.peek();
-            if (line == null || line.isEmpty()) {
-                iterator.next();
-                continue;
-            }
-            // parse a line. Skip in case of corrupted data
-            try {
-                frp.parse(line);
-            } catch (final Exception e) {
-                LOGGER.warn("Failed to read line. Skip.", e);
-                iterator.next();
-                continue;
-            }
-
+            final Record record = iterator.peek();
             // check whether it belongs to previous batch
-            if (lastStreamName == null || lastStreamName.equals(frp.streamName)) {
-                data.add(frp.bytes);
+            if (lastStreamName == null || lastStreamName.equals(record.streamName)) {
+                data.add(record.data);
                 // update counter
                 count++;
-                size += frp.bytes.length;
-                lastStreamName = frp.streamName;
+                size += record.data.length;
+                lastStreamName = record.streamName;
                 iterator.next();
             } else {
                 break;
@@ -21,6 +21,7 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.kinesis.AmazonKinesis;
 import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.VersionInfoUtils;
 
 import com.amazonaws.logging.Log;
@@ -93,6 +94,10 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
      * is up to 1 MB.
      */
     private static final int MAX_RECORD_SIZE_BYTES = 1024 * 1024;
+    /**
+     * Size of the random UUID partition key used when none is configured.
+     */
+    private static final int RANDOM_PARTITION_KEY_SIZE = 36;
     /**
      * Valid stream name pattern.
      */
@@ -143,7 +148,7 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
      */
     public KinesisRecorder(File directory, Regions region,
             AWSCredentialsProvider credentialsProvider, KinesisRecorderConfig config) {
-        super(new FileRecordStore(directory, RECORD_FILE_NAME,
+        super(new SegmentedRecordStore(directory, RECORD_FILE_NAME,
                 config.getMaxStorageSize()), config);
 
         if (directory == null || credentialsProvider == null || region == null || config == null) {
@@ -167,7 +172,7 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
      * @param recordStore record store
      * @param config configuration
      */
-    KinesisRecorder(KinesisStreamRecordSender sender, FileRecordStore recordStore,
+    KinesisRecorder(KinesisStreamRecordSender sender, SegmentedRecordStore recordStore,
             KinesisRecorderConfig config) {
         super(recordStore, config);
         this.sender = sender;
@@ -229,6 +234,13 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
         return sender;
     }
 
+    @Override
+    int getPartitionKeySize() {
+        final String partitionKey = config.getPartitionKey();
+        return StringUtils.isBlank(partitionKey) ? RANDOM_PARTITION_KEY_SIZE
+                : partitionKey.getBytes(StringUtils.UTF8).length;
+    }
+
     @Override
     public void saveRecord(byte[] data, String streamName) {
         if (streamName == null || !STREAM_NAME_PATTERN.matcher(streamName).matches()) {
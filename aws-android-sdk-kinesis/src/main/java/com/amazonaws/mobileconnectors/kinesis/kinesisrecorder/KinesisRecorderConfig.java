@@ -24,7 +24,10 @@ import com.amazonaws.ClientConfiguration;
 public class KinesisRecorderConfig {
 
     private static final long DEFAUT_MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final int DEFAULT_MAX_BATCHES_IN_FLIGHT = 1;
     private long maxStorageSize = DEFAUT_MAX_STORAGE_SIZE;
+    private int maxBatchesInFlight = DEFAULT_MAX_BATCHES_IN_FLIGHT;
+    private final StreamThroughputCounters streamThroughputCounters;
     private final ClientConfiguration clientConfiguration;
     private String partitionKey;
     private DeadLetterListener mDeadLetterListener;
@@ -49,11 +52,12 @@ public class KinesisRecorderConfig {
             throw new IllegalArgumentException();
         }
         this.clientConfiguration = new ClientConfiguration(clientConfiguration);
-
+        this.streamThroughputCounters = new StreamThroughputCounters();
     }
 
     /**
-     * Creates a copy of the passed in KinesisRecorderConfig.
+     * Creates a copy of the passed in KinesisRecorderConfig. The copy shares
+     * its {@link StreamThroughputCounters} with the passed in config.
      *
      * @param other the KinesisRecorderConfig to copy.
      */
@@ -61,6 +65,8 @@ public class KinesisRecorderConfig {
         this.maxStorageSize = other.getMaxStorageSize();
         this.clientConfiguration = new ClientConfiguration(other.getClientConfiguration());
         this.partitionKey = other.partitionKey;
+        this.maxBatchesInFlight = other.getMaxBatchesInFlight();
+        this.streamThroughputCounters = other.streamThroughputCounters;
     }
 
     /**
@@ -94,6 +100,41 @@ public class KinesisRecorderConfig {
         return this.maxStorageSize;
     }
 
+    /**
+     * Sets the number of batches submitAllRecords keeps in flight. With a
+     * value greater than 1, pending records are grouped by stream, each
+     * request is filled up to the service limits, and that many requests are
+     * sent concurrently. Only the records a request reports as failed are
+     * retried. The default of 1 sends one batch at a time.
+     *
+     * @param maxBatchesInFlight the maximum number of concurrent requests.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withMaxBatchesInFlight(int maxBatchesInFlight) {
+        if (maxBatchesInFlight < 1) {
+            throw new IllegalArgumentException("maxBatchesInFlight must be at least 1");
+        }
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        return this;
+    }
+
+    /**
+     * @return The maximum number of batches submitAllRecords keeps in flight.
+     */
+    public int getMaxBatchesInFlight() {
+        return this.maxBatchesInFlight;
+    }
+
+    /**
+     * Returns the per stream counters of records submitted by recorders
+     * using this configuration.
+     *
+     * @return the {@link StreamThroughputCounters}
+     */
+    public StreamThroughputCounters getStreamThroughputCounters() {
+        return streamThroughputCounters;
+    }
+
     /**
      * Returns the {@link DeadLetterListener} that will respond to records being dropped.
      * @return the {@link DeadLetterListener} that will respond to records being dropped.
@@ -0,0 +1,663 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.StringUtils;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * The SegmentedRecordStore keeps Kinesis records in an append-only binary log
+ * on the Android disk. The log is split into numbered segment files. Each
+ * record is stored as its length, a CRC32 checksum and a payload holding the
+ * stream name and the raw data, so records are read back without any text
+ * parsing. Consumed records are never rewritten: the position of the first
+ * unread record is persisted in a small offset file, and a segment is deleted
+ * as a whole once every record in it has been consumed.
+ * <p>
+ * Concurrent writers are group committed: a record is appended to a pending
+ * buffer, and whichever writer finds no commit in progress writes all pending
+ * records to the active segment in a single write.
+ */
+class SegmentedRecordStore {
+    private static final Log LOGGER = LogFactory.getLog(SegmentedRecordStore.class);
+
+    /**
+     * Default size in bytes after which a new segment is started.
+     */
+    static final long DEFAULT_SEGMENT_SIZE = 256 * 1024;
+
+    private static final String SEGMENT_DIRECTORY_SUFFIX = "_segments";
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String READ_OFFSET_FILE_NAME = "read.offset";
+
+    /**
+     * Length and CRC32 of the payload precede every record.
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final ReentrantLock accessLock = new ReentrantLock(true);
+    private final Condition commitDone = accessLock.newCondition();
+
+    private final FileManager fileManager;
+    private final File segmentDirectory;
+    private final long maxStorageSize;
+    private final long segmentSize;
+
+    /** Sequence number to committed length of every segment on disk. **/
+    private final TreeMap<Long, Long> segments = new TreeMap<Long, Long>();
+
+    private long activeSequence;
+    private OutputStream activeStream;
+
+    /** Position of the first unread record. **/
+    private long readSequence;
+    private long readPosition;
+
+    /** Records waiting for the next group commit. **/
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private boolean committing;
+    private long lastTicket;
+    private long committedTicket;
+    private long failedFromTicket;
+    private long failedToTicket;
+    private IOException commitFailure;
+
+    /**
+     * Creates the SegmentedRecordStore. Records left in a line based record
+     * file of the same name by a previous version are moved into the log.
+     *
+     * @param workDirectory The directory (which the SegmentedRecordStore is
+     *            only used for the KinesisRecorder) to use to store requests in
+     * @param recordName Name of the record log
+     * @param maxStorageSize Maximum storage size in bytes
+     */
+    public SegmentedRecordStore(File workDirectory, String recordName, long maxStorageSize) {
+        this(workDirectory, recordName, maxStorageSize, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates the SegmentedRecordStore.
+     *
+     * @param workDirectory The directory to use to store requests in
+     * @param recordName Name of the record log
+     * @param maxStorageSize Maximum storage size in bytes
+     * @param segmentSize Size in bytes after which a new segment is started
+     */
+    SegmentedRecordStore(File workDirectory, String recordName, long maxStorageSize,
+            long segmentSize) {
+        this.fileManager = new FileManager(workDirectory);
+        this.maxStorageSize = maxStorageSize;
+        this.segmentSize = segmentSize;
+        this.segmentDirectory = fileManager.createDirectory(Constants.RECORDS_DIRECTORY
+                + File.separator + recordName + SEGMENT_DIRECTORY_SUFFIX);
+        if (segmentDirectory == null) {
+            throw new AmazonClientException("Failed to create segment directory");
+        }
+
+        loadSegments();
+        loadReadOffset();
+        migrateLineRecords(workDirectory, recordName);
+    }
+
+    /**
+     * Appends a record to the log. The call returns once the record has been
+     * written to the active segment, possibly together with records of other
+     * threads.
+     *
+     * @param streamName the stream the record belongs to
+     * @param data the data of the record
+     * @return true if the record is saved, false if it would exceed the
+     *         maximum storage size
+     * @throws IOException if the record can't be written
+     */
+    public boolean put(String streamName, byte[] data) throws IOException {
+        final byte[] entry = encode(streamName, data);
+        accessLock.lock();
+        try {
+            if (getUnreadBytes() + pending.size() + entry.length > maxStorageSize) {
+                return false;
+            }
+            pending.write(entry, 0, entry.length);
+            final long ticket = ++lastTicket;
+
+            while (committedTicket < ticket) {
+                if (committing) {
+                    commitDone.awaitUninterruptibly();
+                } else {
+                    commit();
+                }
+            }
+            if (commitFailure != null && ticket >= failedFromTicket
+                    && ticket <= failedToTicket) {
+                throw commitFailure;
+            }
+            return true;
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    /**
+     * Writes all pending records to the active segment. Must be called with
+     * the access lock held; the lock is released during the write so other
+     * threads can queue records for the next commit.
+     */
+    private void commit() {
+        committing = true;
+        final byte[] batch = pending.toByteArray();
+        final long batchFromTicket = committedTicket + 1;
+        final long batchToTicket = lastTicket;
+        pending = new ByteArrayOutputStream();
+
+        IOException failure = null;
+        OutputStream stream = null;
+        try {
+            if (activeStream == null || segments.get(activeSequence) >= segmentSize) {
+                rollSegment();
+            }
+            stream = activeStream;
+        } catch (final IOException e) {
+            failure = e;
+        }
+
+        if (stream != null) {
+            accessLock.unlock();
+            try {
+                stream.write(batch);
+                stream.flush();
+            } catch (final IOException e) {
+                failure = e;
+            } finally {
+                accessLock.lock();
+            }
+        }
+
+        if (failure == null) {
+            segments.put(activeSequence, segments.get(activeSequence) + batch.length);
+        } else {
+            LOGGER.error("Failed to write " + batch.length + " bytes of records", failure);
+            // The segment may hold a partial batch now. Seal it with its
+            // actual length so readers skip the torn tail, and continue in
+            // a new segment.
+            closeActiveSegment();
+            if (segments.containsKey(activeSequence)) {
+                segments.put(activeSequence, segmentFile(activeSequence).length());
+            }
+            commitFailure = failure;
+            failedFromTicket = batchFromTicket;
+            failedToTicket = batchToTicket;
+        }
+        committedTicket = batchToTicket;
+        committing = false;
+        commitDone.signalAll();
+    }
+
+    /**
+     * Returns the number of bytes of records that are not consumed yet.
+     *
+     * @return the number of bytes used
+     */
+    public long getFileSize() {
+        accessLock.lock();
+        try {
+            return getUnreadBytes();
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    public RecordIterator iterator() {
+        return new RecordIterator();
+    }
+
+    private long getUnreadBytes() {
+        long bytes = 0;
+        for (final Long length : segments.values()) {
+            bytes += length;
+        }
+        if (segments.containsKey(readSequence)) {
+            bytes -= readPosition;
+        }
+        return bytes;
+    }
+
+    private void rollSegment() throws IOException {
+        closeActiveSegment();
+        final long sequence = activeSequence + 1;
+        final File file = fileManager.createFile(segmentFile(sequence));
+        if (file == null) {
+            throw new IOException("Failed to create segment " + sequence);
+        }
+        activeStream = fileManager.newOutputStream(file, true);
+        activeSequence = sequence;
+        segments.put(sequence, 0L);
+    }
+
+    private void closeActiveSegment() {
+        if (activeStream == null) {
+            return;
+        }
+        try {
+            activeStream.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to close segment " + activeSequence, e);
+        }
+        activeStream = null;
+    }
+
+    private boolean isSealed(long sequence) {
+        return sequence != activeSequence || activeStream == null;
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(segmentDirectory, String.format("%020d", sequence)
+                + SEGMENT_FILE_SUFFIX);
+    }
+
+    private void loadSegments() {
+        for (final File file : fileManager.listFilesInDirectory(segmentDirectory)) {
+            final String name = file.getName();
+            if (!name.endsWith(SEGMENT_FILE_SUFFIX)) {
+                continue;
+            }
+            try {
+                final long sequence = Long.parseLong(name.substring(0,
+                        name.length() - SEGMENT_FILE_SUFFIX.length()));
+                segments.put(sequence, file.length());
+            } catch (final NumberFormatException e) {
+                LOGGER.warn("Ignoring unknown file " + name);
+            }
+        }
+        // Never append to a segment of a previous session, it may end with
+        // a torn record.
+        activeSequence = segments.isEmpty() ? 0 : segments.lastKey();
+    }
+
+    private void loadReadOffset() {
+        final File offsetFile = new File(segmentDirectory, READ_OFFSET_FILE_NAME);
+        if (offsetFile.isFile()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(fileManager.newInputStream(offsetFile));
+                readSequence = in.readLong();
+                readPosition = in.readLong();
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to read the read offset, starting from the first segment", e);
+                readSequence = 0;
+                readPosition = 0;
+            } finally {
+                closeQuietly(in);
+            }
+        }
+        final Long first = segments.ceilingKey(readSequence);
+        if (first == null) {
+            readSequence = activeSequence + 1;
+            readPosition = 0;
+        } else if (first != readSequence) {
+            readSequence = first;
+            readPosition = 0;
+        }
+    }
+
+    /**
+     * Persists the read offset by writing a temporary file and renaming it,
+     * so a crash leaves either the old or the new offset behind.
+     */
+    private void saveReadOffset() throws IOException {
+        final File tempFile = new File(segmentDirectory, READ_OFFSET_FILE_NAME + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(fileManager.newOutputStream(tempFile, false));
+            out.writeLong(readSequence);
+            out.writeLong(readPosition);
+        } finally {
+            closeQuietly(out);
+        }
+        if (!tempFile.renameTo(new File(segmentDirectory, READ_OFFSET_FILE_NAME))) {
+            throw new IOException("Failed to persist the read offset");
+        }
+    }
+
+    /**
+     * Advances the persisted read offset and deletes every segment whose
+     * records have all been consumed.
+     */
+    private void consumeTo(long sequence, long position) throws IOException {
+        while (committing) {
+            commitDone.awaitUninterruptibly();
+        }
+        readSequence = sequence;
+        readPosition = position;
+        while (!segments.isEmpty()) {
+            final long first = segments.firstKey();
+            if (first > readSequence
+                    || (first == readSequence && readPosition < segments.get(first))) {
+                break;
+            }
+            if (first == activeSequence) {
+                closeActiveSegment();
+            }
+            fileManager.deleteFile(segmentFile(first));
+            segments.remove(first);
+            if (first == readSequence) {
+                final Long next = segments.higherKey(first);
+                readSequence = next == null ? activeSequence + 1 : next;
+                readPosition = 0;
+            }
+        }
+        saveReadOffset();
+    }
+
+    private void deleteAllRecords() throws IOException {
+        while (committing) {
+            commitDone.awaitUninterruptibly();
+        }
+        closeActiveSegment();
+        for (final Long sequence : segments.keySet()) {
+            fileManager.deleteFile(segmentFile(sequence));
+        }
+        segments.clear();
+        readSequence = activeSequence + 1;
+        readPosition = 0;
+        saveReadOffset();
+    }
+
+    private void migrateLineRecords(File workDirectory, String recordName) {
+        final File lineFile = new File(fileManager.getDirectory(Constants.RECORDS_DIRECTORY),
+                recordName);
+        if (!lineFile.isFile()) {
+            return;
+        }
+        final FileRecordStore lineStore = new FileRecordStore(workDirectory, recordName,
+                Long.MAX_VALUE);
+        final FileRecordStore.RecordIterator iterator = lineStore.iterator();
+        final FileRecordParser frp = new FileRecordParser();
+        int count = 0;
+        try {
+            while (iterator.hasNext()) {
+                final String line = iterator.next();
+                if (line == null || line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    frp.parse(line);
+                } catch (final Exception e) {
+                    LOGGER.warn("Failed to read line. Skip.", e);
+                    continue;
+                }
+                if (put(frp.streamName, frp.bytes)) {
+                    count++;
+                }
+            }
+            iterator.close();
+            lineFile.delete();
+            LOGGER.debug(String.format("Moved %d records into the record log", count));
+        } catch (final IOException e) {
+            throw new AmazonClientException("Failed to move records into the record log", e);
+        }
+    }
+
+    private static byte[] encode(String streamName, byte[] data) {
+        final byte[] name = streamName.getBytes(StringUtils.UTF8);
+        final int payloadLength = 2 + name.length + data.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadLength);
+        buffer.putInt(payloadLength);
+        buffer.putInt(0);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.put(data);
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, payloadLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static Record decode(byte[] payload) {
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        final int nameLength = buffer.getShort() & 0xFFFF;
+        if (nameLength > buffer.remaining()) {
+            return null;
+        }
+        final String streamName = new String(payload, 2, nameLength, StringUtils.UTF8);
+        final byte[] data = new byte[payload.length - 2 - nameLength];
+        System.arraycopy(payload, 2 + nameLength, data, 0, data.length);
+        return new Record(streamName, data);
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (final IOException e) {
+            LOGGER.warn("failed to close stream", e);
+        }
+    }
+
+    /**
+     * A Kinesis record read from the log.
+     */
+    static class Record {
+        final String streamName;
+        final byte[] data;
+
+        Record(String streamName, byte[] data) {
+            this.streamName = streamName;
+            this.data = data;
+        }
+    }
+
+    public class RecordIterator implements java.util.Iterator<Record> {
+        /** Position of the next record to read from disk. **/
+        private long cursorSequence;
+        private long cursorPosition;
+        /** Position after the last record returned by next(). **/
+        private long consumedSequence;
+        private long consumedPosition;
+
+        private DataInputStream in;
+        private Record nextRecord;
+
+        RecordIterator() {
+            accessLock.lock();
+            try {
+                cursorSequence = readSequence;
+                cursorPosition = readPosition;
+                consumedSequence = cursorSequence;
+                consumedPosition = cursorPosition;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextRecord == null) {
+                try {
+                    nextRecord = readRecord();
+                } catch (final IOException ioe) {
+                    throw new AmazonClientException("IO Error", ioe);
+                }
+            }
+            return nextRecord != null;
+        }
+
+        @Override
+        public Record next() {
+            hasNext();
+            final Record next = nextRecord;
+            if (next != null) {
+                nextRecord = null;
+                consumedSequence = cursorSequence;
+                consumedPosition = cursorPosition;
+            }
+            return next;
+        }
+
+        public Record peek() {
+            hasNext();
+            return nextRecord;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "The remove() operation is not supported for this iterator");
+        }
+
+        /**
+         * Marks every record returned by {@link #next()} as consumed. Only the
+         * read offset is written; segments are deleted once fully consumed.
+         *
+         * @throws IOException if the read offset can't be persisted
+         */
+        public void removeReadRecords() throws IOException {
+            accessLock.lock();
+            try {
+                consumeTo(consumedSequence, consumedPosition);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        public void removeAllRecords() throws IOException {
+            accessLock.lock();
+            try {
+                deleteAllRecords();
+                close();
+                nextRecord = null;
+                cursorSequence = readSequence;
+                cursorPosition = readPosition;
+                consumedSequence = cursorSequence;
+                consumedPosition = cursorPosition;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+                in = null;
+            }
+        }
+
+        /**
+         * Reads the next intact record after the cursor. Torn or corrupted
+         * records are skipped.
+         */
+        private Record readRecord() throws IOException {
+            while (true) {
+                final long limit;
+                final boolean sealed;
+                accessLock.lock();
+                try {
+                    if (!segments.containsKey(cursorSequence)) {
+                        final Long sequence = segments.ceilingKey(cursorSequence);
+                        close();
+                        if (sequence == null) {
+                            return null;
+                        }
+                        moveCursor(sequence, 0);
+                    }
+                    limit = segments.get(cursorSequence);
+                    sealed = isSealed(cursorSequence);
+                } finally {
+                    accessLock.unlock();
+                }
+
+                while (cursorPosition + RECORD_HEADER_SIZE <= limit) {
+                    openInput();
+                    final int length = in.readInt();
+                    final int checksum = in.readInt();
+                    if (length < 0 || cursorPosition + RECORD_HEADER_SIZE + length > limit) {
+                        LOGGER.warn("Skipping corrupted records in segment " + cursorSequence);
+                        close();
+                        moveCursor(cursorSequence, limit);
+                        break;
+                    }
+                    final byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    cursorPosition += RECORD_HEADER_SIZE + length;
+
+                    final CRC32 crc = new CRC32();
+                    crc.update(payload, 0, length);
+                    final Record record = (int) crc.getValue() == checksum ? decode(payload) : null;
+                    if (record != null) {
+                        return record;
+                    }
+                    LOGGER.warn("Failed to read record. Skip.");
+                    moveCursor(cursorSequence, cursorPosition);
+                }
+
+                if (!sealed) {
+                    return null;
+                }
+                final Long next;
+                accessLock.lock();
+                try {
+                    next = segments.higherKey(cursorSequence);
+                } finally {
+                    accessLock.unlock();
+                }
+                close();
+                if (next == null) {
+                    return null;
+                }
+                moveCursor(next, 0);
+            }
+        }
+
+        /**
+         * Moves the cursor without returning a record. Nothing is buffered
+         * when this is called, so the consumed position moves along.
+         */
+        private void moveCursor(long sequence, long position) {
+            cursorSequence = sequence;
+            cursorPosition = position;
+            consumedSequence = sequence;
+            consumedPosition = position;
+        }
+
+        private void openInput() throws IOException {
+            if (in != null) {
+                return;
+            }
+            final FileInputStream stream = new FileInputStream(segmentFile(cursorSequence));
+            stream.getChannel().position(cursorPosition);
+            in = new DataInputStream(new BufferedInputStream(stream));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the records and bytes a Kinesis recorder has submitted to each
+ * stream. The counters are updated by
+ * {@link AbstractKinesisRecorder#submitAllRecords()} and can be read from any
+ * thread through {@link KinesisRecorderConfig#getStreamThroughputCounters()}.
+ */
+public class StreamThroughputCounters {
+
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<String, Counters>();
+
+    /**
+     * Returns the names of the streams records have been submitted to.
+     *
+     * @return the stream names
+     */
+    public Set<String> getStreamNames() {
+        return Collections.unmodifiableSet(counters.keySet());
+    }
+
+    /**
+     * Returns the number of records accepted by the given stream.
+     *
+     * @param streamName the stream name
+     * @return the number of records sent
+     */
+    public long getRecordsSent(String streamName) {
+        final Counters c = counters.get(streamName);
+        return c == null ? 0 : c.recordsSent.get();
+    }
+
+    /**
+     * Returns the number of data bytes accepted by the given stream.
+     *
+     * @param streamName the stream name
+     * @return the number of bytes sent
+     */
+    public long getBytesSent(String streamName) {
+        final Counters c = counters.get(streamName);
+        return c == null ? 0 : c.bytesSent.get();
+    }
+
+    /**
+     * Returns the number of requests sent to the given stream.
+     *
+     * @param streamName the stream name
+     * @return the number of requests
+     */
+    public long getBatchesSent(String streamName) {
+        final Counters c = counters.get(streamName);
+        return c == null ? 0 : c.batchesSent.get();
+    }
+
+    /**
+     * Returns the number of records the given stream rejected and which had
+     * to be retried.
+     *
+     * @param streamName the stream name
+     * @return the number of rejected records
+     */
+    public long getRecordsFailed(String streamName) {
+        final Counters c = counters.get(streamName);
+        return c == null ? 0 : c.recordsFailed.get();
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void reset() {
+        counters.clear();
+    }
+
+    /**
+     * Records the outcome of a single request.
+     *
+     * @param streamName the stream name
+     * @param recordsSent number of records accepted
+     * @param bytesSent number of data bytes accepted
+     * @param recordsFailed number of records rejected
+     */
+    void recordBatch(String streamName, int recordsSent, long bytesSent, int recordsFailed) {
+        Counters c = counters.get(streamName);
+        if (c == null) {
+            final Counters created = new Counters();
+            c = counters.putIfAbsent(streamName, created);
+            if (c == null) {
+                c = created;
+            }
+        }
+        c.batchesSent.incrementAndGet();
+        c.recordsSent.addAndGet(recordsSent);
+        c.bytesSent.addAndGet(bytesSent);
+        c.recordsFailed.addAndGet(recordsFailed);
+    }
+
+    private static class Counters {
+        private final AtomicLong batchesSent = new AtomicLong();
+        private final AtomicLong recordsSent = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong recordsFailed = new AtomicLong();
+    }
+}
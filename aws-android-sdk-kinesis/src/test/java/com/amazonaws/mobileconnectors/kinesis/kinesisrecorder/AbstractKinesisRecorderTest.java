@@ -24,7 +24,7 @@ import static org.junit.Assert.fail;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.SegmentedRecordStore.RecordIterator;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -33,6 +33,8 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
@@ -58,8 +60,9 @@ public class AbstractKinesisRecorderTest {
 
     static class MockAbstractKinesisRecorder extends AbstractKinesisRecorder {
         private RecordSender sender;
+        private int partitionKeySize;
 
-        protected MockAbstractKinesisRecorder(FileRecordStore recordStore,
+        protected MockAbstractKinesisRecorder(SegmentedRecordStore recordStore,
                 KinesisRecorderConfig config) {
             super(recordStore, config);
         }
@@ -72,6 +75,11 @@ public class AbstractKinesisRecorderTest {
         protected RecordSender getRecordSender() {
             return sender;
         }
+
+        @Override
+        int getPartitionKeySize() {
+            return partitionKeySize;
+        }
     }
 
     @Before
@@ -80,7 +88,7 @@ public class AbstractKinesisRecorderTest {
         deadLetterListener = Mockito.mock(DeadLetterListener.class);
         KinesisRecorderConfig config = new KinesisRecorderConfig()
                 .withDeadLetterListener(deadLetterListener);
-        FileRecordStore recordStore = new FileRecordStore(temp.newFolder(), RECORD_FILE_NAME,
+        SegmentedRecordStore recordStore = new SegmentedRecordStore(temp.newFolder(), RECORD_FILE_NAME,
                 config.getMaxStorageSize());
         MockAbstractKinesisRecorder mockRecorder = new MockAbstractKinesisRecorder(recordStore,
                 config);
@@ -317,6 +325,302 @@ public class AbstractKinesisRecorderTest {
         assertTrue("records not removed", recorder.getDiskBytesUsed() > 0);
     }
 
+    @Test
+    public void testSubmitAllRecordsConcurrentlyGroupsByStream() throws IOException {
+        recorder = newConcurrentRecorder(4);
+        String anotherStream = "another_stream";
+        for (int i = 0; i < 10; i++) {
+            recorder.saveRecord(randomBytes(1024), STREAM_NAME);
+            recorder.saveRecord(randomBytes(1024), anotherStream);
+        }
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenReturn(new ArrayList<byte[]>());
+        recorder.submitAllRecords();
+
+        // interleaved records go out in one request per stream
+        ArgumentCaptor<List> dataCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(sender).sendBatch(Mockito.eq(STREAM_NAME), dataCaptor.capture());
+        assertEquals("one batch per stream", 10, dataCaptor.getValue().size());
+        Mockito.verify(sender).sendBatch(Mockito.eq(anotherStream), dataCaptor.capture());
+        assertEquals("one batch per stream", 10, dataCaptor.getValue().size());
+        assertEquals("no records after submitAllRecords", 0, recorder.getDiskBytesUsed());
+
+        StreamThroughputCounters counters = recorder.getKinesisRecorderConfig()
+                .getStreamThroughputCounters();
+        assertEquals(10, counters.getRecordsSent(STREAM_NAME));
+        assertEquals(10 * 1024, counters.getBytesSent(STREAM_NAME));
+        assertEquals(1, counters.getBatchesSent(anotherStream));
+    }
+
+    @Test
+    public void testNextWindowLimitsBatches() throws IOException {
+        recorder = newConcurrentRecorder(2);
+        for (int i = 0; i < 3; i++) {
+            recorder.saveRecord(randomBytes(1024), "stream_" + i);
+        }
+        RecordIterator iterator = recorder.recordStore.iterator();
+        List<AbstractKinesisRecorder.SubmitBatch> window = recorder.nextWindow(iterator, 2);
+        assertEquals("two batches", 2, window.size());
+        assertEquals("stream_0", window.get(0).streamName);
+        assertEquals("stream_1", window.get(1).streamName);
+        window = recorder.nextWindow(iterator, 2);
+        assertEquals("rest of the records", 1, window.size());
+        iterator.close();
+    }
+
+    @Test
+    public void testNextWindowCountsPartitionKeyBytes() throws IOException {
+        long maxStorageSize = 8 * 1024 * 1024;
+        KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withMaxStorageSize(maxStorageSize)
+                .withMaxBatchesInFlight(4);
+        MockAbstractKinesisRecorder mockRecorder = new MockAbstractKinesisRecorder(
+                new SegmentedRecordStore(temp.newFolder(), RECORD_FILE_NAME, maxStorageSize),
+                config);
+        for (int i = 0; i < 4; i++) {
+            mockRecorder.saveRecord(randomBytes(1024 * 1024), STREAM_NAME);
+        }
+
+        // four 1 MiB records fill a 4 MiB request exactly
+        RecordIterator iterator = mockRecorder.recordStore.iterator();
+        List<AbstractKinesisRecorder.SubmitBatch> window = mockRecorder.nextWindow(iterator, 4);
+        iterator.close();
+        assertEquals("one batch", 1, window.size());
+
+        // with their partition keys they no longer fit
+        mockRecorder.partitionKeySize = 36;
+        iterator = mockRecorder.recordStore.iterator();
+        window = mockRecorder.nextWindow(iterator, 4);
+        iterator.close();
+        assertEquals("two batches", 2, window.size());
+        assertEquals(3, window.get(0).data.size());
+        assertEquals(3 * (1024 * 1024 + 36), window.get(0).size);
+        assertEquals(1, window.get(1).data.size());
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyRetriesOnlyFailedRecords() {
+        recorder = newConcurrentRecorder(4);
+        List<byte[]> data = new ArrayList<byte[]>();
+        for (int i = 0; i < 10; i++) {
+            data.add(randomBytes(1024));
+            recorder.saveRecord(data.get(i), STREAM_NAME);
+        }
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenReturn(Arrays.asList(data.get(3), data.get(7)))
+                .thenReturn(new ArrayList<byte[]>());
+        recorder.submitAllRecords();
+
+        ArgumentCaptor<List> dataCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(sender, Mockito.times(2)).sendBatch(Mockito.eq(STREAM_NAME),
+                dataCaptor.capture());
+        List<byte[]> retried = dataCaptor.getAllValues().get(1);
+        assertEquals("only failed records retried", 2, retried.size());
+        assertSame(data.get(3), retried.get(0));
+        assertSame(data.get(7), retried.get(1));
+        assertEquals("records removed", 0, recorder.getDiskBytesUsed());
+        assertEquals(2, recorder.getKinesisRecorderConfig().getStreamThroughputCounters()
+                .getRecordsFailed(STREAM_NAME));
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyWithRecoverableFailures() {
+        recorder = newConcurrentRecorder(4);
+        for (int i = 0; i < 10; i++) {
+            recorder.saveRecord(randomBytes(1024), STREAM_NAME);
+        }
+        long size = recorder.getDiskBytesUsed();
+        AmazonServiceException ase = new AmazonServiceException("some failures");
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenThrow(ase);
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(true);
+        try {
+            recorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+        assertEquals("records kept", size, recorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyKeepsRecordsOfFullStore() throws IOException {
+        String anotherStream = "another_stream";
+        List<byte[]> kept = new ArrayList<byte[]>();
+        // room for exactly ten records, so no record could be saved again
+        long maxStorageSize = 5 * (8 + 2 + STREAM_NAME.length() + 1024)
+                + 5 * (8 + 2 + anotherStream.length() + 1024);
+        KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withDeadLetterListener(deadLetterListener)
+                .withMaxStorageSize(maxStorageSize)
+                .withMaxBatchesInFlight(4);
+        MockAbstractKinesisRecorder mockRecorder = new MockAbstractKinesisRecorder(
+                new SegmentedRecordStore(temp.newFolder(), RECORD_FILE_NAME, maxStorageSize),
+                config);
+        mockRecorder.setRecordSender(sender);
+        recorder = mockRecorder;
+        for (int i = 0; i < 5; i++) {
+            recorder.saveRecord(randomBytes(1024), STREAM_NAME);
+            kept.add(randomBytes(1024));
+            recorder.saveRecord(kept.get(i), anotherStream);
+        }
+        assertEquals("store is full", maxStorageSize, recorder.getDiskBytesUsed());
+
+        AmazonServiceException ase = new AmazonServiceException("network error");
+        Mockito.when(sender.sendBatch(Mockito.eq(STREAM_NAME), Mockito.anyListOf(byte[].class)))
+                .thenReturn(new ArrayList<byte[]>());
+        Mockito.when(sender.sendBatch(Mockito.eq(anotherStream),
+                Mockito.anyListOf(byte[].class))).thenThrow(ase);
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(true);
+        try {
+            recorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+
+        // the failed records are kept in their order
+        RecordIterator iterator = recorder.recordStore.iterator();
+        List<byte[]> remaining = new ArrayList<byte[]>();
+        while (iterator.hasNext()) {
+            SegmentedRecordStore.Record record = iterator.next();
+            if (anotherStream.equals(record.streamName)) {
+                remaining.add(record.data);
+            }
+        }
+        iterator.close();
+        assertEquals("no record dropped", kept.size(), remaining.size());
+        for (int i = 0; i < kept.size(); i++) {
+            assertTrue("records in order", Arrays.equals(kept.get(i), remaining.get(i)));
+        }
+        Mockito.verify(deadLetterListener, Mockito.never()).onRecordsDropped(Mockito.anyString(),
+                Mockito.anyListOf(byte[].class));
+
+        Mockito.reset(sender);
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenReturn(new ArrayList<byte[]>());
+        recorder.submitAllRecords();
+        ArgumentCaptor<List> dataCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(sender).sendBatch(Mockito.eq(anotherStream), dataCaptor.capture());
+        List<byte[]> sent = dataCaptor.getValue();
+        assertEquals("kept records sent", kept.size(), sent.size());
+        for (int i = 0; i < kept.size(); i++) {
+            assertTrue("records sent in order", Arrays.equals(kept.get(i), sent.get(i)));
+        }
+        assertEquals("records removed", 0, recorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyKeepsOnlyUnsentRecords() throws IOException {
+        recorder = newConcurrentRecorder(4);
+        String sentStream = "sent_stream";
+        String droppedStream = "dropped_stream";
+        final List<byte[]> failing = new ArrayList<byte[]>();
+        for (int i = 0; i < 5; i++) {
+            byte[] data = randomBytes(1024);
+            if (i % 2 == 1) {
+                failing.add(data);
+            }
+            recorder.saveRecord(data, STREAM_NAME);
+        }
+        for (int i = 0; i < 5; i++) {
+            recorder.saveRecord(randomBytes(1024), sentStream);
+            recorder.saveRecord(randomBytes(1024), droppedStream);
+        }
+
+        // two records of the first batch keep failing, the next batch is
+        // sent and the last one is invalid
+        Mockito.when(sender.sendBatch(Mockito.eq(STREAM_NAME), Mockito.anyListOf(byte[].class)))
+                .thenAnswer(new Answer<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> answer(InvocationOnMock invocation) {
+                        List<byte[]> failures = new ArrayList<byte[]>();
+                        for (Object data : (List<?>) invocation.getArguments()[1]) {
+                            for (byte[] bytes : failing) {
+                                if (Arrays.equals(bytes, (byte[]) data)) {
+                                    failures.add((byte[]) data);
+                                }
+                            }
+                        }
+                        return failures;
+                    }
+                });
+        Mockito.when(sender.sendBatch(Mockito.eq(sentStream), Mockito.anyListOf(byte[].class)))
+                .thenReturn(new ArrayList<byte[]>());
+        AmazonServiceException ase = new AmazonServiceException("invalid request");
+        Mockito.when(sender.sendBatch(Mockito.eq(droppedStream),
+                Mockito.anyListOf(byte[].class))).thenThrow(ase);
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(false);
+        try {
+            recorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+        Mockito.verify(deadLetterListener).onRecordsDropped(Mockito.eq(droppedStream),
+                Mockito.anyListOf(byte[].class));
+
+        // only the failed records are left
+        RecordIterator iterator = recorder.recordStore.iterator();
+        List<byte[]> remaining = new ArrayList<byte[]>();
+        while (iterator.hasNext()) {
+            SegmentedRecordStore.Record record = iterator.next();
+            assertEquals(STREAM_NAME, record.streamName);
+            remaining.add(record.data);
+        }
+        iterator.close();
+        assertEquals("failed records kept", failing.size(), remaining.size());
+        for (int i = 0; i < failing.size(); i++) {
+            assertTrue("records in order", Arrays.equals(failing.get(i), remaining.get(i)));
+        }
+
+        failing.clear();
+        recorder.submitAllRecords();
+        Mockito.verify(sender, Mockito.times(1)).sendBatch(Mockito.eq(sentStream),
+                Mockito.anyListOf(byte[].class));
+        Mockito.verify(sender, Mockito.times(1)).sendBatch(Mockito.eq(droppedStream),
+                Mockito.anyListOf(byte[].class));
+        Mockito.verify(deadLetterListener, Mockito.times(1)).onRecordsDropped(
+                Mockito.anyString(), Mockito.anyListOf(byte[].class));
+        assertEquals("records removed", 0, recorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyWithNonRecoverableFailures() {
+        recorder = newConcurrentRecorder(4);
+        for (int i = 0; i < 10; i++) {
+            recorder.saveRecord(randomBytes(1024), STREAM_NAME);
+        }
+        AmazonServiceException ase = new AmazonServiceException("some failures");
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenThrow(ase);
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(false);
+        try {
+            recorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+        Mockito.verify(deadLetterListener).onRecordsDropped(Mockito.eq(STREAM_NAME),
+                Mockito.anyListOf(byte[].class));
+        assertEquals("records removed", 0, recorder.getDiskBytesUsed());
+    }
+
+    private AbstractKinesisRecorder newConcurrentRecorder(int maxBatchesInFlight) {
+        KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withDeadLetterListener(deadLetterListener)
+                .withMaxBatchesInFlight(maxBatchesInFlight);
+        try {
+            MockAbstractKinesisRecorder mockRecorder = new MockAbstractKinesisRecorder(
+                    new SegmentedRecordStore(temp.newFolder(), RECORD_FILE_NAME,
+                            config.getMaxStorageSize()), config);
+            mockRecorder.setRecordSender(sender);
+            return mockRecorder;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private byte[] randomBytes(int length) {
         byte[] data = new byte[length];
         new Random().nextBytes(data);
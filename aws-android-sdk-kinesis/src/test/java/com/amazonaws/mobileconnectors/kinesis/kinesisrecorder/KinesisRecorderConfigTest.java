@@ -16,6 +16,7 @@
 package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import com.amazonaws.ClientConfiguration;
 
@@ -58,11 +59,16 @@ public class KinesisRecorderConfigTest {
     public void copyConstructor() {
         KinesisRecorderConfig kConfig = new KinesisRecorderConfig();
         kConfig.withMaxStorageSize(5);
+        kConfig.withMaxBatchesInFlight(4);
 
         KinesisRecorderConfig copiedConfig = new KinesisRecorderConfig(kConfig);
 
         assertEquals(kConfig.getMaxStorageSize(),
                 copiedConfig.getMaxStorageSize());
+        assertEquals(kConfig.getMaxBatchesInFlight(),
+                copiedConfig.getMaxBatchesInFlight());
+        assertSame(kConfig.getStreamThroughputCounters(),
+                copiedConfig.getStreamThroughputCounters());
 
     }
 
@@ -72,6 +78,9 @@ public class KinesisRecorderConfigTest {
         KinesisRecorderConfig kConfig = new KinesisRecorderConfig();
         kConfig.withMaxStorageSize(100);
         assertEquals(kConfig.getMaxStorageSize(), 100);
+        assertEquals(kConfig.getMaxBatchesInFlight(), 1);
+        kConfig.withMaxBatchesInFlight(8);
+        assertEquals(kConfig.getMaxBatchesInFlight(), 8);
     }
 
 }
@@ -20,7 +20,8 @@ import static org.junit.Assert.assertEquals;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.AnonymousAWSCredentials;
 import com.amazonaws.internal.StaticCredentialsProvider;
-import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.SegmentedRecordStore.Record;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.SegmentedRecordStore.RecordIterator;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.kinesis.model.PutRecordRequest;
 import com.amazonaws.util.StringUtils;
@@ -100,13 +101,12 @@ public class KinesisRecorderTest {
         recorder = new KinesisRecorder(directory, Regions.US_EAST_1, provider);
         Thread.sleep(1000);
         RecordIterator iterator = recorder.recordStore.iterator();
-        FileRecordParser frp = new FileRecordParser();
         int count = 0;
         while (iterator.hasNext()) {
             count++;
-            frp.parse(iterator.next());
-            assertEquals("same stream", streamName, frp.streamName);
-            assertEquals("same data length", length, frp.bytes.length);
+            Record record = iterator.next();
+            assertEquals("same stream", streamName, record.streamName);
+            assertEquals("same data length", length, record.data.length);
         }
         assertEquals("has 10 records from upgrade", 10, count);
     }
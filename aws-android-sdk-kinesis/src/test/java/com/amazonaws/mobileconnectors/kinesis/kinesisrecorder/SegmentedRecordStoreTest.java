@@ -0,0 +1,273 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.SegmentedRecordStore.Record;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.SegmentedRecordStore.RecordIterator;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class SegmentedRecordStoreTest {
+
+    private static final File TEST_DIRECTORY = new File("SegmentedRecordStoreTest");
+    private static final String RECORD_NAME = "records";
+    private static final String STREAM_NAME = "stream";
+    private static final long MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+
+    @Before
+    public void setup() {
+        TEST_DIRECTORY.mkdir();
+    }
+
+    @After
+    public void teardown() {
+        delete(TEST_DIRECTORY);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File subFile : f.listFiles()) {
+                delete(subFile);
+            }
+        }
+        f.delete();
+    }
+
+    @Test
+    public void testPutIterateAndRemove() throws IOException {
+        SegmentedRecordStore recordStore = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, MAX_STORAGE_SIZE);
+        assertEquals("empty store", 0, recordStore.getFileSize());
+        for (int i = 1; i <= 10; i++) {
+            assertTrue(recordStore.put(STREAM_NAME, bytes(i)));
+        }
+        long size = recordStore.getFileSize();
+        assertTrue("records saved", size > 0);
+
+        int counter = 0;
+        RecordIterator iterator = recordStore.iterator();
+        while (iterator.hasNext()) {
+            counter++;
+            Record record = iterator.next();
+            assertEquals(STREAM_NAME, record.streamName);
+            assertArrayEquals(bytes(counter), record.data);
+            if (counter == 5) {
+                iterator.removeReadRecords();
+                assertTrue("read records removed", recordStore.getFileSize() < size);
+            }
+        }
+        iterator.removeReadRecords();
+        iterator.close();
+        assertEquals("all records removed", 10, counter);
+        assertEquals("empty store", 0, recordStore.getFileSize());
+    }
+
+    @Test
+    public void testReadOffsetIsPersisted() throws IOException {
+        SegmentedRecordStore recordStore = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, MAX_STORAGE_SIZE);
+        for (int i = 1; i <= 10; i++) {
+            recordStore.put(STREAM_NAME, bytes(i));
+        }
+        RecordIterator iterator = recordStore.iterator();
+        for (int i = 1; i <= 4; i++) {
+            iterator.next();
+        }
+        // read but not removed
+        iterator.peek();
+        iterator.removeReadRecords();
+        iterator.close();
+
+        SegmentedRecordStore reopened = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, MAX_STORAGE_SIZE);
+        assertEquals("same unread bytes", recordStore.getFileSize(), reopened.getFileSize());
+        iterator = reopened.iterator();
+        assertArrayEquals("resumes after removed records", bytes(5), iterator.next().data);
+        iterator.close();
+
+        reopened.put(STREAM_NAME, bytes(11));
+        int count = 0;
+        iterator = reopened.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        iterator.close();
+        assertEquals("new records follow old ones", 7, count);
+    }
+
+    @Test
+    public void testConsumedSegmentsAreDeleted() throws IOException {
+        SegmentedRecordStore recordStore = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, MAX_STORAGE_SIZE, 100);
+        for (int i = 1; i <= 20; i++) {
+            recordStore.put(STREAM_NAME, new byte[50]);
+        }
+        int segments = countSegments();
+        assertTrue("records spread over segments", segments > 2);
+
+        RecordIterator iterator = recordStore.iterator();
+        for (int i = 1; i <= 10; i++) {
+            iterator.next();
+        }
+        iterator.removeReadRecords();
+        assertTrue("consumed segments deleted", countSegments() < segments);
+
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        iterator.removeReadRecords();
+        iterator.close();
+        assertEquals("all segments deleted", 0, countSegments());
+        assertEquals("empty store", 0, recordStore.getFileSize());
+    }
+
+    @Test
+    public void testCorruptedRecordIsSkipped() throws IOException {
+        SegmentedRecordStore recordStore = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, MAX_STORAGE_SIZE);
+        recordStore.put(STREAM_NAME, bytes(1));
+        recordStore.put(STREAM_NAME, bytes(2));
+        recordStore.put(STREAM_NAME, bytes(3));
+
+        // flip the last data byte of the second record
+        File segment = getSegments()[0];
+        long recordLength = segment.length() / 3;
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        raf.seek(2 * recordLength - 1);
+        int b = raf.read();
+        raf.seek(2 * recordLength - 1);
+        raf.write(b ^ 0xFF);
+        raf.close();
+
+        RecordIterator iterator = new SegmentedRecordStore(TEST_DIRECTORY, RECORD_NAME,
+                MAX_STORAGE_SIZE).iterator();
+        assertArrayEquals(bytes(1), iterator.next().data);
+        assertArrayEquals(bytes(3), iterator.next().data);
+        assertFalse(iterator.hasNext());
+        iterator.close();
+    }
+
+    @Test
+    public void testMaxStorageSize() throws IOException {
+        SegmentedRecordStore recordStore = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, 1024);
+        assertTrue(recordStore.put(STREAM_NAME, new byte[500]));
+        assertFalse("over storage limit", recordStore.put(STREAM_NAME, new byte[600]));
+        assertTrue(recordStore.put(STREAM_NAME, new byte[400]));
+    }
+
+    @Test
+    public void testMigratesLineRecords() throws IOException {
+        FileRecordStore lineStore = new FileRecordStore(TEST_DIRECTORY, RECORD_NAME,
+                MAX_STORAGE_SIZE);
+        for (int i = 1; i <= 10; i++) {
+            lineStore.put(FileRecordParser.asString(STREAM_NAME, bytes(i)));
+        }
+
+        SegmentedRecordStore recordStore = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, MAX_STORAGE_SIZE);
+        assertFalse("line file removed", new File(new File(TEST_DIRECTORY,
+                Constants.RECORDS_DIRECTORY), RECORD_NAME).exists());
+        RecordIterator iterator = recordStore.iterator();
+        for (int i = 1; i <= 10; i++) {
+            Record record = iterator.next();
+            assertEquals(STREAM_NAME, record.streamName);
+            assertArrayEquals(bytes(i), record.data);
+        }
+        assertFalse(iterator.hasNext());
+        iterator.close();
+    }
+
+    @Test
+    public void testConcurrentPuts() throws Exception {
+        final SegmentedRecordStore recordStore = new SegmentedRecordStore(TEST_DIRECTORY,
+                RECORD_NAME, MAX_STORAGE_SIZE, 1024);
+        final int threads = 8;
+        final int recordsPerThread = 100;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < recordsPerThread; i++) {
+                            recordStore.put(STREAM_NAME, bytes(thread * recordsPerThread + i));
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Set<String> read = new HashSet<String>();
+        RecordIterator iterator = recordStore.iterator();
+        while (iterator.hasNext()) {
+            read.add(new String(iterator.next().data, StringUtils.UTF8));
+        }
+        iterator.close();
+        assertEquals("all records saved", threads * recordsPerThread, read.size());
+    }
+
+    private File[] getSegments() {
+        File[] segments = new File(new File(TEST_DIRECTORY, Constants.RECORDS_DIRECTORY),
+                RECORD_NAME + "_segments").listFiles();
+        Arrays.sort(segments);
+        List<File> result = new ArrayList<File>();
+        for (File file : segments) {
+            if (file.getName().endsWith(".seg")) {
+                result.add(file);
+            }
+        }
+        return result.toArray(new File[result.size()]);
+    }
+
+    private int countSegments() {
+        return getSegments().length;
+    }
+
+    private static byte[] bytes(int i) {
+        return ("record " + i).getBytes(StringUtils.UTF8);
+    }
+}
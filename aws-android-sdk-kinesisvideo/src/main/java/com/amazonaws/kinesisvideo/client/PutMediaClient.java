@@ -20,7 +20,7 @@ package com.amazonaws.kinesisvideo.client;
 import com.amazonaws.kinesisvideo.common.function.Consumer;
 import com.amazonaws.kinesisvideo.common.logging.Log;
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
-import com.amazonaws.kinesisvideo.encoding.ChunkEncoder;
+import com.amazonaws.kinesisvideo.encoding.ChunkEncodingOutputStream;
 import com.amazonaws.kinesisvideo.http.ParallelSimpleHttpClient;
 import com.amazonaws.kinesisvideo.signing.KinesisVideoSigner;
 import com.amazonaws.kinesisvideo.stream.throttling.BandwidthMeasuringOutputStream;
@@ -41,6 +41,7 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Client for making a PutMedia API call on Kinesis Video Streams.
@@ -76,6 +77,12 @@ public final class PutMediaClient {
         putMediaWithSender(sendChunkEncodedMvkStream(0));
     }
 
+    /**
+     * Sends the stream with at most one chunk per sleepTime milliseconds. The time spent reading and sending a chunk
+     * counts towards the interval, so the sender only waits for the rest of it.
+     *
+     * @param sleepTime minimum interval between chunks in milliseconds
+     */
     public void putMediaInBackgroundWithSleep(final int sleepTime) {
         putMediaWithSender(sendChunkEncodedMvkStream(sleepTime));
     }
@@ -124,14 +131,20 @@ public final class PutMediaClient {
             public void accept(final OutputStream rawOutputStream) {
                 FileOutputStream outputFileStream = null;
                 try {
-                    final OutputStream throttledOutputStream = throttleAndMeasureOutput(rawOutputStream);
+                    final ChunkEncodingOutputStream chunkedOutputStream =
+                            new ChunkEncodingOutputStream(throttleAndMeasureOutput(rawOutputStream));
                     outputFileStream = createOutputFileStream();
-                    final byte[] buffer = new byte[BUFFER_SIZE];
+                    // The MKV data is read between the space reserved to frame it as a chunk.
+                    final byte[] buffer = new byte[ChunkEncodingOutputStream.HEADER_RESERVE + BUFFER_SIZE
+                            + ChunkEncodingOutputStream.TRAILER_RESERVE];
+                    final int payloadOffset = ChunkEncodingOutputStream.HEADER_RESERVE;
+                    final long chunkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fragmentThrottle);
+                    long nextChunkNanos = System.nanoTime();
                     int mkvBytesRead;
                     long counter = 0;
                     boolean continueLoop = true;
                     while (continueLoop) {
-                        mkvBytesRead = mBuilder.mMkvStream.read(buffer);
+                        mkvBytesRead = mBuilder.mMkvStream.read(buffer, payloadOffset, BUFFER_SIZE);
                         counter++;
                         if (counter % LOGGING_INTERVAL == 0) {
                             log.debug("Sending data, counter : " + counter);
@@ -140,15 +153,14 @@ public final class PutMediaClient {
                             log.info("End-of-stream is reported. Terminating...");
                             continueLoop = false;
                         } else {
-                            throttledOutputStream.write(ChunkEncoder.encode(buffer, mkvBytesRead));
-                            tryWriteToFile(outputFileStream, buffer, mkvBytesRead);
-                            if (fragmentThrottle > 0) {
-                                Thread.sleep(fragmentThrottle);
+                            if (chunkIntervalNanos > 0) {
+                                nextChunkNanos = waitForChunkSlot(nextChunkNanos, chunkIntervalNanos);
                             }
+                            tryWriteToFile(outputFileStream, buffer, payloadOffset, mkvBytesRead);
+                            chunkedOutputStream.writeChunk(buffer, payloadOffset, mkvBytesRead);
                         }
                     }
-                    throttledOutputStream.write(ChunkEncoder.encode(buffer, 0));
-                    rawOutputStream.flush();
+                    chunkedOutputStream.finish();
                     log.debug("Data sent. counter : " + counter);
                 } catch (final Exception e) {
                     log.debug("Exception while sending data.", e);
@@ -160,6 +172,21 @@ public final class PutMediaClient {
         };
     }
 
+    /**
+     * Waits until the next chunk may be sent. Unused time isn't saved up, so chunks never go out in a burst.
+     *
+     * @return the time the chunk after this one may be sent
+     */
+    private static long waitForChunkSlot(final long nextChunkNanos, final long chunkIntervalNanos)
+            throws InterruptedException {
+        final long now = System.nanoTime();
+        final long waitNanos = nextChunkNanos - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return Math.max(nextChunkNanos, now) + chunkIntervalNanos;
+    }
+
     private OutputStream throttleAndMeasureOutput(final OutputStream rawOutputStream) {
         final OutputStream throttledOutputStream = throttleStream(rawOutputStream);
         return mBuilder.mLogUsedBandwidth ? logBytesPerSecond(throttledOutputStream) : throttledOutputStream;
@@ -196,12 +223,13 @@ public final class PutMediaClient {
         }
     }
 
-    private void tryWriteToFile(final FileOutputStream fileOutputStream, final byte[] buffer, final int bytesToWrite) {
+    private void tryWriteToFile(final FileOutputStream fileOutputStream, final byte[] buffer, final int offset,
+            final int bytesToWrite) {
         if (fileOutputStream == null) {
             return;
         }
         try {
-            fileOutputStream.write(buffer, 0, bytesToWrite);
+            fileOutputStream.write(buffer, offset, bytesToWrite);
             fileOutputStream.flush();
         } catch (final IOException e) {
             e.printStackTrace();
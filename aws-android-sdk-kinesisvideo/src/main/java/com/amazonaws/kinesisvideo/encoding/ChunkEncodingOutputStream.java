@@ -0,0 +1,153 @@
+/**
+ * COPYRIGHT:
+ * <p>
+ * Copyright 2018-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.kinesisvideo.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that writes every write as one HTTP chunk of the chunked transfer encoding, straight to the
+ * underlying stream and without copying the payload.
+ * <p>
+ * {@link #writeChunk(byte[], int, int)} frames the chunk in the caller's buffer instead, in the
+ * {@link #HEADER_RESERVE} bytes before the payload and {@link #TRAILER_RESERVE} bytes after it, so the whole chunk
+ * goes out in a single write. {@link #close()} writes the last chunk but leaves the underlying stream open.
+ */
+public final class ChunkEncodingOutputStream extends OutputStream {
+    /**
+     * Bytes to leave free before the payload for {@link #writeChunk(byte[], int, int)}: up to eight hex digits of
+     * the chunk size and CRLF.
+     */
+    public static final int HEADER_RESERVE = 10;
+
+    /**
+     * Bytes to leave free after the payload for {@link #writeChunk(byte[], int, int)}: CRLF.
+     */
+    public static final int TRAILER_RESERVE = 2;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+    private static final byte[] CRLF = { CR, LF };
+    private static final byte[] LAST_CHUNK = { '0', CR, LF, CR, LF };
+    private static final int HEX_DIGIT_BITS = 4;
+    private static final int HEX_DIGIT_MASK = 0xf;
+
+    private final OutputStream mOutputStream;
+    private final byte[] mHeader = new byte[HEADER_RESERVE];
+    private final byte[] mOneByteBuffer = new byte[1];
+    private boolean mFinished;
+
+    public ChunkEncodingOutputStream(final OutputStream outputStream) {
+        mOutputStream = outputStream;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        mOneByteBuffer[0] = (byte) b;
+        write(mOneByteBuffer, 0, 1);
+    }
+
+    /**
+     * Writes the bytes as one chunk, as three writes to the underlying stream: the header, the payload and CRLF.
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        ensureNotFinished();
+        if (len == 0) {
+            // An empty chunk would end the stream.
+            return;
+        }
+        final int headerLength = writeHeader(mHeader, HEADER_RESERVE, len);
+        mOutputStream.write(mHeader, HEADER_RESERVE - headerLength, headerLength);
+        mOutputStream.write(b, off, len);
+        mOutputStream.write(CRLF);
+    }
+
+    /**
+     * Writes the payload as one chunk in a single write to the underlying stream. The chunk is framed in place: up to
+     * {@link #HEADER_RESERVE} bytes before off and the {@link #TRAILER_RESERVE} bytes after the payload are
+     * overwritten.
+     *
+     * @param buffer buffer holding the payload, with free space around it
+     * @param off offset of the payload, at least {@link #HEADER_RESERVE}
+     * @param len length of the payload
+     * @throws IOException if writing to the underlying stream fails
+     */
+    public void writeChunk(final byte[] buffer, final int off, final int len) throws IOException {
+        ensureNotFinished();
+        if (off < HEADER_RESERVE || buffer.length - off - len < TRAILER_RESERVE) {
+            throw new IllegalArgumentException("No room to frame the chunk around the payload");
+        }
+        if (len == 0) {
+            return;
+        }
+        final int headerLength = writeHeader(buffer, off, len);
+        buffer[off + len] = CR;
+        buffer[off + len + 1] = LF;
+        mOutputStream.write(buffer, off - headerLength, headerLength + len + TRAILER_RESERVE);
+    }
+
+    /**
+     * Writes the last chunk, which ends the chunked stream, and flushes the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (!mFinished) {
+            mFinished = true;
+            mOutputStream.write(LAST_CHUNK);
+            mOutputStream.flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mOutputStream.flush();
+    }
+
+    /**
+     * Finishes the chunked stream. The underlying stream stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void ensureNotFinished() throws IOException {
+        if (mFinished) {
+            throw new IOException("Chunked stream already finished");
+        }
+    }
+
+    /**
+     * Writes the hex chunk size and CRLF so that they end right before the given offset.
+     *
+     * @return the length of the header
+     */
+    private static int writeHeader(final byte[] buffer, final int end, final int size) {
+        int position = end;
+        buffer[--position] = LF;
+        buffer[--position] = CR;
+        int remaining = size;
+        do {
+            buffer[--position] = HEX_DIGITS[remaining & HEX_DIGIT_MASK];
+            remaining >>>= HEX_DIGIT_BITS;
+        } while (remaining != 0);
+        return end - position;
+    }
+}
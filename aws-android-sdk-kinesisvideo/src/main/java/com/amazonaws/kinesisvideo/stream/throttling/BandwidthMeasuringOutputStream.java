@@ -40,4 +40,15 @@ public class BandwidthMeasuringOutputStream extends OutputStream {
         mOutputStream.write(b);
     }
 
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        mOpsPerSecondMeasurer.recordOperations(len);
+        mOutputStream.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mOutputStream.flush();
+    }
+
 }
@@ -27,7 +27,7 @@ public class OpsPerSecondMeasurer {
     private static final int MS_IN_SEC = 1000;
     private final Consumer<Long> mCallback;
 
-    private int mOpsSinceLastMeasurement = 0;
+    private long mOpsSinceLastMeasurement = 0;
     private long mLastMeasurementTimeMs = 0;
 
     public OpsPerSecondMeasurer(final Consumer<Long> callback) {
@@ -35,9 +35,13 @@ public class OpsPerSecondMeasurer {
     }
 
     public void recordOperation() {
+        recordOperations(1);
+    }
+
+    public void recordOperations(final int count) {
         ensureInitialized();
 
-        mOpsSinceLastMeasurement++;
+        mOpsSinceLastMeasurement += count;
 
         tryRecordMeasurementAndReset();
     }
@@ -16,6 +16,7 @@
 package com.amazonaws.mobileconnectors.lambdainvoker;
 
 import com.amazonaws.util.StringUtils;
+import com.amazonaws.util.json.JsonByteSink;
 import com.google.gson.Gson;
 
 import java.io.BufferedReader;
@@ -49,6 +50,10 @@ public class LambdaJsonBinder implements LambdaDataBinder {
 
     @Override
     public byte[] serialize(Object object) {
-        return gson.toJson(object).getBytes(StringUtils.UTF8);
+        // encode while serializing rather than building a String first
+        final JsonByteSink sink = new JsonByteSink();
+        gson.toJson(object, sink);
+        sink.close();
+        return sink.toByteArray();
     }
 }
@@ -140,6 +140,24 @@ public class OpusEncoder implements AudioEncoder {
         return encodeOpus(mOpusEncoder, samples, mPacketSize);
     }
 
+    @Override
+    public int encode(final short[] samples, final int numSamples, final byte[] output,
+            final int offset) throws AudioEncoderException {
+        // The native encoder returns a new array, so copy it into the output.
+        final byte[] packet = encode(samples, numSamples);
+        if (packet.length > output.length - offset) {
+            throw new AudioEncoderException("Output buffer is too small");
+        }
+        System.arraycopy(packet, 0, output, offset, packet.length);
+        return packet.length;
+    }
+
+    @Override
+    public int getMaxEncodedSize(final int numSamples) {
+        // Each call encodes one frame into one CBR packet.
+        return mPacketSize;
+    }
+
     @Override
     public MediaType getMediaType() {
         return mMediaType;
@@ -34,7 +34,6 @@ import com.amazonaws.mobileconnectors.lex.interactionkit.exceptions.InvalidParam
 import com.amazonaws.mobileconnectors.lex.interactionkit.exceptions.LexClientException;
 import com.amazonaws.mobileconnectors.lex.interactionkit.exceptions.MaxSpeechTimeOutException;
 import com.amazonaws.mobileconnectors.lex.interactionkit.exceptions.NoSpeechTimeOutException;
-import com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio.AudioRecorder;
 import com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio.AudioRecordingTask;
 import com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio.AudioRecordingTaskListener;
 import com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio.AudioTimeouts;
@@ -60,14 +59,12 @@ import com.amazonaws.services.lexrts.model.PostContentRequest;
 import com.amazonaws.services.lexrts.model.PostContentResult;
 import com.amazonaws.util.StringUtils;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * The main service interface for the developers. This class abstracts all service complexities.
@@ -351,16 +348,9 @@ public class InteractionClient {
                                     dnnVADConfig(vadConfig).
                                     build();
 
-                    // Calculate the maximum buffer size for pipes.
-                    final int maxTotalAudioLengthInMills = audioTimeouts.getNoSpeechTimeout()
-                            + audioTimeouts.getMaxSpeechTimeout();
-                    final int pipeSize = AudioRecorder.DEFAULT_SAMPLE_RATE
-                            * (int) TimeUnit.MILLISECONDS.toSeconds(maxTotalAudioLengthInMills)
-                            * (SAMPLE_SIZE / Byte.SIZE);
-
-                    final InputStream audioInStream =
-                            new BufferedInputStream(lexAudioRecorder.getConsumerStream(),
-                                    pipeSize);
+                    // The recorder's stream reads straight from its audio buffer,
+                    // which supports mark and reset for retries.
+                    final InputStream audioInStream = lexAudioRecorder.getConsumerStream();
 
                     final PostContentRequest request =
                             CreateLexServiceRequest.generatePostContentRequest(sessionAttributes,
@@ -734,8 +724,8 @@ public class InteractionClient {
                     public void onBufferReceived(byte[] buffer) {
                         // No operation required. This callback is invoked by AudioRecorder. The bytes received
                         // in this callback are PCM encoded. LexAudioRecorder extends AudioRecorder to
-                        // allow other audio encoders, and pipe the encoded bytes through a PipedInputStream.
-                        // The PipedInputStream used in the request to the
+                        // allow other audio encoders, and writes the encoded bytes to an AudioRingBuffer
+                        // whose stream is used in the request to the
                         // Amazon Lex service.
                     }
 
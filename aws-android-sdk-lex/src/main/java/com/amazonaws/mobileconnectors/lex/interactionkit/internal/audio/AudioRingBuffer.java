@@ -0,0 +1,242 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A preallocated ring buffer that carries the encoded audio of one voice
+ * interaction from the recording thread to the request stream. There is a
+ * single producer, which writes with {@link #write(byte[], int, int)}, and a
+ * single consumer, which reads from {@link #getInputStream()}. Nothing is
+ * allocated after construction. The stream supports mark and reset as long
+ * as the marked audio hasn't been overwritten, so a request can be retried
+ * without buffering the audio a second time.
+ */
+public class AudioRingBuffer {
+
+    private final byte[] mBuffer;
+
+    /**
+     * Total number of bytes written and read. The buffer index of a position
+     * is the position modulo the capacity.
+     */
+    private long mWritePosition;
+    private long mReadPosition;
+
+    /**
+     * Position the stream resets to, or -1 if there is no valid mark.
+     */
+    private long mMarkPosition = -1;
+
+    private boolean mWriteClosed;
+    private boolean mReadClosed;
+
+    private final InputStream mInputStream = new RingBufferInputStream();
+
+    /**
+     * Create a ring buffer holding up to the given number of bytes.
+     *
+     * @param capacity the capacity in bytes.
+     */
+    public AudioRingBuffer(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        mBuffer = new byte[capacity];
+    }
+
+    /**
+     * Get the capacity of the buffer.
+     *
+     * @return the capacity in bytes.
+     */
+    public int getCapacity() {
+        return mBuffer.length;
+    }
+
+    /**
+     * Get the stream the written audio is read from. The same stream is
+     * returned by every call.
+     *
+     * @return the consumer stream.
+     */
+    public InputStream getInputStream() {
+        return mInputStream;
+    }
+
+    /**
+     * Write bytes to the buffer, waiting while it is full. Marked bytes
+     * already read are overwritten rather than waited for, which invalidates
+     * the mark.
+     *
+     * @param bytes the bytes to write.
+     * @param offset the offset of the first byte.
+     * @param length the number of bytes.
+     * @throws IOException if the buffer or its stream was closed, or the
+     *             thread was interrupted while waiting.
+     */
+    public synchronized void write(final byte[] bytes, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            if (mWriteClosed) {
+                throw new IOException("Audio buffer closed");
+            }
+            if (mReadClosed) {
+                throw new IOException("Audio stream closed");
+            }
+            final int free = mBuffer.length - (int) (mWritePosition - mReadPosition);
+            if (free == 0) {
+                waitForChange();
+                continue;
+            }
+            final int index = (int) (mWritePosition % mBuffer.length);
+            final int count = Math.min(Math.min(length, free), mBuffer.length - index);
+            if (mMarkPosition >= 0 && mWritePosition + count - mMarkPosition > mBuffer.length) {
+                mMarkPosition = -1;
+            }
+            System.arraycopy(bytes, offset, mBuffer, index, count);
+            mWritePosition += count;
+            offset += count;
+            length -= count;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Signal the end of the audio. The stream returns the remaining bytes
+     * and then the end of stream.
+     */
+    public synchronized void close() {
+        mWriteClosed = true;
+        notifyAll();
+    }
+
+    private void waitForChange() throws IOException {
+        try {
+            wait();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the audio buffer");
+        }
+    }
+
+    /**
+     * The consumer side of the buffer.
+     */
+    private class RingBufferInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            synchronized (AudioRingBuffer.this) {
+                if (!awaitData()) {
+                    return -1;
+                }
+                final int b = mBuffer[(int) (mReadPosition % mBuffer.length)] & 0xff;
+                mReadPosition++;
+                AudioRingBuffer.this.notifyAll();
+                return b;
+            }
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length)
+                throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            synchronized (AudioRingBuffer.this) {
+                if (!awaitData()) {
+                    return -1;
+                }
+                final int index = (int) (mReadPosition % mBuffer.length);
+                final int available = (int) (mWritePosition - mReadPosition);
+                final int count = Math.min(Math.min(length, available), mBuffer.length - index);
+                System.arraycopy(mBuffer, index, bytes, offset, count);
+                mReadPosition += count;
+                AudioRingBuffer.this.notifyAll();
+                return count;
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            synchronized (AudioRingBuffer.this) {
+                if (mReadClosed) {
+                    throw new IOException("Audio stream closed");
+                }
+                return (int) (mWritePosition - mReadPosition);
+            }
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        /**
+         * Marks the current position. The mark stays valid until the
+         * producer needs the space of the marked bytes, whatever the
+         * readLimit.
+         */
+        @Override
+        public void mark(final int readLimit) {
+            synchronized (AudioRingBuffer.this) {
+                mMarkPosition = mReadPosition;
+            }
+        }
+
+        @Override
+        public void reset() throws IOException {
+            synchronized (AudioRingBuffer.this) {
+                if (mMarkPosition < 0) {
+                    throw new IOException("Resetting to invalid mark");
+                }
+                mReadPosition = mMarkPosition;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (AudioRingBuffer.this) {
+                mReadClosed = true;
+                AudioRingBuffer.this.notifyAll();
+            }
+        }
+
+        /**
+         * Wait until there is data to read.
+         *
+         * @return false at the end of the audio.
+         */
+        private boolean awaitData() throws IOException {
+            while (mReadPosition == mWritePosition) {
+                if (mReadClosed) {
+                    throw new IOException("Audio stream closed");
+                }
+                if (mWriteClosed) {
+                    return false;
+                }
+                waitForChange();
+            }
+            if (mReadClosed) {
+                throw new IOException("Audio stream closed");
+            }
+            return true;
+        }
+    }
+}
@@ -28,8 +28,6 @@ import com.google.common.base.Preconditions;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -60,14 +58,14 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
     private long mRecordStartTime;
 
     /**
-     * Stream to be read by wake word service.
+     * Carries the encoded audio to the consumer stream.
      */
-    private PipedInputStream mConsumerStream;
+    private AudioRingBuffer mAudioBuffer;
 
     /**
-     * Stream used to output recorded audio.
+     * Reused buffer the audio of each read is encoded into.
      */
-    private PipedOutputStream mProducerStream;
+    private byte[] mEncodedBuffer;
 
     /**
      * The state of the audio recorder before recording the next sample.
@@ -179,27 +177,27 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
 
     @Override
     public InputStream getConsumerStream() {
-        return mConsumerStream;
+        return mAudioBuffer.getInputStream();
     }
 
     /**
-     * Set up the producer and consumer stream.
+     * Set up the buffer the encoded audio is read from. It holds the longest
+     * audio the timeouts allow, so the recorder doesn't wait for the request
+     * and a failed request can be retried from the start of the audio.
      *
-     * @throws AudioSourceException thrown if failed to open consumer stream.
+     * @throws AudioSourceException thrown if the timeouts are too short.
      */
     protected void setupStreamPipe() throws AudioSourceException {
-        // Calculate pipe size.
+        // Calculate buffer size.
         final int maxTotalAudioLengthInMills = mAudioTimeouts.getNoSpeechTimeout()
                 + mAudioTimeouts.getMaxSpeechTimeout();
-        final int pipeSize = AudioRecorder.DEFAULT_SAMPLE_RATE
+        final int bufferSize = AudioRecorder.DEFAULT_SAMPLE_RATE
                 * (int) TimeUnit.MILLISECONDS.toSeconds(maxTotalAudioLengthInMills)
                 * (SAMPLE_SIZE / Byte.SIZE);
 
-        // Set up the audio stream pipe.
-        mProducerStream = new PipedOutputStream();
         try {
-            mConsumerStream = new PipedInputStream(mProducerStream, pipeSize);
-        } catch (final IOException e) {
+            mAudioBuffer = new AudioRingBuffer(bufferSize);
+        } catch (final IllegalArgumentException e) {
             throw new AudioSourceException("Error openning consumer stream", e);
         }
     }
@@ -257,12 +255,17 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
             // Process the samples through the VAD and get current VAD state.
             currentState = mVAD.processSamples(buffer, numSamplesRead);
 
-            // Encode audio for sending to service.
-            final byte[] compressedBuffer = mAudioEncoder.encode(buffer, numSamplesRead);
+            // Encode audio for sending to service, into a buffer allocated
+            // on the first read.
+            final int maxEncodedSize = mAudioEncoder.getMaxEncodedSize(numSamplesRead);
+            if (mEncodedBuffer == null || mEncodedBuffer.length < maxEncodedSize) {
+                mEncodedBuffer = new byte[maxEncodedSize];
+            }
+            final int encodedSize = mAudioEncoder.encode(buffer, numSamplesRead,
+                    mEncodedBuffer, 0);
 
             try {
-                mProducerStream.write(compressedBuffer, 0, compressedBuffer.length);
-                mProducerStream.flush();
+                mAudioBuffer.write(mEncodedBuffer, 0, encodedSize);
             } catch (final IOException e) {
                 throw new AudioSourceException(
                         "Error writing to audio upload output stream", e);
@@ -314,7 +317,7 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
      */
     @Override
     protected void cleanUpUtilityComponents() throws IOException {
-        mProducerStream.close();
+        mAudioBuffer.close();
         Log.v(TAG, "Released producer stream");
 
         mAudioEncoder.close();
@@ -322,12 +325,12 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
     }
 
     /**
-     * Return the producer stream.
+     * Return the buffer the encoded audio is written to.
      *
-     * @return the producer stream.
+     * @return the audio buffer.
      */
-    PipedOutputStream getProducerStream() {
-        return mProducerStream;
+    AudioRingBuffer getAudioBuffer() {
+        return mAudioBuffer;
     }
 
     /**
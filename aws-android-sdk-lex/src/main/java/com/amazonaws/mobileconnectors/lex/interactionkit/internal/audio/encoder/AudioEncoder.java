@@ -34,6 +34,30 @@ public interface AudioEncoder extends Closeable {
      */
     byte[] encode(short[] samples, int numSamples) throws AudioEncoderException;
 
+    /**
+     * Encode PCM samples to compressed audio bytes written into the given
+     * buffer instead of a new array.
+     *
+     * @param samples the samples to compress.
+     * @param numSamples the number of samples int the buffer to compress.
+     * @param output the buffer to write the compressed audio bytes to.
+     * @param offset the position in the output buffer to start writing at.
+     * @return the number of bytes written.
+     * @throws AudioEncoderException when there's an error encoding the audio
+     *             or the output buffer is too small.
+     */
+    int encode(short[] samples, int numSamples, byte[] output, int offset)
+            throws AudioEncoderException;
+
+    /**
+     * Get the largest number of bytes encoding the given number of samples
+     * can produce, to size the output buffer.
+     *
+     * @param numSamples the number of samples.
+     * @return the maximum number of compressed audio bytes.
+     */
+    int getMaxEncodedSize(int numSamples);
+
     /**
      * The MediaType of the compressed audio.
      *
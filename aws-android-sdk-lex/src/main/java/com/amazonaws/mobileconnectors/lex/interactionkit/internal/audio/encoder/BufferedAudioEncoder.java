@@ -19,8 +19,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.net.MediaType;
 
 import java.nio.ShortBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A buffering audio encoder that buffers audio and only encodes full frames of
@@ -45,54 +44,51 @@ public class BufferedAudioEncoder implements AudioEncoder {
     @Override
     public byte[] encode(final short[] samples, final int numSamples)
             throws AudioEncoderException {
+        final byte[] buffer = new byte[getMaxEncodedSize(numSamples)];
+        final int length = encode(samples, numSamples, buffer, 0);
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    @Override
+    public int encode(final short[] samples, final int numSamples, final byte[] output,
+            final int offset) throws AudioEncoderException {
         Preconditions.checkArgument(samples.length >= numSamples,
                 "Number of samples cannot exceed buffer size");
 
         int samplesProcessed = 0;
         int toWrite = 0;
-
-        final List<byte[]> encodedBytesList = new ArrayList<byte[]>();
-        final short[] buffer = new short[mSamplesBuffer.capacity()];
+        int position = offset;
 
         // Loop while there are enough samples to fill the buffer.
         while (mSamplesBuffer.remaining() <= numSamples - samplesProcessed) {
             // Copy samples into buffer.
             toWrite = mSamplesBuffer.remaining();
-            System.arraycopy(samples, samplesProcessed, buffer, 0, toWrite);
-
-            mSamplesBuffer.put(buffer, 0, toWrite);
+            mSamplesBuffer.put(samples, samplesProcessed, toWrite);
             samplesProcessed += toWrite;
 
-            // Process samples.
-            encodedBytesList
-                    .add(mEncoder.encode(mSamplesBuffer.array(), mSamplesBuffer.capacity()));
+            // Process samples straight into the output.
+            position += mEncoder.encode(mSamplesBuffer.array(), mSamplesBuffer.capacity(),
+                    output, position);
             mSamplesBuffer.clear();
         }
 
         // If any samples remain, copy into buffer.
         mSamplesBuffer.put(samples, samplesProcessed, numSamples - samplesProcessed);
-        return concatenateBytes(encodedBytesList);
+        return position - offset;
     }
 
     /**
-     * Concatenate a list of byte arrays into one array.
+     * Get the largest number of bytes encoding the given number of samples
+     * can produce, whatever the number of samples buffered from previous
+     * calls.
      *
-     * @param byteList the list of byte arrays.
-     * @return the concatenated byte array.
+     * @param numSamples the number of samples.
+     * @return the maximum number of compressed audio bytes.
      */
-    private byte[] concatenateBytes(final List<byte[]> byteList) {
-        int size = 0;
-        for (final byte[] byteArray : byteList) {
-            size += byteArray.length;
-        }
-
-        final byte[] concatenatedByteArray = new byte[size];
-        int offset = 0;
-        for (final byte[] byteArray : byteList) {
-            System.arraycopy(byteArray, 0, concatenatedByteArray, offset, byteArray.length);
-            offset += byteArray.length;
-        }
-        return concatenatedByteArray;
+    @Override
+    public int getMaxEncodedSize(final int numSamples) {
+        final int frameSize = mSamplesBuffer.capacity();
+        return (numSamples / frameSize + 1) * mEncoder.getMaxEncodedSize(frameSize);
     }
 
     @Override
@@ -155,7 +155,7 @@ public class AnalyticsClient implements JSONSerializable {
             return;
         }
         final AnalyticsEvent recordEvent = AnalyticsEvent.createFromEvent(context, sessionId, System.currentTimeMillis(), event);
-        eventRecorder.recordEvent(recordEvent);
+        eventRecorder.recordEventAsync(recordEvent);
     }
 
     /**
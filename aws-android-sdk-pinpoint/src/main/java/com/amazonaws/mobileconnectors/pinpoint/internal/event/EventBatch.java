@@ -0,0 +1,157 @@
+/**
+ * Copyright 2016-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.pinpoint.internal.event;
+
+import android.database.Cursor;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.mobileconnectors.pinpoint.analytics.AnalyticsEvent;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A batch of stored events read from the local database, to be sent in a
+ * single PutEvents request. The batch is limited by the number of events and
+ * by the total size of their JSON, as stored in the size column.
+ */
+final class EventBatch {
+
+    private static final Log log = LogFactory.getLog(EventBatch.class);
+
+    private static final int ID_COLUMN_INDEX = EventTable.COLUMN_INDEX.ID.getValue();
+    private static final int SIZE_COLUMN_INDEX = EventTable.COLUMN_INDEX.SIZE.getValue();
+    private static final int JSON_COLUMN_INDEX = EventTable.COLUMN_INDEX.JSON.getValue();
+
+    private final List<Integer> rowIds = new ArrayList<Integer>();
+    private final List<String> messages = new ArrayList<String>();
+    private final HashMap<Integer, Integer> idsAndSize = new HashMap<Integer, Integer>();
+    private int rowCount;
+    private long size;
+
+    /**
+     * Reads events from the current row of the cursor on, and leaves the
+     * cursor on the first row that was not read. The batch ends before the
+     * event that would take it over maxEvents events or maxSize characters,
+     * but always holds at least one event.
+     *
+     * @param cursor a cursor over all columns of the event table
+     * @param maxEvents the max number of events
+     * @param maxSize the max total size of the events
+     * @return the batch, which may be empty if every row read was invalid
+     */
+    static EventBatch read(final Cursor cursor, final int maxEvents, final long maxSize) {
+        final EventBatch batch = new EventBatch();
+        while (!cursor.isAfterLast() && batch.rowCount < maxEvents) {
+            if (cursor.isNull(ID_COLUMN_INDEX)) {
+                log.error("Column 'ID' for event was NULL.");
+                cursor.moveToNext();
+                continue;
+            }
+            final int rowId = cursor.getInt(ID_COLUMN_INDEX);
+            Integer size = null;
+            if (cursor.isNull(SIZE_COLUMN_INDEX)) {
+                log.error("Column 'SIZE' for event was NULL.");
+            } else {
+                size = cursor.getInt(SIZE_COLUMN_INDEX);
+            }
+            if (batch.rowCount > 0 && size != null && batch.size + size > maxSize) {
+                break;
+            }
+
+            String message = null;
+            try {
+                message = cursor.getString(JSON_COLUMN_INDEX);
+            } catch (final Exception ex) {
+                log.error("Failed accessing cursor to get next event.", ex);
+            }
+            if (message == null) {
+                log.error(String.format(Locale.US,
+                        "Event from DB with ID=%d and SiZE=%d contained a NULL message.", rowId, size));
+            } else {
+                if (size != null && message.length() != size) {
+                    log.warn(String.format(Locale.US,
+                            "Message with ID=%d has a size mismatch. DBMsgSize=%d DBSizeCol=%d",
+                            rowId, message.length(), size));
+                    size = null;
+                }
+                batch.rowIds.add(rowId);
+                batch.messages.add(message);
+                batch.size += message.length();
+            }
+            // The row is deleted after the submission whether or not it could
+            // be read, so a corrupted row does not stay in the database.
+            batch.idsAndSize.put(rowId, size);
+            batch.rowCount++;
+            cursor.moveToNext();
+        }
+        return batch;
+    }
+
+    /**
+     * @return true if no row was read
+     */
+    boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    /**
+     * @return the number of rows read, valid or not
+     */
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the row ids and sizes of every row read, valid or not
+     */
+    HashMap<Integer, Integer> getIdsAndSize() {
+        return idsAndSize;
+    }
+
+    /**
+     * Decodes the events of the batch. Events that cannot be decoded are left
+     * out.
+     *
+     * @param rowIdsByEventId filled with the row id of each decoded event
+     * @return the decoded events
+     */
+    List<AnalyticsEvent> decodeEvents(final Map<String, Integer> rowIdsByEventId) {
+        final List<AnalyticsEvent> events = new ArrayList<AnalyticsEvent>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            AnalyticsEvent event = null;
+            try {
+                event = AnalyticsEvent.translateToEvent(new JSONObject(messages.get(i)));
+            } catch (final JSONException e) {
+                // Do not log the message due to potentially sensitive information
+                log.error(String.format(Locale.US,
+                        "Unable to deserialize event JSON for event with ID=%d.", rowIds.get(i)));
+            }
+            if (event != null) {
+                events.add(event);
+                rowIdsByEventId.put(event.getEventId(), rowIds.get(i));
+            }
+        }
+        return events;
+    }
+}
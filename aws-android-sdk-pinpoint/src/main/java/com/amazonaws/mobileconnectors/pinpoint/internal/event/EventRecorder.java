@@ -23,13 +23,21 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
@@ -59,7 +67,6 @@ import com.amazonaws.services.pinpoint.model.Session;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.VersionInfoUtils;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -77,15 +84,40 @@ public class EventRecorder {
     static final String KEY_MAX_SUBMISSIONS_ALLOWED = "maxSubmissionAllowed";
     static final int DEFAULT_MAX_SUBMISSIONS_ALLOWED = 3;
     static final int SERVICE_DEFINED_MAX_EVENTS_PER_BATCH = 100;
+    static final String KEY_MAX_SUBMISSIONS_IN_FLIGHT = "maxSubmissionsInFlight";
+    static final int DEFAULT_MAX_SUBMISSIONS_IN_FLIGHT = 3;
     private static final String USER_AGENT = PinpointManager.class.getName() + "/" + VersionInfoUtils.getVersion();
     private static int clippedEventLength = 10;
     private final static int MAX_EVENT_OPERATIONS = 1000;
     private static final long MINIMUM_PENDING_SIZE = 16 * 1024;
+    static final int MAX_QUEUED_EVENTS = 1000;
+    private static final int MAX_EVENTS_PER_TRANSACTION = 500;
+    private static final long WRITER_KEEP_ALIVE_SECONDS = 30;
+    private static final long SUBMITTER_KEEP_ALIVE_SECONDS = 30;
     private static final Log log = LogFactory.getLog(EventRecorder.class);
     private final PinpointDBUtil dbUtil;
     private final ExecutorService submissionRunnableQueue;
     private final PinpointContext pinpointContext;
 
+    /**
+     * Events recorded with {@link #recordEventAsync(AnalyticsEvent)} that are
+     * not in the database yet. They are written by the writer thread, many
+     * per transaction.
+     */
+    private final BlockingQueue<AnalyticsEvent> queuedEvents =
+            new LinkedBlockingQueue<AnalyticsEvent>(MAX_QUEUED_EVENTS);
+    private final ExecutorService writer = new ThreadPoolExecutor(0, 1,
+            WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    /**
+     * Runs the PutEvents requests when more than one is in flight. Its
+     * threads are reused by later submissions and stop when idle.
+     */
+    private final ExecutorService submitter = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            SUBMITTER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+    private final Object writeLock = new Object();
+
     EventRecorder(final PinpointContext pinpointContext,
                   final PinpointDBUtil dbUtil,
                   final ExecutorService submissionRunnableQueue) {
@@ -128,9 +160,10 @@ public class EventRecorder {
     }
 
     /**
-     * Closes the database.
+     * Closes the database, after writing the queued events to it.
      */
     public void closeDB() {
+        flushEvents();
         dbUtil.closeDB();
     }
 
@@ -149,37 +182,95 @@ public class EventRecorder {
         log.info(String.format("Event Recorded to database with EventType: %s",
                 StringUtil.clipString(event.getEventType(), clippedEventLength, true)));
 
-        long maxPendingSize = pinpointContext.getConfiguration().optLong(KEY_MAX_PENDING_SIZE, DEFAULT_MAX_PENDING_SIZE);
-        if (maxPendingSize < MINIMUM_PENDING_SIZE) {
-            maxPendingSize = MINIMUM_PENDING_SIZE;
+        final Uri uri;
+        synchronized (writeLock) {
+            uri = this.dbUtil.saveEvent(event);
+            if (uri != null) {
+                this.dbUtil.deleteOldestEvents(getMaxPendingSize());
+            }
         }
+        if (uri == null) {
+            log.warn(String.format("Event: '%s' failed to record to local database.",
+                    StringUtil.clipString(event.getEventType(), clippedEventLength, true)));
+        }
+        return uri;
+    }
 
-        final Uri uri = this.dbUtil.saveEvent(event);
-        if (uri != null) {
-            while (this.dbUtil.getTotalSize() > maxPendingSize) {
-                Cursor cursor = null;
-                try {
-                    cursor = this.dbUtil.queryOldestEvents(5);
-                    while (this.dbUtil.getTotalSize() > maxPendingSize && cursor.moveToNext()) {
-                        this.dbUtil.deleteEvent(
-                                cursor.getInt(EventTable.COLUMN_INDEX.ID.getValue()),
-                                cursor.getInt(EventTable.COLUMN_INDEX.SIZE.getValue()));
-                    }
-                } finally {
-                    if (cursor != null) {
-                        cursor.close();
-                    }
+    /**
+     * Records an {@link com.amazonaws.mobileconnectors.pinpoint.analytics.AnalyticsEvent}
+     * without waiting for the database. The event is queued in memory and
+     * written by a background thread together with the other queued events,
+     * in a single transaction. If {@link #MAX_QUEUED_EVENTS} events are
+     * already queued, the calling thread writes the queue itself.
+     *
+     * @param event the analytics event
+     */
+    public void recordEventAsync(final AnalyticsEvent event) {
+        if (event == null) {
+            log.warn("Event cannot be null. Pass in a valid non-null event.");
+            return;
+        }
+
+        if (!queuedEvents.offer(event)) {
+            synchronized (writeLock) {
+                final List<AnalyticsEvent> events = new ArrayList<AnalyticsEvent>(MAX_QUEUED_EVENTS + 1);
+                queuedEvents.drainTo(events);
+                events.add(event);
+                writeEvents(events);
+            }
+            return;
+        }
+
+        if (writeScheduled.compareAndSet(false, true)) {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    writeScheduled.set(false);
+                    flushEvents();
                 }
+            });
+        }
+    }
+
+    /**
+     * Writes the events queued by {@link #recordEventAsync(AnalyticsEvent)}
+     * to the database. When this returns, every event queued before the call
+     * is in the database.
+     */
+    public void flushEvents() {
+        synchronized (writeLock) {
+            List<AnalyticsEvent> events = new ArrayList<AnalyticsEvent>();
+            while (queuedEvents.drainTo(events, MAX_EVENTS_PER_TRANSACTION) > 0) {
+                writeEvents(events);
+                events = new ArrayList<AnalyticsEvent>();
             }
+        }
+    }
 
-            return uri;
-        } else {
-            log.warn(String.format("Event: '%s' failed to record to local database.",
-                    StringUtil.clipString(event.getEventType(), clippedEventLength, true)));
-            return null;
+    /**
+     * Must be called with writeLock held.
+     */
+    private void writeEvents(final List<AnalyticsEvent> events) {
+        try {
+            final int saved = dbUtil.saveEvents(events);
+            if (saved < events.size()) {
+                log.warn(String.format(Locale.US, "%d of %d events failed to record to local database.",
+                        events.size() - saved, events.size()));
+            }
+            dbUtil.deleteOldestEvents(getMaxPendingSize());
+            log.info(String.format(Locale.US, "%d events recorded to database.", saved));
+        } catch (final RuntimeException e) {
+            log.error(String.format(Locale.US, "Failed to record %d events to local database.",
+                    events.size()), e);
         }
     }
 
+    private long getMaxPendingSize() {
+        final long maxPendingSize = pinpointContext.getConfiguration()
+                .optLong(KEY_MAX_PENDING_SIZE, DEFAULT_MAX_PENDING_SIZE);
+        return maxPendingSize < MINIMUM_PENDING_SIZE ? MINIMUM_PENDING_SIZE : maxPendingSize;
+    }
+
     private static final int JSON_COLUMN_INDEX = EventTable.COLUMN_INDEX.JSON.getValue();
     private static final int ID_COLUMN_INDEX = EventTable.COLUMN_INDEX.ID.getValue();
     private static final int SIZE_COLUMN_INDEX = EventTable.COLUMN_INDEX.SIZE.getValue();
@@ -209,7 +300,8 @@ public class EventRecorder {
                 final String message = cursor.getString(JSON_COLUMN_INDEX);
                 try {
                     jsonObject = new JSONObject(message);
-                    //link event with databaseId
+                    // getAllEvents callers get the row id as databaseId. Submission
+                    // reads rows with EventBatch and does not use it.
                     jsonObject.put(DATABASE_ID_KEY,rowId);
                 } catch (final JSONException e) {
                     log.error(String.format(Locale.US,
@@ -249,40 +341,8 @@ public class EventRecorder {
         });
     }
 
-    /**
-     * Reads events of maximum of KEY_MAX_SUBMISSION_SIZE size.
-     * The default max request size is DEFAULT_MAX_SUBMISSION_SIZE.
-     *
-     * @param cursor the cursor to the database to read events from
-     * @param idsAndSizeToDelete map of id and size of the event
-     * @return an array of the events.
-     */
-    JSONArray getBatchOfEvents(final Cursor cursor,
-                                       final HashMap<Integer, Integer> idsAndSizeToDelete) {
-        final JSONArray eventArray = new JSONArray();
-        long currentRequestSize = 0;
-        long eventLength;
-        final long maxRequestSize = pinpointContext
-                .getConfiguration()
-                .optLong(KEY_MAX_SUBMISSION_SIZE, DEFAULT_MAX_SUBMISSION_SIZE);
-
-        do {
-            JSONObject json = readEventFromCursor(cursor, idsAndSizeToDelete);
-            if (json != null) {
-                eventLength = json.length();
-                currentRequestSize += eventLength;
-                eventArray.put(json);
-            }
-            if (currentRequestSize > maxRequestSize
-                    || eventArray.length() >= SERVICE_DEFINED_MAX_EVENTS_PER_BATCH) {
-                break;
-            }
-        } while (cursor.moveToNext());
-
-        return eventArray;
-    }
-
     public List<JSONObject> getAllEvents() {
+        flushEvents();
         final List<JSONObject> events = new ArrayList<JSONObject>();
         Cursor cursor = null;
         try {
@@ -304,6 +364,8 @@ public class EventRecorder {
     void processEvents() {
         final long start = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
 
+        flushEvents();
+
         Cursor cursor = null;
 
         try {
@@ -319,38 +381,57 @@ public class EventRecorder {
             final long maxSubmissionsAllowed = pinpointContext
                     .getConfiguration()
                     .optInt(KEY_MAX_SUBMISSIONS_ALLOWED, DEFAULT_MAX_SUBMISSIONS_ALLOWED);
-
+            final long maxRequestSize = pinpointContext
+                    .getConfiguration()
+                    .optLong(KEY_MAX_SUBMISSION_SIZE, DEFAULT_MAX_SUBMISSION_SIZE);
+            final int maxSubmissionsInFlight = getMaxSubmissionsInFlight();
+
+            // The batches are read from the cursor and their submitted events are deleted
+            // on this thread. Only the PutEvents requests run on the submitter, so that up
+            // to maxSubmissionsInFlight requests wait on the network at the same time.
+            // Batches are submitted until maxSubmissionAllowed of them are sent, the cursor
+            // is drained, or a submission delivers nothing, for instance when the device is
+            // offline.
+            final boolean parallel = maxSubmissionsInFlight > 1;
+            boolean delivering = true;
+            final LinkedList<Future<HashMap<Integer, Integer>>> inFlight =
+                    new LinkedList<Future<HashMap<Integer, Integer>>>();
             do {
-                final HashMap<Integer, Integer> batchIdsAndSizeToDelete = new HashMap<Integer, Integer>();
-                final JSONArray events = this.getBatchOfEvents(cursor, batchIdsAndSizeToDelete);
-
-                // submitEventsAndEndpoint will submit the events and add the successfully submitted events
-                // into the SUCCESSFUL_EVENT_IDS and the failed events into the FAILED_EVENT_IDS map
-                // respectively.
-                // submitEventsAndEndpoint mutates the batchIdsAndSizeToDelete map. In cases where we
-                // want to keep the events in the local database, batchIdsAndSizeToDelete is cleared
-                // so we do not delete them.
-                if (batchIdsAndSizeToDelete.size() > 0) {
-                    submitEventsAndEndpoint(events, batchIdsAndSizeToDelete);
-                    submissions++;
+                final EventBatch batch = EventBatch.read(cursor, SERVICE_DEFINED_MAX_EVENTS_PER_BATCH,
+                        maxRequestSize);
+                if (batch.isEmpty()) {
+                    continue;
                 }
-
-                // Delete events from the local database. At this point batchIdsAndSizeToDelete
-                // reflects the set of events that can be deleted from the local database.
-                for (Integer id : batchIdsAndSizeToDelete.keySet()) {
-                    try {
-                        dbUtil.deleteEvent(id, batchIdsAndSizeToDelete.get(id));
-                    } catch (final IllegalArgumentException exc) {
-                        log.error("Failed to delete event: " + id, exc);
-                    }
+                final EndpointProfile endpoint = pinpointContext.getTargetingClient().currentEndpoint();
+                final FutureTask<HashMap<Integer, Integer>> submission =
+                        new FutureTask<HashMap<Integer, Integer>>(new Callable<HashMap<Integer, Integer>>() {
+                            @Override
+                            public HashMap<Integer, Integer> call() {
+                                return submitEventsAndEndpoint(batch, endpoint);
+                            }
+                        });
+                if (!parallel) {
+                    submission.run();
+                } else {
+                    submitter.execute(submission);
                 }
-                if (submissions >= maxSubmissionsAllowed) {
-                    break;
+                inFlight.add(submission);
+                submissions++;
+
+                if (inFlight.size() >= maxSubmissionsInFlight) {
+                    delivering = deleteSubmittedEvents(inFlight.removeFirst());
                 }
-            } while (cursor.moveToNext());
+            } while (delivering && submissions < maxSubmissionsAllowed && !cursor.isAfterLast());
+
+            while (!inFlight.isEmpty()) {
+                deleteSubmittedEvents(inFlight.removeFirst());
+            }
 
             log.info(String.format(Locale.US, "Time of attemptDelivery: %d",
                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - start));
+        } catch (final InterruptedException e) {
+            log.warn("Interrupted while submitting events, the remaining events will be submitted later.");
+            Thread.currentThread().interrupt();
         } finally {
             if (cursor != null) {
                 cursor.close();
@@ -358,25 +439,60 @@ public class EventRecorder {
         }
     }
 
-    private void submitEventsAndEndpoint(final JSONArray eventArray,
-                                         final HashMap<Integer, Integer> batchIdsAndSizeToProcess) {
-        submitEventsAndEndpoint(eventArray,
-                batchIdsAndSizeToProcess,
-                pinpointContext.getTargetingClient().currentEndpoint());
+    private int getMaxSubmissionsInFlight() {
+        final int maxSubmissionsInFlight = pinpointContext.getConfiguration()
+                .optInt(KEY_MAX_SUBMISSIONS_IN_FLIGHT, DEFAULT_MAX_SUBMISSIONS_IN_FLIGHT);
+        return maxSubmissionsInFlight < 1 ? 1 : maxSubmissionsInFlight;
+    }
+
+    /**
+     * Waits for a submission and deletes the events it returned from the local
+     * database. If the submission failed unexpectedly, its events are kept.
+     *
+     * @return true if the submission delivered or dropped any event, false if
+     *         all of its events are kept to be submitted later
+     */
+    private boolean deleteSubmittedEvents(final Future<HashMap<Integer, Integer>> submission)
+            throws InterruptedException {
+        final HashMap<Integer, Integer> batchIdsAndSizeToDelete;
+        try {
+            batchIdsAndSizeToDelete = submission.get();
+        } catch (final ExecutionException e) {
+            log.error("Failed to submit events, events will be saved.", e.getCause());
+            return false;
+        }
+        if (batchIdsAndSizeToDelete.isEmpty()) {
+            return false;
+        }
+        try {
+            dbUtil.deleteEvents(batchIdsAndSizeToDelete);
+        } catch (final RuntimeException e) {
+            log.error(String.format(Locale.US, "Failed to delete %d events.",
+                    batchIdsAndSizeToDelete.size()), e);
+        }
+        return true;
     }
 
-    private void submitEventsAndEndpoint(final JSONArray eventArray,
-                                         final HashMap<Integer, Integer> batchIdsAndSizeToDelete,
-                                         EndpointProfile endpoint) {
+    /**
+     * Submits a batch of events with the endpoint.
+     *
+     * @return the ids and sizes of the rows that can be deleted from the
+     *         local database
+     */
+    private HashMap<Integer, Integer> submitEventsAndEndpoint(final EventBatch batch,
+                                                               final EndpointProfile endpoint) {
+        final HashMap<Integer, Integer> batchIdsAndSizeToDelete = batch.getIdsAndSize();
 
         if (endpoint == null) {
             log.warn("Endpoint profile is null, failed to submit events.");
             batchIdsAndSizeToDelete.clear();
-            return;
+            return batchIdsAndSizeToDelete;
         }
 
         // package them into an putEvents request
-        PutEventsRequest request = this.createRecordEventsRequest(eventArray, endpoint);
+        final Map<String, Integer> rowIdsByEventId = new HashMap<String, Integer>();
+        final List<AnalyticsEvent> events = batch.decodeEvents(rowIdsByEventId);
+        PutEventsRequest request = this.createRecordEventsRequest(events, endpoint);
         request.getRequestClientOptions().appendUserAgent(USER_AGENT);
 
         try {
@@ -387,7 +503,7 @@ public class EventRecorder {
             processEndpointResponse(endpoint, resultResponse);
 
             //request accepted, checking each event item in the response.
-            processEventsResponse(eventArray, endpoint, resultResponse, batchIdsAndSizeToDelete);
+            processEventsResponse(rowIdsByEventId, endpoint, resultResponse, batchIdsAndSizeToDelete);
 
             log.info(String.format(Locale.getDefault(), "Successful submission of %d events.",
                     batchIdsAndSizeToDelete.size()));
@@ -413,7 +529,7 @@ public class EventRecorder {
                         amazonServiceException);
                 log.error(
                         String.format(Locale.getDefault(), "Failed submission of %d events, events will be " +
-                                "removed from the local database. ", eventArray.length()),
+                                "removed from the local database. ", batch.getRowCount()),
                         amazonServiceException);
             }
         } catch (final AmazonClientException amazonClientException) {
@@ -429,10 +545,11 @@ public class EventRecorder {
             } else {
                 log.error(
                         String.format(Locale.getDefault(), "AmazonClientException: Failed submission of %d events, events will be " +
-                        "removed from the local database. ", eventArray.length()),
+                        "removed from the local database. ", batch.getRowCount()),
                         amazonClientException);
             }
         }
+        return batchIdsAndSizeToDelete;
     }
 
     private void processEndpointResponse(EndpointProfile endpoint, PutEventsResult resultResponse) {
@@ -449,40 +566,35 @@ public class EventRecorder {
         }
     }
 
-    private void processEventsResponse(final JSONArray eventArray,
+    private void processEventsResponse(final Map<String, Integer> rowIdsByEventId,
                                        EndpointProfile endpointProfile,
                                        final PutEventsResult resultResponse,
                                        final Map<Integer, Integer> batchIdsAndSizeToDelete) {
-        String eventId;
         EventItemResponse responseMessage;
 
-        for(int i = 0; i < eventArray.length(); i++) {
-            try {
-                eventId = eventArray.getJSONObject(i).getString(EVENT_ID);
-                responseMessage = resultResponse
-                        .getEventsResponse()
-                        .getResults()
-                        .get(endpointProfile.getEndpointId())
-                        .getEventsItemResponse()
-                        .get(eventId);
-                // If the event is Accepted by Pinpoint OR if a retryable error occurred
-                // while submitting, remove the event from batchIdsAndSizeToDelete
-                // so the event does not get deleted from the local database.
-                if (responseMessage.getMessage().equalsIgnoreCase("Accepted")) {
-                    log.info(String.format("Successful submit event with event id %s", eventId));
-                } else if (isRetryable(responseMessage.getMessage())) {
-                    log.warn(String.format("Unable to successfully deliver event to server. " +
-                            "Event will be saved. Event id %s", eventId));
-                    batchIdsAndSizeToDelete.remove(eventArray.getJSONObject(i).getInt(DATABASE_ID_KEY));
-                } else {
-                    // Item level exception, not retryable, so the event will be removed
-                    // from the local database.
-                    log.error(
-                            String.format("Failed to submitEvents to EventService: statusCode: %s Status Message: %s",
-                                    responseMessage.getStatusCode(), responseMessage.getMessage()));
-                }
-            } catch (JSONException e) {
-                log.error("Failed to get event id while processing event item response.", e);
+        for (final Map.Entry<String, Integer> entry : rowIdsByEventId.entrySet()) {
+            final String eventId = entry.getKey();
+            responseMessage = resultResponse
+                    .getEventsResponse()
+                    .getResults()
+                    .get(endpointProfile.getEndpointId())
+                    .getEventsItemResponse()
+                    .get(eventId);
+            // If the event is Accepted by Pinpoint OR if a retryable error occurred
+            // while submitting, remove the event from batchIdsAndSizeToDelete
+            // so the event does not get deleted from the local database.
+            if (responseMessage.getMessage().equalsIgnoreCase("Accepted")) {
+                log.info(String.format("Successful submit event with event id %s", eventId));
+            } else if (isRetryable(responseMessage.getMessage())) {
+                log.warn(String.format("Unable to successfully deliver event to server. " +
+                        "Event will be saved. Event id %s", eventId));
+                batchIdsAndSizeToDelete.remove(entry.getValue());
+            } else {
+                // Item level exception, not retryable, so the event will be removed
+                // from the local database.
+                log.error(
+                        String.format("Failed to submitEvents to EventService: statusCode: %s Status Message: %s",
+                                responseMessage.getStatusCode(), responseMessage.getMessage()));
             }
         }
     }
@@ -503,12 +615,12 @@ public class EventRecorder {
     }
 
     /**
-     * @param events array of events
+     * @param events the events
      * @param endpointProfile endpoint profile for the device endpoint
      *
      * @return the request to put event
      */
-    private PutEventsRequest createRecordEventsRequest(final JSONArray events,
+    private PutEventsRequest createRecordEventsRequest(final List<AnalyticsEvent> events,
                                                        final EndpointProfile endpointProfile) {
 
         final PutEventsRequest putRequest = new PutEventsRequest().withApplicationId(endpointProfile.getApplicationId());
@@ -521,18 +633,7 @@ public class EventRecorder {
         // build endpoint payload
         buildEndpointPayload(endpointProfile, endpoint);
 
-        for (int i = 0; i < events.length(); i++) {
-            JSONObject eventJSON = null;
-            AnalyticsEvent internalEvent = null;
-            try {
-                eventJSON = events.getJSONObject(i);
-                internalEvent = AnalyticsEvent.translateToEvent(eventJSON);
-            } catch (final JSONException jsonException) {
-                // Do not log JSONException due to potentially sensitive information
-                log.error("Stored event was invalid JSON.", jsonException);
-                continue;
-            }
-
+        for (final AnalyticsEvent internalEvent : events) {
             // build event payload
             final Event event = new Event();
             buildEventPayload(internalEvent, event);
@@ -24,6 +24,9 @@ import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.text.TextUtils;
 
+import java.util.Map;
+
+import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.COLUMN_ID;
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.COLUMN_SIZE;
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.TABLE_EVENT;
 
@@ -88,7 +91,7 @@ public class PinpointDBBase {
      * @param values The values of a record.
      * @return The Uri of the inserted record.
      */
-    public Uri insert(final Uri uri, final ContentValues values) {
+    public synchronized Uri insert(final Uri uri, final ContentValues values) {
         final int uriType = uriMatcher.match(uri);
         final SQLiteDatabase db = databaseHelper.getWritableDatabase();
         long id = 0;
@@ -104,12 +107,121 @@ public class PinpointDBBase {
         return Uri.parse(BASE_PATH + "/" + id);
     }
 
+    /**
+     * Inserts records to the table in a single transaction.
+     *
+     * @param uri    The Uri of a table.
+     * @param values The values of the records.
+     * @return The number of records inserted.
+     */
+    public synchronized int bulkInsert(final Uri uri, final ContentValues[] values) {
+        if (uriMatcher.match(uri) != EVENTS) {
+            throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        final long size = getTotalSize();
+        long insertedSize = 0;
+        int inserted = 0;
+        db.beginTransaction();
+        try {
+            for (final ContentValues value : values) {
+                if (db.insert(TABLE_EVENT, null, value) != -1) {
+                    insertedSize += value.getAsLong(COLUMN_SIZE);
+                    inserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        totalSize = size + insertedSize;
+        return inserted;
+    }
+
+    /**
+     * Deletes the oldest records until the total size of the records is at
+     * most the given size, with a single delete statement.
+     *
+     * @param maxTotalSize The max total size of the records.
+     * @return Number of rows deleted.
+     */
+    public synchronized int deleteOldest(final long maxTotalSize) {
+        final long size = getTotalSize();
+        if (size <= maxTotalSize) {
+            return 0;
+        }
+        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        long freedSize = 0;
+        long lastId = -1;
+        int count = 0;
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_EVENT, new String[] { COLUMN_ID, COLUMN_SIZE }, null, null, null, null,
+                              COLUMN_ID + " ASC");
+            while (size - freedSize > maxTotalSize && cursor.moveToNext()) {
+                lastId = cursor.getLong(0);
+                freedSize += cursor.getLong(1);
+                count++;
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        if (count == 0) {
+            totalSize = -1;
+            return 0;
+        }
+        final int rowsDeleted = db.delete(TABLE_EVENT, COLUMN_ID + "<=" + lastId, null);
+        totalSize = rowsDeleted == count ? size - freedSize : -1;
+        return rowsDeleted;
+    }
+
+    /**
+     * Deletes the records with the given ids in a single transaction.
+     *
+     * @param idsAndSize The ids of the records, mapped to their known size or
+     *                   null if the size is unknown.
+     * @return Number of rows deleted.
+     */
+    public synchronized int bulkDelete(final Map<Integer, Integer> idsAndSize) {
+        if (idsAndSize.isEmpty()) {
+            return 0;
+        }
+        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        final long size = getTotalSize();
+        boolean sizesKnown = true;
+        long deletedSize = 0;
+        final StringBuilder ids = new StringBuilder();
+        for (final Map.Entry<Integer, Integer> entry : idsAndSize.entrySet()) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(entry.getKey());
+            if (entry.getValue() == null) {
+                sizesKnown = false;
+            } else {
+                deletedSize += entry.getValue();
+            }
+        }
+        final int rowsDeleted;
+        db.beginTransaction();
+        try {
+            rowsDeleted = db.delete(TABLE_EVENT, COLUMN_ID + " IN (" + ids + ")", null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        totalSize = sizesKnown && rowsDeleted == idsAndSize.size() ? size - deletedSize : -1;
+        return rowsDeleted;
+    }
+
     /**
      * Get total size of event records.
      *
      * @return Total size.
      */
-    public long getTotalSize() {
+    public synchronized long getTotalSize() {
         Cursor cursor = null;
         try {
             if (totalSize < 0) {
@@ -203,7 +315,7 @@ public class PinpointDBBase {
      * @param knownSize     Known size (If known).
      * @return Number of rows deleted.
      */
-    public int delete(final Uri uri, final String selection, final String[] selectionArgs, final Integer knownSize) {
+    public synchronized int delete(final Uri uri, final String selection, final String[] selectionArgs, final Integer knownSize) {
         final int uriType = uriMatcher.match(uri);
         final SQLiteDatabase db = databaseHelper.getWritableDatabase();
         int rowsDeleted = 0;
@@ -21,6 +21,9 @@ import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.List;
+import java.util.Map;
+
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.COLUMN_ID;
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.COLUMN_SIZE;
 
@@ -64,6 +67,31 @@ public class PinpointDBUtil {
         return pinpointDBBase.insert(pinpointDBBase.getContentUri(), generateContentValuesFromEvent(event));
     }
 
+    /**
+     * Saves events into the database in a single transaction.
+     *
+     * @param events The AnalyticsEvents to be saved.
+     * @return The number of records inserted.
+     */
+    public int saveEvents(final List<AnalyticsEvent> events) {
+        final ContentValues[] values = new ContentValues[events.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = generateContentValuesFromEvent(events.get(i));
+        }
+        return pinpointDBBase.bulkInsert(pinpointDBBase.getContentUri(), values);
+    }
+
+    /**
+     * Deletes the oldest events until the total size of the events is at most
+     * the given size.
+     *
+     * @param maxTotalSize The max total size of the events.
+     * @return Number of rows deleted.
+     */
+    public int deleteOldestEvents(final long maxTotalSize) {
+        return pinpointDBBase.deleteOldest(maxTotalSize);
+    }
+
     private ContentValues generateContentValuesFromEvent(final AnalyticsEvent event) {
         ContentValues values = new ContentValues();
         String json = event.toJSONObject().toString();
@@ -112,6 +140,17 @@ public class PinpointDBUtil {
         return pinpointDBBase.delete(getEventUri(id), null, null, size);
     }
 
+    /**
+     * Deletes the events with the given ids in a single transaction.
+     *
+     * @param idsAndSize The ids of the events, mapped to their known size or
+     *                   null if the size is unknown.
+     * @return Number of rows deleted.
+     */
+    public int deleteEvents(final Map<Integer, Integer> idsAndSize) {
+        return pinpointDBBase.bulkDelete(idsAndSize);
+    }
+
     /**
      * Gets the Uri of the event table.
      *
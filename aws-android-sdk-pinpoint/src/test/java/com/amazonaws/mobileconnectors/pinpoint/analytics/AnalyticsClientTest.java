@@ -21,6 +21,9 @@ import com.amazonaws.mobileconnectors.pinpoint.internal.core.configuration.Andro
 import com.amazonaws.mobileconnectors.pinpoint.internal.event.EventRecorder;
 import com.amazonaws.mobileconnectors.pinpoint.internal.event.PinpointDBUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -41,6 +44,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -99,11 +103,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(1);
 
-        final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
+        final AnalyticsEvent recievedEvent = savedEvents.get(0);
         assertThat(recievedEvent.getEventType(), is(EVENT_TYPE));
         assertThat(recievedEvent.getSdkName(), is(SDK_NAME));
         assertThat(recievedEvent.getSdkVersion(), is(SDK_VERSION));
@@ -125,11 +127,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         target.addGlobalMetric("globalMetric", 100.0);
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(1);
 
-        final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
+        final AnalyticsEvent recievedEvent = savedEvents.get(0);
         assertThat(recievedEvent.getEventType(), is(EVENT_TYPE));
         assertThat(recievedEvent.getSdkName(), is(SDK_NAME));
         assertThat(recievedEvent.getSdkVersion(), is(SDK_VERSION));
@@ -256,7 +256,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
     public void recordEvent_nullEvent_noObserverNotified() {
         final AnalyticsEvent event = null;
         target.recordEvent(event);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(0)).saveEvent(any(AnalyticsEvent.class));
+        verify(dbUtil, times(0)).saveEvents(any(List.class));
     }
 
     @Test
@@ -281,11 +283,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         target.recordEvent(differentEvent);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(2);
 
-        final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
+        final AnalyticsEvent recievedEvent = savedEvents.get(0);
 
         assertThat(recievedEvent.getEventType(), is(EVENT_TYPE));
         assertThat(recievedEvent.getSdkName(), is(SDK_NAME));
@@ -301,7 +301,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         assertThat(recievedEvent.getAllMetrics().size(), is(1));
         assertThat(recievedEvent.getMetric("metric"), is(1.0));
 
-        final AnalyticsEvent differentReceivedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent differentReceivedEvent = savedEvents
                                                               .get(1);
         assertThat(differentReceivedEvent.getEventType(),
                           is("differentEventType"));
@@ -331,11 +331,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
                                              .withMetric("metric", 1.0);
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(1);
 
-        final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
+        final AnalyticsEvent recievedEvent = savedEvents.get(0);
         assertThat(recievedEvent.getAttribute("c"), is("val4"));
         assertThat(recievedEvent.getMetric("metric"), is(1.0));
     }
@@ -351,11 +349,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
                                              .withMetric("metric", 1.0);
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(1);
 
-        final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
+        final AnalyticsEvent recievedEvent = savedEvents.get(0);
         assertThat(recievedEvent.getAttribute("c"), is("val4"));
         assertThat(recievedEvent.getMetric("metric").intValue(), is(1));
     }
@@ -381,11 +377,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         target.recordEvent(differentEvent);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(2);
 
-        final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
+        final AnalyticsEvent recievedEvent = savedEvents.get(0);
 
         assertThat(recievedEvent.getEventType(), is(EVENT_TYPE));
         assertThat(recievedEvent.getSdkName(), is(SDK_NAME));
@@ -399,7 +393,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         assertThat(recievedEvent.getMetric("d"), is(4.0));
         assertThat(recievedEvent.getMetric("e"), is(6.0));
 
-        final AnalyticsEvent differentReceivedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent differentReceivedEvent = savedEvents
                                                               .get(1);
         assertThat(differentReceivedEvent.getEventType(),
                           is("differentEventType"));
@@ -428,11 +422,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         final AnalyticsEvent event = target.createEvent(EVENT_TYPE);
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(1);
 
-        final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
+        final AnalyticsEvent recievedEvent = savedEvents.get(0);
         assertThat(recievedEvent.getAllAttributes().size(), is(1));
         assertThat(recievedEvent.getAttribute("a"), is("val2"));
         assertThat(recievedEvent.getAllMetrics().size(), is(1));
@@ -463,11 +455,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
                         .withMetric("metric", 1.0);
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(2);
 
-        final AnalyticsEvent firstReceivedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent firstReceivedEvent = savedEvents
                                                           .get(0);
 
         assertThat(firstReceivedEvent.getAllAttributes().size(), is(3));
@@ -477,7 +467,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         assertThat(firstReceivedEvent.getAllMetrics().size(), is(1));
         assertThat(firstReceivedEvent.getMetric("metric"), is(1.0));
 
-        final AnalyticsEvent secondReceivedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent secondReceivedEvent = savedEvents
                                                            .get(1);
 
         assertThat(secondReceivedEvent.getAllAttributes().size(), is(2));
@@ -511,11 +501,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
                         .withMetric("local_metric", 1.0);
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(2);
 
-        final AnalyticsEvent firstRecievedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent firstRecievedEvent = savedEvents
                                                           .get(0);
 
         assertThat(firstRecievedEvent.getAllAttributes().size(), is(1));
@@ -527,7 +515,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         assertThat(firstRecievedEvent.getMetric("metric2").doubleValue(),
                           is(121.12d));
 
-        final AnalyticsEvent secondRecievedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent secondRecievedEvent = savedEvents
                                                            .get(1);
 
         assertThat(secondRecievedEvent.getAllAttributes().size(), is(1));
@@ -564,11 +552,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(2);
 
-        final AnalyticsEvent firstRecievedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent firstRecievedEvent = savedEvents
                                                           .get(0);
 
         for (String key : firstRecievedEvent.getAllAttributes().values()) {
@@ -583,7 +569,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         assertThat(firstRecievedEvent.getMetric("local_metric").intValue(),
                           is(1));
 
-        final AnalyticsEvent secondRecievedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent secondRecievedEvent = savedEvents
                                                            .get(1);
 
         assertThat(secondRecievedEvent.getAllAttributes().size(), is(2));
@@ -616,11 +602,9 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
                         .withMetric("local_metric", 1.0);
         target.recordEvent(event);
 
-        ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
-                                                             .forClass(AnalyticsEvent.class);
-        verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = getSavedEvents(2);
 
-        final AnalyticsEvent firstRecievedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent firstRecievedEvent = savedEvents
                                                           .get(0);
 
         assertThat(firstRecievedEvent.getAllAttributes().size(), is(1));
@@ -632,7 +616,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         assertThat(firstRecievedEvent.getMetric("metric2").doubleValue(),
                           is(121.12d));
 
-        final AnalyticsEvent secondRecievedEvent = eventCaptor.getAllValues()
+        final AnalyticsEvent secondRecievedEvent = savedEvents
                                                            .get(1);
 
         assertThat(secondRecievedEvent.getAllAttributes().size(), is(1));
@@ -651,6 +635,22 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
         verify(target, times(1)).submitEvents();
     }
 
+    /**
+     * Writes the queued events and returns the events saved to the database.
+     */
+    @SuppressWarnings("unchecked")
+    private List<AnalyticsEvent> getSavedEvents(int expectedCount) {
+        eventRecorder.flushEvents();
+        final ArgumentCaptor<List> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(dbUtil, atLeastOnce()).saveEvents(batchCaptor.capture());
+        final List<AnalyticsEvent> savedEvents = new ArrayList<AnalyticsEvent>();
+        for (final List batch : batchCaptor.getAllValues()) {
+            savedEvents.addAll(batch);
+        }
+        assertEquals(expectedCount, savedEvents.size());
+        return savedEvents;
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void createEvent_eventTypeTooLong_typeNameIsTruncated() {
         AnalyticsEvent e = target.createEvent(
@@ -17,14 +17,28 @@ package com.amazonaws.mobileconnectors.pinpoint.internal.event;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.logging.Log;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.configuration.AndroidPreferencesConfiguration;
+import com.amazonaws.mobileconnectors.pinpoint.internal.core.util.SDKInfo;
+import com.amazonaws.mobileconnectors.pinpoint.targeting.TargetingClient;
 import com.amazonaws.mobileconnectors.pinpoint.targeting.endpointProfile.EndpointProfile;
+import com.amazonaws.mobileconnectors.pinpoint.targeting.endpointProfile.EndpointProfileDemographic;
+import com.amazonaws.mobileconnectors.pinpoint.targeting.endpointProfile.EndpointProfileLocation;
+import com.amazonaws.mobileconnectors.pinpoint.targeting.endpointProfile.EndpointProfileUser;
+import com.amazonaws.services.pinpoint.AmazonPinpoint;
 import com.amazonaws.services.pinpoint.model.BadRequestException;
 import com.amazonaws.services.pinpoint.model.EndpointItemResponse;
 import com.amazonaws.services.pinpoint.model.Event;
@@ -34,7 +48,6 @@ import com.amazonaws.services.pinpoint.model.ItemResponse;
 import com.amazonaws.services.pinpoint.model.PutEventsResult;
 import com.amazonaws.services.pinpoint.model.PutEventsRequest;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.After;
@@ -44,6 +57,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.stubbing.OngoingStubbing;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -251,8 +266,43 @@ public class EventRecorderTest {
         // Allows looping for next batch submit
         when(cursor.moveToNext()).thenReturn(true).thenReturn(true).thenReturn(true);
 
-        JSONArray readArray = eventRecorder.getBatchOfEvents(cursor, new HashMap<Integer, Integer>());
-        assertEquals(EventRecorder.SERVICE_DEFINED_MAX_EVENTS_PER_BATCH, readArray.length());
+        EventBatch batch = EventBatch.read(cursor, EventRecorder.SERVICE_DEFINED_MAX_EVENTS_PER_BATCH,
+                5 * 1024 * 1024L);
+        assertEquals(EventRecorder.SERVICE_DEFINED_MAX_EVENTS_PER_BATCH, batch.getRowCount());
+    }
+
+    @Test
+    public void testEventBatchIsLimitedBySize() throws JSONException {
+        for (int i = 0; i < 10; i++) {
+            eventRecorder.recordEvent(analyticsEvent);
+        }
+        final int eventSize = analyticsEvent.toJSONObject().toString().length();
+        final Cursor cursor = dbUtil.queryAllEvents();
+        assertTrue(cursor.moveToFirst());
+
+        // Up to three events fit in each batch, and the last one holds the remaining event.
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        while (!cursor.isAfterLast()) {
+            batchSizes.add(EventBatch.read(cursor, EventRecorder.SERVICE_DEFINED_MAX_EVENTS_PER_BATCH,
+                    eventSize * 3 + eventSize / 2).getRowCount());
+        }
+        cursor.close();
+        assertEquals(Arrays.asList(3, 3, 3, 1), batchSizes);
+
+        // An event bigger than the max size is sent alone.
+        final Cursor single = dbUtil.queryAllEvents();
+        assertTrue(single.moveToFirst());
+        final EventBatch batch = EventBatch.read(single, EventRecorder.SERVICE_DEFINED_MAX_EVENTS_PER_BATCH, 1);
+        single.close();
+        assertEquals(1, batch.getRowCount());
+
+        final Map<String, Integer> rowIdsByEventId = new HashMap<String, Integer>();
+        final List<AnalyticsEvent> events = batch.decodeEvents(rowIdsByEventId);
+        assertEquals(1, events.size());
+        assertEquals(analyticsEvent.getEventId(), events.get(0).getEventId());
+        assertEquals(analyticsEvent.getEventType(), events.get(0).getEventType());
+        assertEquals(analyticsEvent.getAllAttributes(), events.get(0).getAllAttributes());
+        assertEquals(batch.getIdsAndSize().keySet(), new HashSet<Integer>(rowIdsByEventId.values()));
     }
 
     @Test
@@ -374,4 +424,190 @@ public class EventRecorderTest {
         }
         assertTrue(dbUtil.getTotalSize() == 0);
     }
+
+    @Test
+    public void testRecordEventAsync() throws JSONException {
+        for (int i = 0; i < 20; i++) {
+            eventRecorder.recordEventAsync(analyticsEvent);
+        }
+        eventRecorder.flushEvents();
+        final List<JSONObject> events = eventRecorder.getAllEvents();
+        assertEquals(20, events.size());
+        final JSONObject obj = events.get(0);
+        obj.remove("databaseId");
+        assertEquals(analyticsEvent.toJSONObject().toString(), obj.toString());
+    }
+
+    @Test
+    public void testRecordEventAsyncOverflowAndTrimming() {
+        for (int i = 0; i < EventRecorder.MAX_QUEUED_EVENTS + 100; i++) {
+            eventRecorder.recordEventAsync(analyticsEvent);
+        }
+        eventRecorder.flushEvents();
+        final long totalSize = dbUtil.getTotalSize();
+        assertTrue(totalSize > 0);
+        assertTrue(totalSize <= 16 * 1024);
+        final Cursor c = dbUtil.queryAllEvents();
+        assertEquals(totalSize / analyticsEvent.toJSONObject().toString().length(), c.getCount());
+        c.close();
+    }
+
+    @Test
+    public void testProcessEventsSubmitsBatchesInParallel() {
+        final SubmissionRecorder submissions = new SubmissionRecorder(false);
+        final EventRecorder recorder = newMockedRecorder(450, 3, 10, submissions);
+
+        recorder.processEvents();
+
+        // 100, 100, 100, 100 and 50 events
+        assertEquals(5, submissions.calls.get());
+        assertEquals(450, submissions.deleted.get());
+        assertEquals(3, submissions.maxConcurrent.get());
+    }
+
+    @Test
+    public void testProcessEventsStopsAfterMaxSubmissionsAllowedInParallel() {
+        final SubmissionRecorder submissions = new SubmissionRecorder(false);
+        final EventRecorder recorder = newMockedRecorder(1000, 3, 4, submissions);
+
+        recorder.processEvents();
+
+        assertEquals(4, submissions.calls.get());
+        assertEquals(400, submissions.deleted.get());
+    }
+
+    @Test
+    public void testProcessEventsStopsWhenSubmissionDeliversNothing() {
+        final SubmissionRecorder submissions = new SubmissionRecorder(true);
+        final EventRecorder recorder = newMockedRecorder(1000, 3, 10, submissions);
+
+        recorder.processEvents();
+
+        // the submissions already in flight when the first one fails still run
+        assertEquals(3, submissions.calls.get());
+        assertEquals(0, submissions.deleted.get());
+    }
+
+    /**
+     * Creates a recorder with mocked dependencies and a database of
+     * numberOfEvents events.
+     */
+    private EventRecorder newMockedRecorder(final int numberOfEvents, final int maxInFlight,
+                                            final int maxSubmissionsAllowed,
+                                            final SubmissionRecorder submissions) {
+        final String[] jsons = new String[numberOfEvents];
+        for (int i = 0; i < numberOfEvents; i++) {
+            jsons[i] = AnalyticsEvent.newInstance(UUID.randomUUID().toString(), EVENT_NAME, null, null,
+                    new SDKInfo(SDK_NAME, SDK_VERSION), SESSION_ID, SESSION_START, SESSION_END,
+                    SESSION_DURATION, TIME_STAMP, UNIQUE_ID, new MockAppDetails(),
+                    new MockDeviceDetails()).toJSONObject().toString();
+        }
+        final int[] position = {-1};
+        final Cursor cursor = mock(Cursor.class, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                final String method = invocation.getMethod().getName();
+                if (method.equals("moveToFirst")) {
+                    position[0] = 0;
+                    return jsons.length > 0;
+                } else if (method.equals("moveToNext")) {
+                    position[0]++;
+                    return position[0] < jsons.length;
+                } else if (method.equals("isAfterLast")) {
+                    return position[0] >= jsons.length;
+                } else if (method.equals("isNull")) {
+                    return false;
+                } else if (method.equals("getInt")) {
+                    final int column = (Integer) invocation.getArguments()[0];
+                    return column == EventTable.COLUMN_INDEX.ID.getValue()
+                            ? position[0] + 1 : jsons[position[0]].length();
+                } else if (method.equals("getString")) {
+                    return jsons[position[0]];
+                }
+                return null;
+            }
+        });
+        final PinpointDBUtil dbUtil = mock(PinpointDBUtil.class);
+        when(dbUtil.queryAllEvents()).thenReturn(cursor);
+        when(dbUtil.deleteEvents(Mockito.anyMap())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                final int count = ((Map<?, ?>) invocation.getArguments()[0]).size();
+                submissions.deleted.addAndGet(count);
+                return count;
+            }
+        });
+
+        final PinpointContext pinpointContext = mock(PinpointContext.class);
+        final AndroidPreferencesConfiguration config = mock(AndroidPreferencesConfiguration.class);
+        when(pinpointContext.getConfiguration()).thenReturn(config);
+        when(config.optLong(Mockito.eq(EventRecorder.KEY_MAX_SUBMISSION_SIZE), Mockito.anyLong()))
+                .thenReturn(EventRecorder.DEFAULT_MAX_SUBMISSION_SIZE);
+        when(config.optLong(Mockito.eq(EventRecorder.KEY_MAX_PENDING_SIZE), Mockito.anyLong()))
+                .thenReturn(EventRecorder.DEFAULT_MAX_PENDING_SIZE);
+        when(config.optInt(Mockito.eq(EventRecorder.KEY_MAX_SUBMISSIONS_ALLOWED), Mockito.anyInt()))
+                .thenReturn(maxSubmissionsAllowed);
+        when(config.optInt(Mockito.eq(EventRecorder.KEY_MAX_SUBMISSIONS_IN_FLIGHT), Mockito.anyInt()))
+                .thenReturn(maxInFlight);
+
+        final EndpointProfile endpoint = mock(EndpointProfile.class);
+        when(endpoint.getEndpointId()).thenReturn("endpointId");
+        final EndpointProfileDemographic demographic = mock(EndpointProfileDemographic.class);
+        when(demographic.getLocale()).thenReturn(Locale.US);
+        when(endpoint.getDemographic()).thenReturn(demographic);
+        when(endpoint.getLocation()).thenReturn(mock(EndpointProfileLocation.class));
+        when(endpoint.getUser()).thenReturn(mock(EndpointProfileUser.class));
+        final TargetingClient targetingClient = mock(TargetingClient.class);
+        when(targetingClient.currentEndpoint()).thenReturn(endpoint);
+        when(pinpointContext.getTargetingClient()).thenReturn(targetingClient);
+
+        final AmazonPinpoint pinpoint = mock(AmazonPinpoint.class);
+        when(pinpointContext.getPinpointServiceClient()).thenReturn(pinpoint);
+        when(pinpoint.putEvents(any(PutEventsRequest.class))).thenAnswer(submissions);
+
+        return new EventRecorder(pinpointContext, dbUtil, mock(ExecutorService.class));
+    }
+
+    /**
+     * Answers PutEvents requests after a delay, accepting every event or
+     * failing as if the device were offline, and counts the requests.
+     */
+    private static final class SubmissionRecorder implements Answer<PutEventsResult> {
+        private final boolean offline;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final AtomicInteger deleted = new AtomicInteger();
+
+        SubmissionRecorder(final boolean offline) {
+            this.offline = offline;
+        }
+
+        @Override
+        public PutEventsResult answer(InvocationOnMock invocation) throws InterruptedException {
+            calls.incrementAndGet();
+            final int running = concurrent.incrementAndGet();
+            synchronized (maxConcurrent) {
+                maxConcurrent.set(Math.max(maxConcurrent.get(), running));
+            }
+            try {
+                Thread.sleep(100);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            if (offline) {
+                throw new AmazonClientException("offline", new UnknownHostException());
+            }
+            final PutEventsRequest request = (PutEventsRequest) invocation.getArguments()[0];
+            final ItemResponse response = new ItemResponse().withEndpointItemResponse(
+                    new EndpointItemResponse().withStatusCode(202).withMessage("Accepted"));
+            for (final String eventId : request.getEventsRequest().getBatchItem().get("endpointId")
+                    .getEvents().keySet()) {
+                response.addEventsItemResponseEntry(eventId,
+                        new EventItemResponse().withStatusCode(202).withMessage("Accepted"));
+            }
+            return new PutEventsResult().withEventsResponse(
+                    new EventsResponse().addResultsEntry("endpointId", response));
+        }
+    }
 }
@@ -30,9 +30,13 @@ import com.amazonaws.mobileconnectors.pinpoint.internal.core.system.MockDeviceDe
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE, sdk=23)
@@ -156,4 +160,29 @@ public class PinpointDBUtilTest {
         assertEquals(c2.getCount(), 0);
         c2.close();
     }
+
+    @Test
+    public void testSaveEventsAndDeleteOldest() {
+        final List<AnalyticsEvent> events = new ArrayList<AnalyticsEvent>();
+        for (int i = 0; i < 10; i++) {
+            events.add(AnalyticsEvent.newInstance(mockContext, SESSION_ID, SESSION_START,
+                    SESSION_END, SESSION_DURATION, TIME_STAMP, EVENT_NAME + i));
+        }
+        assertEquals(10, dbUtil.saveEvents(events));
+        Cursor c = dbUtil.queryAllEvents();
+        assertEquals(10, c.getCount());
+        c.close();
+
+        final long totalSize = dbUtil.getTotalSize();
+        final long eventSize = events.get(0).toJSONObject().toString().length();
+        assertEquals(0, dbUtil.deleteOldestEvents(totalSize));
+        assertEquals(3, dbUtil.deleteOldestEvents(totalSize - 2 * eventSize - 1));
+        assertTrue(dbUtil.getTotalSize() <= totalSize - 2 * eventSize - 1);
+
+        c = dbUtil.queryAllEvents();
+        assertEquals(7, c.getCount());
+        assertTrue(c.moveToFirst());
+        assertTrue(c.getString(EventTable.COLUMN_INDEX.JSON.getValue()).contains(EVENT_NAME + 3));
+        c.close();
+    }
 }
@@ -161,7 +161,7 @@ public class ADMNotificationClientTest extends MobileAnalyticsTestBase {
         NotificationClient.CampaignPushResult pushResult
             = target.handleCampaignPush(buildNotificationDetails());
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor.forClass(AnalyticsEvent.class);
-        verify(mockEventRecorder, times(1)).recordEvent(eventCaptor.capture());
+        verify(mockEventRecorder, times(1)).recordEventAsync(eventCaptor.capture());
 
         final AnalyticsEvent receivedEvent = eventCaptor.getAllValues().get(0);
         assertThat(receivedEvent.getEventType(), is("_campaign.received_background"));
@@ -192,7 +192,7 @@ public class ADMNotificationClientTest extends MobileAnalyticsTestBase {
         NotificationClient.CampaignPushResult pushResult
             = target.handleCampaignPush(buildNotificationDetails());
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor.forClass(AnalyticsEvent.class);
-        verify(mockEventRecorder, times(1)).recordEvent(eventCaptor.capture());
+        verify(mockEventRecorder, times(1)).recordEventAsync(eventCaptor.capture());
 
         final AnalyticsEvent receivedEvent = eventCaptor.getAllValues().get(0);
         assertThat(receivedEvent.getEventType(), is("_campaign.received_foreground"));
@@ -232,7 +232,7 @@ public class ADMNotificationClientTest extends MobileAnalyticsTestBase {
         NotificationClient.CampaignPushResult pushResult
             = target.handleCampaignPush(buildNotificationDetails());
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor.forClass(AnalyticsEvent.class);
-        verify(mockEventRecorder, times(1)).recordEvent(eventCaptor.capture());
+        verify(mockEventRecorder, times(1)).recordEventAsync(eventCaptor.capture());
 
         final AnalyticsEvent receivedEvent = eventCaptor.getAllValues().get(0);
         assertThat(receivedEvent.getEventType(), is("_campaign.received_foreground"));
@@ -266,7 +266,7 @@ public class ADMNotificationClientTest extends MobileAnalyticsTestBase {
         NotificationClient.CampaignPushResult pushResult
             = target.handleCampaignPush(buildNotificationDetails());
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor.forClass(AnalyticsEvent.class);
-        verify(mockEventRecorder, times(1)).recordEvent(eventCaptor.capture());
+        verify(mockEventRecorder, times(1)).recordEventAsync(eventCaptor.capture());
 
         final AnalyticsEvent receivedEvent = eventCaptor.getAllValues().get(0);
         assertThat(receivedEvent.getEventType(), is("_campaign.received_background"));
@@ -295,7 +295,7 @@ public class ADMNotificationClientTest extends MobileAnalyticsTestBase {
         assertEquals(NotificationClient.CampaignPushResult.NOTIFICATION_OPENED, result);
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor.forClass(AnalyticsEvent.class);
-        verify(mockEventRecorder, times(1)).recordEvent(eventCaptor.capture());
+        verify(mockEventRecorder, times(1)).recordEventAsync(eventCaptor.capture());
 
         final AnalyticsEvent receivedEvent = eventCaptor.getAllValues().get(0);
         assertThat(receivedEvent.getEventType(), is("_campaign.opened_notification"));
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+/**
+ * Downloads a single byte range of a ranged download and writes it directly
+ * into place in the target file.
+ */
+class DownloadPartTask implements Callable<Boolean> {
+    private static final Log LOGGER = LogFactory.getLog(DownloadPartTask.class);
+    private static final int SIXTEEN_KB = 1024 * 16;
+
+    /**
+     * The number of bytes written between two updates of the range record,
+     * so that an interrupted range resumes close to where it stopped.
+     */
+    private static final long PERSIST_INTERVAL_BYTES = 1024 * 1024;
+
+    private final DownloadTask.DownloadPartTaskMetadata downloadPartTaskMetadata;
+    private final DownloadTask.DownloadTaskProgressListener downloadTaskProgressListener;
+    private final TransferRecord range;
+    private final String eTag;
+    private final AmazonS3 s3;
+    private final TransferDBUtil dbUtil;
+
+    public DownloadPartTask(DownloadTask.DownloadPartTaskMetadata downloadPartTaskMetadata,
+                            DownloadTask.DownloadTaskProgressListener downloadTaskProgressListener,
+                            TransferRecord range,
+                            String eTag,
+                            AmazonS3 s3,
+                            TransferDBUtil dbUtil) {
+        this.downloadPartTaskMetadata = downloadPartTaskMetadata;
+        this.downloadTaskProgressListener = downloadTaskProgressListener;
+        this.range = range;
+        this.eTag = eTag;
+        this.s3 = s3;
+        this.dbUtil = dbUtil;
+    }
+
+    /*
+     * Runs part download task and returns whether successfully downloaded.
+     */
+    @Override
+    public Boolean call() throws Exception {
+        long bytesCurrent = range.bytesCurrent;
+        if (bytesCurrent >= range.bytesTotal) {
+            /*
+             * The range was written completely but the process stopped before
+             * it was marked completed. Requesting the rest of it would send an
+             * empty range, which S3 ignores and answers with the whole object.
+             */
+            downloadPartTaskMetadata.state = TransferState.PART_COMPLETED;
+            dbUtil.updateState(range.id, TransferState.PART_COMPLETED);
+            return true;
+        }
+        RandomAccessFile raf = null;
+        InputStream is = null;
+        try {
+            downloadPartTaskMetadata.state = TransferState.IN_PROGRESS;
+            final GetObjectRequest getObjectRequest = new GetObjectRequest(range.bucketName, range.key);
+            getObjectRequest.setRange(range.rangeStart + bytesCurrent, range.rangeLast);
+            if (eTag != null) {
+                // fail rather than stitch together ranges of different versions
+                getObjectRequest.setMatchingETagConstraints(Collections.singletonList(eTag));
+            }
+            TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectRequest);
+
+            final S3Object object = s3.getObject(getObjectRequest);
+            if (object == null) {
+                throw new AmazonClientException("Object " + range.key
+                        + " was modified while being downloaded");
+            }
+            is = object.getObjectContent();
+
+            raf = new RandomAccessFile(new File(range.file), "rw");
+            raf.seek(range.rangeStart + bytesCurrent);
+            final byte[] buffer = new byte[SIXTEEN_KB];
+            long bytesPersisted = bytesCurrent;
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                raf.write(buffer, 0, bytesRead);
+                bytesCurrent += bytesRead;
+                downloadTaskProgressListener.onProgressChanged(range.partNumber, bytesCurrent);
+                if (bytesCurrent - bytesPersisted >= PERSIST_INTERVAL_BYTES) {
+                    dbUtil.updateBytesTransferred(range.id, bytesCurrent);
+                    bytesPersisted = bytesCurrent;
+                }
+            }
+            if (bytesCurrent != range.bytesTotal) {
+                throw new AmazonClientException("Range " + range.partNumber + " of " + range.key
+                        + " ended after " + bytesCurrent + " of " + range.bytesTotal + " bytes");
+            }
+
+            downloadPartTaskMetadata.state = TransferState.PART_COMPLETED;
+            dbUtil.updateBytesTransferred(range.id, bytesCurrent);
+            dbUtil.updateState(range.id, TransferState.PART_COMPLETED);
+            return true;
+        } catch (final Exception e) {
+            LOGGER.error("Download part interrupted: " + e);
+            // Keep what is already on disk so a resume only fetches the rest
+            // of this range.
+            dbUtil.updateBytesTransferred(range.id, bytesCurrent);
+
+            // Check if network is not connected, set the state to WAITING_FOR_NETWORK.
+            try {
+                if (TransferNetworkLossHandler.getInstance() != null &&
+                    !TransferNetworkLossHandler.getInstance().isNetworkConnected()) {
+                    LOGGER.info("Thread: [" + Thread.currentThread().getId() + "]: Network wasn't available.");
+                    /*
+                     * Network connection is being interrupted. Moving the TransferState
+                     * to WAITING_FOR_NETWORK till the network availability resumes.
+                     */
+                    downloadPartTaskMetadata.state = TransferState.WAITING_FOR_NETWORK;
+                    dbUtil.updateState(range.id, TransferState.WAITING_FOR_NETWORK);
+                    LOGGER.info("Network Connection Interrupted: " +
+                            "Moving the TransferState to WAITING_FOR_NETWORK");
+                    return false;
+                }
+            } catch (TransferUtilityException transferUtilityException) {
+                LOGGER.error("TransferUtilityException: [" + transferUtilityException + "]");
+            }
+
+            // In other cases, set the transfer state to FAILED.
+            downloadPartTaskMetadata.state = TransferState.FAILED;
+            dbUtil.updateState(range.id, TransferState.FAILED);
+            LOGGER.error("Encountered error downloading part ", e);
+            throw e;
+        } finally {
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+            try {
+                if (is != null) {
+                    is.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+        }
+    }
+}
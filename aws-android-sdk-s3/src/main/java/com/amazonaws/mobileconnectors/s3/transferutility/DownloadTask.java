@@ -15,12 +15,16 @@
 
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
+import android.content.ContentValues;
+
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressListener;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 
 import com.amazonaws.logging.Log;
@@ -32,12 +36,24 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 /**
  * Performs download operation and returns a Boolean value indicating whether
  * the file has been downloaded successfully.
+ *
+ * When the {@link TransferUtilityOptions} enable ranged downloads and the
+ * object is larger than the multipart download threshold, the object is split
+ * into byte ranges. Each range is downloaded by a {@link DownloadPartTask} on
+ * the part pool of {@link TransferThreadPool} and written directly into place
+ * in the file. A resumed download only requests the ranges, and the parts of
+ * ranges, that are not on disk yet.
  */
 class DownloadTask implements Callable<Boolean> {
 
@@ -46,20 +62,29 @@ class DownloadTask implements Callable<Boolean> {
 
     private final AmazonS3 s3;
     private final TransferRecord download;
+    private final TransferDBUtil dbUtil;
     private final TransferStatusUpdater updater;
 
+    Map<Integer, DownloadPartTaskMetadata> downloadPartTasks;
+
     /**
      * Constructs a DownloadTask with the given download info and S3 client.
      *
      * @param download A TransferRecord object storing all the information of the
      *                 download
      * @param s3       Low-level S3 client
+     * @param dbUtil   database util
      * @param updater  status updater
      */
-    public DownloadTask(TransferRecord download, AmazonS3 s3, TransferStatusUpdater updater) {
+    public DownloadTask(TransferRecord download,
+                        AmazonS3 s3,
+                        TransferDBUtil dbUtil,
+                        TransferStatusUpdater updater) {
         this.download = download;
         this.s3 = s3;
+        this.dbUtil = dbUtil;
         this.updater = updater;
+        this.downloadPartTasks = new ConcurrentHashMap<Integer, DownloadPartTaskMetadata>();
     }
 
     /**
@@ -80,38 +105,13 @@ class DownloadTask implements Callable<Boolean> {
 
         updater.updateState(download.id, TransferState.IN_PROGRESS);
 
-        GetObjectRequest getObjectRequest;
-        ProgressListener progressListener = updater.newProgressListener(download.id);
+        final ProgressListener progressListener = updater.newProgressListener(download.id);
 
         try {
-            getObjectRequest = new GetObjectRequest(download.bucketName, download.key);
-            TransferUtility.appendTransferServiceUserAgentString(getObjectRequest);
-            final File file = new File(download.file);
-            final long bytesCurrent = file.length();
-            if (bytesCurrent > 0) {
-                LOGGER.debug(String.format("Resume transfer %d from %d bytes", download.id, bytesCurrent));
-                /*
-                 * Setting the last byte position to －1 means downloading the object from
-                 * bytesCurrent to the end.
-                 */
-                getObjectRequest.setRange(bytesCurrent, -1);
-            }
-
-            getObjectRequest.setGeneralProgressListener(progressListener);
-
-            final S3Object object = s3.getObject(getObjectRequest);
-            if (object == null) {
-                updater.throwError(download.id, new IllegalStateException("AmazonS3.getObject returns null"));
-                updater.updateState(download.id, TransferState.FAILED);
-                return false;
+            if (download.isMultipart == 1 || createDownloadRanges()) {
+                return downloadRangesAndWaitForCompletion();
             }
-
-            final long bytesTotal = object.getObjectMetadata().getInstanceLength();
-            updater.updateProgress(download.id, bytesCurrent, bytesTotal, true);
-            saveToFile(object.getObjectContent(), file);
-            updater.updateProgress(download.id, bytesTotal, bytesTotal, true);
-            updater.updateState(download.id, TransferState.COMPLETED);
-            return true;
+            return downloadSinglePart(progressListener);
         } catch (final Exception e) {
             // No need to update the progress listener.
             if (TransferState.CANCELED.equals(download.state)) {
@@ -167,6 +167,214 @@ class DownloadTask implements Callable<Boolean> {
         }
     }
 
+    /**
+     * Splits a new download into byte ranges if ranged downloads are enabled
+     * and the object is larger than the multipart download threshold. The
+     * file is preallocated so that every range can be written into place.
+     *
+     * @return true if the download has been split into ranges, false if it
+     *         should be downloaded with a single request
+     * @throws IOException if the file can't be preallocated
+     */
+    private boolean createDownloadRanges() throws IOException {
+        final TransferUtilityOptions options = download.transferUtilityOptions;
+        final File file = new File(download.file);
+        if (options == null
+                || options.getMultipartDownloadThreshold() <= 0
+                || file.length() > 0) {
+            return false;
+        }
+
+        final GetObjectMetadataRequest getObjectMetadataRequest =
+                new GetObjectMetadataRequest(download.bucketName, download.key);
+        TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectMetadataRequest);
+        final ObjectMetadata metadata = s3.getObjectMetadata(getObjectMetadataRequest);
+        final long bytesTotal = metadata.getContentLength();
+        if (bytesTotal <= options.getMultipartDownloadThreshold()) {
+            return false;
+        }
+
+        final long partSize = options.getDownloadPartSize();
+        final int partCount = (int) Math.ceil((double) bytesTotal / (double) partSize);
+        final ContentValues[] valuesArray = new ContentValues[partCount];
+        for (int i = 0; i < partCount; i++) {
+            final long rangeStart = i * partSize;
+            final long rangeLast = Math.min(rangeStart + partSize, bytesTotal) - 1;
+            valuesArray[i] = dbUtil.generateContentValuesForDownloadRange(download, i + 1,
+                    rangeStart, rangeLast, i == partCount - 1 ? 1 : 0);
+        }
+        if (dbUtil.insertDownloadRangeRecords(download.id, bytesTotal, metadata.getETag(),
+                valuesArray) == 0) {
+            LOGGER.warn("Failed to create ranges for download " + download.id
+                    + ". Falling back to a single request.");
+            return false;
+        }
+        download.isMultipart = 1;
+        download.bytesTotal = bytesTotal;
+        download.eTag = metadata.getETag();
+
+        final File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            parentDirectory.mkdirs();
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(bytesTotal);
+        } finally {
+            raf.close();
+        }
+        return true;
+    }
+
+    private Boolean downloadRangesAndWaitForCompletion() {
+        final List<TransferRecord> ranges = dbUtil.getNonCompletedDownloadRangesFromDB(download.id);
+
+        /*
+         * Bytes of completed ranges are not tracked per range. For a resumed
+         * download they make up the base of the reported progress.
+         */
+        long bytesOfCompletedRanges = download.bytesTotal;
+        long bytesAlreadyTransferred = download.bytesTotal;
+        for (final TransferRecord range : ranges) {
+            bytesOfCompletedRanges -= range.bytesTotal;
+            bytesAlreadyTransferred -= range.bytesTotal - range.bytesCurrent;
+        }
+        if (bytesAlreadyTransferred > 0) {
+            LOGGER.info(String.format("Resume transfer %d from %d bytes",
+                    download.id, bytesAlreadyTransferred));
+        }
+        final DownloadTaskProgressListener downloadTaskProgressListener =
+                new DownloadTaskProgressListener(bytesOfCompletedRanges, bytesAlreadyTransferred);
+        updater.updateProgress(download.id, bytesAlreadyTransferred, download.bytesTotal, false);
+
+        LOGGER.info("Ranged download " + download.id + " in " + ranges.size() + " ranges.");
+        for (final TransferRecord range : ranges) {
+            final DownloadPartTaskMetadata downloadPartTaskMetadata = new DownloadPartTaskMetadata();
+            downloadPartTaskMetadata.bytesTransferredSoFar = range.bytesCurrent;
+            downloadPartTaskMetadata.state = TransferState.WAITING;
+            downloadPartTasks.put(range.partNumber, downloadPartTaskMetadata);
+            downloadPartTaskMetadata.downloadPartTask = TransferThreadPool.submitTask(
+                    new DownloadPartTask(downloadPartTaskMetadata, downloadTaskProgressListener,
+                            range, download.eTag, s3, dbUtil));
+        }
+
+        try {
+            boolean isSuccess = true;
+            /*
+             * Future.get() will block the current thread until the method
+             * returns.
+             */
+            for (final DownloadPartTaskMetadata task : downloadPartTasks.values()) {
+                // DownloadPartTask returns false when the network is lost
+                final boolean b = task.downloadPartTask.get();
+                isSuccess &= b;
+            }
+            if (!isSuccess) {
+                LOGGER.info("Individual part is WAITING_FOR_NETWORK.");
+                updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                return false;
+            }
+        } catch (final Exception e) {
+            LOGGER.error("Download resulted in an exception. " + e);
+
+            /*
+             * Future.get() will catch InterruptedException, but it's not a
+             * failure, it may be caused by a pause operation from applications.
+             * Cancel all the on-going part tasks.
+             */
+            for (final DownloadPartTaskMetadata task : downloadPartTasks.values()) {
+                task.downloadPartTask.cancel(true);
+            }
+
+            // If the thread that is executing the transfer is interrupted
+            // because of a user initiated pause or cancel operation,
+            // do not throw exception or set the state to FAILED.
+            if (TransferState.CANCELED.equals(download.state) ||
+                TransferState.PAUSED.equals(download.state)) {
+                LOGGER.info("Transfer is " + download.state);
+                return false;
+            }
+
+            // interrupted due to network. Set the TransferState to
+            // WAITING_FOR_NETWORK if the individual parts were waiting for network
+            for (final DownloadPartTaskMetadata task : downloadPartTasks.values()) {
+                if (TransferState.WAITING_FOR_NETWORK.equals(task.state)) {
+                    LOGGER.info("Individual part is WAITING_FOR_NETWORK.");
+                    updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                    return false;
+                }
+            }
+
+            try {
+                if (TransferNetworkLossHandler.getInstance() != null &&
+                    !TransferNetworkLossHandler.getInstance().isNetworkConnected()) {
+                    LOGGER.info("Network not connected. Setting the state to WAITING_FOR_NETWORK.");
+                    updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                    return false;
+                }
+            } catch (TransferUtilityException transferUtilityException) {
+                LOGGER.error("TransferUtilityException: [" + transferUtilityException + "]");
+            }
+
+            // interrupted due to reasons other than network.
+            if (RetryUtils.isInterrupted(e)) {
+                LOGGER.info("Transfer is interrupted. " + e);
+                updater.updateState(download.id, TransferState.FAILED);
+                return false;
+            }
+
+            // in other cases, set the transfer to failed.
+            LOGGER.error("Error encountered during ranged download: " + download.id
+                    + " due to " + e.getMessage(), e);
+            updater.throwError(download.id, e);
+            updater.updateState(download.id, TransferState.FAILED);
+            return false;
+        }
+
+        dbUtil.deleteDownloadRangeRecords(download.id);
+        updater.updateProgress(download.id, download.bytesTotal, download.bytesTotal, true);
+        updater.updateState(download.id, TransferState.COMPLETED);
+        return true;
+    }
+
+    /**
+     * Downloads the whole object, or the rest of it when resuming, with a
+     * single request.
+     *
+     * @param progressListener progress listener of the transfer
+     * @return whether the object has been downloaded successfully
+     */
+    private Boolean downloadSinglePart(ProgressListener progressListener) {
+        final GetObjectRequest getObjectRequest = new GetObjectRequest(download.bucketName, download.key);
+        TransferUtility.appendTransferServiceUserAgentString(getObjectRequest);
+        final File file = new File(download.file);
+        final long bytesCurrent = file.length();
+        if (bytesCurrent > 0) {
+            LOGGER.debug(String.format("Resume transfer %d from %d bytes", download.id, bytesCurrent));
+            /*
+             * Setting the last byte position to －1 means downloading the object from
+             * bytesCurrent to the end.
+             */
+            getObjectRequest.setRange(bytesCurrent, -1);
+        }
+
+        getObjectRequest.setGeneralProgressListener(progressListener);
+
+        final S3Object object = s3.getObject(getObjectRequest);
+        if (object == null) {
+            updater.throwError(download.id, new IllegalStateException("AmazonS3.getObject returns null"));
+            updater.updateState(download.id, TransferState.FAILED);
+            return false;
+        }
+
+        final long bytesTotal = object.getObjectMetadata().getInstanceLength();
+        updater.updateProgress(download.id, bytesCurrent, bytesTotal, true);
+        saveToFile(object.getObjectContent(), file);
+        updater.updateProgress(download.id, bytesTotal, bytesTotal, true);
+        updater.updateState(download.id, TransferState.COMPLETED);
+        return true;
+    }
+
     /**
      * Writes stream data into a file.
      *
@@ -213,4 +421,63 @@ class DownloadTask implements Callable<Boolean> {
             }
         }
     }
+
+    /**
+     * Progress Listener for the main DownloadTask.
+     */
+    class DownloadTaskProgressListener implements ProgressListener {
+
+        // The total bytes of the ranges completed before this task started.
+        private final long bytesOfCompletedRanges;
+
+        // This variable tracks the previously reported total bytes transferred.
+        private long prevTotalBytesTransferredOfAllParts;
+
+        DownloadTaskProgressListener(long bytesOfCompletedRanges, long bytesAlreadyTransferred) {
+            this.bytesOfCompletedRanges = bytesOfCompletedRanges;
+            this.prevTotalBytesTransferredOfAllParts = bytesAlreadyTransferred;
+        }
+
+        @Override
+        public void progressChanged(final ProgressEvent progressEvent) {
+            // No-op
+        }
+
+        public synchronized void onProgressChanged(final int partNum,
+            final long bytesTransferredSoFarForPartNum) {
+            final DownloadPartTaskMetadata partNumTask = downloadPartTasks.get(partNum);
+            if (partNumTask == null) {
+                LOGGER.info("Update received for unknown part. Ignoring.");
+                return;
+            }
+
+            partNumTask.bytesTransferredSoFar = bytesTransferredSoFarForPartNum;
+
+            // Compute the sum of bytesTransferredSoFar for all parts
+            long totalBytesTransferredOfAllParts = bytesOfCompletedRanges;
+            for (final DownloadPartTaskMetadata part : downloadPartTasks.values()) {
+                totalBytesTransferredOfAllParts += part.bytesTransferredSoFar;
+            }
+
+            if (totalBytesTransferredOfAllParts > prevTotalBytesTransferredOfAllParts) {
+                updater.updateProgress(DownloadTask.this.download.id,
+                    totalBytesTransferredOfAllParts,
+                    DownloadTask.this.download.bytesTotal,
+                    true);
+                prevTotalBytesTransferredOfAllParts = totalBytesTransferredOfAllParts;
+            }
+        }
+    }
+
+    // This class represents the state being tracked per byte range
+    class DownloadPartTaskMetadata {
+        // The future task that runs DownloadPartTask to download a range
+        Future<Boolean> downloadPartTask;
+
+        // number of bytes of the range transferred so far
+        long bytesTransferredSoFar;
+
+        // state of the transfer
+        TransferState state;
+    }
 }
@@ -27,6 +27,8 @@ import android.text.TextUtils;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.util.Map;
+
 /**
  * Provides methods to access database through which applications can interact
  * with transfer tasks.
@@ -203,6 +205,31 @@ class TransferDBBase {
         return rowsUpdated;
     }
 
+    /**
+     * Updates several records in the table in a single transaction.
+     *
+     * @param valuesById A map from the id of a record to the values to update.
+     * @return Number of rows updated.
+     */
+    public synchronized int bulkUpdate(Map<Integer, ContentValues> valuesById) {
+        int rowsUpdated = 0;
+        ensureDatabaseOpen();
+        try {
+            database.beginTransaction();
+            for (final Map.Entry<Integer, ContentValues> entry : valuesById.entrySet()) {
+                rowsUpdated += database.update(TransferTable.TABLE_TRANSFER, entry.getValue(),
+                        TransferTable.COLUMN_ID + "=" + entry.getKey(), null);
+            }
+            database.setTransactionSuccessful();
+        } catch (final Exception e) {
+            LOGGER.error("bulkUpdate error : ", e);
+            rowsUpdated = 0;
+        } finally {
+            database.endTransaction();
+        }
+        return rowsUpdated;
+    }
+
     /**
      * Deletes a record in the table.
      *
@@ -269,6 +296,45 @@ class TransferDBBase {
         return mainUploadId;
     }
 
+    /**
+     * Updates the summary record of an existing transfer and inserts its part
+     * records in a single transaction.
+     *
+     * @param uri The Uri of the summary record.
+     * @param values The values to update on the summary record.
+     * @param valuesArray A array of part records to insert.
+     * @return Number of part records inserted.
+     */
+    public int bulkInsertParts(Uri uri, ContentValues values, ContentValues[] valuesArray) {
+        final int uriType = uriMatcher.match(uri);
+        int rowsInserted = 0;
+        ensureDatabaseOpen();
+        switch (uriType) {
+            case TRANSFER_ID:
+                final String id = uri.getLastPathSegment();
+                try {
+                    database.beginTransaction();
+                    database.update(TransferTable.TABLE_TRANSFER, values,
+                            TransferTable.COLUMN_ID + "=" + id, null);
+                    for (final ContentValues partValues : valuesArray) {
+                        partValues.put(TransferTable.COLUMN_MAIN_UPLOAD_ID, Integer.valueOf(id));
+                        database.insertOrThrow(TransferTable.TABLE_TRANSFER, null, partValues);
+                        rowsInserted++;
+                    }
+                    database.setTransactionSuccessful();
+                } catch (final Exception e) {
+                    LOGGER.error("bulkInsertParts error : ", e);
+                    rowsInserted = 0;
+                } finally {
+                    database.endTransaction();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+        return rowsInserted;
+    }
+
     private void ensureDatabaseOpen() {
         // close and reopen database.
         synchronized (LOCK) {
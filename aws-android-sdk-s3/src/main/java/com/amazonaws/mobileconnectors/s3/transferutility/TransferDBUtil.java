@@ -33,7 +33,9 @@ import com.google.gson.Gson;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides methods to conveniently perform database operations.
@@ -197,6 +199,24 @@ class TransferDBUtil {
         return transferDBBase.update(getRecordUri(id), values, null, null);
     }
 
+    /**
+     * Updates the current bytes of several transfer records in a single
+     * transaction.
+     *
+     * @param bytesById A map from the id of a transfer to the bytes currently
+     *            transferred
+     * @return Number of rows updated.
+     */
+    public int updateBytesTransferred(Map<Integer, Long> bytesById) {
+        final Map<Integer, ContentValues> valuesById = new HashMap<Integer, ContentValues>();
+        for (final Map.Entry<Integer, Long> entry : bytesById.entrySet()) {
+            final ContentValues values = new ContentValues();
+            values.put(TransferTable.COLUMN_BYTES_CURRENT, entry.getValue());
+            valuesById.put(entry.getKey(), values);
+        }
+        return transferDBBase.bulkUpdate(valuesById);
+    }
+
     /**
      * Updates the total bytes of a download record.
      *
@@ -667,6 +687,70 @@ class TransferDBUtil {
         return isNetworkInterrupted;
     }
 
+    /**
+     * Marks a download as a ranged download and inserts a record for each of
+     * its byte ranges. Both happen in one transaction so that a download is
+     * never left half converted.
+     *
+     * @param mainDownloadId The id of the download.
+     * @param bytesTotal The total bytes of the object.
+     * @param eTag The ETag of the object the ranges are fetched from.
+     * @param valuesArray An array of values of the range records.
+     * @return Number of range records inserted.
+     */
+    public int insertDownloadRangeRecords(int mainDownloadId, long bytesTotal, String eTag,
+            ContentValues[] valuesArray) {
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+        values.put(TransferTable.COLUMN_BYTES_TOTAL, bytesTotal);
+        values.put(TransferTable.COLUMN_ETAG, eTag);
+        return transferDBBase.bulkInsertParts(getRecordUri(mainDownloadId), values, valuesArray);
+    }
+
+    /**
+     * Queries the byte ranges of a ranged download that are not completed yet.
+     * It's used when starting or resuming a ranged download.
+     *
+     * @param mainDownloadId The id of the download.
+     * @return A list of TransferRecord, one per non-completed byte range
+     */
+    public List<TransferRecord> getNonCompletedDownloadRangesFromDB(int mainDownloadId) {
+        final List<TransferRecord> list = new ArrayList<TransferRecord>();
+        Cursor c = null;
+        try {
+            c = transferDBBase.query(getPartUri(mainDownloadId), null, null, null, null);
+            while (c.moveToNext()) {
+                if (TransferState.PART_COMPLETED.equals(TransferState.getState(c.getString(c
+                        .getColumnIndexOrThrow(TransferTable.COLUMN_STATE))))) {
+                    continue;
+                }
+                final TransferRecord range = new TransferRecord(
+                        c.getInt(c.getColumnIndexOrThrow(TransferTable.COLUMN_ID)));
+                range.updateFromDB(c);
+                list.add(range);
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Deletes the byte range records of a ranged download.
+     *
+     * @param mainDownloadId The id of the download.
+     * @return Number of rows deleted.
+     */
+    public int deleteDownloadRangeRecords(int mainDownloadId) {
+        return transferDBBase.delete(transferDBBase.getContentUri(),
+                TransferTable.COLUMN_MAIN_UPLOAD_ID + "=? and " + TransferTable.COLUMN_PART_NUM + ">0",
+                new String[] {
+                        String.valueOf(mainDownloadId)
+                });
+    }
+
     /**
      * Create a string with the required number of placeholders
      *
@@ -735,6 +819,36 @@ class TransferDBUtil {
         return values;
     }
 
+    /**
+     * Generates a ContentValues object to insert into the database for a
+     * single byte range of a ranged download.
+     *
+     * @param download The download the range belongs to.
+     * @param partNumber The part number of this range, starting from 1.
+     * @param rangeStart The offset of the first byte of the range.
+     * @param rangeLast The offset of the last byte of the range, inclusive.
+     * @param isLastPart Whether this range is the last range of the object.
+     * @return The ContentValues object generated.
+     */
+    public ContentValues generateContentValuesForDownloadRange(TransferRecord download,
+            int partNumber, long rangeStart, long rangeLast, int isLastPart) {
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_TYPE, TransferType.DOWNLOAD.toString());
+        values.put(TransferTable.COLUMN_STATE, TransferState.WAITING.toString());
+        values.put(TransferTable.COLUMN_BUCKET_NAME, download.bucketName);
+        values.put(TransferTable.COLUMN_KEY, download.key);
+        values.put(TransferTable.COLUMN_FILE, download.file);
+        values.put(TransferTable.COLUMN_BYTES_CURRENT, 0L);
+        values.put(TransferTable.COLUMN_BYTES_TOTAL, rangeLast - rangeStart + 1);
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+        values.put(TransferTable.COLUMN_PART_NUM, partNumber);
+        values.put(TransferTable.COLUMN_DATA_RANGE_START, rangeStart);
+        values.put(TransferTable.COLUMN_DATA_RANGE_LAST, rangeLast);
+        values.put(TransferTable.COLUMN_IS_LAST_PART, isLastPart);
+        values.put(TransferTable.COLUMN_IS_ENCRYPTED, 0);
+        return values;
+    }
+
     /**
      * Adds mappings to a ContentValues object for the data in the passed in
      * ObjectMetadata
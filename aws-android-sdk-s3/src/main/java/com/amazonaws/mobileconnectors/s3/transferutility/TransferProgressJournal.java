@@ -0,0 +1,166 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest transferred bytes of each transfer in memory and writes
+ * them to the database in batches. A batch is written once the oldest
+ * unwritten progress is older than the flush interval, or once the transfers
+ * have moved more than the flush threshold of bytes since the last batch,
+ * whichever comes first.
+ */
+class TransferProgressJournal {
+    private static final Log LOGGER = LogFactory.getLog(TransferProgressJournal.class);
+
+    /**
+     * Default maximum time in milliseconds progress is kept in memory.
+     */
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Default number of transferred bytes that triggers an early flush.
+     */
+    static final long DEFAULT_FLUSH_THRESHOLD_BYTES = 4 * 1024 * 1024;
+
+    private final TransferDBUtil dbUtil;
+    private final long flushIntervalMillis;
+    private final long flushThresholdBytes;
+
+    /**
+     * The latest bytes reported for each transfer.
+     */
+    private final Map<Integer, Long> latest = new ConcurrentHashMap<Integer, Long>();
+
+    /**
+     * Ids of the transfers whose latest bytes are not written yet.
+     */
+    private final Map<Integer, Boolean> dirty = new ConcurrentHashMap<Integer, Boolean>();
+
+    private final AtomicLong bytesSinceFlush = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            flush();
+        }
+    };
+
+    /**
+     * Constructs a journal with the default flush interval and threshold.
+     *
+     * @param dbUtil database util
+     */
+    TransferProgressJournal(TransferDBUtil dbUtil) {
+        this(dbUtil, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Constructs a journal.
+     *
+     * @param dbUtil database util
+     * @param flushIntervalMillis maximum time in milliseconds progress is kept
+     *            in memory
+     * @param flushThresholdBytes number of transferred bytes that triggers an
+     *            early flush
+     */
+    TransferProgressJournal(TransferDBUtil dbUtil, long flushIntervalMillis,
+            long flushThresholdBytes) {
+        this.dbUtil = dbUtil;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushThresholdBytes = flushThresholdBytes;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "TransferProgressJournal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Records the bytes currently transferred of a transfer. The value is
+     * written to the database with the next batch.
+     *
+     * @param id id of the transfer
+     * @param bytesCurrent current transferred bytes
+     */
+    void record(int id, long bytesCurrent) {
+        final Long previous = latest.put(id, bytesCurrent);
+        dirty.put(id, Boolean.TRUE);
+
+        final long delta = previous == null ? 0 : Math.max(bytesCurrent - previous, 0);
+        if (bytesSinceFlush.addAndGet(delta) >= flushThresholdBytes) {
+            bytesSinceFlush.set(0);
+            executor.execute(flushTask);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(flushTask, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops tracking a transfer.
+     *
+     * @param id id of the transfer
+     * @return the latest bytes of the transfer if they are not written to the
+     *         database yet, null otherwise
+     */
+    Long remove(int id) {
+        final boolean isDirty = dirty.remove(id) != null;
+        final Long bytesCurrent = latest.remove(id);
+        return isDirty ? bytesCurrent : null;
+    }
+
+    /**
+     * Writes the latest bytes of all transfers with unwritten progress to the
+     * database in a single transaction.
+     */
+    synchronized void flush() {
+        bytesSinceFlush.set(0);
+        final Map<Integer, Long> batch = new HashMap<Integer, Long>();
+        for (final Integer id : dirty.keySet()) {
+            dirty.remove(id);
+            final Long bytesCurrent = latest.get(id);
+            if (bytesCurrent != null) {
+                batch.put(id, bytesCurrent);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            dbUtil.updateBytesTransferred(batch);
+        } catch (final Exception e) {
+            LOGGER.warn("Failed to write the progress of " + batch.size() + " transfers", e);
+        }
+    }
+}
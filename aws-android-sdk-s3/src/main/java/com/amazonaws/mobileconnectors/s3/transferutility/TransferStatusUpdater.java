@@ -39,6 +39,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 class TransferStatusUpdater {
     private static final Log LOGGER = LogFactory.getLog(TransferStatusUpdater.class);
+
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final long NANOS_IN_MILLI = 1000 * 1000;
     /**
      * Some temporary states that should not be notified.
      */
@@ -64,6 +69,17 @@ class TransferStatusUpdater {
      */
     private static TransferDBUtil dbUtil;
     
+    /**
+     * Batches the progress writes to the database.
+     */
+    private final TransferProgressJournal progressJournal;
+
+    /**
+     * The time in milliseconds a progress callback was last posted per
+     * transfer, used to throttle the callbacks.
+     */
+    private final Map<Integer, Long> lastProgressNotificationMillis;
+
     /**
      * The handler of main thread that runs callbacks.
      */
@@ -83,6 +99,8 @@ class TransferStatusUpdater {
         dbUtil = dbUtilInstance;
         mainHandler = new Handler(Looper.getMainLooper());
         transfers = new ConcurrentHashMap<Integer, TransferRecord>();
+        progressJournal = new TransferProgressJournal(dbUtil);
+        lastProgressNotificationMillis = new ConcurrentHashMap<Integer, Long>();
     }
 
     /**
@@ -137,6 +155,7 @@ class TransferStatusUpdater {
             LISTENERS.remove(id);
         }
         transfers.remove(id);
+        lastProgressNotificationMillis.remove(id);
     }
     
     /**
@@ -146,6 +165,7 @@ class TransferStatusUpdater {
      */
     synchronized void removeTransferRecordFromDB(final int id) {
         S3ClientReference.remove(id);
+        progressJournal.remove(id);
         dbUtil.deleteTransferRecords(id);
     }
 
@@ -168,8 +188,13 @@ class TransferStatusUpdater {
     synchronized void updateState(final int id, final TransferState newState) {
         boolean shouldNotNotify = STATES_NOT_TO_NOTIFY.contains(newState);
         final TransferRecord transfer = transfers.get(id);
+        // the state is written below, take the pending progress along
+        final Long pendingBytes = progressJournal.remove(id);
         if (transfer == null) {
             // still wants to save state
+            if (pendingBytes != null) {
+                dbUtil.updateBytesTransferred(id, pendingBytes);
+            }
             if (dbUtil.updateState(id, newState) == 0) {
                 LOGGER.warn("Failed to update the status of transfer " + id);
             }
@@ -219,15 +244,19 @@ class TransferStatusUpdater {
     }
 
     /**
-     * Updates the transfer progress of a transfer. It will trigger
+     * Updates the transfer progress of a transfer. The bytes transferred are
+     * recorded in a {@link TransferProgressJournal} that writes them to the
+     * database in batches. It will trigger
      * {@link TransferListener#onProgressChanged(int, long, long)} of associated
-     * LISTENERS if the update exceeds either time threshold.
+     * LISTENERS unless the previous callback of the transfer was posted less
+     * than {@link TransferUtilityOptions#getMinimumProgressUpdateIntervalMillis()}
+     * ago. The callback reporting a finished transfer is never skipped.
      *
      * @param id id of the transfer
      * @param bytesCurrent current transferred bytes
      * @param bytesTotal total bytes
      */
-    synchronized void updateProgress(final int id, 
+    void updateProgress(final int id, 
         final long bytesCurrent, 
         final long bytesTotal, 
         final boolean notifyListener) {
@@ -240,9 +269,9 @@ class TransferStatusUpdater {
 
         // update bytes transferred so that the transfer observer may pick it
         // up.
-        dbUtil.updateBytesTransferred(id, bytesCurrent);
+        progressJournal.record(id, bytesCurrent);
 
-        if (!notifyListener) {
+        if (!notifyListener || !shouldNotifyProgress(id, transfer, bytesCurrent, bytesTotal)) {
             return;
         }
 
@@ -265,6 +294,35 @@ class TransferStatusUpdater {
         }
     }
 
+    /**
+     * Throttles the progress callbacks of a transfer to the minimum progress
+     * update interval of its {@link TransferUtilityOptions}.
+     *
+     * @param id id of the transfer
+     * @param transfer the transfer if tracked, null otherwise
+     * @param bytesCurrent current transferred bytes
+     * @param bytesTotal total bytes
+     * @return whether the progress callback should be posted
+     */
+    private boolean shouldNotifyProgress(final int id,
+        final TransferRecord transfer,
+        final long bytesCurrent,
+        final long bytesTotal) {
+        final long interval = transfer == null || transfer.transferUtilityOptions == null
+                ? TransferUtilityOptions.getDefaultMinimumProgressUpdateIntervalMillis()
+                : transfer.transferUtilityOptions.getMinimumProgressUpdateIntervalMillis();
+        if (interval <= 0 || bytesCurrent >= bytesTotal) {
+            return true;
+        }
+        final long now = System.nanoTime() / NANOS_IN_MILLI;
+        final Long last = lastProgressNotificationMillis.get(id);
+        if (last != null && now - last < interval) {
+            return false;
+        }
+        lastProgressNotificationMillis.put(id, now);
+        return true;
+    }
+
     /**
      * Throws an error to transfer. It triggers
      * {@link TransferListener#onError(int, Exception)} of associated LISTENERS.
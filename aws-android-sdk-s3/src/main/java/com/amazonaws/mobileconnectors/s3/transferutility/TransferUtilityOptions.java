@@ -49,6 +49,16 @@ public class TransferUtilityOptions implements Serializable {
      */
     private static final int MILLIS_IN_MINUTE = 60 * 1000;
 
+    /**
+     * Bytes in a megabyte.
+     */
+    private static final long BYTES_IN_MB = 1024 * 1024;
+
+    /**
+     * Default size of a single byte range of a ranged download.
+     */
+    private static final long DEFAULT_DOWNLOAD_PART_SIZE = 8 * BYTES_IN_MB;
+
     /**
      * TransferService checks for the transfers that are waiting or in progress
      * and restarts the transfer for every time interval in milliseconds.
@@ -68,6 +78,23 @@ public class TransferUtilityOptions implements Serializable {
      * Type of connection to use for transfers.
      */
     private TransferNetworkConnectionType transferNetworkConnectionType;
+
+    /**
+     * Objects larger than this number of bytes are downloaded as multiple
+     * byte ranges in parallel. Zero disables ranged downloads.
+     */
+    private long multipartDownloadThreshold;
+
+    /**
+     * Size in bytes of each byte range of a ranged download.
+     */
+    private long downloadPartSize;
+
+    /**
+     * Minimum time in milliseconds between two progress callbacks of a
+     * transfer. Zero invokes the callback on every progress update.
+     */
+    private long minimumProgressUpdateIntervalMillis;
     
     /**
      * Constructor that sets the options to the
@@ -78,6 +105,9 @@ public class TransferUtilityOptions implements Serializable {
         this.transferServiceCheckTimeInterval = getDefaultCheckTimeInterval();
         this.transferThreadPoolSize = getDefaultThreadPoolSize();
         this.transferNetworkConnectionType = getDefaultTransferNetworkConnectionType();
+        this.multipartDownloadThreshold = getDefaultMultipartDownloadThreshold();
+        this.downloadPartSize = getDefaultDownloadPartSize();
+        this.minimumProgressUpdateIntervalMillis = getDefaultMinimumProgressUpdateIntervalMillis();
     }
 
     /**
@@ -93,6 +123,9 @@ public class TransferUtilityOptions implements Serializable {
         this.transferServiceCheckTimeInterval = getDefaultCheckTimeInterval();
         this.transferThreadPoolSize = transferThreadPoolSize;
         this.transferNetworkConnectionType = transferNetworkConnectionType;
+        this.multipartDownloadThreshold = getDefaultMultipartDownloadThreshold();
+        this.downloadPartSize = getDefaultDownloadPartSize();
+        this.minimumProgressUpdateIntervalMillis = getDefaultMinimumProgressUpdateIntervalMillis();
     }
 
     /**
@@ -153,6 +186,73 @@ public class TransferUtilityOptions implements Serializable {
         return transferNetworkConnectionType;
     }
 
+    /**
+     * Retrieve the multipart download threshold.
+     *
+     * @return the size in bytes above which an object is downloaded as
+     *         multiple byte ranges, or zero if ranged downloads are disabled
+     */
+    public long getMultipartDownloadThreshold() {
+        return multipartDownloadThreshold;
+    }
+
+    /**
+     * Set the multipart download threshold. Objects larger than this number
+     * of bytes are fetched as multiple byte ranges in parallel and written
+     * directly into place in the target file. A value of zero or less
+     * disables ranged downloads.
+     *
+     * @param multipartDownloadThreshold the multipartDownloadThreshold to set
+     */
+    public void setMultipartDownloadThreshold(final long multipartDownloadThreshold) {
+        this.multipartDownloadThreshold = Math.max(multipartDownloadThreshold, 0);
+    }
+
+    /**
+     * Retrieve the size of a single byte range of a ranged download.
+     *
+     * @return the downloadPartSize
+     */
+    public long getDownloadPartSize() {
+        return downloadPartSize;
+    }
+
+    /**
+     * Set the size of a single byte range of a ranged download. If it's not
+     * positive, then set the default value.
+     *
+     * @param downloadPartSize the downloadPartSize to set
+     */
+    public void setDownloadPartSize(final long downloadPartSize) {
+        if (downloadPartSize <= 0) {
+            this.downloadPartSize = getDefaultDownloadPartSize();
+        } else {
+            this.downloadPartSize = downloadPartSize;
+        }
+    }
+
+    /**
+     * Retrieve the minimum time between two progress callbacks of a transfer.
+     *
+     * @return the minimumProgressUpdateIntervalMillis
+     */
+    public long getMinimumProgressUpdateIntervalMillis() {
+        return minimumProgressUpdateIntervalMillis;
+    }
+
+    /**
+     * Set the minimum time in milliseconds between two
+     * {@link TransferListener#onProgressChanged(int, long, long)} callbacks of
+     * a transfer. Progress updates that arrive sooner are not reported to the
+     * listeners, except the one reporting that the transfer has finished. A
+     * value of zero or less reports every progress update.
+     *
+     * @param minimumProgressUpdateIntervalMillis the minimumProgressUpdateIntervalMillis to set
+     */
+    public void setMinimumProgressUpdateIntervalMillis(final long minimumProgressUpdateIntervalMillis) {
+        this.minimumProgressUpdateIntervalMillis = Math.max(minimumProgressUpdateIntervalMillis, 0);
+    }
+
     /**
      * Return the default thread pool size.
      * 
@@ -183,4 +283,31 @@ public class TransferUtilityOptions implements Serializable {
     static TransferNetworkConnectionType getDefaultTransferNetworkConnectionType() {
         return TransferNetworkConnectionType.ANY;
     }
+
+    /**
+     * Return the default multipart download threshold.
+     *
+     * @return 0, ranged downloads are disabled by default.
+     */
+    static long getDefaultMultipartDownloadThreshold() {
+        return 0;
+    }
+
+    /**
+     * Return the default size of a single byte range of a ranged download.
+     *
+     * @return 8 MB
+     */
+    static long getDefaultDownloadPartSize() {
+        return DEFAULT_DOWNLOAD_PART_SIZE;
+    }
+
+    /**
+     * Return the default minimum time between two progress callbacks.
+     *
+     * @return 0, every progress update is reported by default.
+     */
+    static long getDefaultMinimumProgressUpdateIntervalMillis() {
+        return 0;
+    }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+
+public class DownloadPartTaskTest {
+
+    private static final int RANGE_ID = 7;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private AmazonS3 s3;
+    private TransferDBUtil dbUtil;
+    private DownloadTask.DownloadPartTaskMetadata metadata;
+    private DownloadTask.DownloadTaskProgressListener listener;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        s3 = mock(AmazonS3.class);
+        dbUtil = mock(TransferDBUtil.class);
+        final DownloadTask downloadTask = mock(DownloadTask.class);
+        metadata = downloadTask.new DownloadPartTaskMetadata();
+        listener = mock(DownloadTask.DownloadTaskProgressListener.class);
+        file = temp.newFile();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(20);
+        raf.close();
+    }
+
+    @Test
+    public void testResumeOfWrittenRangeDoesNotRequestObject() throws Exception {
+        final TransferRecord range = newRange(10, 19);
+        range.bytesCurrent = range.bytesTotal;
+
+        final boolean completed = new DownloadPartTask(metadata, listener, range, null, s3, dbUtil)
+                .call();
+
+        assertTrue(completed);
+        assertEquals(TransferState.PART_COMPLETED, metadata.state);
+        verify(s3, never()).getObject(any(GetObjectRequest.class));
+        verify(dbUtil).updateState(RANGE_ID, TransferState.PART_COMPLETED);
+    }
+
+    @Test
+    public void testResumeRequestsRestOfRange() throws Exception {
+        final TransferRecord range = newRange(10, 19);
+        range.bytesCurrent = 4;
+        final S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(new byte[] {
+                1, 2, 3, 4, 5, 6
+        }));
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(object);
+
+        final boolean completed = new DownloadPartTask(metadata, listener, range, null, s3, dbUtil)
+                .call();
+
+        assertTrue(completed);
+        final ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor
+                .forClass(GetObjectRequest.class);
+        verify(s3).getObject(captor.capture());
+        assertArrayEquals(new long[] {
+                14, 19
+        }, captor.getValue().getRange());
+        final byte[] content = new byte[6];
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        raf.seek(14);
+        raf.readFully(content);
+        raf.close();
+        assertArrayEquals(new byte[] {
+                1, 2, 3, 4, 5, 6
+        }, content);
+        verify(dbUtil).updateBytesTransferred(RANGE_ID, 10);
+        verify(dbUtil).updateState(RANGE_ID, TransferState.PART_COMPLETED);
+    }
+
+    private TransferRecord newRange(long rangeStart, long rangeLast) {
+        final TransferRecord range = new TransferRecord(RANGE_ID);
+        range.bucketName = "bucket";
+        range.key = "key";
+        range.file = file.getAbsolutePath();
+        range.partNumber = 2;
+        range.rangeStart = rangeStart;
+        range.rangeLast = rangeLast;
+        range.bytesTotal = rangeLast - rangeStart + 1;
+        return range;
+    }
+}
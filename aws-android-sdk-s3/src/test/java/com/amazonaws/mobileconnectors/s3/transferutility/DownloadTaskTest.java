@@ -0,0 +1,205 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ContentValues;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class DownloadTaskTest {
+
+    private static final int DOWNLOAD_ID = 3;
+    private static final String ETAG = "etag";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private AmazonS3 s3;
+    private TransferDBUtil dbUtil;
+    private TransferStatusUpdater updater;
+    private byte[] content;
+    private List<long[]> requestedRanges;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        s3 = mock(AmazonS3.class);
+        dbUtil = mock(TransferDBUtil.class);
+        updater = mock(TransferStatusUpdater.class);
+        content = new byte[25];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i + 1);
+        }
+        requestedRanges = Collections.synchronizedList(new ArrayList<long[]>());
+        when(s3.getObject(any(GetObjectRequest.class))).thenAnswer(new Answer<S3Object>() {
+            @Override
+            public S3Object answer(InvocationOnMock invocation) {
+                final long[] range = ((GetObjectRequest) invocation.getArguments()[0]).getRange();
+                requestedRanges.add(range);
+                final S3Object object = new S3Object();
+                object.setObjectContent(new ByteArrayInputStream(content, (int) range[0],
+                        (int) (range[1] - range[0] + 1)));
+                return object;
+            }
+        });
+        file = new File(temp.getRoot(), "download");
+    }
+
+    @Test
+    public void testLargeObjectIsAssembledFromRanges() throws Exception {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        metadata.setHeader("ETag", ETAG);
+        when(s3.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenReturn(metadata);
+        when(dbUtil.insertDownloadRangeRecords(eq(DOWNLOAD_ID), eq((long) content.length),
+                eq(ETAG), any(ContentValues[].class))).thenReturn(3);
+        when(dbUtil.getNonCompletedDownloadRangesFromDB(DOWNLOAD_ID)).thenReturn(Arrays.asList(
+                newRange(1, 0, 9), newRange(2, 10, 19), newRange(3, 20, 24)));
+
+        final TransferRecord download = newDownload();
+        final boolean completed = new DownloadTask(download, s3, dbUtil, updater).call();
+
+        assertTrue(completed);
+        verify(dbUtil).generateContentValuesForDownloadRange(download, 1, 0, 9, 0);
+        verify(dbUtil).generateContentValuesForDownloadRange(download, 2, 10, 19, 0);
+        verify(dbUtil).generateContentValuesForDownloadRange(download, 3, 20, 24, 1);
+        assertEquals(3, requestedRanges.size());
+        assertArrayEquals(content, readFile());
+        verify(dbUtil).deleteDownloadRangeRecords(DOWNLOAD_ID);
+        verify(updater).updateState(DOWNLOAD_ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testSmallObjectIsDownloadedWithSingleRequest() throws Exception {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        when(s3.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenReturn(metadata);
+        final S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(content));
+        object.getObjectMetadata().setContentLength(content.length);
+        doReturn(object).when(s3).getObject(any(GetObjectRequest.class));
+
+        final TransferRecord download = newDownload();
+        download.transferUtilityOptions.setMultipartDownloadThreshold(content.length);
+        final boolean completed = new DownloadTask(download, s3, dbUtil, updater).call();
+
+        assertTrue(completed);
+        verify(dbUtil, never()).insertDownloadRangeRecords(anyInt(), anyLong(), anyString(),
+                any(ContentValues[].class));
+        assertArrayEquals(content, readFile());
+        verify(updater).updateState(DOWNLOAD_ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testResumeRequestsOnlyMissingBytes() throws Exception {
+        // range 1 is complete, range 2 was interrupted after 5 of its 10 bytes
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(content.length);
+        raf.write(content, 0, 15);
+        raf.close();
+        final TransferRecord partialRange = newRange(2, 10, 19);
+        partialRange.bytesCurrent = 5;
+        when(dbUtil.getNonCompletedDownloadRangesFromDB(DOWNLOAD_ID)).thenReturn(Arrays.asList(
+                partialRange, newRange(3, 20, 24)));
+
+        final TransferRecord download = newDownload();
+        download.isMultipart = 1;
+        download.bytesTotal = content.length;
+        download.eTag = ETAG;
+        final boolean completed = new DownloadTask(download, s3, dbUtil, updater).call();
+
+        assertTrue(completed);
+        verify(s3, never()).getObjectMetadata(any(GetObjectMetadataRequest.class));
+        verify(updater).updateProgress(DOWNLOAD_ID, 15, content.length, false);
+        assertEquals(2, requestedRanges.size());
+        final List<Long> starts = new ArrayList<Long>();
+        for (final long[] range : requestedRanges) {
+            starts.add(range[0]);
+        }
+        assertTrue(starts.contains(15L));
+        assertTrue(starts.contains(20L));
+        assertArrayEquals(content, readFile());
+        verify(dbUtil).deleteDownloadRangeRecords(DOWNLOAD_ID);
+        verify(updater).updateState(DOWNLOAD_ID, TransferState.COMPLETED);
+    }
+
+    private TransferRecord newDownload() {
+        final TransferRecord download = new TransferRecord(DOWNLOAD_ID);
+        download.bucketName = "bucket";
+        download.key = "key";
+        download.file = file.getAbsolutePath();
+        download.transferUtilityOptions = new TransferUtilityOptions();
+        download.transferUtilityOptions.setMultipartDownloadThreshold(10);
+        download.transferUtilityOptions.setDownloadPartSize(10);
+        return download;
+    }
+
+    private TransferRecord newRange(int partNumber, long rangeStart, long rangeLast) {
+        final TransferRecord range = new TransferRecord(DOWNLOAD_ID * 100 + partNumber);
+        range.bucketName = "bucket";
+        range.key = "key";
+        range.file = file.getAbsolutePath();
+        range.partNumber = partNumber;
+        range.rangeStart = rangeStart;
+        range.rangeLast = rangeLast;
+        range.bytesTotal = rangeLast - rangeStart + 1;
+        return range;
+    }
+
+    private byte[] readFile() throws Exception {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -78,4 +78,32 @@ public class GsonSerializationTest {
         assertEquals(TransferNetworkConnectionType.ANY,
                 tuOptions.getTransferNetworkConnectionType());
     }
+
+    @Test
+    public void testTransferUtilityOptionsDownloadRangesSerialization() {
+        TransferUtilityOptions tuOptions = new TransferUtilityOptions();
+        tuOptions.setMultipartDownloadThreshold(32 * 1024 * 1024);
+        tuOptions.setDownloadPartSize(4 * 1024 * 1024);
+        String jsonOptions = gson.toJson(tuOptions);
+
+        TransferUtilityOptions deserialized = gson.fromJson(jsonOptions, TransferUtilityOptions.class);
+
+        assertEquals(32 * 1024 * 1024, deserialized.getMultipartDownloadThreshold());
+        assertEquals(4 * 1024 * 1024, deserialized.getDownloadPartSize());
+    }
+
+    @Test
+    public void testTransferUtilityOptionsDeserializationWithoutDownloadRanges() {
+        final String jsonOptions = "{" +
+                "\"transferThreadPoolSize\":10," +
+                "\"transferNetworkConnectionType\":\"ANY\"" +
+                "}";
+
+        TransferUtilityOptions tuOptions = gson.fromJson(jsonOptions, TransferUtilityOptions.class);
+
+        assertEquals(TransferUtilityOptions.getDefaultMultipartDownloadThreshold(),
+                tuOptions.getMultipartDownloadThreshold());
+        assertEquals(TransferUtilityOptions.getDefaultDownloadPartSize(),
+                tuOptions.getDownloadPartSize());
+    }
 }
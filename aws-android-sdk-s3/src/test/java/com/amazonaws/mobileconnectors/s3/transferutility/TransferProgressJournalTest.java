@@ -0,0 +1,97 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+
+public class TransferProgressJournalTest {
+
+    private TransferDBUtil dbUtil;
+
+    @Before
+    public void setUp() {
+        dbUtil = mock(TransferDBUtil.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlushWritesLatestBytesInOneBatch() {
+        TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 60000, Long.MAX_VALUE);
+        journal.record(1, 100);
+        journal.record(1, 200);
+        journal.record(2, 50);
+
+        journal.flush();
+
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(dbUtil).updateBytesTransferred(captor.capture());
+        Map<Integer, Long> batch = captor.getValue();
+        assertEquals(2, batch.size());
+        assertEquals(Long.valueOf(200), batch.get(1));
+        assertEquals(Long.valueOf(50), batch.get(2));
+    }
+
+    @Test
+    public void testFlushWithoutProgressDoesNotWrite() {
+        TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 60000, Long.MAX_VALUE);
+
+        journal.flush();
+
+        verify(dbUtil, never()).updateBytesTransferred(anyMapOf(Integer.class, Long.class));
+    }
+
+    @Test
+    public void testFlushesAfterInterval() {
+        TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 10, Long.MAX_VALUE);
+        journal.record(1, 100);
+
+        verify(dbUtil, timeout(1000)).updateBytesTransferred(anyMapOf(Integer.class, Long.class));
+    }
+
+    @Test
+    public void testFlushesWhenByteThresholdIsReached() {
+        TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 60000, 1000);
+        journal.record(1, 0);
+        journal.record(1, 1500);
+
+        verify(dbUtil, timeout(1000)).updateBytesTransferred(anyMapOf(Integer.class, Long.class));
+    }
+
+    @Test
+    public void testRemoveReturnsUnwrittenBytes() {
+        TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 60000, Long.MAX_VALUE);
+        journal.record(1, 100);
+
+        assertEquals(Long.valueOf(100), journal.remove(1));
+        assertNull(journal.remove(1));
+
+        journal.record(2, 100);
+        journal.flush();
+        assertNull(journal.remove(2));
+    }
+}
@@ -18,8 +18,11 @@ package com.amazonaws.services.sqs;
 import org.w3c.dom.*;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.amazonaws.*;
+import com.amazonaws.async.*;
 import com.amazonaws.auth.*;
 import com.amazonaws.handlers.*;
 import com.amazonaws.http.*;
@@ -2823,6 +2826,108 @@ public class AmazonSQSClient extends AmazonWebServiceClient implements AmazonSQS
     private <X, Y extends AmazonWebServiceRequest> Response<X> invoke(Request<Y> request,
             Unmarshaller<X, StaxUnmarshallerContext> unmarshaller,
             ExecutionContext executionContext) {
+        prepareToInvoke(request, executionContext);
+
+        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller);
+        DefaultErrorResponseHandler errorResponseHandler = new DefaultErrorResponseHandler(
+                exceptionUnmarshallers);
+        return client.execute(request, responseHandler, errorResponseHandler, executionContext);
+    }
+
+    /**
+     * Runs the request on the executor like the synchronous operations do,
+     * but schedules its retries instead of sleeping between them, so no thread
+     * of the executor is blocked while the request backs off.
+     */
+    <X, Y extends AmazonWebServiceRequest> Future<X> invokeAsync(final Y originalRequest,
+            final Marshaller<Request<Y>, Y> marshaller,
+            final Unmarshaller<X, StaxUnmarshallerContext> unmarshaller,
+            final ExecutorService executorService,
+            final AsyncHandler<Y, X> asyncHandler) {
+        final CompletionFuture<X> future = new CompletionFuture<X>();
+        executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isCancelled()) {
+                    return;
+                }
+                final ExecutionContext executionContext = createExecutionContext(originalRequest);
+                final AWSRequestMetrics awsRequestMetrics = executionContext
+                        .getAwsRequestMetrics();
+                awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+                Request<Y> request = null;
+                final CompletionFuture<Response<X>> execution;
+                try {
+                    request = marshaller.marshall(originalRequest);
+                    // Binds the request metrics to the current request.
+                    request.setAWSRequestMetrics(awsRequestMetrics);
+                    prepareToInvoke(request, executionContext);
+                    execution = client.executeAsync(request,
+                            new StaxResponseHandler<X>(unmarshaller),
+                            new DefaultErrorResponseHandler(exceptionUnmarshallers),
+                            executionContext, executorService);
+                } catch (Exception e) {
+                    awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                    endClientExecution(awsRequestMetrics, request, null);
+                    failAsync(future, asyncHandler, e);
+                    return;
+                }
+
+                final Request<Y> marshalledRequest = request;
+                execution.addCallback(new Callback<Response<X>>() {
+                    @Override
+                    public void onResult(Response<X> response) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, marshalledRequest, response);
+                        X result = response.getAwsResponse();
+                        if (asyncHandler != null) {
+                            try {
+                                asyncHandler.onSuccess(originalRequest, result);
+                            } catch (RuntimeException e) {
+                                future.setException(e);
+                                return;
+                            }
+                        }
+                        future.setResult(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        awsRequestMetrics.endEvent(Field.ClientExecuteTime);
+                        endClientExecution(awsRequestMetrics, marshalledRequest, null);
+                        failAsync(future, asyncHandler, e);
+                    }
+                });
+                // stop retrying once the caller cancels
+                future.addCallback(new Callback<X>() {
+                    @Override
+                    public void onResult(X result) {
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (future.isCancelled()) {
+                            execution.cancel(false);
+                        }
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    private static <X, Y extends AmazonWebServiceRequest> void failAsync(
+            CompletionFuture<X> future, AsyncHandler<Y, X> asyncHandler, Exception e) {
+        try {
+            if (asyncHandler != null && !future.isCancelled()) {
+                asyncHandler.onError(e);
+            }
+        } finally {
+            future.setException(e);
+        }
+    }
+
+    private void prepareToInvoke(Request<?> request, ExecutionContext executionContext) {
         request.setEndpoint(endpoint);
         request.setTimeOffset(timeOffset);
         AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
@@ -2833,10 +2938,5 @@ public class AmazonSQSClient extends AmazonWebServiceClient implements AmazonSQS
         }
 
         executionContext.setCredentials(credentials);
-
-        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller);
-        DefaultErrorResponseHandler errorResponseHandler = new DefaultErrorResponseHandler(
-                exceptionUnmarshallers);
-        return client.execute(request, responseHandler, errorResponseHandler, executionContext);
     }
 }
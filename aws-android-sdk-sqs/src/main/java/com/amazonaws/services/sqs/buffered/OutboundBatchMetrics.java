@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the outbound ({@code SendMessage}, {@code DeleteMessage},
+ * {@code ChangeMessageVisibility}) batches sent by the queue buffers of a
+ * client, available from {@link QueueBufferConfig#getOutboundBatchMetrics()}.
+ * The batch fill ratio tells how well requests are batched, and the queueing
+ * delay how long requests wait in a batch before it is sent. Instances of
+ * this class are thread-safe.
+ */
+public final class OutboundBatchMetrics {
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong batchCapacity = new AtomicLong();
+    private final AtomicLong totalQueueingDelayNanos = new AtomicLong();
+    private final AtomicLong maxQueueingDelayNanos = new AtomicLong();
+
+    /**
+     * Records a batch about to be sent.
+     *
+     * @param requests the number of requests in the batch.
+     * @param capacity the maximum number of requests in a batch.
+     * @param totalDelayNanos the summed time the requests waited in the batch.
+     * @param maxDelayNanos the longest time a request waited in the batch.
+     */
+    void recordBatch(int requests, int capacity, long totalDelayNanos, long maxDelayNanos) {
+        batchCount.incrementAndGet();
+        requestCount.addAndGet(requests);
+        batchCapacity.addAndGet(capacity);
+        totalQueueingDelayNanos.addAndGet(totalDelayNanos);
+        long max;
+        while ((max = maxQueueingDelayNanos.get()) < maxDelayNanos
+                && !maxQueueingDelayNanos.compareAndSet(max, maxDelayNanos)) {
+            // another batch raised the maximum, compare again
+        }
+    }
+
+    /**
+     * @return the number of batches sent.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return the number of requests sent in batches.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the average number of requests in a batch relative to the
+     *         maximum batch size, between 0 and 1, or 0 if no batch was sent.
+     */
+    public double getAverageBatchFillRatio() {
+        final long capacity = batchCapacity.get();
+        return capacity == 0 ? 0 : (double) requestCount.get() / capacity;
+    }
+
+    /**
+     * @return the average time in milliseconds a request waited in its batch
+     *         before the batch was sent, or 0 if no batch was sent.
+     */
+    public double getAverageQueueingDelayMs() {
+        final long requests = requestCount.get();
+        return requests == 0 ? 0
+                : (double) totalQueueingDelayNanos.get() / requests
+                        / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the longest time in milliseconds a request waited in its batch
+     *         before the batch was sent.
+     */
+    public long getMaxQueueingDelayMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxQueueingDelayNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "OutboundBatchMetrics [batchCount=" + getBatchCount()
+                + ", requestCount=" + getRequestCount()
+                + ", averageBatchFillRatio=" + getAverageBatchFillRatio()
+                + ", averageQueueingDelayMs=" + getAverageQueueingDelayMs()
+                + ", maxQueueingDelayMs=" + getMaxQueueingDelayMs() + "]";
+    }
+}
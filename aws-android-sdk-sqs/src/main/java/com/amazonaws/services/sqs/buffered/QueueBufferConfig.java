@@ -39,6 +39,23 @@ public class QueueBufferConfig {
     /** 200 milliseconds */
     public static final long MAX_BATCH_OPEN_MS_DEFAULT = 200;
 
+    /**
+     * Whether a send batch is closed before maxBatchOpenMs elapses once no
+     * more requests arrive. The batch waits for the next request about twice
+     * as long as the recent time between requests, so batches close right
+     * after a burst of requests and stay open up to maxBatchOpenMs under
+     * light load.
+     */
+    private boolean adaptiveBatchOpen = ADAPTIVE_BATCH_OPEN_DEFAULT;
+
+    /** true */
+    public static final boolean ADAPTIVE_BATCH_OPEN_DEFAULT = true;
+
+    /**
+     * Statistics of the outbound batches, shared by the copies of this config.
+     */
+    private OutboundBatchMetrics outboundBatchMetrics = new OutboundBatchMetrics();
+
     /**
      * Should we use long polling or not?
      */
@@ -85,6 +102,25 @@ public class QueueBufferConfig {
     /** 10 batches */
     public static final int MAX_DONE_RECEIVE_BATCHES_DEFAULT = 10;
 
+    /**
+     * Whether the number of inflight and completed receive batches is sized
+     * from how fast messages are consumed and how long a receive call takes,
+     * with maxInflightReceiveBatches and maxDoneReceiveBatches as the upper
+     * limits. The buffer then holds about as many messages as are consumed in
+     * half the visibility timeout, and renews the visibility timeout of
+     * buffered messages about to expire while consumers keep receiving.
+     */
+    private boolean adaptivePrefetch = ADAPTIVE_PREFETCH_DEFAULT;
+
+    /** true */
+    public static final boolean ADAPTIVE_PREFETCH_DEFAULT = true;
+
+    /**
+     * Statistics of the prefetched messages, shared by the copies of this
+     * config.
+     */
+    private ReceiveBufferMetrics receiveBufferMetrics = new ReceiveBufferMetrics();
+
     /**
      * Maximum permitted size of a SendMessage or SendMessageBatch message, in
      * bytes
@@ -161,16 +197,22 @@ public class QueueBufferConfig {
         maxInflightOutboundBatches = other.maxInflightOutboundBatches;
         maxInflightReceiveBatches = other.maxInflightReceiveBatches;
         visibilityTimeoutSeconds = other.visibilityTimeoutSeconds;
+        adaptiveBatchOpen = other.adaptiveBatchOpen;
+        outboundBatchMetrics = other.outboundBatchMetrics;
+        adaptivePrefetch = other.adaptivePrefetch;
+        receiveBufferMetrics = other.receiveBufferMetrics;
     }
 
     @Override
     public String toString() {
         return "QueueBufferConfig [maxBatchSize=" + maxBatchSize
-                + ", maxBatchOpenMs=" + maxBatchOpenMs + ", longPoll="
+                + ", maxBatchOpenMs=" + maxBatchOpenMs + ", adaptiveBatchOpen="
+                + adaptiveBatchOpen + ", longPoll="
                 + longPoll + ", maxInflightOutboundBatches="
                 + maxInflightOutboundBatches + ", maxInflightReceiveBatches="
                 + maxInflightReceiveBatches + ", maxDoneReceiveBatches="
-                + maxDoneReceiveBatches + ", maxBatchSizeBytes="
+                + maxDoneReceiveBatches + ", adaptivePrefetch="
+                + adaptivePrefetch + ", maxBatchSizeBytes="
                 + maxBatchSizeBytes + ", visibilityTimeoutSeconds="
                 + visibilityTimeoutSeconds + ", longPollWaitTimeoutSeconds="
                 + longPollWaitTimeoutSeconds + "]";
@@ -205,6 +247,40 @@ public class QueueBufferConfig {
         return this;
     }
 
+    /**
+     * @return true if a send batch is closed before maxBatchOpenMs elapses
+     *         once no more requests arrive, false if it is always held open
+     *         for maxBatchOpenMs unless it fills up.
+     */
+    public boolean isAdaptiveBatchOpen() {
+        return adaptiveBatchOpen;
+    }
+
+    /**
+     * Specify "true" to close a send batch before maxBatchOpenMs elapses
+     * once no more requests arrive. The batch waits for the next request
+     * about twice as long as the recent time between requests, so batches
+     * close right after a burst of requests and stay open up to
+     * maxBatchOpenMs under light load.
+     */
+    public void setAdaptiveBatchOpen(boolean adaptiveBatchOpen) {
+        this.adaptiveBatchOpen = adaptiveBatchOpen;
+    }
+
+    public QueueBufferConfig withAdaptiveBatchOpen(boolean adaptiveBatchOpen) {
+        this.adaptiveBatchOpen = adaptiveBatchOpen;
+        return this;
+    }
+
+    /**
+     * Statistics of the outbound batches sent by the queue buffers using
+     * this config or a copy of it, such as the batch fill ratio and the
+     * time requests wait in a batch before it is sent.
+     */
+    public OutboundBatchMetrics getOutboundBatchMetrics() {
+        return outboundBatchMetrics;
+    }
+
     /**
      * @return true if the queue buffer will use long polling while retrieveing
      *         messages from the SQS server, false otherwise.
@@ -317,6 +393,41 @@ public class QueueBufferConfig {
         return this;
     }
 
+    /**
+     * @return true if the number of inflight and completed receive batches
+     *         is sized from the measured consumption rate and receive
+     *         latency, false if the buffer always prefetches up to
+     *         maxInflightReceiveBatches and maxDoneReceiveBatches.
+     */
+    public boolean isAdaptivePrefetch() {
+        return adaptivePrefetch;
+    }
+
+    /**
+     * Specify "true" to size the number of inflight and completed receive
+     * batches from how fast messages are consumed and how long a receive call
+     * takes, up to maxInflightReceiveBatches and maxDoneReceiveBatches, and to
+     * renew the visibility timeout of buffered messages about to expire while
+     * consumers keep receiving.
+     */
+    public void setAdaptivePrefetch(boolean adaptivePrefetch) {
+        this.adaptivePrefetch = adaptivePrefetch;
+    }
+
+    public QueueBufferConfig withAdaptivePrefetch(boolean adaptivePrefetch) {
+        this.adaptivePrefetch = adaptivePrefetch;
+        return this;
+    }
+
+    /**
+     * Statistics of the messages prefetched by the queue buffers using this
+     * config or a copy of it, such as the number of messages whose
+     * visibility timeout expired before they were consumed.
+     */
+    public ReceiveBufferMetrics getReceiveBufferMetrics() {
+        return receiveBufferMetrics;
+    }
+
     /**
      * Maximum permitted size of a SendMessage or SendMessageBatch message, in
      * bytes. This setting is also enforced on the server, and if this client
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the messages prefetched by the receive buffers of a client,
+ * available from {@link QueueBufferConfig#getReceiveBufferMetrics()}. Expired
+ * messages were prefetched but their visibility timeout expired before a
+ * consumer asked for them, so they were dropped and will be delivered again
+ * by SQS. Instances of this class are thread-safe.
+ */
+public final class ReceiveBufferMetrics {
+
+    private final AtomicLong receivedMessageCount = new AtomicLong();
+    private final AtomicLong deliveredMessageCount = new AtomicLong();
+    private final AtomicLong expiredMessageCount = new AtomicLong();
+    private final AtomicLong renewedMessageCount = new AtomicLong();
+
+    void recordReceived(int count) {
+        receivedMessageCount.addAndGet(count);
+    }
+
+    void recordDelivered(int count) {
+        deliveredMessageCount.addAndGet(count);
+    }
+
+    void recordExpired(int count) {
+        expiredMessageCount.addAndGet(count);
+    }
+
+    void recordRenewed(int count) {
+        renewedMessageCount.addAndGet(count);
+    }
+
+    /**
+     * @return the number of messages prefetched from SQS.
+     */
+    public long getReceivedMessageCount() {
+        return receivedMessageCount.get();
+    }
+
+    /**
+     * @return the number of prefetched messages handed to consumers.
+     */
+    public long getDeliveredMessageCount() {
+        return deliveredMessageCount.get();
+    }
+
+    /**
+     * @return the number of prefetched messages dropped because their
+     *         visibility timeout expired in the buffer.
+     */
+    public long getExpiredMessageCount() {
+        return expiredMessageCount.get();
+    }
+
+    /**
+     * @return the number of times the visibility timeout of a prefetched
+     *         message was renewed because it was about to expire.
+     */
+    public long getRenewedMessageCount() {
+        return renewedMessageCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ReceiveBufferMetrics [receivedMessageCount=" + getReceivedMessageCount()
+                + ", deliveredMessageCount=" + getDeliveredMessageCount()
+                + ", expiredMessageCount=" + getExpiredMessageCount()
+                + ", renewedMessageCount=" + getRenewedMessageCount() + "]";
+    }
+}
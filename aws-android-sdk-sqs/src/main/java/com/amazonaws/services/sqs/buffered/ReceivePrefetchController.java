@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the prefetching of a {@link ReceiveQueueBuffer} from how fast its
+ * consumers take messages and how long a receive call takes. Enough receive
+ * batches are kept in flight to cover the messages consumed during a receive
+ * call, and no more messages are kept in the buffer than are consumed in half
+ * the visibility timeout, so prefetched messages don't expire in the buffer.
+ * The configured maxInflightReceiveBatches and maxDoneReceiveBatches are the
+ * upper limits. Instances of this class are thread-safe.
+ */
+final class ReceivePrefetchController {
+
+    /** Length of the intervals the drain rate is measured over. */
+    private static final long RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** Weight of the newest measurement in the moving averages. */
+    private static final double SMOOTH = 0.5;
+    /** Messages kept in flight relative to those consumed during a receive. */
+    private static final double HEADROOM = 2.0;
+    /** Part of the visibility timeout the buffered messages should last. */
+    private static final double VISIBILITY_FRACTION = 0.5;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final QueueBufferConfig config;
+
+    /** Consumed messages per second, or -1 before the first interval ended. */
+    private double drainRate = -1;
+    private long intervalStartNanos;
+    private int intervalDelivered;
+    /** Duration of receive calls that returned messages, or -1 if unknown. */
+    private double receiveLatencyNanos = -1;
+    /** Messages returned by receive calls that returned messages. */
+    private double messagesPerBatch = -1;
+
+    ReceivePrefetchController(QueueBufferConfig config, long nowNanos) {
+        this.config = config;
+        this.intervalStartNanos = nowNanos;
+    }
+
+    /**
+     * Records messages handed to consumers.
+     */
+    synchronized void onMessagesDelivered(int count, long nowNanos) {
+        updateDrainRate(nowNanos);
+        intervalDelivered += count;
+    }
+
+    /**
+     * Records a completed receive call.
+     */
+    synchronized void onBatchReceived(int count, long latencyNanos) {
+        if (count == 0) {
+            // an empty long poll says how long the queue stayed empty, not
+            // how long a receive takes
+            return;
+        }
+        receiveLatencyNanos = receiveLatencyNanos < 0 ? latencyNanos
+                : SMOOTH * latencyNanos + (1 - SMOOTH) * receiveLatencyNanos;
+        messagesPerBatch = messagesPerBatch < 0 ? count
+                : SMOOTH * count + (1 - SMOOTH) * messagesPerBatch;
+    }
+
+    /**
+     * @param waitingConsumers the number of receive calls waiting for
+     *            messages.
+     * @return the number of receive batches to keep in flight.
+     */
+    synchronized int inflightBatches(int waitingConsumers, long nowNanos) {
+        final int max = Math.max(1, config.getMaxInflightReceiveBatches());
+        if (!config.isAdaptivePrefetch()) {
+            return max;
+        }
+        updateDrainRate(nowNanos);
+        int batches = 1;
+        if (drainRate > 0 && receiveLatencyNanos > 0) {
+            final double consumedDuringReceive = drainRate * receiveLatencyNanos
+                    / NANOS_PER_SECOND;
+            batches = (int) Math.ceil(consumedDuringReceive * HEADROOM / perBatch());
+        }
+        // consumers waiting on an empty buffer need a receive each
+        batches = Math.max(batches, waitingConsumers);
+        return Math.max(1, Math.min(max, batches));
+    }
+
+    /**
+     * @param visibilityTimeoutNanos the visibility timeout of the prefetched
+     *            messages.
+     * @return the number of received batches to keep in the buffer.
+     */
+    synchronized int doneBatches(long visibilityTimeoutNanos, long nowNanos) {
+        final int max = Math.max(1, config.getMaxDoneReceiveBatches());
+        if (!config.isAdaptivePrefetch()) {
+            return max;
+        }
+        updateDrainRate(nowNanos);
+        if (drainRate <= 0 || visibilityTimeoutNanos <= 0) {
+            return 1;
+        }
+        final double consumedBeforeExpiry = drainRate * visibilityTimeoutNanos
+                / NANOS_PER_SECOND * VISIBILITY_FRACTION;
+        final int batches = (int) Math.floor(consumedBeforeExpiry / perBatch());
+        return Math.max(1, Math.min(max, batches));
+    }
+
+    private double perBatch() {
+        return messagesPerBatch > 1 ? messagesPerBatch : 1;
+    }
+
+    private void updateDrainRate(long nowNanos) {
+        final long elapsed = nowNanos - intervalStartNanos;
+        if (elapsed < RATE_INTERVAL_NANOS) {
+            return;
+        }
+        final double rate = intervalDelivered * NANOS_PER_SECOND / elapsed;
+        drainRate = drainRate < 0 ? rate : SMOOTH * rate + (1 - SMOOTH) * drainRate;
+        intervalDelivered = 0;
+        intervalStartNanos = nowNanos;
+    }
+}
@@ -19,6 +19,8 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
 import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
@@ -92,13 +94,25 @@ public class ReceiveQueueBuffer {
     /** finished batches are stored in this list. */
     private LinkedList<ReceiveMessageBatchTask> finishedTasks = new LinkedList<ReceiveMessageBatchTask>();
 
+    /**
+     * The visibility timeout of buffered messages is renewed once less than
+     * this fraction of it is left.
+     */
+    private static final int RENEW_VISIBILITY_FRACTION = 4;
+
+    /** sizes the prefetching from the consumption rate and receive latency */
+    private final ReceivePrefetchController prefetchController;
+
+    private final ReceiveBufferMetrics metrics;
+
     ReceiveQueueBuffer(AmazonSQS paramSQS, Executor paramExecutor, QueueBufferConfig paramConfig,
             String url) {
         config = paramConfig;
         executor = paramExecutor;
         sqsClient = paramSQS;
         qUrl = url;
-
+        prefetchController = new ReceivePrefetchController(paramConfig, System.nanoTime());
+        metrics = paramConfig.getReceiveBufferMetrics();
     }
 
     /**
@@ -141,6 +155,9 @@ public class ReceiveQueueBuffer {
         // attempt to satisfy it right away...
         satisfyFuturesFromBuffer();
 
+        // keep the buffered messages from expiring while consumers are active
+        renewExpiringBatches();
+
         // spawn more receive tasks if we need them...
         spawnMoreReceiveTasks();
 
@@ -221,6 +238,10 @@ public class ReceiveQueueBuffer {
                 finishedTasks.removeFirst();
             }
             r.setMessages(messages);
+            if (retrieved > 0) {
+                metrics.recordDelivered(retrieved);
+                prefetchController.onMessagesDelivered(retrieved, System.nanoTime());
+            }
         }
 
         // if after the above runs the exception is not null,
@@ -256,8 +277,13 @@ public class ReceiveQueueBuffer {
         if (shutDown)
             return;
 
-        int desiredBatches = config.getMaxDoneReceiveBatches();
-        desiredBatches = desiredBatches < 1 ? 1 : desiredBatches;
+        final long now = System.nanoTime();
+        final int desiredBatches = prefetchController.doneBatches(
+                getBatchVisibilityTimeoutNanos(), now);
+        final int waitingConsumers;
+        synchronized (futures) {
+            waitingConsumers = futures.size();
+        }
 
         synchronized (finishedTasks) {
             if (finishedTasks.size() >= desiredBatches)
@@ -284,10 +310,9 @@ public class ReceiveQueueBuffer {
                         TimeUnit.SECONDS);
             }
 
-            int max = config.getMaxInflightReceiveBatches();
-            // must allow at least one inflight receive task, or receive won't
+            // always at least one inflight receive task, or receive won't
             // work at all.
-            max = max > 0 ? max : 1;
+            final int max = prefetchController.inflightBatches(waitingConsumers, now);
             int toSpawn = max - inflightReceiveMessageBatches;
             if (toSpawn > 0) {
                 ReceiveMessageBatchTask task = new ReceiveMessageBatchTask(this);
@@ -320,9 +345,55 @@ public class ReceiveQueueBuffer {
             --inflightReceiveMessageBatches;
         }
         satisfyFuturesFromBuffer();
+        renewExpiringBatches();
         spawnMoreReceiveTasks();
     }
 
+    /**
+     * @return the visibility timeout of the messages received by the batches,
+     *         or -1 if not known yet.
+     */
+    private long getBatchVisibilityTimeoutNanos() {
+        if (config.getVisibilityTimeoutSeconds() > 0) {
+            return TimeUnit.NANOSECONDS.convert(config.getVisibilityTimeoutSeconds(),
+                    TimeUnit.SECONDS);
+        }
+        return visibilityTimeoutNanos;
+    }
+
+    /**
+     * Renews the visibility timeout of the buffered batches about to expire.
+     * This is only called while consumers receive messages, so messages
+     * nobody asks for still expire and become visible to other clients.
+     */
+    private void renewExpiringBatches() {
+        if (!config.isAdaptivePrefetch() || shutDown) {
+            return;
+        }
+        final long timeoutNanos = getBatchVisibilityTimeoutNanos();
+        if (timeoutNanos <= 0) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final long marginNanos = timeoutNanos / RENEW_VISIBILITY_FRACTION;
+        final List<ReceiveMessageBatchTask> toRenew = new ArrayList<ReceiveMessageBatchTask>();
+        synchronized (finishedTasks) {
+            for (final ReceiveMessageBatchTask t : finishedTasks) {
+                if (t.startRenewal(now, marginNanos)) {
+                    toRenew.add(t);
+                }
+            }
+        }
+        for (final ReceiveMessageBatchTask t : toRenew) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    t.renewVisibility(timeoutNanos);
+                }
+            });
+        }
+    }
+
     /**
      * Clears and nacks any pre-fetched messages in this buffer.
      */
@@ -374,9 +445,10 @@ public class ReceiveQueueBuffer {
      */
     private class ReceiveMessageBatchTask implements Runnable {
         private Exception exception = null;
-        private List<Message> messages;
-        private long visibilityDeadlineNano;
+        private List<BufferedMessage> messages;
         private boolean open = false;
+        /** whether a visibility renewal of the messages is in progress */
+        private boolean renewing = false;
         private ReceiveQueueBuffer parentBuffer;
 
         /**
@@ -427,16 +499,16 @@ public class ReceiveQueueBuffer {
             if (!open)
                 throw new IllegalStateException("batch is not open");
 
-            // our messages expired.
-            if (System.nanoTime() > visibilityDeadlineNano) {
-                messages.clear();
-                return null;
+            final long now = System.nanoTime();
+            while (!messages.isEmpty()) {
+                BufferedMessage m = messages.remove(messages.size() - 1);
+                if (now <= m.visibilityDeadlineNano) {
+                    return m.message;
+                }
+                // the message expired and may be delivered to another client
+                metrics.recordExpired(1);
             }
-
-            if (messages.isEmpty())
-                return null;
-            else
-                return messages.remove(messages.size() - 1);
+            return null;
         }
 
         /**
@@ -446,36 +518,115 @@ public class ReceiveQueueBuffer {
             if (!open)
                 throw new IllegalStateException("batch is not open");
 
-            if (System.nanoTime() < visibilityDeadlineNano) {
-                ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
-                        .withQueueUrl(qUrl);
-                ResultConverter.appendUserAgent(batchRequest,
-                        AmazonSQSBufferedAsyncClient.USER_AGENT);
-
-                List<ChangeMessageVisibilityBatchRequestEntry> entries =
-                        new ArrayList<ChangeMessageVisibilityBatchRequestEntry>(messages.size());
-
-                int i = 0;
-                for (Message m : messages) {
-
+            final long now = System.nanoTime();
+            List<ChangeMessageVisibilityBatchRequestEntry> entries =
+                    new ArrayList<ChangeMessageVisibilityBatchRequestEntry>(messages.size());
+            int expired = 0;
+            for (BufferedMessage m : messages) {
+                if (now < m.visibilityDeadlineNano) {
                     entries.add(new ChangeMessageVisibilityBatchRequestEntry()
-                            .withId(Integer.toString(i))
-                            .withReceiptHandle(m.getReceiptHandle())
+                            .withId(Integer.toString(entries.size()))
+                            .withReceiptHandle(m.message.getReceiptHandle())
                             .withVisibilityTimeout(0));
-                    ++i;
+                } else {
+                    ++expired;
                 }
+            }
 
+            if (!entries.isEmpty()) {
+                ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
+                        .withQueueUrl(qUrl)
+                        .withEntries(entries);
+                ResultConverter.appendUserAgent(batchRequest,
+                        AmazonSQSBufferedAsyncClient.USER_AGENT);
                 try {
-                    batchRequest.setEntries(entries);
                     sqsClient.changeMessageVisibilityBatch(batchRequest);
                 } catch (AmazonClientException e) {
                     // Log and ignore.
                     log.warn("ReceiveMessageBatchTask: changeMessageVisibility failed " + e);
                 }
             }
+            if (expired > 0) {
+                metrics.recordExpired(expired);
+            }
             messages.clear();
         }
 
+        /**
+         * Marks the batch as being renewed if it has messages whose
+         * visibility timeout expires within the margin.
+         *
+         * @return true if the caller should renew the batch
+         */
+        synchronized boolean startRenewal(long now, long marginNanos) {
+            if (!open || renewing || exception != null) {
+                return false;
+            }
+            for (BufferedMessage m : messages) {
+                if (now < m.visibilityDeadlineNano
+                        && m.visibilityDeadlineNano - now <= marginNanos) {
+                    renewing = true;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Extends the visibility timeout of the messages left in the batch by
+         * the given timeout. The batch stays locked during the request, so
+         * only messages that are still buffered are renewed and none is
+         * handed out while its visibility changes. A message the service
+         * fails to renew keeps its deadline.
+         */
+        synchronized void renewVisibility(long timeoutNanos) {
+            try {
+                final long start = System.nanoTime();
+                final int timeoutSeconds = (int) TimeUnit.SECONDS.convert(timeoutNanos,
+                        TimeUnit.NANOSECONDS);
+                final List<BufferedMessage> toRenew = new ArrayList<BufferedMessage>(messages.size());
+                final List<ChangeMessageVisibilityBatchRequestEntry> entries =
+                        new ArrayList<ChangeMessageVisibilityBatchRequestEntry>(messages.size());
+                for (BufferedMessage m : messages) {
+                    if (start < m.visibilityDeadlineNano) {
+                        entries.add(new ChangeMessageVisibilityBatchRequestEntry()
+                                .withId(Integer.toString(toRenew.size()))
+                                .withReceiptHandle(m.message.getReceiptHandle())
+                                .withVisibilityTimeout(timeoutSeconds));
+                        toRenew.add(m);
+                    }
+                }
+                if (entries.isEmpty()) {
+                    return;
+                }
+
+                final ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
+                        .withQueueUrl(qUrl)
+                        .withEntries(entries);
+                ResultConverter.appendUserAgent(batchRequest,
+                        AmazonSQSBufferedAsyncClient.USER_AGENT);
+                final ChangeMessageVisibilityBatchResult result;
+                try {
+                    result = sqsClient.changeMessageVisibilityBatch(batchRequest);
+                } catch (AmazonClientException e) {
+                    // Log and ignore, the messages expire as they would have.
+                    log.warn("ReceiveMessageBatchTask: changeMessageVisibility failed " + e);
+                    return;
+                }
+                int renewed = 0;
+                for (ChangeMessageVisibilityBatchResultEntry entry : result.getSuccessful()) {
+                    toRenew.get(Integer.parseInt(entry.getId())).visibilityDeadlineNano =
+                            start + timeoutNanos;
+                    ++renewed;
+                }
+                if (renewed > 0) {
+                    metrics.recordRenewed(renewed);
+                }
+            } finally {
+                renewing = false;
+            }
+        }
+
         /**
          * Attempts to retrieve messages from SQS and upon completion
          * (successful or unsuccessful) reports the batch as complete and open
@@ -484,7 +635,7 @@ public class ReceiveQueueBuffer {
         public void run() {
 
             try {
-                visibilityDeadlineNano = System.nanoTime() + visibilityTimeoutNanos;
+                long visibilityDeadlineNano = System.nanoTime() + visibilityTimeoutNanos;
                 ReceiveMessageRequest request = new ReceiveMessageRequest(qUrl)
                         .withMaxNumberOfMessages(config.getMaxBatchSize());
                 ResultConverter.appendUserAgent(request, AmazonSQSBufferedAsyncClient.USER_AGENT);
@@ -500,7 +651,15 @@ public class ReceiveQueueBuffer {
                     request.withWaitTimeSeconds(config.getLongPollWaitTimeoutSeconds());
                 }
 
-                messages = sqsClient.receiveMessage(request).getMessages();
+                final long start = System.nanoTime();
+                final List<Message> received = sqsClient.receiveMessage(request).getMessages();
+                metrics.recordReceived(received.size());
+                prefetchController.onBatchReceived(received.size(), System.nanoTime() - start);
+                final List<BufferedMessage> buffered = new ArrayList<BufferedMessage>(received.size());
+                for (Message m : received) {
+                    buffered.add(new BufferedMessage(m, visibilityDeadlineNano));
+                }
+                messages = buffered;
             } catch (AmazonClientException e) {
                 exception = e;
             } finally {
@@ -511,4 +670,16 @@ public class ReceiveQueueBuffer {
 
         }
     }
+    /**
+     * A prefetched message and the time its visibility timeout expires.
+     */
+    private static final class BufferedMessage {
+        final Message message;
+        long visibilityDeadlineNano;
+
+        BufferedMessage(Message message, long visibilityDeadlineNano) {
+            this.message = message;
+            this.visibilityDeadlineNano = visibilityDeadlineNano;
+        }
+    }
 } // end of ReceiveQueueBuffer
@@ -41,10 +41,18 @@ import com.amazonaws.logging.LogFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class is responsible for buffering outgoing SQS requests, i.e. requests
@@ -60,6 +68,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class SendQueueBuffer {
     private static Log log = LogFactory.getLog(SendQueueBuffer.class);
 
+    /** Weight of the newest time between requests in its moving average. */
+    private static final int ARRIVAL_GAP_WEIGHT = 8;
+
+    /** Shortest time an open batch waits for the next request. */
+    private static final long MIN_IDLE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     // Interface to support event notifications with a parameter.
     private interface Listener<T> {
         void invoke(T o);
@@ -82,54 +96,19 @@ public class SendQueueBuffer {
     private final Executor executor;
 
     /**
-     * Object used to serialize sendMessage calls.
-     */
-    private final Object sendMessageLock = new Object();
-
-    /**
-     * Object used to serialize deleteMessage calls.
-     */
-    private final Object deleteMessageLock = new Object();
-
-    /**
-     * Object used to serialize changeMessageVisibility calls.
-     */
-    private final Object changeMessageVisibilityLock = new Object();
-
-    /**
-     * Current batching task for sendMessage. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code sendMessageLock}.
-     */
-    private final SendMessageBatchTask[] openSendMessageBatchTask = new SendMessageBatchTask[1];
-
-    /**
-     * Current batching task for deleteMessage. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code deleteMessageLock}.
+     * The open batch and in flight batches of sendMessage calls.
      */
-    private final DeleteMessageBatchTask[] openDeleteMessageBatchTask = new DeleteMessageBatchTask[1];
+    private final OutboundQueue<SendMessageBatchTask> sendMessageQueue;
 
     /**
-     * Current batching task for changeMessageVisibility. Using a size 1 array
-     * to allow "passing by reference". Synchronized by
-     * {@code changeMessageVisibilityLock}.
+     * The open batch and in flight batches of deleteMessage calls.
      */
-    private final ChangeMessageVisibilityBatchTask[] openChangeMessageVisibilityBatchTask = new ChangeMessageVisibilityBatchTask[1];
+    private final OutboundQueue<DeleteMessageBatchTask> deleteMessageQueue;
 
     /**
-     * Permits controlling the number of in flight SendMessage batches.
+     * The open batch and in flight batches of changeMessageVisibility calls.
      */
-    private final Semaphore inflightSendMessageBatches;
-
-    /**
-     * Permits controlling the number of in flight DeleteMessage batches.
-     */
-    private final Semaphore inflightDeleteMessageBatches;
-
-    /**
-     * Permits controlling the number of in flight ChangeMessageVisibility
-     * batches.
-     */
-    private final Semaphore inflightChangeMessageVisibilityBatches;
+    private final OutboundQueue<ChangeMessageVisibilityBatchTask> changeMessageVisibilityQueue;
 
     SendQueueBuffer(AmazonSQS sqsClient, Executor executor, QueueBufferConfig paramConfig,
             String url) {
@@ -141,9 +120,10 @@ public class SendQueueBuffer {
 
         // must allow at least one outbound batch.
         maxBatch = maxBatch > 0 ? maxBatch : 1;
-        this.inflightSendMessageBatches = new Semaphore(maxBatch);
-        this.inflightDeleteMessageBatches = new Semaphore(maxBatch);
-        this.inflightChangeMessageVisibilityBatches = new Semaphore(maxBatch);
+        this.sendMessageQueue = new OutboundQueue<SendMessageBatchTask>(maxBatch);
+        this.deleteMessageQueue = new OutboundQueue<DeleteMessageBatchTask>(maxBatch);
+        this.changeMessageVisibilityQueue =
+                new OutboundQueue<ChangeMessageVisibilityBatchTask>(maxBatch);
     }
 
     public QueueBufferConfig getConfig() {
@@ -158,8 +138,7 @@ public class SendQueueBuffer {
             QueueBufferCallback<SendMessageRequest, SendMessageResult> callback)
     {
         QueueBufferFuture<SendMessageRequest, SendMessageResult> result =
-                submitOutboundRequest(sendMessageLock, openSendMessageBatchTask, request,
-                        inflightSendMessageBatches, callback);
+                submitOutboundRequest(sendMessageQueue, request, callback);
         return result;
     }
 
@@ -168,11 +147,7 @@ public class SendQueueBuffer {
      */
     public QueueBufferFuture<DeleteMessageRequest, Void> deleteMessage(
             DeleteMessageRequest request, QueueBufferCallback<DeleteMessageRequest, Void> callback) {
-        return submitOutboundRequest(deleteMessageLock,
-                openDeleteMessageBatchTask,
-                request,
-                inflightDeleteMessageBatches,
-                callback);
+        return submitOutboundRequest(deleteMessageQueue, request, callback);
     }
 
     /**
@@ -181,12 +156,7 @@ public class SendQueueBuffer {
     public QueueBufferFuture<ChangeMessageVisibilityRequest, Void> changeMessageVisibility(
             ChangeMessageVisibilityRequest request,
             QueueBufferCallback<ChangeMessageVisibilityRequest, Void> callback) {
-        return submitOutboundRequest(
-                changeMessageVisibilityLock,
-                openChangeMessageVisibilityBatchTask,
-                request,
-                inflightChangeMessageVisibilityBatches,
-                callback);
+        return submitOutboundRequest(changeMessageVisibilityQueue, request, callback);
     }
 
     /**
@@ -217,24 +187,9 @@ public class SendQueueBuffer {
     public void flush() {
 
         try {
-            synchronized (sendMessageLock) {
-                inflightSendMessageBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
-                inflightSendMessageBatches
-                        .release(config.getMaxInflightOutboundBatches());
-            }
-            synchronized (deleteMessageLock) {
-                inflightDeleteMessageBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
-                inflightDeleteMessageBatches
-                        .release(config.getMaxInflightOutboundBatches());
-            }
-            synchronized (changeMessageVisibilityLock) {
-                inflightChangeMessageVisibilityBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
-                inflightChangeMessageVisibilityBatches
-                        .release(config.getMaxInflightOutboundBatches());
-            }
+            sendMessageQueue.flush();
+            deleteMessageQueue.flush();
+            changeMessageVisibilityQueue.flush();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
@@ -245,84 +200,172 @@ public class SendQueueBuffer {
      * this buffer.
      * <p>
      *
-     * @param operationLock the lock synchronizing calls for the call type (
+     * @param queue the open batch and in flight batches for the call type (
      *            {@code sendMessage}, {@code deleteMessage},
      *            {@code changeMessageVisibility} )
-     * @param openOutboundBatchTask the open batch task for this call type
      * @param request the request to submit
-     * @param inflightOperationBatches the permits controlling the batches for
-     *            this type of request
      * @return never null
      * @throws AmazonClientException (see the various outbound calls for
      *             details)
      */
     @SuppressWarnings("unchecked")
     <OBT extends OutboundBatchTask<R, Result>, R extends AmazonWebServiceRequest, Result> QueueBufferFuture<R, Result> submitOutboundRequest(
-            Object operationLock,
-            OBT[] openOutboundBatchTask,
+            OutboundQueue<OBT> queue,
             R request,
-            final Semaphore inflightOperationBatches,
             QueueBufferCallback<R, Result> callback) {
         /*
-         * Callers add requests to a single batch task (openOutboundBatchTask)
-         * until it is full or maxBatchOpenMs elapses. The total number of batch
-         * task in flight is controlled by the inflightOperationBatch semaphore
-         * capped at maxInflightOutboundBatches.
+         * Callers add requests to a single batch task (queue.openBatch)
+         * without locking until it is full or its open time elapses. The
+         * caller that fails to add to the open batch replaces it with a new
+         * one, and starts the new batch once one of the
+         * maxInflightOutboundBatches permits is free. Meanwhile other callers
+         * keep adding to it.
          */
-        QueueBufferFuture<R, Result> theFuture = null;
-        try {
-            synchronized (operationLock) {
-                if (openOutboundBatchTask[0] == null
-                        || ((theFuture = openOutboundBatchTask[0].addRequest(request, callback))) == null) {
-                    OBT obt = (OBT) newOutboundBatchTask(request);
-                    inflightOperationBatches.acquire();
-                    openOutboundBatchTask[0] = obt;
-                    // Register a listener for the event signaling that the
-                    // batch task has completed (successfully or not).
-                    openOutboundBatchTask[0].onCompleted = new Listener<OutboundBatchTask<R, Result>>() {
-                        @Override
-                        public void invoke(OutboundBatchTask<R, Result> task) {
-                            inflightOperationBatches.release();
-                        }
-                    };
-
-                    if (log.isTraceEnabled()) {
-                        log.trace("Queue " + qUrl + " created new batch for "
-                                + request.getClass().toString()
-                                + " " + inflightOperationBatches.availablePermits()
-                                + " free slots remain");
-                    }
-
-                    theFuture = openOutboundBatchTask[0].addRequest(request, callback);
-                    executor.execute(openOutboundBatchTask[0]);
-                    if (null == theFuture) {
-                        // this can happen only if the request itself is flawed,
-                        // so that it can't be added to any batch, even a brand
-                        // new one
-                        throw new AmazonClientException("Failed to schedule request " + request
-                                + " for execution");
-                    }
+        queue.recordArrival(System.nanoTime());
+        while (true) {
+            final OBT current = queue.openBatch.get();
+            if (current != null) {
+                final QueueBufferFuture<R, Result> theFuture = current.addRequest(request,
+                        callback);
+                if (theFuture != null) {
+                    return theFuture;
                 }
             }
 
+            final OBT obt = (OBT) newOutboundBatchTask(request);
+            obt.queue = queue;
+            if (!queue.openBatch.compareAndSet(current, obt)) {
+                // another caller replaced the batch first, add to that one
+                continue;
+            }
+            queue.unfinishedBatches.add(obt);
+            final QueueBufferFuture<R, Result> theFuture = obt.addRequest(request, callback);
+            start(queue, obt);
+            if (theFuture != null) {
+                return theFuture;
+            }
+            if (obt.isEmpty()) {
+                // this can happen only if the request itself is flawed,
+                // so that it can't be added to any batch, even a brand
+                // new one
+                throw new AmazonClientException("Failed to schedule request " + request
+                        + " for execution");
+            }
+            // other callers filled the new batch first, add to the next one
+        }
+    }
+
+    /**
+     * Runs the batch once one of the in flight permits is free.
+     */
+    private void start(OutboundQueue<?> queue, OutboundBatchTask<?, ?> obt) {
+        final Semaphore inflightOperationBatches = queue.inflightBatches;
+        try {
+            inflightOperationBatches.acquire();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             AmazonClientException toThrow = new AmazonClientException(
                     "Interrupted while waiting for lock.");
             toThrow.initCause(e);
+            obt.abort(toThrow);
             throw toThrow;
         }
+        // Register a listener for the event signaling that the
+        // batch task has completed (successfully or not).
+        obt.onCompleted = new Listener<OutboundBatchTask<?, ?>>() {
+            @Override
+            public void invoke(OutboundBatchTask<?, ?> task) {
+                inflightOperationBatches.release();
+            }
+        };
+
+        if (log.isTraceEnabled()) {
+            log.trace("Queue " + qUrl + " created new batch for "
+                    + obt.getClass().toString()
+                    + " " + inflightOperationBatches.availablePermits()
+                    + " free slots remain");
+        }
+
+        executor.execute(obt);
+    }
+
+    /**
+     * The open batch, the in flight batches and the arrival rate of one type
+     * of outbound request.
+     */
+    private final class OutboundQueue<OBT extends OutboundBatchTask<?, ?>> {
+        /** The batch accepting requests, replaced when closed. */
+        final AtomicReference<OBT> openBatch = new AtomicReference<OBT>();
+
+        /** Permits controlling the number of in flight batches. */
+        final Semaphore inflightBatches;
+
+        /** The batches not completed yet, for {@link #flush()}. */
+        final Queue<OBT> unfinishedBatches = new ConcurrentLinkedQueue<OBT>();
+
+        /**
+         * Time of the last request, and moving average of the time between
+         * requests, in nanoseconds. Updated without synchronization, a lost
+         * update only skews the estimate a little.
+         */
+        private volatile long lastArrivalNanos;
+        private volatile long meanArrivalGapNanos = -1;
+
+        OutboundQueue(int maxInflightBatches) {
+            inflightBatches = new Semaphore(maxInflightBatches);
+        }
+
+        void recordArrival(long nowNanos) {
+            final long last = lastArrivalNanos;
+            lastArrivalNanos = nowNanos;
+            if (last == 0) {
+                return;
+            }
+            final long gap = nowNanos - last;
+            final long mean = meanArrivalGapNanos;
+            meanArrivalGapNanos = mean < 0 ? gap : mean + (gap - mean) / ARRIVAL_GAP_WEIGHT;
+        }
 
-        return theFuture;
+        /**
+         * @return how long an open batch waits for the next request before it
+         *         is closed, at most maxOpenNanos.
+         */
+        long idleTimeoutNanos(long maxOpenNanos) {
+            final long mean = meanArrivalGapNanos;
+            if (mean < 0) {
+                return maxOpenNanos;
+            }
+            return Math.min(maxOpenNanos, Math.max(MIN_IDLE_TIMEOUT_NANOS, 2 * mean));
+        }
+
+        /**
+         * Closes the open batch and waits for it and every earlier batch to
+         * complete.
+         */
+        void flush() throws InterruptedException {
+            final List<OBT> toWaitFor = new ArrayList<OBT>(unfinishedBatches);
+            for (OBT obt : toWaitFor) {
+                obt.close();
+            }
+            for (OBT obt : toWaitFor) {
+                obt.completed.await();
+            }
+        }
     }
 
     /**
      * Task to send a batch of outbound requests to SQS.
      * <p>
      * The batch task is constructed open and accepts requests until full, or
-     * until {@code maxBatchOpenMs} elapses. At that point, the batch closes and
-     * the collected requests are assembled into a single batch request to SQS.
-     * Specialized for each type of outbound request.
+     * until {@code maxBatchOpenMs} elapses, or with
+     * {@link QueueBufferConfig#isAdaptiveBatchOpen()} until no request arrived
+     * for about twice the recent time between requests. At that point, the
+     * batch closes and the collected requests are assembled into a single
+     * batch request to SQS. Specialized for each type of outbound request.
+     * <p>
+     * Requests are added without locking: a caller reserves a slot by
+     * updating the packed request count and size of the batch, then stores
+     * its request in that slot.
      * <p>
      * Instances of this class (and subclasses) are thread-safe.
      *
@@ -332,14 +375,36 @@ public class SendQueueBuffer {
      */
     private abstract class OutboundBatchTask<R extends AmazonWebServiceRequest, Result> implements
             Runnable {
-        final List<R> requests;
-        final ArrayList<QueueBufferFuture<R, Result>> futures;
-        AtomicBoolean open = new AtomicBoolean(true);
-        volatile Listener<OutboundBatchTask<R, Result>> onCompleted = null;
+        /** The request count is kept in the high bits of {@link #state}. */
+        private static final int COUNT_SHIFT = 32;
+        /** Mask of the summed request sizes kept in the low bits. */
+        private static final long SIZE_MASK = 0xffffffffL;
+        /** Bit set once the batch is closed. */
+        private static final long CLOSED = Long.MIN_VALUE;
+
+        private final int capacity = config.getMaxBatchSize();
+        private final AtomicLong state = new AtomicLong();
+        private final AtomicReferenceArray<R> slotRequests;
+        private final AtomicReferenceArray<QueueBufferFuture<R, Result>> slotFutures;
+        private final AtomicLongArray slotAddedNanos;
+        /** Number of slots whose request has been stored. */
+        private final AtomicInteger written = new AtomicInteger();
+        private final long createdNanos = System.nanoTime();
+        private volatile long lastAddedNanos = createdNanos;
+        private volatile Thread runner;
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile OutboundQueue<?> queue;
+        volatile Listener<OutboundBatchTask<?, ?>> onCompleted = null;
+
+        /** The requests of the closed batch, in slot order. */
+        List<R> requests;
+        List<QueueBufferFuture<R, Result>> futures;
 
         OutboundBatchTask() {
-            requests = new ArrayList<R>(config.getMaxBatchSize());
-            futures = new ArrayList<QueueBufferFuture<R, Result>>(config.getMaxBatchSize());
+            final int slots = Math.max(0, capacity);
+            slotRequests = new AtomicReferenceArray<R>(slots);
+            slotFutures = new AtomicReferenceArray<QueueBufferFuture<R, Result>>(slots);
+            slotAddedNanos = new AtomicLongArray(slots);
         }
 
         /**
@@ -348,62 +413,75 @@ public class SendQueueBuffer {
          * @return the future that can be used to get the results of the
          *         execution, or null if the addition failed.
          */
-        synchronized QueueBufferFuture<R, Result> addRequest(R request,
+        QueueBufferFuture<R, Result> addRequest(R request,
                 QueueBufferCallback<R, Result> callback) {
-            if (!open.get())
-                return null;
-
-            QueueBufferFuture<R, Result> theFuture = addIfAllowed(request, callback);
-
-            // if the addition did not work, or this addition made us full,
-            // we can close the request
-            if ((null == theFuture) || isFull()) {
-                open.set(false);
+            final long requestSize = size(request);
+            final long maxSize = maxSize();
+            long current;
+            int slot;
+            long batchSize;
+            do {
+                current = state.get();
+                if ((current & CLOSED) != 0) {
+                    return null;
+                }
+                slot = (int) (current >>> COUNT_SHIFT);
+                batchSize = (current & SIZE_MASK) + requestSize;
+                if (slot >= capacity || (maxSize > 0 && batchSize >= maxSize)) {
+                    // the batch request is as full as it will ever be. no
+                    // need to wait for the timeout, we can run it now.
+                    close();
+                    return null;
+                }
+            } while (!state.compareAndSet(current,
+                    ((long) (slot + 1) << COUNT_SHIFT) | batchSize));
+
+            final long now = System.nanoTime();
+            QueueBufferFuture<R, Result> theFuture = new QueueBufferFuture<R, Result>(callback);
+            slotRequests.set(slot, request);
+            slotFutures.set(slot, theFuture);
+            slotAddedNanos.set(slot, now);
+            written.incrementAndGet();
+            lastAddedNanos = now;
+
+            if (slot + 1 >= capacity) {
+                close();
             }
-
-            // the batch request is as full as it will ever be. no need to wait
-            // for the timeout, we can run it now.
-            if (!open.get())
-                notify();
-
             return theFuture;
         }
 
         /**
-         * Adds the request to the batch if capacity allows it.
-         *
-         * @param request
-         * @return the future that will be signaled when the request is
-         *         completed and can be used to retrieve the result. Can be null
-         *         if the addition could not be done
+         * @return the size the request adds to the batch.
          */
-        synchronized QueueBufferFuture<R, Result> addIfAllowed(R request,
-                QueueBufferCallback<R, Result> callback) {
-            if (isOkToAdd(request)) {
-                requests.add(request);
-
-                QueueBufferFuture<R, Result> theFuture = new QueueBufferFuture<R, Result>(callback);
-
-                futures.add(theFuture);
-                onRequestAdded(request);
-                return theFuture;
-            } else
-                return null;
+        long size(R request) {
+            return 0;
         }
 
-        protected synchronized boolean isOkToAdd(R request) {
-            return requests.size() < config.getMaxBatchSize();
+        /**
+         * @return the size the requests of a batch must stay below, or 0 if
+         *         the size isn't limited.
+         */
+        long maxSize() {
+            return 0;
         }
 
-        protected synchronized void onRequestAdded(R request) {
-            // to be overridden by subclasses
+        boolean isEmpty() {
+            return (state.get() & ~CLOSED) >>> COUNT_SHIFT == 0;
         }
 
         /**
-         * @return whether the buffer is filled to capacity
+         * Stops the batch from accepting requests and wakes up its task.
          */
-        synchronized boolean isFull() {
-            return requests.size() >= config.getMaxBatchSize();
+        void close() {
+            long current;
+            while (((current = state.get()) & CLOSED) == 0
+                    && !state.compareAndSet(current, current | CLOSED)) {
+                // a request was added meanwhile, try again
+            }
+            final Thread waiting = runner;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
         }
 
         /**
@@ -412,21 +490,13 @@ public class SendQueueBuffer {
         abstract void process();
 
         @Override
-        public synchronized void run() {
+        public void run() {
             try {
-                long deadlineMs = TimeUnit.MILLISECONDS.convert(System.nanoTime(),
-                        TimeUnit.NANOSECONDS) +
-                        config.getMaxBatchOpenMs() + 1;
-                long t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
-                while (open.get() && (t < deadlineMs)) {
-                    t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
-
-                    // zero means "wait forever", can't have that.
-                    long toWait = Math.max(1, deadlineMs - t);
-                    wait(toWait);
+                try {
+                    awaitClose();
+                } finally {
+                    collect();
                 }
-
-                open.set(false);
                 process();
             } catch (InterruptedException e) {
                 failAll(e);
@@ -439,14 +509,91 @@ public class SendQueueBuffer {
                 failAll(new AmazonClientException("Error encountered", e));
                 throw e;
             } finally {
-                // make a copy of the listener since it can be modified from
-                // outside
-                Listener<OutboundBatchTask<R, Result>> completionListener = onCompleted;
-                if (completionListener != null)
-                    completionListener.invoke(this);
+                complete();
+            }
+        }
+
+        /**
+         * Fails the requests of a batch that won't be run.
+         */
+        void abort(Exception e) {
+            try {
+                collect();
+                failAll(e);
+            } finally {
+                complete();
+            }
+        }
+
+        private void awaitClose() throws InterruptedException {
+            runner = Thread.currentThread();
+            final long maxOpenNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxBatchOpenMs());
+            final long deadline = System.nanoTime() + maxOpenNanos;
+            while ((state.get() & CLOSED) == 0) {
+                long closeAt = deadline;
+                if (config.isAdaptiveBatchOpen()) {
+                    final long idleDeadline = lastAddedNanos
+                            + queue.idleTimeoutNanos(maxOpenNanos);
+                    if (idleDeadline - closeAt < 0) {
+                        closeAt = idleDeadline;
+                    }
+                }
+                final long toWait = closeAt - System.nanoTime();
+                if (toWait <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, toWait);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
             }
         }
 
+        /**
+         * Closes the batch and copies its requests and futures to
+         * {@link #requests} and {@link #futures}.
+         */
+        private void collect() {
+            if (requests != null) {
+                return;
+            }
+            close();
+            final int count = (int) ((state.get() & ~CLOSED) >>> COUNT_SHIFT);
+            // callers that reserved a slot store their request right after
+            while (written.get() < count) {
+                Thread.yield();
+            }
+            final long now = System.nanoTime();
+            final List<R> closedRequests = new ArrayList<R>(count);
+            final List<QueueBufferFuture<R, Result>> closedFutures =
+                    new ArrayList<QueueBufferFuture<R, Result>>(count);
+            long totalDelay = 0;
+            long maxDelay = 0;
+            for (int i = 0; i < count; i++) {
+                closedRequests.add(slotRequests.get(i));
+                closedFutures.add(slotFutures.get(i));
+                final long delay = now - slotAddedNanos.get(i);
+                totalDelay += delay;
+                maxDelay = Math.max(maxDelay, delay);
+            }
+            futures = closedFutures;
+            requests = closedRequests;
+            if (count > 0) {
+                config.getOutboundBatchMetrics().recordBatch(count, capacity, totalDelay,
+                        maxDelay);
+            }
+        }
+
+        private void complete() {
+            queue.unfinishedBatches.remove(this);
+            completed.countDown();
+            // make a copy of the listener since it can be modified from
+            // outside
+            Listener<OutboundBatchTask<?, ?>> completionListener = onCompleted;
+            if (completionListener != null)
+                completionListener.invoke(this);
+        }
+
         private void failAll(Exception e) {
             for (QueueBufferFuture<R, Result> f : futures) {
                 f.setFailure(e);
@@ -456,25 +603,15 @@ public class SendQueueBuffer {
 
     private class SendMessageBatchTask extends
             OutboundBatchTask<SendMessageRequest, SendMessageResult> {
-        int batchSizeBytes = 0;
-
-        @Override
-        protected synchronized boolean isOkToAdd(SendMessageRequest request) {
-            return (requests.size() < config.getMaxBatchSize())
-                    &&
-                    ((request.getMessageBody().getBytes().length + batchSizeBytes) < config
-                            .getMaxBatchSizeBytes());
-        }
 
         @Override
-        protected void onRequestAdded(SendMessageRequest request) {
-            batchSizeBytes += request.getMessageBody().getBytes().length;
+        long size(SendMessageRequest request) {
+            return request.getMessageBody().getBytes().length;
         }
 
         @Override
-        synchronized boolean isFull() {
-            return (requests.size() >= config.getMaxBatchSize()) ||
-                    (batchSizeBytes >= config.getMaxBatchSizeBytes());
+        long maxSize() {
+            return config.getMaxBatchSizeBytes();
         }
 
         @Override
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AmazonSQSAsyncClientTest {
+
+    private static final long BACKOFF_MILLIS = 500;
+    private static final String MESSAGE_BODY = "message body";
+
+    private StubHttpClient httpClient;
+    private ExecutorService executor;
+    private AmazonSQSAsyncClient client;
+
+    @Before
+    public void setUp() {
+        httpClient = new StubHttpClient();
+        executor = Executors.newSingleThreadExecutor();
+        client = new AmazonSQSAsyncClient(newCredentialsProvider(), newConfiguration(),
+                httpClient, executor);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void testSendMessageAsyncCompletesFutureAndHandler() throws Exception {
+        httpClient.respond(200, sendMessageResponse("message-id"));
+        RecordingHandler handler = new RecordingHandler();
+
+        Future<SendMessageResult> future = client.sendMessageAsync(newSendMessageRequest(), handler);
+        SendMessageResult result = future.get(5, TimeUnit.SECONDS);
+
+        assertEquals("message-id", result.getMessageId());
+        assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+        assertSame(result, handler.result.get());
+        assertEquals(1, httpClient.calls.get());
+    }
+
+    @Test
+    public void testSendMessageAsyncDoesNotCallSendMessage() throws Exception {
+        client.shutdown();
+        executor = Executors.newSingleThreadExecutor();
+        client = new AmazonSQSAsyncClient(newCredentialsProvider(), newConfiguration(),
+                httpClient, executor) {
+            @Override
+            public SendMessageResult sendMessage(SendMessageRequest sendMessageRequest) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        httpClient.respond(200, sendMessageResponse("message-id"));
+
+        assertNotNull(client.sendMessageAsync(newSendMessageRequest()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testServiceErrorFailsFutureAndHandler() throws Exception {
+        httpClient.respond(400, errorResponse("Sender", "InvalidParameterValue"));
+        RecordingHandler handler = new RecordingHandler();
+
+        Future<SendMessageResult> future = client.sendMessageAsync(newSendMessageRequest(), handler);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected the request to fail");
+        } catch (ExecutionException e) {
+            AmazonServiceException ase = (AmazonServiceException) e.getCause();
+            assertEquals("InvalidParameterValue", ase.getErrorCode());
+            assertEquals(400, ase.getStatusCode());
+        }
+        assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+        assertTrue(handler.error.get() instanceof AmazonServiceException);
+        assertEquals(1, httpClient.calls.get());
+    }
+
+    @Test
+    public void testRetryBackoffDoesNotHoldExecutor() throws Exception {
+        httpClient.respond(500, errorResponse("Receiver", "InternalError"));
+        httpClient.respond(200, sendMessageResponse("message-id"));
+
+        Future<SendMessageResult> future = client.sendMessageAsync(newSendMessageRequest());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (httpClient.calls.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, httpClient.calls.get());
+
+        // the only executor thread must be free while the retry backs off
+        Future<Boolean> other = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return Boolean.TRUE;
+            }
+        });
+        assertTrue(other.get(BACKOFF_MILLIS / 2, TimeUnit.MILLISECONDS));
+        assertFalse(future.isDone());
+
+        assertNotNull(future.get(5, TimeUnit.SECONDS));
+        assertEquals(2, httpClient.calls.get());
+    }
+
+    private static StaticCredentialsProvider newCredentialsProvider() {
+        return new StaticCredentialsProvider(new BasicAWSCredentials("access", "secret"));
+    }
+
+    private static ClientConfiguration newConfiguration() {
+        RetryPolicy.BackoffStrategy fixedBackoff = new RetryPolicy.BackoffStrategy() {
+            @Override
+            public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+                    AmazonClientException exception, int retriesAttempted) {
+                return BACKOFF_MILLIS;
+            }
+        };
+        return new ClientConfiguration().withRetryPolicy(new RetryPolicy(
+                PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION, fixedBackoff, 3, false));
+    }
+
+    private static SendMessageRequest newSendMessageRequest() {
+        return new SendMessageRequest("https://sqs.us-east-1.amazonaws.com/123456789012/queue",
+                MESSAGE_BODY);
+    }
+
+    private static String sendMessageResponse(String messageId) {
+        String md5 = BinaryUtils.toHex(Md5Utils.computeMD5Hash(
+                MESSAGE_BODY.getBytes(StringUtils.UTF8)));
+        return "<SendMessageResponse><SendMessageResult>"
+                + "<MD5OfMessageBody>" + md5 + "</MD5OfMessageBody>"
+                + "<MessageId>" + messageId + "</MessageId>"
+                + "</SendMessageResult><ResponseMetadata><RequestId>request-id</RequestId>"
+                + "</ResponseMetadata></SendMessageResponse>";
+    }
+
+    private static String errorResponse(String type, String code) {
+        return "<ErrorResponse><Error><Type>" + type + "</Type><Code>" + code + "</Code>"
+                + "<Message>failed</Message></Error><RequestId>request-id</RequestId>"
+                + "</ErrorResponse>";
+    }
+
+    private static final class RecordingHandler
+            implements AsyncHandler<SendMessageRequest, SendMessageResult> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicReference<SendMessageResult> result = new AtomicReference<SendMessageResult>();
+        private final AtomicReference<Exception> error = new AtomicReference<Exception>();
+
+        @Override
+        public void onSuccess(SendMessageRequest request, SendMessageResult sendMessageResult) {
+            result.set(sendMessageResult);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            error.set(exception);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Answers requests with canned responses, in order.
+     */
+    private static final class StubHttpClient implements HttpClient {
+        private final ConcurrentLinkedQueue<HttpResponse> responses =
+                new ConcurrentLinkedQueue<HttpResponse>();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        void respond(int statusCode, String body) {
+            responses.add(HttpResponse.builder()
+                    .statusCode(statusCode)
+                    .statusText(statusCode == 200 ? "OK" : "Error")
+                    .content(new ByteArrayInputStream(body.getBytes(StringUtils.UTF8)))
+                    .build());
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            HttpResponse response = responses.poll();
+            if (response == null) {
+                throw new IOException("no response left");
+            }
+            calls.incrementAndGet();
+            return response;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ReceivePrefetchControllerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long VISIBILITY_TIMEOUT = 30 * SECOND;
+
+    private QueueBufferConfig config;
+    private ReceivePrefetchController controller;
+    private long now;
+
+    @Before
+    public void setUp() {
+        config = new QueueBufferConfig()
+                .withMaxInflightReceiveBatches(5)
+                .withMaxDoneReceiveBatches(10);
+        controller = new ReceivePrefetchController(config, now);
+    }
+
+    @Test
+    public void testStartsWithOneBatch() {
+        assertEquals(1, controller.inflightBatches(0, now));
+        assertEquals(1, controller.doneBatches(VISIBILITY_TIMEOUT, now));
+    }
+
+    @Test
+    public void testFixedPrefetchUsesConfiguredLimits() {
+        config.setAdaptivePrefetch(false);
+        assertEquals(5, controller.inflightBatches(0, now));
+        assertEquals(10, controller.doneBatches(VISIBILITY_TIMEOUT, now));
+    }
+
+    @Test
+    public void testInflightBatchesCoverConsumptionDuringReceive() {
+        // 10 messages per receive, taking 100 ms
+        controller.onBatchReceived(10, TimeUnit.MILLISECONDS.toNanos(100));
+        deliverForOneSecond(100);
+
+        // 10 messages are consumed during a receive, twice that is in flight
+        assertEquals(2, controller.inflightBatches(0, now));
+    }
+
+    @Test
+    public void testInflightBatchesScaleUpToMaximum() {
+        controller.onBatchReceived(10, TimeUnit.MILLISECONDS.toNanos(100));
+        deliverForOneSecond(100);
+        assertEquals(2, controller.inflightBatches(0, now));
+
+        // the drain rate moves halfway to 400 per second
+        deliverForOneSecond(400);
+        assertEquals(5, controller.inflightBatches(0, now));
+
+        deliverForOneSecond(1000);
+        assertEquals("clamped to maxInflightReceiveBatches", 5,
+                controller.inflightBatches(0, now));
+    }
+
+    @Test
+    public void testInflightBatchesScaleDown() {
+        controller.onBatchReceived(10, TimeUnit.MILLISECONDS.toNanos(100));
+        deliverForOneSecond(1000);
+        assertEquals(5, controller.inflightBatches(0, now));
+
+        int previous = 5;
+        for (int i = 0; i < 10; i++) {
+            deliverForOneSecond(0);
+            int batches = controller.inflightBatches(0, now);
+            assertEquals("never grows while idle", true, batches <= previous);
+            previous = batches;
+        }
+        assertEquals("never below one", 1, previous);
+    }
+
+    @Test
+    public void testWaitingConsumersGetAReceiveEach() {
+        assertEquals(3, controller.inflightBatches(3, now));
+        assertEquals("clamped to maxInflightReceiveBatches", 5,
+                controller.inflightBatches(8, now));
+    }
+
+    @Test
+    public void testEmptyReceiveDoesNotChangeLatency() {
+        controller.onBatchReceived(10, TimeUnit.MILLISECONDS.toNanos(100));
+        // an empty long poll of 20 seconds
+        controller.onBatchReceived(0, 20 * SECOND);
+        deliverForOneSecond(100);
+        assertEquals(2, controller.inflightBatches(0, now));
+    }
+
+    @Test
+    public void testDrainRateNeedsAFullInterval() {
+        controller.onBatchReceived(10, TimeUnit.MILLISECONDS.toNanos(100));
+        controller.onMessagesDelivered(1000, now);
+        now += SECOND / 2;
+        assertEquals(1, controller.inflightBatches(0, now));
+    }
+
+    @Test
+    public void testDoneBatchesLastHalfTheVisibilityTimeout() {
+        controller.onBatchReceived(10, TimeUnit.MILLISECONDS.toNanos(100));
+        deliverForOneSecond(4);
+
+        // 4 messages per second for 15 seconds fill 6 batches of 10
+        assertEquals(6, controller.doneBatches(VISIBILITY_TIMEOUT, now));
+    }
+
+    @Test
+    public void testDoneBatchesClamped() {
+        controller.onBatchReceived(10, TimeUnit.MILLISECONDS.toNanos(100));
+        deliverForOneSecond(100);
+        assertEquals("clamped to maxDoneReceiveBatches", 10,
+                controller.doneBatches(VISIBILITY_TIMEOUT, now));
+
+        for (int i = 0; i < 20; i++) {
+            deliverForOneSecond(0);
+        }
+        assertEquals("never below one", 1, controller.doneBatches(VISIBILITY_TIMEOUT, now));
+        assertEquals("unknown visibility timeout", 1, controller.doneBatches(-1, now));
+    }
+
+    private void deliverForOneSecond(int count) {
+        controller.onMessagesDelivered(count, now);
+        now += SECOND;
+    }
+}
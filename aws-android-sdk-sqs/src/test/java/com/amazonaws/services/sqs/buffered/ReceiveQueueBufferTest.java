@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+public class ReceiveQueueBufferTest {
+
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/123456789012/queue";
+
+    private AmazonSQS sqs;
+    private QueueBufferConfig config;
+    private ReceiveQueueBuffer buffer;
+
+    @Before
+    public void setUp() {
+        sqs = mock(AmazonSQS.class);
+        when(sqs.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(
+                new GetQueueAttributesResult().addAttributesEntry("VisibilityTimeout", "1"));
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 4; i++) {
+            messages.add(new Message().withMessageId("m" + i).withReceiptHandle("r" + i));
+        }
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(messages))
+                .thenReturn(new ReceiveMessageResult().withMessages(new ArrayList<Message>()));
+        config = new QueueBufferConfig().withVisibilityTimeoutSeconds(1);
+        // run every task on the calling thread
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        buffer = new ReceiveQueueBuffer(sqs, executor, config, QUEUE_URL);
+    }
+
+    @Test
+    public void testRenewsOnlyBufferedMessages() throws Exception {
+        when(sqs.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(new ChangeMessageVisibilityBatchResult()
+                        .withSuccessful(new ChangeMessageVisibilityBatchResultEntry().withId("0"),
+                                new ChangeMessageVisibilityBatchResultEntry().withId("1")));
+
+        assertEquals("m3", receive(1).get(0).getMessageId());
+        Thread.sleep(800);
+        // the visibility timeout is about to expire
+        assertEquals("m2", receive(1).get(0).getMessageId());
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> captor = ArgumentCaptor
+                .forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs).changeMessageVisibilityBatch(captor.capture());
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = captor.getValue().getEntries();
+        assertEquals("delivered messages are not renewed", 2, entries.size());
+        assertEquals("r0", entries.get(0).getReceiptHandle());
+        assertEquals("r1", entries.get(1).getReceiptHandle());
+        assertEquals(Integer.valueOf(1), entries.get(0).getVisibilityTimeout());
+        assertEquals(2, config.getReceiveBufferMetrics().getRenewedMessageCount());
+
+        Thread.sleep(400);
+        assertEquals("renewed messages outlive the first timeout", 2, receive(10).size());
+    }
+
+    @Test
+    public void testFailedRenewalKeepsDeadline() throws Exception {
+        when(sqs.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(new ChangeMessageVisibilityBatchResult()
+                        .withSuccessful(new ChangeMessageVisibilityBatchResultEntry().withId("0"))
+                        .withFailed(new BatchResultErrorEntry().withId("1")
+                                .withCode("ReceiptHandleIsInvalid").withSenderFault(true)));
+
+        receive(1);
+        Thread.sleep(800);
+        receive(1);
+        Thread.sleep(400);
+
+        // m1 expired with its old deadline, m0 was renewed
+        List<Message> messages = receive(10);
+        assertEquals(1, messages.size());
+        assertEquals("m0", messages.get(0).getMessageId());
+        ReceiveBufferMetrics metrics = config.getReceiveBufferMetrics();
+        assertEquals(1, metrics.getRenewedMessageCount());
+        assertEquals(1, metrics.getExpiredMessageCount());
+        assertEquals(3, metrics.getDeliveredMessageCount());
+    }
+
+    @Test
+    public void testNoDeliveryDuringRenewal() throws Exception {
+        final CountDownLatch renewalStarted = new CountDownLatch(1);
+        final CountDownLatch renewalDone = new CountDownLatch(1);
+        when(sqs.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenAnswer(new Answer<ChangeMessageVisibilityBatchResult>() {
+                    @Override
+                    public ChangeMessageVisibilityBatchResult answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        renewalStarted.countDown();
+                        renewalDone.await();
+                        return new ChangeMessageVisibilityBatchResult().withSuccessful(
+                                new ChangeMessageVisibilityBatchResultEntry().withId("0"),
+                                new ChangeMessageVisibilityBatchResultEntry().withId("1"));
+                    }
+                });
+        // renewals run on their own thread
+        buffer = new ReceiveQueueBuffer(sqs, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                new Thread(command).start();
+            }
+        }, config, QUEUE_URL);
+
+        receive(1);
+        Thread.sleep(800);
+        receive(1);
+        renewalStarted.await();
+
+        FutureTask<List<Message>> consumer = new FutureTask<List<Message>>(
+                new Callable<List<Message>>() {
+                    @Override
+                    public List<Message> call() throws Exception {
+                        return receive(1);
+                    }
+                });
+        new Thread(consumer).start();
+        Thread.sleep(100);
+        assertFalse("renewed message is held back", consumer.isDone());
+
+        renewalDone.countDown();
+        assertEquals("m1", consumer.get().get(0).getMessageId());
+    }
+
+    @Test
+    public void testNoRenewalWithoutAdaptivePrefetch() throws Exception {
+        config.setAdaptivePrefetch(false);
+        receive(1);
+        Thread.sleep(800);
+        receive(1);
+        verify(sqs, never()).changeMessageVisibilityBatch(
+                any(ChangeMessageVisibilityBatchRequest.class));
+    }
+
+    private List<Message> receive(int count) throws Exception {
+        return buffer.receiveMessageAsync(new ReceiveMessageRequest(QUEUE_URL)
+                .withMaxNumberOfMessages(count), null).get().getMessages();
+    }
+}
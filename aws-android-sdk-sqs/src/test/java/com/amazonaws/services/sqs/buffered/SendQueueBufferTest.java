@@ -0,0 +1,224 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SendQueueBufferTest {
+
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/123456789012/queue";
+
+    private AmazonSQS sqs;
+    private ExecutorService executor;
+    private QueueBufferConfig config;
+    /** the message bodies of each batch sent, in order */
+    private final List<List<String>> batches =
+            Collections.synchronizedList(new ArrayList<List<String>>());
+
+    @Before
+    public void setUp() {
+        sqs = mock(AmazonSQS.class);
+        when(sqs.sendMessageBatch(any(SendMessageBatchRequest.class))).thenAnswer(
+                new Answer<SendMessageBatchResult>() {
+                    @Override
+                    public SendMessageBatchResult answer(InvocationOnMock invocation) {
+                        SendMessageBatchRequest request = (SendMessageBatchRequest) invocation
+                                .getArguments()[0];
+                        List<String> bodies = new ArrayList<String>();
+                        SendMessageBatchResult result = new SendMessageBatchResult();
+                        for (SendMessageBatchRequestEntry entry : request.getEntries()) {
+                            bodies.add(entry.getMessageBody());
+                            // echo the body as message id
+                            result.withSuccessful(new SendMessageBatchResultEntry()
+                                    .withId(entry.getId())
+                                    .withMessageId(entry.getMessageBody()));
+                        }
+                        batches.add(bodies);
+                        return result;
+                    }
+                });
+        executor = Executors.newCachedThreadPool();
+        config = new QueueBufferConfig();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final SendQueueBuffer buffer = new SendQueueBuffer(sqs, executor,
+                config.withMaxBatchOpenMs(20), QUEUE_URL);
+        final int producers = 8;
+        final int messagesPerProducer = 250;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+        ExecutorService producerPool = Executors.newFixedThreadPool(producers);
+        try {
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                results.add(producerPool.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        start.await();
+                        List<QueueBufferFuture<SendMessageRequest, SendMessageResult>> futures =
+                                new ArrayList<QueueBufferFuture<SendMessageRequest, SendMessageResult>>();
+                        for (int i = 0; i < messagesPerProducer; i++) {
+                            futures.add(buffer.sendMessage(new SendMessageRequest(QUEUE_URL,
+                                    producer + "-" + i), null));
+                        }
+                        List<String> ids = new ArrayList<String>();
+                        for (QueueBufferFuture<SendMessageRequest, SendMessageResult> f : futures) {
+                            ids.add(f.get().getMessageId());
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (int p = 0; p < producers; p++) {
+                List<String> ids = results.get(p).get();
+                for (int i = 0; i < messagesPerProducer; i++) {
+                    assertEquals("each future gets its own result", p + "-" + i, ids.get(i));
+                }
+            }
+        } finally {
+            producerPool.shutdownNow();
+        }
+
+        Set<String> sent = new HashSet<String>();
+        int sentCount = 0;
+        for (List<String> batch : batches) {
+            assertTrue("at most 10 entries", batch.size() <= 10);
+            sent.addAll(batch);
+            sentCount += batch.size();
+        }
+        assertEquals("no message duplicated", sent.size(), sentCount);
+        assertEquals("no message lost", producers * messagesPerProducer, sent.size());
+
+        OutboundBatchMetrics metrics = config.getOutboundBatchMetrics();
+        assertEquals(producers * messagesPerProducer, metrics.getRequestCount());
+        assertEquals(batches.size(), metrics.getBatchCount());
+    }
+
+    @Test
+    public void testBatchHoldsTenEntries() throws Exception {
+        SendQueueBuffer buffer = new SendQueueBuffer(sqs, executor,
+                config.withMaxBatchOpenMs(5000).withAdaptiveBatchOpen(false), QUEUE_URL);
+        for (int i = 0; i < 25; i++) {
+            buffer.sendMessage(new SendMessageRequest(QUEUE_URL, "message " + i), null);
+        }
+        buffer.flush();
+
+        assertEquals(3, batches.size());
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (List<String> batch : batches) {
+            sizes.add(batch.size());
+        }
+        Collections.sort(sizes);
+        assertEquals(Arrays.asList(5, 10, 10), sizes);
+        assertEquals(25.0 / 30, config.getOutboundBatchMetrics().getAverageBatchFillRatio(),
+                0.001);
+    }
+
+    @Test
+    public void testBatchStaysBelowMaxSize() throws Exception {
+        SendQueueBuffer buffer = new SendQueueBuffer(sqs, executor,
+                config.withMaxBatchOpenMs(5000).withAdaptiveBatchOpen(false), QUEUE_URL);
+        char[] body = new char[100 * 1024];
+        Arrays.fill(body, 'x');
+        for (int i = 0; i < 5; i++) {
+            buffer.sendMessage(new SendMessageRequest(QUEUE_URL, i + new String(body)), null);
+        }
+        buffer.flush();
+
+        // two 100 KiB messages fit below 256 KiB, three don't
+        assertEquals(3, batches.size());
+        for (List<String> batch : batches) {
+            long size = 0;
+            for (String message : batch) {
+                size += message.getBytes("UTF-8").length;
+            }
+            assertTrue("batch below 256 KiB", size < 256 * 1024);
+            assertTrue(batch.size() <= 2);
+        }
+    }
+
+    @Test
+    public void testAdaptiveWindowShrinksAndGrows() throws Exception {
+        SendQueueBuffer buffer = new SendQueueBuffer(sqs, executor,
+                config.withMaxBatchOpenMs(1000), QUEUE_URL);
+
+        // a burst fills a batch and sets a short time between requests
+        for (int i = 0; i < 10; i++) {
+            buffer.sendMessage(new SendMessageRequest(QUEUE_URL, "burst " + i), null);
+        }
+        // requests now arrive every 60 ms. The window starts short, so the
+        // first ones are sent alone instead of waiting the full second, and
+        // grows with the time between requests until they share batches.
+        List<QueueBufferFuture<SendMessageRequest, SendMessageResult>> futures =
+                new ArrayList<QueueBufferFuture<SendMessageRequest, SendMessageResult>>();
+        for (int i = 0; i < 24; i++) {
+            Thread.sleep(60);
+            futures.add(buffer.sendMessage(new SendMessageRequest(QUEUE_URL, "slow " + i), null));
+        }
+        for (QueueBufferFuture<SendMessageRequest, SendMessageResult> f : futures) {
+            f.get();
+        }
+
+        List<List<String>> sent = new ArrayList<List<String>>(batches);
+        assertEquals(10, sent.get(0).size());
+        assertEquals("window shrunk", Arrays.asList("slow 0"), sent.get(1));
+        assertEquals("window shrunk", Arrays.asList("slow 1"), sent.get(2));
+        int largest = 0;
+        for (List<String> batch : sent.subList(3, sent.size())) {
+            largest = Math.max(largest, batch.size());
+        }
+        assertTrue("window grew, largest batch " + largest, largest > 1);
+    }
+}